@@ -5,6 +5,8 @@ import {
   getPrinterPoolStatus,
   initializePrinterPool,
   openCashBox,
+  printBatch,
+  printRaw,
   printText,
   reconnectPrinter,
   removePrinterFromPool,
@@ -15,8 +17,16 @@ import {
   deletePrinterPendingJobs,
   retryPendingJobsFromPrinter,
   getPrinterStatus,
+  registerLogo,
+  removeLogo,
+  registerTemplate,
+  removeTemplate,
+  printTemplate,
+  setEventPolicy,
 } from "../src/printerModule";
+import { createTableRow } from "../src/table";
 import {
+  LogoStorage,
   PosPrinterType,
   PrintAlignment,
   PrintFontSize,
@@ -24,6 +34,7 @@ import {
   type IPosPrinter,
   type PrintJobMetadata,
   type PrintJobRow,
+  type TemplateRow,
 } from "../src/types";
 import { LINKING_ERROR } from "../src/constants";
 
@@ -37,6 +48,8 @@ jest.mock("react-native", () => {
     NativeModules: {
       PosThermalPrinter: {
         setPrintJobs: jest.fn(),
+        setPrintJobsBatch: jest.fn(),
+        setRawPrintJob: jest.fn(),
         retryPrinterConnection: jest.fn(),
         getPrinterPoolStatus: jest.fn(),
         getPendingJobDetails: jest.fn(),
@@ -51,6 +64,12 @@ jest.mock("react-native", () => {
         dismissPendingJobs: jest.fn(),
         retryPendingJobsFromPrinter: jest.fn(),
         checkPrinterStatus: jest.fn(),
+        registerLogo: jest.fn(),
+        registerTemplate: jest.fn(),
+        removeTemplate: jest.fn(),
+        setTemplatePrintJob: jest.fn(),
+        setEventPolicy: jest.fn(),
+        removeLogo: jest.fn(),
       },
       PrinterReachability: {},
     },
@@ -142,6 +161,156 @@ describe("printText", () => {
   });
 });
 
+describe("printBatch", () => {
+  const receipt: PrintJobRow[] = [
+    {
+      type: PrintJobRowType.TEXT,
+      text: "Receipt",
+      bold: false,
+      fontSize: PrintFontSize.NORMAL,
+      alignment: PrintAlignment.LEFT,
+      wrapWords: true,
+    },
+  ];
+  const kitchenTicket: PrintJobRow[] = [
+    {
+      type: PrintJobRowType.TEXT,
+      text: "KOT",
+      bold: true,
+      fontSize: PrintFontSize.TALL,
+      alignment: PrintAlignment.LEFT,
+      wrapWords: true,
+    },
+  ];
+  const counter: IPosPrinter = { ip: testIp, type: PosPrinterType.NETWORK };
+  const kitchen: IPosPrinter = {
+    ip: "192.168.1.101",
+    type: PosPrinterType.NETWORK,
+  };
+
+  const native = NativeModules.PosThermalPrinter;
+
+  beforeEach(() => {
+    jest.clearAllMocks();
+  });
+
+  it("should send all jobs in one native call and return their ids", async () => {
+    native.setPrintJobsBatch.mockResolvedValue(["PJ-1", "PJ-2"]);
+
+    const ids = await printBatch([
+      { printer: counter, payload: receipt, metadata: { type: "Receipt" } },
+      { printer: kitchen, payload: kitchenTicket, metadata: { type: "KOT" } },
+    ]);
+
+    expect(ids).toEqual(["PJ-1", "PJ-2"]);
+    expect(native.setPrintJobsBatch).toHaveBeenCalledTimes(1);
+    expect(native.setPrintJobsBatch).toHaveBeenCalledWith([
+      {
+        printer: counter,
+        content: receipt,
+        metadata: JSON.stringify({ type: "Receipt" }),
+      },
+      {
+        printer: kitchen,
+        content: kitchenTicket,
+        metadata: JSON.stringify({ type: "KOT" }),
+      },
+    ]);
+    expect(native.setPrintJobs).not.toHaveBeenCalled();
+  });
+
+  it("should fall back to one call per job without the native batch method", async () => {
+    const batch = native.setPrintJobsBatch;
+    native.setPrintJobsBatch = undefined;
+    native.setPrintJobs.mockResolvedValue(true);
+
+    try {
+      const ids = await printBatch([
+        { printer: counter, payload: receipt, metadata: { type: "Receipt" } },
+        { printer: kitchen, payload: kitchenTicket, metadata: { type: "KOT" } },
+      ]);
+
+      expect(ids).toBeNull();
+      expect(native.setPrintJobs).toHaveBeenNthCalledWith(
+        1,
+        counter,
+        receipt,
+        JSON.stringify({ type: "Receipt" }),
+      );
+      expect(native.setPrintJobs).toHaveBeenNthCalledWith(
+        2,
+        kitchen,
+        kitchenTicket,
+        JSON.stringify({ type: "KOT" }),
+      );
+    } finally {
+      native.setPrintJobsBatch = batch;
+    }
+  });
+
+  it("should reject when the batch is rejected", async () => {
+    const consoleSpy = jest.spyOn(console, "error").mockImplementation();
+    native.setPrintJobsBatch.mockRejectedValue(new Error("Batch error"));
+
+    await expect(
+      printBatch([
+        { printer: counter, payload: receipt, metadata: { type: "Receipt" } },
+      ]),
+    ).rejects.toThrow("Batch error");
+    expect(consoleSpy).toHaveBeenCalled();
+    consoleSpy.mockRestore();
+  });
+});
+
+describe("printRaw", () => {
+  const printer: IPosPrinter = { ip: testIp, type: PosPrinterType.NETWORK };
+  const metadata: PrintJobMetadata = { type: "Report" };
+
+  beforeEach(() => {
+    jest.clearAllMocks();
+  });
+
+  it("should pass a base64 payload through unchanged", async () => {
+    NativeModules.PosThermalPrinter.setRawPrintJob.mockResolvedValue(true);
+
+    const result = await printRaw(printer, "G0AKHVYA", metadata);
+
+    expect(result).toBe(true);
+    expect(NativeModules.PosThermalPrinter.setRawPrintJob).toHaveBeenCalledWith(
+      printer,
+      "G0AKHVYA",
+      JSON.stringify(metadata),
+    );
+  });
+
+  it("should encode byte payloads as base64", async () => {
+    NativeModules.PosThermalPrinter.setRawPrintJob.mockResolvedValue(true);
+
+    await printRaw(printer, new Uint8Array([0x1b, 0x40, 0x0a]), metadata);
+    await printRaw(printer, new Uint8Array([0x1b, 0x40, 0x0a, 0x1d]).buffer, metadata);
+
+    const calls = NativeModules.PosThermalPrinter.setRawPrintJob.mock.calls;
+    expect(calls[0][1]).toBe("G0AK");
+    expect(calls[1][1]).toBe("G0AKHQ==");
+  });
+
+  it("should return false when the native call fails", async () => {
+    NativeModules.PosThermalPrinter.setRawPrintJob.mockRejectedValue(
+      new Error("Raw error"),
+    );
+    const consoleSpy = jest.spyOn(console, "error").mockImplementation();
+
+    const result = await printRaw(printer, "G0AK", metadata);
+
+    expect(result).toBe(false);
+    expect(consoleSpy).toHaveBeenCalledWith(
+      "Error printing raw data:",
+      expect.any(Error),
+    );
+    consoleSpy.mockRestore();
+  });
+});
+
 describe("openCashBox", () => {
   it("should send correct cash drawer open command", async () => {
     const printer: IPosPrinter = {
@@ -716,6 +885,232 @@ describe("getPrinterStatus", () => {
   });
 });
 
+describe("createTableRow", () => {
+  it("should transpose rows into one array of cells per column", () => {
+    const columns = [
+      { width: 30, alignment: PrintAlignment.LEFT },
+      { width: 6, alignment: PrintAlignment.CENTER },
+      { width: 12, alignment: PrintAlignment.RIGHT, bold: true },
+    ];
+
+    const row = createTableRow(
+      columns,
+      [
+        ["Coffee", 2, "$6.00"],
+        ["Tea", 1, "$2.50"],
+      ],
+      { fontSize: PrintFontSize.NORMAL },
+    );
+
+    expect(row).toEqual({
+      type: PrintJobRowType.TABLE,
+      columns,
+      data: [
+        ["Coffee", "Tea"],
+        [2, 1],
+        ["$6.00", "$2.50"],
+      ],
+      fontSize: PrintFontSize.NORMAL,
+    });
+  });
+
+  it("should fill missing cells with empty strings", () => {
+    const row = createTableRow(
+      [{ width: 24 }, { width: 24 }],
+      [["Subtotal"], ["Total", "$8.50"]],
+    );
+
+    expect(row.data).toEqual([
+      ["Subtotal", "Total"],
+      ["", "$8.50"],
+    ]);
+  });
+});
+
+describe("registerLogo", () => {
+  it("should register a logo with options", async () => {
+    NativeModules.PosThermalPrinter.registerLogo.mockResolvedValue(true);
+
+    const result = await registerLogo("store", "https://example.com/logo.png", {
+      width: 50,
+      storage: LogoStorage.DOWNLOAD,
+    });
+
+    expect(result).toBe(true);
+    expect(NativeModules.PosThermalPrinter.registerLogo).toHaveBeenCalledWith(
+      "store",
+      "https://example.com/logo.png",
+      { width: 50, storage: LogoStorage.DOWNLOAD },
+    );
+  });
+
+  it("should handle errors when registering a logo", async () => {
+    const consoleSpy = jest.spyOn(console, "error").mockImplementation();
+    NativeModules.PosThermalPrinter.registerLogo.mockRejectedValue(
+      new Error("Download error"),
+    );
+
+    const result = await registerLogo("store", "https://example.com/logo.png");
+
+    expect(result).toBe(false);
+    expect(consoleSpy).toHaveBeenCalled();
+    consoleSpy.mockRestore();
+  });
+});
+
+describe("removeLogo", () => {
+  it("should remove a logo by key", async () => {
+    NativeModules.PosThermalPrinter.removeLogo.mockResolvedValue(true);
+
+    const result = await removeLogo("store");
+
+    expect(result).toBe(true);
+    expect(NativeModules.PosThermalPrinter.removeLogo).toHaveBeenCalledWith(
+      "store",
+    );
+  });
+
+  it("should handle errors when removing a logo", async () => {
+    const consoleSpy = jest.spyOn(console, "error").mockImplementation();
+    NativeModules.PosThermalPrinter.removeLogo.mockRejectedValue(
+      new Error("Remove error"),
+    );
+
+    const result = await removeLogo("store");
+
+    expect(result).toBe(false);
+    expect(consoleSpy).toHaveBeenCalled();
+    consoleSpy.mockRestore();
+  });
+});
+
+describe("templates", () => {
+  const rows: TemplateRow[] = [
+    {
+      type: PrintJobRowType.TEXT,
+      text: "Order {{order}}",
+      bold: true,
+      fontSize: PrintFontSize.NORMAL,
+      alignment: PrintAlignment.LEFT,
+      wrapWords: false,
+    },
+    {
+      type: "SECTION",
+      name: "items",
+      rows: [
+        {
+          type: PrintJobRowType.TEXT,
+          text: "{{qty}} x {{name}}",
+          bold: false,
+          fontSize: PrintFontSize.NORMAL,
+          alignment: PrintAlignment.LEFT,
+          wrapWords: true,
+        },
+      ],
+    },
+    { type: PrintJobRowType.CUT },
+  ];
+
+  beforeEach(() => {
+    jest.clearAllMocks();
+  });
+
+  it("should register a template with its rows", async () => {
+    NativeModules.PosThermalPrinter.registerTemplate.mockResolvedValue(true);
+
+    const result = await registerTemplate("receipt", rows);
+
+    expect(result).toBe(true);
+    expect(
+      NativeModules.PosThermalPrinter.registerTemplate,
+    ).toHaveBeenCalledWith("receipt", rows);
+  });
+
+  it("should print a template with only its values", async () => {
+    NativeModules.PosThermalPrinter.setTemplatePrintJob.mockResolvedValue(true);
+    const printer: IPosPrinter = { ip: testIp, type: PosPrinterType.NETWORK };
+    const variables = {
+      order: 1042,
+      items: [
+        { qty: 2, name: "Flat white" },
+        { qty: 1, name: "Croissant" },
+      ],
+    };
+
+    const result = await printTemplate(printer, "receipt", variables, {
+      type: "Receipt",
+    });
+
+    expect(result).toBe(true);
+    expect(
+      NativeModules.PosThermalPrinter.setTemplatePrintJob,
+    ).toHaveBeenCalledWith(
+      printer,
+      "receipt",
+      variables,
+      JSON.stringify({ type: "Receipt" }),
+    );
+  });
+
+  it("should remove a template by key", async () => {
+    NativeModules.PosThermalPrinter.removeTemplate.mockResolvedValue(true);
+
+    expect(await removeTemplate("receipt")).toBe(true);
+    expect(NativeModules.PosThermalPrinter.removeTemplate).toHaveBeenCalledWith(
+      "receipt",
+    );
+  });
+
+  it("should handle errors when printing an unknown template", async () => {
+    const consoleSpy = jest.spyOn(console, "error").mockImplementation();
+    NativeModules.PosThermalPrinter.setTemplatePrintJob.mockRejectedValue(
+      new Error("Unknown template: missing"),
+    );
+
+    const result = await printTemplate(
+      { ip: testIp, type: PosPrinterType.NETWORK },
+      "missing",
+      {},
+      { type: "Receipt" },
+    );
+
+    expect(result).toBe(false);
+    expect(consoleSpy).toHaveBeenCalled();
+    consoleSpy.mockRestore();
+  });
+});
+
+describe("setEventPolicy", () => {
+  it("should pass the policy to the native module", async () => {
+    NativeModules.PosThermalPrinter.setEventPolicy.mockResolvedValue(true);
+
+    const result = await setEventPolicy("PrinterUnreachable", {
+      minIntervalMillis: 5000,
+    });
+
+    expect(result).toBe(true);
+    expect(NativeModules.PosThermalPrinter.setEventPolicy).toHaveBeenCalledWith(
+      "PrinterUnreachable",
+      { minIntervalMillis: 5000 },
+    );
+  });
+
+  it("should handle errors when setting a policy", async () => {
+    const consoleSpy = jest.spyOn(console, "error").mockImplementation();
+    NativeModules.PosThermalPrinter.setEventPolicy.mockRejectedValue(
+      new Error("Printer pool is not initialized"),
+    );
+
+    const result = await setEventPolicy("PrePrintCheck", {
+      minIntervalMillis: 0,
+    });
+
+    expect(result).toBe(false);
+    expect(consoleSpy).toHaveBeenCalled();
+    consoleSpy.mockRestore();
+  });
+});
+
 describe("EscPosPrinter Proxy", () => {
   it("should use PosThermalPrinter when available", () => {
     const mockPrinter = {
@@ -3,6 +3,7 @@ package com.posthermalprinter
 import android.os.Build
 import android.util.Log
 import androidx.annotation.RequiresApi
+import androidx.annotation.VisibleForTesting
 import com.facebook.react.bridge.Arguments
 import com.facebook.react.bridge.Promise
 import com.facebook.react.bridge.ReactApplicationContext
@@ -10,10 +11,21 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule
 import com.facebook.react.bridge.ReactMethod
 import com.facebook.react.bridge.ReadableArray
 import com.facebook.react.bridge.ReadableMap
+import com.posthermalprinter.helper.EventBus
+import com.posthermalprinter.helper.ExecutorRegistry
+import com.posthermalprinter.helper.LogoRegistry
 import com.posthermalprinter.helper.PrintJobHandler
 import com.posthermalprinter.helper.PrinterServiceInitializer
+import com.posthermalprinter.helper.RasterStats
+import com.posthermalprinter.helper.ReceiptTemplate
+import com.posthermalprinter.helper.TemplateRegistry
 import com.posthermalprinter.imin.IminPrinterModule
+import com.posthermalprinter.util.ImagePrinter
+import com.posthermalprinter.util.PrinterJob
+import com.posthermalprinter.util.PrinterProfile
 import net.posprinter.posprinterface.IMyBinder
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.RejectedExecutionException
 
 
 class PosThermalPrinterModule(private val reactContext: ReactApplicationContext) :
@@ -22,6 +34,17 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
 
   private var printerManager: PrinterManager? = null
 
+  /**
+   * Constructs a module that uses the given printer manager, without starting the printer service.
+   *
+   * @param reactContext The React Native context.
+   * @param printerManager The manager the bridge methods use.
+   */
+  @VisibleForTesting
+  internal constructor(reactContext: ReactApplicationContext, printerManager: PrinterManager) : this(reactContext) {
+    this.printerManager = printerManager
+  }
+
   override fun getName(): String {
     return NAME
   }
@@ -65,23 +88,29 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
   @RequiresApi(Build.VERSION_CODES.N)
   @ReactMethod
   fun getPrinterPoolStatus(promise: Promise) {
-    val resultArray = Arguments.createArray();
+    val manager = printerManager
+    if (manager == null) {
+      promise.resolve(Arguments.createArray())
+      return
+    }
 
-    try {
-      val statusList = printerManager?.getPrinterPoolStatus()
-
-      statusList?.forEach { status ->
-        val statusMap = Arguments.createMap()
-        statusMap.putString("printerIp", status.printerIp)
-        statusMap.putBoolean("isReachable", status.isReachable)
-        statusMap.putString("printerName", status.printerName)
-        resultArray.pushMap(statusMap)
+    manager.getPrinterPoolStatusAsync()
+      .thenAccept { statusList ->
+        val resultArray = Arguments.createArray()
+        statusList.forEach { status ->
+          val statusMap = Arguments.createMap()
+          statusMap.putString("printerIp", status.printerIp)
+          statusMap.putBoolean("isReachable", status.isReachable)
+          statusMap.putString("printerName", status.printerName)
+          resultArray.pushMap(statusMap)
+        }
+        promise.resolve(resultArray)
+      }
+      .exceptionally { throwable ->
+        Log.e("STATUS_ERROR", "Failed to retrieve printer pool status: ${throwable.message}")
+        promise.resolve(Arguments.createArray())
+        null
       }
-      promise.resolve(resultArray)
-    } catch (e: Exception) {
-      Log.e("STATUS_ERROR", "Failed to retrieve printer pool status: ${e.message}")
-      promise.resolve(resultArray);
-    }
   }
 
   /**
@@ -100,12 +129,19 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
     val ip = printerConfig.getString("ip") ?: ""
     val type = printerConfig.getString("type") ?: "NETWORK"
     try {
-      val result = printerManager?.addPrinterAsync(ip, type)?.get();
-      if (result == true) {
-        promise.resolve(true)
-      } else {
+      val manager = printerManager
+      if (manager == null) {
         promise.resolve(false)
+        return
       }
+      manager.addPrinterAsync(ip, type, readProfile(printerConfig))
+        .whenComplete { result, throwable ->
+          if (throwable != null) {
+            promise.reject("ADD_PRINTER_ERROR", "Failed to add printer to pool: ${throwable.message}")
+          } else {
+            promise.resolve(result == true)
+          }
+        }
     } catch (e: Exception) {
       promise.reject("ADD_PRINTER_ERROR", "Failed to add printer to pool: ${e.message}")
     }
@@ -126,12 +162,19 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
 
 
     try {
-      val result = printerManager?.removePrinterAsync(ip, type)?.get();
-      if (result == true) {
-        promise.resolve(true)
-      } else {
+      val manager = printerManager
+      if (manager == null) {
         promise.resolve(false)
+        return
       }
+      manager.removePrinterAsync(ip, type)
+        .whenComplete { result, throwable ->
+          if (throwable != null) {
+            promise.reject("REMOVE_PRINTER_ERROR", "Failed to remove printer from pool: ${throwable.message}")
+          } else {
+            promise.resolve(result == true)
+          }
+        }
     } catch (e: Exception) {
       promise.reject("REMOVE_PRINTER_ERROR", "Failed to remove printer from pool: ${e.message}")
     }
@@ -150,12 +193,20 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
     val ip = printerConfig.getString("ip") ?: ""
     val type = printerConfig.getString("type") ?: "NETWORK"
 
-    if (printerManager != null) {
-      val result = printerManager?.addPrinterAsync(ip, type)?.get();
-      if (result == true) {
-        printerManager?.changePendingPrintJobsPrinter(printerConfig, printerConfig);
-      }
-      promise.resolve(result)
+    val manager = printerManager
+    if (manager != null) {
+      manager.addPrinterAsync(ip, type, readProfile(printerConfig))
+        .whenComplete { result, throwable ->
+          if (throwable != null) {
+            Log.e("retryPrinterConnection", "Failed to reconnect printer: ${throwable.message}")
+            promise.resolve(false)
+            return@whenComplete
+          }
+          if (result == true) {
+            manager.changePendingPrintJobsPrinter(printerConfig, printerConfig)
+          }
+          promise.resolve(result == true)
+        }
     } else {
       promise.resolve(false)
     }
@@ -260,6 +311,68 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
     }
   }
 
+  /**
+   * Sets a print job whose content is already encoded as ESC/POS bytes.
+   * The bytes are sent as they are, through the same queue as other jobs.
+   *
+   * @param printerConfig The target printer.
+   * @param data The ESC/POS bytes, base64 encoded.
+   * @param metadata Additional metadata for the print job.
+   * @param promise A promise to resolve with the result of the operation.
+   */
+  @RequiresApi(Build.VERSION_CODES.O)
+  @ReactMethod
+  fun setRawPrintJob(
+    printerConfig: ReadableMap,
+    data: String,
+    metadata: String,
+    promise: Promise
+  ) {
+
+    val ip = printerConfig.getString("ip") ?: ""
+    val type = printerConfig.getString("type") ?: "NETWORK"
+
+    try {
+      val job = PrintJobHandler.createRawPrintJob(ip, type, PrintJobHandler.decodeRawData(data), metadata)
+      val result = printerManager?.addPrintJob(job)
+      promise.resolve(result)
+    } catch (e: Exception) {
+      promise.reject("PRINT_JOB_ERROR", "Failed to set raw print job: ${e.message}")
+    }
+  }
+
+  /**
+   * Sets several print jobs in one call.
+   * Every job is parsed before any is queued, so a malformed job rejects the whole batch.
+   *
+   * @param jobs The jobs, each a map with `printer` (printer config), `content` and `metadata`.
+   * @param promise A promise to resolve with the job ids, in the order of the jobs.
+   */
+  @RequiresApi(Build.VERSION_CODES.O)
+  @ReactMethod
+  fun setPrintJobsBatch(jobs: ReadableArray, promise: Promise) {
+    try {
+      val manager = printerManager ?: throw IllegalStateException("Printer pool is not initialized")
+      val printJobs = ArrayList<PrinterJob>(jobs.size())
+      for (i in 0 until jobs.size()) {
+        val entry = jobs.getMap(i) ?: throw IllegalArgumentException("Job $i is not an object")
+        val printerConfig = entry.getMap("printer") ?: throw IllegalArgumentException("Job $i has no printer")
+        val content = entry.getArray("content") ?: throw IllegalArgumentException("Job $i has no content")
+        val metadata = if (entry.hasKey("metadata")) entry.getString("metadata") ?: "{}" else "{}"
+
+        val ip = printerConfig.getString("ip") ?: ""
+        val type = printerConfig.getString("type") ?: "NETWORK"
+        printJobs.add(PrintJobHandler.createPrintJob(ip, type, content, metadata))
+      }
+
+      val jobIds = Arguments.createArray()
+      manager.addPrintJobs(printJobs).forEach { jobIds.pushString(it) }
+      promise.resolve(jobIds)
+    } catch (e: Exception) {
+      promise.reject("PRINT_JOB_ERROR", "Failed to set print jobs: ${e.message}")
+    }
+  }
+
   /**
    * Transfers pending print jobs from one printer to another.
    *
@@ -314,6 +427,191 @@ class PosThermalPrinterModule(private val reactContext: ReactApplicationContext)
   }
 
 
+  //endregion
+
+  /**
+   * Reads the optional capability profile preset of a printer config.
+   *
+   * @param printerConfig The printer config received from JavaScript.
+   * @return The profile preset, or null to select one automatically.
+   */
+  private fun readProfile(printerConfig: ReadableMap): PrinterProfile? {
+    if (!printerConfig.hasKey("profile")) {
+      return null
+    }
+    val name = printerConfig.getString("profile") ?: return null
+    return PrinterProfile.forName(name) ?: run {
+      Log.w(NAME, "Unknown printer profile: $name")
+      null
+    }
+  }
+
+  //region Logo Methods
+
+  /**
+   * Registers a logo that can be printed by key with LOGO print items.
+   * The logo is uploaded to a printer's graphics memory the first time it is printed there.
+   *
+   * @param key The key used to print the logo.
+   * @param url The URL of the logo image.
+   * @param options Optional settings: width (percentage of the print width) and storage (NV or DOWNLOAD).
+   * @param promise A promise to resolve with true if the logo was registered.
+   */
+  @RequiresApi(Build.VERSION_CODES.N)
+  @ReactMethod
+  fun registerLogo(key: String, url: String, options: ReadableMap?, promise: Promise) {
+    val widthPercentage = if (options?.hasKey("width") == true) options.getInt("width").coerceIn(1, 100) else 100
+    val storage = if (options?.hasKey("storage") == true && options.getString("storage") == "DOWNLOAD") {
+      LogoRegistry.Storage.DOWNLOAD
+    } else {
+      LogoRegistry.Storage.NV
+    }
+
+    try {
+      CompletableFuture.supplyAsync({
+        // Decode for the widest supported printer; narrower printers scale it down
+        val maxWidth = PrinterProfile.PRINTER_80MM.dotWidth * widthPercentage / 100
+        val bitmap = ImagePrinter.downloadImageAsBitmap(url, maxWidth)
+          ?: throw IllegalArgumentException("Could not download logo from $url")
+        LogoRegistry.getInstance().register(key, bitmap, widthPercentage, storage)
+        true
+      }, ExecutorRegistry.getInstance().io()).whenComplete { result, error ->
+        if (error != null) {
+          promise.reject("LOGO_ERROR", "Failed to register logo: ${error.cause?.message ?: error.message}")
+        } else {
+          promise.resolve(result)
+        }
+      }
+    } catch (e: RejectedExecutionException) {
+      promise.reject("LOGO_ERROR", "Failed to register logo: ${e.message}")
+    }
+  }
+
+  /**
+   * Removes a registered logo.
+   *
+   * @param key The key of the logo to remove.
+   * @param promise A promise to resolve with true if the logo was removed.
+   */
+  @ReactMethod
+  fun removeLogo(key: String, promise: Promise) {
+    promise.resolve(LogoRegistry.getInstance().remove(key))
+  }
+
+  //endregion
+
+  //region Event Methods
+
+  /**
+   * Sets how an event is filtered and rate-limited before it reaches JavaScript.
+   * Options that are not given keep their current value.
+   *
+   * @param event The name of the event, e.g. PrinterUnreachable.
+   * @param options stateChangesOnly (drop events repeating the last state of a printer) and
+   * minIntervalMillis (the shortest time between two events of a printer; 0 for no limit).
+   * @param promise A promise to resolve with true once the policy is set.
+   */
+  @ReactMethod
+  fun setEventPolicy(event: String, options: ReadableMap, promise: Promise) {
+    val manager = printerManager
+    if (manager == null) {
+      promise.reject("EVENT_ERROR", "Printer pool is not initialized")
+      return
+    }
+
+    val eventBus = manager.eventManager.eventBus
+    val current = eventBus.getPolicy(event)
+    val stateChangesOnly = if (options.hasKey("stateChangesOnly")) options.getBoolean("stateChangesOnly") else current.stateChangesOnly
+    val minIntervalMillis = if (options.hasKey("minIntervalMillis")) options.getDouble("minIntervalMillis").toLong() else current.minIntervalMillis
+    eventBus.configure(event, EventBus.Policy(stateChangesOnly, minIntervalMillis))
+    promise.resolve(true)
+  }
+
+  /**
+   * Gets how many raster bytes were sent for printed images, compared with full width rasters.
+   *
+   * @param reset Whether to reset the counters after reading them.
+   * @param promise A promise to resolve with the image count, the full and sent sizes in bytes and the saved percentage.
+   */
+  @ReactMethod
+  fun getRasterStats(reset: Boolean, promise: Promise) {
+    val stats = RasterStats.getInstance()
+    val result = Arguments.createMap()
+    result.putDouble("images", stats.images.toDouble())
+    result.putDouble("fullBytes", stats.fullBytes.toDouble())
+    result.putDouble("sentBytes", stats.sentBytes.toDouble())
+    result.putDouble("savedPercentage", stats.savedPercentage)
+    if (reset) {
+      stats.reset()
+    }
+    promise.resolve(result)
+  }
+
+  //endregion
+
+  //region Template Methods
+
+  /**
+   * Registers a receipt template that can be printed by key with only its values.
+   * Rows may contain {{name}} placeholders; SECTION rows repeat their rows for each entry of a list value.
+   *
+   * @param key The key used to print the template.
+   * @param rows The rows of the template.
+   * @param promise A promise to resolve with true if the template was registered.
+   */
+  @RequiresApi(Build.VERSION_CODES.N)
+  @ReactMethod
+  fun registerTemplate(key: String, rows: ReadableArray, promise: Promise) {
+    try {
+      TemplateRegistry.getInstance().register(key, ReceiptTemplate.parse(rows))
+      promise.resolve(true)
+    } catch (e: Exception) {
+      promise.reject("TEMPLATE_ERROR", "Failed to register template: ${e.message}")
+    }
+  }
+
+  /**
+   * Removes a registered receipt template.
+   *
+   * @param key The key of the template to remove.
+   * @param promise A promise to resolve with true if the template was removed.
+   */
+  @ReactMethod
+  fun removeTemplate(key: String, promise: Promise) {
+    promise.resolve(TemplateRegistry.getInstance().remove(key))
+  }
+
+  /**
+   * Sets a print job that renders a registered template with the given values.
+   *
+   * @param printerConfig The target printer.
+   * @param key The key of the template.
+   * @param variables The values of the placeholders, and a list of value maps per section.
+   * @param metadata Additional metadata for the print job.
+   * @param promise A promise to resolve with the result of the operation.
+   */
+  @RequiresApi(Build.VERSION_CODES.O)
+  @ReactMethod
+  fun setTemplatePrintJob(
+    printerConfig: ReadableMap,
+    key: String,
+    variables: ReadableMap,
+    metadata: String,
+    promise: Promise
+  ) {
+
+    val ip = printerConfig.getString("ip") ?: ""
+    val type = printerConfig.getString("type") ?: "NETWORK"
+
+    try {
+      val job = PrintJobHandler.createTemplatePrintJob(ip, type, key, variables.toHashMap(), metadata)
+      val result = printerManager?.addPrintJob(job)
+      promise.resolve(result)
+    } catch (e: Exception) {
+      promise.reject("PRINT_JOB_ERROR", "Failed to set template print job: ${e.message}")
+    }
+  }
+
   //endregion
 
   /**
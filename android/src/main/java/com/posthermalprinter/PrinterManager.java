@@ -10,25 +10,26 @@ import com.posthermalprinter.helper.*;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.WritableArray;
 import com.posthermalprinter.imin.IminPrinterModule;
-import com.posthermalprinter.util.PrintItem;
 import com.posthermalprinter.util.PrinterJob;
+import com.posthermalprinter.util.PrinterProfile;
 import com.posthermalprinter.util.PrinterStatus;
 
 import net.posprinter.posprinterface.IMyBinder;
 import net.posprinter.posprinterface.TaskCallback;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages printer operations including adding, removing printers, and handling print jobs.
@@ -38,10 +39,11 @@ public class PrinterManager {
   private static final String TAG = "PrinterManager";
   private final List<String> printerPool;
   private final BlockingQueue<PrinterJob> printQueue; // A queue for print jobs
-  private final ExecutorService printExecutor;
   private final PrintQueueProcessor queueProcessor;
   private final PrinterEventManager eventManager;
   private final PrinterStatusManager statusManager;
+  // printer -> the last batch of that printer still waiting for its images
+  private final Map<String, CompletableFuture<Void>> pendingResolution = new ConcurrentHashMap<>();
 
 
 //  If you need a live monitoring
@@ -57,15 +59,29 @@ public class PrinterManager {
   public PrinterManager(List<String> printerPool, ReactApplicationContext reactContext) {
     this.printerPool = (printerPool != null) ? printerPool : new ArrayList<>();
     this.printQueue = new LinkedBlockingQueue<>();
-    this.printExecutor = Executors.newCachedThreadPool();
     this.eventManager = new PrinterEventManager(reactContext);
     this.queueProcessor = new PrintQueueProcessor(printQueue, printerPool, this, eventManager);
     this.statusManager = new PrinterStatusManager();
 
-//    this.printerConnectionUtils = new PrinterConnectionUtils(reactContext);
+    IminPrinterModule iminPrinterModule = PosThermalPrinterModule.Companion.getIMinPrinterModule();
+    if (iminPrinterModule != null) {
+      iminPrinterModule.getPrintChannel().setWarningListener(
+        paperLow -> eventManager.sendPaperStatus("INTERNAL", paperLow));
+    }
+
+//    this.printerConnectionUtils = new PrinterConnectionUtils(eventManager);
   }
 
 
+  /**
+   * Gets the manager of the events sent to the React Native layer.
+   *
+   * @return The event manager.
+   */
+  public PrinterEventManager getEventManager() {
+    return eventManager;
+  }
+
   /**
    * Asynchronously adds a printer to the printer pool.
    *
@@ -73,17 +89,36 @@ public class PrinterManager {
    * @return A CompletableFuture that resolves to true if the printer was added successfully, false otherwise
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
-  public CompletableFuture<Boolean> addPrinterAsync(String printerIp, String type) throws ExecutionException, InterruptedException {
+  public CompletableFuture<Boolean> addPrinterAsync(String printerIp, String type) {
+    return addPrinterAsync(printerIp, type, null);
+  }
+
+  /**
+   * Asynchronously adds a printer to the printer pool with a capability profile.
+   * The calling thread never waits: the reachability check and the connection test run in
+   * the background.
+   *
+   * @param printerIp The IP address of the printer to add
+   * @param type      The printer type, NETWORK or INTERNAL
+   * @param profile   The capability profile of the printer, or null to select one automatically
+   * @return A CompletableFuture that resolves to true if the printer was added successfully, false otherwise
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public CompletableFuture<Boolean> addPrinterAsync(String printerIp, String type, PrinterProfile profile) {
     CompletableFuture<Boolean> result = new CompletableFuture<>();
+    PrinterProfileRegistry.getInstance().configure(Objects.equals(type, "INTERNAL") ? "INTERNAL" : printerIp, profile);
 
 
     if (!Objects.equals(type, "INTERNAL")) {
+      // A re-added printer may have been reset, which clears the logos in its download memory
+      LogoRegistry.getInstance().invalidatePrinter(printerIp);
       addNewPrinter(printerIp)
         .thenAccept(added -> {
           if (added) {
             if (!printerPool.contains(printerIp)) {
               printerPool.add(printerIp);
             }
+            eventManager.resetPrinterUnreachableStatus(printerIp);
             Log.i(TAG, "Added Printer Successfully: " + printerIp);
             result.complete(true);
           } else {
@@ -97,13 +132,12 @@ public class PrinterManager {
           return null;
         });
     } else {
-      IminPrinterModule iMinPrinterModule = PosThermalPrinterModule.Companion.getIMinPrinterModule();
-      if (iMinPrinterModule != null) {
-        Boolean iMinResult = iMinPrinterModule.initPrinter();
+      CompletableFuture<Boolean> ready = ensureInternalPrinterReady();
+      if (ready != null) {
         if (!printerPool.contains("INTERNAL")) {
           printerPool.add("INTERNAL");
         }
-        result.complete(iMinResult);
+        ready.whenComplete((isReady, ex) -> result.complete(ex == null && Boolean.TRUE.equals(isReady)));
       } else {
         result.complete(false);
       }
@@ -140,6 +174,8 @@ public class PrinterManager {
 
   /**
    * Adds a print job to the print queue.
+   * The job is accepted immediately. Its images are downloaded in the background, and it
+   * enters the queue once they are ready, after any earlier job for the same printer.
    *
    * @param job The PrinterJob to add to the queue
    * @return true if the job was added successfully, false otherwise
@@ -151,10 +187,7 @@ public class PrinterManager {
     eventManager.sendPrePrintEvent();
 
     try {
-      printQueue.add(job);
-      Log.i("addPrintJob", "Job added ");
-      IMyBinder binder = PosThermalPrinterModule.Companion.getBinder();
-      queueProcessor.processPrintQueue(binder);
+      submitPrintJobs(Collections.singletonList(job));
       return true;
     } catch (Exception e) {
       Log.e("addPrintJob", "Exception: " + e.toString());
@@ -162,6 +195,101 @@ public class PrinterManager {
     }
   }
 
+  /**
+   * Submits a print job from native code, without going through the React Native bridge.
+   * The job is queued exactly like one set from JavaScript. Jobs are usually built with
+   * {@link PrintJobBuilder}; the manager is available from
+   * {@link PrinterServiceInitializer#getPrinterManager()} once the printer pool is initialized.
+   *
+   * @param job The PrinterJob to add to the queue
+   * @return A CompletableFuture that resolves to true once the job was printed, or to false if
+   * it failed or was cancelled
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public CompletableFuture<Boolean> submitPrintJob(PrinterJob job) {
+    CompletableFuture<Boolean> completion = job.getCompletion();
+
+    eventManager.sendPrePrintEvent();
+    try {
+      submitPrintJobs(Collections.singletonList(job));
+    } catch (Exception e) {
+      Log.e("submitPrintJob", "Exception: " + e.toString());
+      job.complete(false);
+    }
+    return completion;
+  }
+
+  /**
+   * Adds several print jobs to the print queue as one batch.
+   * The batch costs a single pre-print check. Its jobs enter the queue together, in order,
+   * once the images of every job are ready and earlier jobs for the same printers are queued.
+   *
+   * @param jobs The jobs to add, in print order
+   * @return The ids of the jobs, in the same order
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public List<String> addPrintJobs(List<PrinterJob> jobs) {
+    List<String> jobIds = new ArrayList<>();
+    if (jobs.isEmpty()) {
+      return jobIds;
+    }
+
+    eventManager.sendPrePrintEvent();
+    submitPrintJobs(jobs);
+
+    for (PrinterJob job : jobs) {
+      jobIds.add(job.getJobId());
+    }
+    return jobIds;
+  }
+
+  /**
+   * Resolves the images of jobs and queues them together after earlier jobs for their printers.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private void submitPrintJobs(List<PrinterJob> jobs) {
+    List<CompletableFuture<Void>> ready = new ArrayList<>();
+    Set<String> printerKeys = new LinkedHashSet<>();
+    for (PrinterJob job : jobs) {
+      eventManager.getJobTracker().record(job, PrintJobTracker.Stage.QUEUED);
+      ready.add(ImageResolver.getInstance().resolve(job.getJobContent()));
+      printerKeys.add(Objects.toString(job.getTargetPrinterIp(), ""));
+    }
+
+    // Claim every printer of the batch at once, so no other job is queued between its jobs
+    synchronized (pendingResolution) {
+      for (String printerKey : printerKeys) {
+        CompletableFuture<Void> previous = pendingResolution.get(printerKey);
+        if (previous != null) {
+          ready.add(previous);
+        }
+      }
+      CompletableFuture<Void> queued = CompletableFuture.allOf(ready.toArray(new CompletableFuture[0]))
+        .handle((ignored, error) -> null)
+        .thenRun(() -> enqueuePrintJobs(jobs));
+      for (String printerKey : printerKeys) {
+        pendingResolution.put(printerKey, queued);
+      }
+    }
+  }
+
+  /**
+   * Puts print jobs whose images are ready into the print queue.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private void enqueuePrintJobs(List<PrinterJob> jobs) {
+    try {
+      synchronized (printQueue) {
+        printQueue.addAll(jobs);
+      }
+      Log.i("addPrintJob", jobs.size() + " job(s) added");
+      IMyBinder binder = PosThermalPrinterModule.Companion.getBinder();
+      queueProcessor.processPrintQueue(binder);
+    } catch (Exception e) {
+      Log.e("addPrintJob", "Exception: " + e.toString());
+    }
+  }
+
   /**
    * Changes the target printer for pending print jobs.
    *
@@ -208,50 +336,48 @@ public class PrinterManager {
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
   public CompletableFuture<Boolean> printToPrinter(PrinterJob job) {
+    return printToPrinter(job, new AtomicLong());
+  }
+
+  /**
+   * Sends a print job directly to a printer, counting the bytes of its commands as they are
+   * handed on to the printer connection.
+   *
+   * @param job       The PrinterJob to print
+   * @param bytesSent Incremented by the size of each command handed on
+   * @return A CompletableFuture that resolves to true if printing was successful, false otherwise,
+   * and completes with a {@link PrintEncodingException} if the commands could not be encoded
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public CompletableFuture<Boolean> printToPrinter(PrinterJob job, AtomicLong bytesSent) {
     CompletableFuture<Boolean> printResult = new CompletableFuture<>();
 
     if (job.getTargetPrinterIp().contentEquals("INTERNAL")) {
       IminPrinterModule iminPrinterModule = PosThermalPrinterModule.Companion.getIMinPrinterModule();
-      if (iminPrinterModule != null) {
-        try {
-          List<List<PrintItem>> jobContent = Collections.singletonList(job.getJobContent());
-          for (List<PrintItem> printItems : jobContent) {
-            List<List<PrintItem>> separatedItems = separatePrintItemsAroundImages(printItems);
-
-            for (List<PrintItem> items : separatedItems) {
-              List<byte[]> commands = PrintJobHandler.processDataBeforeSend(items, job.getTargetPrinterIp());
-              for (byte[] item : commands) {
-                iminPrinterModule.sendRawData(item);
-
-                if (items.get(0).getType() == PrintItem.Type.IMAGE) {
-                  Thread.sleep(1000);
-                } else {
-                  Thread.sleep(5);
-                }
-              }
-            }
-          }
-          printResult.complete(true);
-        } catch (IOException | InterruptedException e) {
-          printResult.completeExceptionally(e);
-        }
+      if (iminPrinterModule == null) {
+        printResult.complete(false);
+        return printResult;
       }
-      return printResult;
+
+      // The channel keeps jobs in order and paces image bands at the speed the printer prints them
+      PrinterProfile profile = PrinterProfileRegistry.getInstance().get(job.getTargetPrinterIp());
+      return iminPrinterModule.getPrintChannel().submit(commandSource(job, bytesSent), profile.getRasterBytesPerSecond());
     } else {
 
       try {
-        final POSPrinter printer = new POSPrinter(job.getTargetPrinterIp());
-        var processedJob = PrintJobHandler.processDataBeforeSend(job.getJobContent(), job.getTargetPrinterIp());
-
+        final POSPrinter printer = new POSPrinter(job.getTargetPrinterIp(),
+          PrinterProfileRegistry.getInstance().get(job.getTargetPrinterIp()));
         Log.i("printToPrinter", "Executing printToPrinter");
-        printer.printData(processedJob, success -> {
-          if (success) {
+        // Commands are sent while later ones, such as the bands of tall images, are encoded
+        printer.printStream(commandSource(job, bytesSent), (success, encodingError) -> {
+          printer.disconnect();
+          if (encodingError != null) {
+            printResult.completeExceptionally(encodingError);
+          } else if (success) {
             Log.d("printToPrinter", "print successful");
-            printer.disconnect();
             printResult.complete(true);
           } else {
             Log.d("printToPrinter", "print un-successful");
-            printer.disconnect();
             printResult.complete(false);
           }
         });
@@ -265,37 +391,35 @@ public class PrinterManager {
   }
 
   /**
-   * Separates print items into groups: before image, image, and after image
-   *
-   * @param printItems List of print items to process
-   * @return List of separated print item groups
+   * Gets the commands of a job. Raw jobs are written as they are; template jobs render their
+   * template, and other jobs are encoded from their print items, while they are sent. The job
+   * is reported as rendering when encoding starts, and as sending when its first command is
+   * handed on.
    */
-  private List<List<PrintItem>> separatePrintItemsAroundImages(List<PrintItem> printItems) {
-    List<List<PrintItem>> result = new ArrayList<>();
-    List<PrintItem> currentGroup = new ArrayList<>();
-
-    for (int i = 0; i < printItems.size(); i++) {
-      PrintItem item = printItems.get(i);
-
-      if (item.getType() == PrintItem.Type.IMAGE) {
-        // If we have items before the image, add them as a group
-        if (!currentGroup.isEmpty()) {
-          result.add(new ArrayList<>(currentGroup));
-          currentGroup = new ArrayList<>(); // Create new list instead of clear()
-        }
-        // Add the image as its own group
-        result.add(Collections.singletonList(item));
-      } else {
-        currentGroup.add(item);
-
-        // Only add the current group if this is the last item
-        if (i == printItems.size() - 1) {
-          result.add(currentGroup);
-        }
-      }
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  POSPrinter.CommandSource commandSource(PrinterJob job, AtomicLong bytesSent) {
+    POSPrinter.CommandSource source;
+    if (job.isRaw()) {
+      source = sink -> sink.write(job.getRawData());
+    } else if (job.isTemplate()) {
+      source = sink -> PrintJobHandler.streamTemplate(job, sink);
+    } else {
+      source = sink -> PrintJobHandler.streamDataBeforeSend(job.getJobContent(), job.getTargetPrinterIp(), sink);
     }
 
-    return result;
+    PrintJobTracker tracker = eventManager.getJobTracker();
+    return sink -> {
+      tracker.record(job, PrintJobTracker.Stage.RENDERING);
+      boolean[] sending = {false};
+      source.writeTo(command -> {
+        if (!sending[0]) {
+          sending[0] = true;
+          tracker.record(job, PrintJobTracker.Stage.SENDING);
+        }
+        bytesSent.addAndGet(command.length);
+        sink.write(command);
+      });
+    };
   }
 
   private void safeDisconnect(IMyBinder binder) {
@@ -345,30 +469,63 @@ public class PrinterManager {
 
 
   /**
-   * Retrieves the status of all printers in the printer pool.
+   * Asynchronously retrieves the status of all printers in the printer pool.
    *
-   * @return A list of PrinterStatus objects representing the status of each printer
+   * @return A CompletableFuture that resolves to the status of each printer
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
-  public List<PrinterStatus> getPrinterPoolStatus() throws ExecutionException, InterruptedException {
+  public CompletableFuture<List<PrinterStatus>> getPrinterPoolStatusAsync() {
     IMyBinder binder = PosThermalPrinterModule.Companion.getBinder();
-    return statusManager.getPrinterPoolStatus(binder, printerPool).get();
+    return statusManager.getPrinterPoolStatus(binder, printerPool);
   }
 
 
   @RequiresApi(api = Build.VERSION_CODES.N)
   private CompletableFuture<Boolean> addNewPrinter(String printerIp) {
-    CompletableFuture<Boolean> additionResult = new CompletableFuture<>();
-
     Log.i("addNewPrinter", "Attempting to add printer: " + printerIp);
-    
-    // First check if printer is reachable
-    if (!PrinterUtils.isPrinterReachable(printerIp)) {
-      Log.w("addNewPrinter", "Printer not reachable: " + printerIp);
-      additionResult.complete(false);
-      return additionResult;
+
+    // First check if printer is reachable, off the calling thread since it waits for the network
+    CompletableFuture<Boolean> reachable;
+    try {
+      reachable = CompletableFuture.supplyAsync(() -> isPrinterReachable(printerIp), ExecutorRegistry.getInstance().io());
+    } catch (RejectedExecutionException e) {
+      Log.e("addNewPrinter", "No thread to check printer: " + printerIp);
+      return CompletableFuture.completedFuture(false);
     }
 
+    return reachable.thenCompose(isReachable -> {
+      if (!isReachable) {
+        Log.w("addNewPrinter", "Printer not reachable: " + printerIp);
+        return CompletableFuture.completedFuture(false);
+      }
+      return connectNewPrinter(printerIp);
+    });
+  }
+
+  /**
+   * Checks whether a printer answers on the network. Runs on an io thread, since it waits
+   * for the network.
+   */
+  boolean isPrinterReachable(String printerIp) {
+    return PrinterUtils.isPrinterReachable(printerIp);
+  }
+
+  /**
+   * Makes sure the internal printer is initialized, without blocking.
+   *
+   * @return A future resolving to true if the printer is ready, or null if the device has no
+   * internal printer module
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  CompletableFuture<Boolean> ensureInternalPrinterReady() {
+    IminPrinterModule iMinPrinterModule = PosThermalPrinterModule.Companion.getIMinPrinterModule();
+    return iMinPrinterModule != null ? iMinPrinterModule.ensureReadyAsync() : null;
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private CompletableFuture<Boolean> connectNewPrinter(String printerIp) {
+    CompletableFuture<Boolean> additionResult = new CompletableFuture<>();
+
     IMyBinder binder = PosThermalPrinterModule.Companion.getBinder();
     if (binder != null) {
       Log.i("addNewPrinter", "Binder available, connecting to: " + printerIp);
@@ -405,19 +562,12 @@ public class PrinterManager {
 
 
   /**
-   * Shuts down the print executor service.
+   * Stops processing the print queue.
    * This method should be called when the PrinterManager is no longer needed.
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
   public void shutdown() {
-    printExecutor.shutdown();
-    try {
-      if (!printExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
-        printExecutor.shutdownNow();
-      }
-    } catch (InterruptedException e) {
-      printExecutor.shutdownNow();
-    }
+    queueProcessor.shutdown();
   }
 
 }
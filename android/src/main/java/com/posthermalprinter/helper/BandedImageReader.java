@@ -0,0 +1,181 @@
+package com.posthermalprinter.helper;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.posthermalprinter.util.ImagePrinter;
+import com.posthermalprinter.util.PrintItem;
+
+import java.io.IOException;
+
+/**
+ * Reads an image in horizontal bands scaled to its printed width.
+ * Encoded images are read with a region decoder, so only the source rows of the current band
+ * are decoded and memory does not grow with the image height. Formats the region decoder does
+ * not support are decoded whole, subsampled to near the printed width. Bands and decoded regions
+ * are taken from the {@link BitmapPool}, so the bitmaps of one band are reused by the next.
+ */
+public class BandedImageReader {
+
+  private static final String TAG = "BandedImageReader";
+  private static final Paint SCALING_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+  private final BitmapRegionDecoder decoder;
+  private final BitmapFactory.Options options;
+  private final Bitmap bitmap;
+  private final boolean ownsBitmap;
+  private final int sourceWidth;
+  private final int sourceHeight;
+  private final int width;
+  private final int height;
+
+  private BandedImageReader(BitmapRegionDecoder decoder, BitmapFactory.Options options, Bitmap bitmap,
+                            boolean ownsBitmap, int sourceWidth, int sourceHeight, int width) {
+    this.decoder = decoder;
+    this.options = options;
+    this.bitmap = bitmap;
+    this.ownsBitmap = ownsBitmap;
+    this.sourceWidth = sourceWidth;
+    this.sourceHeight = sourceHeight;
+    this.width = width;
+    this.height = Math.max(1, Math.round((float) sourceHeight * width / sourceWidth));
+  }
+
+  /**
+   * Opens the image of an image print item.
+   *
+   * @param item  The image print item.
+   * @param width The printed width of the image in dots.
+   * @return A reader for the image, or null if the item has no image that can be decoded.
+   */
+  public static BandedImageReader open(PrintItem item, int width) {
+    Bitmap bitmap = item.getBitmapImage();
+    if (bitmap != null) {
+      return new BandedImageReader(null, null, bitmap, false, bitmap.getWidth(), bitmap.getHeight(), width);
+    }
+
+    byte[] data = item.getImageData();
+    if (data == null) {
+      return null;
+    }
+
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return null;
+    }
+
+    try {
+      BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(data, 0, data.length, false);
+      int sourceWidth = options.outWidth;
+      int sourceHeight = options.outHeight;
+      options.inJustDecodeBounds = false;
+      options.inSampleSize = ImagePrinter.calculateSampleSize(sourceWidth, sourceHeight, width, 0);
+      options.inPreferredConfig = "image/jpeg".equals(options.outMimeType) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+      return new BandedImageReader(decoder, options, null, false, sourceWidth, sourceHeight, width);
+    } catch (IOException e) {
+      Log.d(TAG, "Region decoding not supported, decoding whole image: " + e.getMessage());
+    }
+
+    Bitmap decoded = ImagePrinter.decodeImage(data, width, 0);
+    return decoded != null
+      ? new BandedImageReader(null, null, decoded, true, decoded.getWidth(), decoded.getHeight(), width)
+      : null;
+  }
+
+  /**
+   * Gets the printed width of the image.
+   *
+   * @return The width in dots.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the printed height of the image.
+   *
+   * @return The height in dots.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Reads a band of the image at its printed size. Release it with {@link #releaseBand(Bitmap)}.
+   *
+   * @param top    The first row of the band, in printed rows.
+   * @param bottom The row below the band, in printed rows.
+   * @return The band, {@link #getWidth()} wide and {@code bottom - top} high.
+   */
+  public Bitmap readBand(int top, int bottom) {
+    int sourceTop = (int) ((long) top * sourceHeight / height);
+    int sourceBottom = (int) Math.min(sourceHeight, ((long) bottom * sourceHeight + height - 1) / height);
+    sourceBottom = Math.max(sourceBottom, sourceTop + 1);
+
+    BitmapPool pool = BitmapPool.getInstance();
+    Bitmap band = pool.acquire(width, bottom - top, Bitmap.Config.ARGB_8888);
+    band.eraseColor(Color.WHITE);
+    Canvas canvas = new Canvas(band);
+    Rect target = new Rect(0, 0, width, bottom - top);
+
+    if (decoder == null) {
+      canvas.drawBitmap(bitmap, new Rect(0, sourceTop, sourceWidth, sourceBottom), target, SCALING_PAINT);
+      return band;
+    }
+
+    // The region is decoded into the top-left corner of a pooled bitmap, which keeps its size
+    int sample = options.inSampleSize;
+    int regionWidth = (sourceWidth + sample - 1) / sample;
+    int regionHeight = (sourceBottom - sourceTop + sample - 1) / sample;
+    Bitmap reusable = pool.acquire(regionWidth, regionHeight, options.inPreferredConfig);
+    reusable.eraseColor(Color.WHITE);
+    options.inBitmap = reusable;
+    Bitmap region = null;
+    try {
+      region = decoder.decodeRegion(new Rect(0, sourceTop, sourceWidth, sourceBottom), options);
+      if (region == null) {
+        throw new IllegalStateException("Failed to decode image rows " + sourceTop + "-" + sourceBottom);
+      }
+      canvas.drawBitmap(region, new Rect(0, 0, regionWidth, regionHeight), target, SCALING_PAINT);
+      return band;
+    } catch (RuntimeException e) {
+      pool.release(band);
+      throw e;
+    } finally {
+      options.inBitmap = null;
+      pool.release(reusable);
+      if (region != reusable) {
+        pool.release(region);
+      }
+    }
+  }
+
+  /**
+   * Returns a band read with {@link #readBand(int, int)} to the bitmap pool.
+   *
+   * @param band The band to release.
+   */
+  public void releaseBand(Bitmap band) {
+    BitmapPool.getInstance().release(band);
+  }
+
+  /**
+   * Releases the decoder and any bitmap decoded by the reader.
+   */
+  public void close() {
+    if (decoder != null) {
+      decoder.recycle();
+    }
+    if (ownsBitmap) {
+      bitmap.recycle();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.posthermalprinter.helper;
+
+import com.posthermalprinter.util.BarcodeTextPosition;
+import com.posthermalprinter.util.BarcodeType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes 1D barcodes with the printer's native barcode commands.
+ * A barcode is sent as a few dozen bytes of {@code GS H}, {@code GS h}, {@code GS w} and
+ * {@code GS k} commands, and rendered by the printer itself.
+ */
+public class BarcodeEncoder {
+
+  private static final int MIN_MODULE_WIDTH = 2;
+  private static final int MAX_MODULE_WIDTH = 6;
+
+  /**
+   * Builds the commands that print a barcode.
+   *
+   * @param type         The barcode symbology.
+   * @param data         The barcode data.
+   * @param height       The bar height in dots (1 - 255).
+   * @param moduleWidth  The width of the narrowest bar in dots (2 - 6).
+   * @param textPosition Where the human readable text is printed.
+   * @return A byte array containing the barcode commands.
+   * @throws IllegalArgumentException If the data can't be encoded with the symbology.
+   */
+  public static byte[] encode(BarcodeType type, String data, int height, int moduleWidth, BarcodeTextPosition textPosition) {
+    if (!type.accepts(data)) {
+      throw new IllegalArgumentException("Invalid " + type + " barcode data: " + data);
+    }
+
+    byte[] payload = type == BarcodeType.CODE128
+      ? code128Payload(data)
+      : data.getBytes(StandardCharsets.US_ASCII);
+    if (payload.length > 255) {
+      throw new IllegalArgumentException(type + " barcode data is too long: " + data.length() + " characters");
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 + payload.length);
+    // HRI position and font A
+    buffer.write(0x1D);
+    buffer.write(0x48);
+    buffer.write(textPosition.ordinal());
+    buffer.write(0x1D);
+    buffer.write(0x66);
+    buffer.write(0);
+    // Bar height
+    buffer.write(0x1D);
+    buffer.write(0x68);
+    buffer.write(Math.max(1, Math.min(height, 255)));
+    // Module width
+    buffer.write(0x1D);
+    buffer.write(0x77);
+    buffer.write(Math.max(MIN_MODULE_WIDTH, Math.min(moduleWidth, MAX_MODULE_WIDTH)));
+    // Function B: GS k m n d1...dn
+    buffer.write(0x1D);
+    buffer.write(0x6B);
+    buffer.write(type.getSymbology());
+    buffer.write(payload.length);
+    buffer.write(payload, 0, payload.length);
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Builds Code 128 data with an explicit code set.
+   * Numeric data of even length uses code set C, which packs two digits per symbol and
+   * prints a barcode about half as wide. Other data uses code set B.
+   */
+  private static byte[] code128Payload(String data) {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream(data.length() + 2);
+    payload.write('{');
+
+    if (data.length() >= 2 && data.length() % 2 == 0 && data.chars().allMatch(Character::isDigit)) {
+      payload.write('C');
+      for (int i = 0; i < data.length(); i += 2) {
+        payload.write((data.charAt(i) - '0') * 10 + (data.charAt(i + 1) - '0'));
+      }
+      return payload.toByteArray();
+    }
+
+    payload.write('B');
+    for (int i = 0; i < data.length(); i++) {
+      char c = data.charAt(i);
+      // '{' starts a code set switch, so a literal brace is sent as "{{"
+      if (c == '{') {
+        payload.write('{');
+      }
+      payload.write(c);
+    }
+    return payload.toByteArray();
+  }
+}
@@ -0,0 +1,136 @@
+package com.posthermalprinter.helper;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps released bitmaps for reuse by later image bands and text lines.
+ * A pooled bitmap is reconfigured to the requested size when its allocation is large enough,
+ * so printing a stream of receipts reuses a handful of printer-width bitmaps instead of
+ * allocating and recycling several per image. The pool is bounded in bytes; bitmaps released
+ * to a full pool are recycled.
+ */
+public class BitmapPool {
+
+  private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+  private static final BitmapPool instance = new BitmapPool(DEFAULT_MAX_BYTES);
+
+  private final long maxBytes;
+  private final List<Bitmap> pool = new ArrayList<>();
+  private long size;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs a new BitmapPool.
+   *
+   * @param maxBytes The maximum number of bytes of bitmaps kept for reuse.
+   */
+  public BitmapPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public static BitmapPool getInstance() {
+    return instance;
+  }
+
+  /**
+   * Gets a mutable bitmap of the given size, reusing a released one when possible.
+   * The content of a reused bitmap is undefined.
+   *
+   * @param width  The width of the bitmap.
+   * @param height The height of the bitmap.
+   * @param config The pixel format of the bitmap.
+   * @return The bitmap. Return it with {@link #release(Bitmap)}.
+   */
+  public Bitmap acquire(int width, int height, Bitmap.Config config) {
+    long needed = (long) width * height * bytesPerPixel(config);
+    Bitmap reused = null;
+
+    synchronized (pool) {
+      // Best fit, so small requests don't take the large bitmaps
+      int best = -1;
+      for (int i = 0; i < pool.size(); i++) {
+        int allocation = pool.get(i).getAllocationByteCount();
+        if (allocation >= needed && (best < 0 || allocation < pool.get(best).getAllocationByteCount())) {
+          best = i;
+        }
+      }
+      if (best >= 0) {
+        reused = pool.remove(best);
+        size -= reused.getAllocationByteCount();
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+
+    if (reused != null) {
+      reused.reconfigure(width, height, config);
+      return reused;
+    }
+    return Bitmap.createBitmap(width, height, config);
+  }
+
+  /**
+   * Returns a bitmap to the pool. The caller must not use the bitmap afterwards.
+   *
+   * @param bitmap The bitmap to release, or null.
+   */
+  public void release(Bitmap bitmap) {
+    if (bitmap == null || bitmap.isRecycled()) {
+      return;
+    }
+    if (!bitmap.isMutable()) {
+      bitmap.recycle();
+      return;
+    }
+
+    int allocation = bitmap.getAllocationByteCount();
+    synchronized (pool) {
+      if (size + allocation <= maxBytes) {
+        pool.add(bitmap);
+        size += allocation;
+        return;
+      }
+    }
+    bitmap.recycle();
+  }
+
+  /**
+   * Gets the number of requests served with a pooled bitmap.
+   *
+   * @return The number of reused bitmaps.
+   */
+  public long getHits() {
+    synchronized (pool) {
+      return hits;
+    }
+  }
+
+  /**
+   * Gets the number of requests that allocated a new bitmap.
+   *
+   * @return The number of allocated bitmaps.
+   */
+  public long getMisses() {
+    synchronized (pool) {
+      return misses;
+    }
+  }
+
+  private static int bytesPerPixel(Bitmap.Config config) {
+    switch (config) {
+      case ALPHA_8:
+        return 1;
+      case RGB_565:
+      case ARGB_4444:
+        return 2;
+      default:
+        return 4;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.posthermalprinter.helper;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps released raster and pixel row buffers for reuse.
+ * Image bands of a printer have a fixed width and height, so buffers are pooled by exact length
+ * and a print run settles on a few sizes that are reused for every band. The pool is bounded in
+ * bytes; buffers released to a full pool are left to the garbage collector.
+ */
+public class BufferPool {
+
+  private static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024;
+
+  private static final BufferPool instance = new BufferPool(DEFAULT_MAX_BYTES);
+
+  private final long maxBytes;
+  private final Map<Integer, ArrayDeque<byte[]>> bytes = new HashMap<>();
+  private final Map<Integer, ArrayDeque<int[]>> ints = new HashMap<>();
+  private long size;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs a new BufferPool.
+   *
+   * @param maxBytes The maximum number of bytes of buffers kept for reuse.
+   */
+  public BufferPool(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public static BufferPool getInstance() {
+    return instance;
+  }
+
+  /**
+   * Gets a zeroed byte buffer of the given length.
+   *
+   * @param length The length of the buffer.
+   * @return The buffer. Return it with {@link #release(byte[])}.
+   */
+  public byte[] acquireBytes(int length) {
+    byte[] buffer;
+    synchronized (this) {
+      ArrayDeque<byte[]> free = bytes.get(length);
+      buffer = free != null ? free.poll() : null;
+      count(buffer != null, length);
+    }
+    if (buffer == null) {
+      return new byte[length];
+    }
+    Arrays.fill(buffer, (byte) 0);
+    return buffer;
+  }
+
+  /**
+   * Gets a zeroed int buffer of the given length.
+   *
+   * @param length The length of the buffer.
+   * @return The buffer. Return it with {@link #release(int[])}.
+   */
+  public int[] acquireInts(int length) {
+    int[] buffer;
+    synchronized (this) {
+      ArrayDeque<int[]> free = ints.get(length);
+      buffer = free != null ? free.poll() : null;
+      count(buffer != null, 4L * length);
+    }
+    if (buffer == null) {
+      return new int[length];
+    }
+    Arrays.fill(buffer, 0);
+    return buffer;
+  }
+
+  /**
+   * Returns a byte buffer to the pool. The caller must not use the buffer afterwards.
+   *
+   * @param buffer The buffer to release, or null.
+   */
+  public synchronized void release(byte[] buffer) {
+    if (buffer == null || size + buffer.length > maxBytes) {
+      return;
+    }
+    ArrayDeque<byte[]> free = bytes.get(buffer.length);
+    if (free == null) {
+      free = new ArrayDeque<>();
+      bytes.put(buffer.length, free);
+    }
+    free.push(buffer);
+    size += buffer.length;
+  }
+
+  /**
+   * Returns an int buffer to the pool. The caller must not use the buffer afterwards.
+   *
+   * @param buffer The buffer to release, or null.
+   */
+  public synchronized void release(int[] buffer) {
+    if (buffer == null || size + 4L * buffer.length > maxBytes) {
+      return;
+    }
+    ArrayDeque<int[]> free = ints.get(buffer.length);
+    if (free == null) {
+      free = new ArrayDeque<>();
+      ints.put(buffer.length, free);
+    }
+    free.push(buffer);
+    size += 4L * buffer.length;
+  }
+
+  /**
+   * Gets the number of requests served with a pooled buffer.
+   *
+   * @return The number of reused buffers.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of requests that allocated a new buffer.
+   *
+   * @return The number of allocated buffers.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of bytes held by the pool.
+   *
+   * @return The pooled bytes.
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  private void count(boolean hit, long length) {
+    if (hit) {
+      hits++;
+      size -= length;
+    } else {
+      misses++;
+    }
+  }
+}
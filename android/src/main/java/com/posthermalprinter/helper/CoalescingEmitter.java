@@ -0,0 +1,92 @@
+package com.posthermalprinter.helper;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects events and hands them to a sink in batches, at most once per interval.
+ * The first event after a flush schedules the next flush, so a burst of events costs one
+ * delivery, and an idle emitter costs nothing.
+ *
+ * @param <T> The type of the events.
+ */
+public class CoalescingEmitter<T> {
+
+  private static final String TAG = "CoalescingEmitter";
+
+  /**
+   * Receives the batches of events.
+   *
+   * @param <T> The type of the events.
+   */
+  public interface Sink<T> {
+    /**
+     * Delivers a batch of events.
+     *
+     * @param events The events, in the order they were added.
+     */
+    void emit(List<T> events);
+  }
+
+  private final long intervalMillis;
+  private final Sink<T> sink;
+  private List<T> pending = new ArrayList<>();
+  private boolean scheduled;
+
+  /**
+   * Constructs a new CoalescingEmitter.
+   *
+   * @param intervalMillis The time events are collected for before a batch is delivered.
+   * @param sink           The sink receiving the batches.
+   */
+  public CoalescingEmitter(long intervalMillis, Sink<T> sink) {
+    this.intervalMillis = intervalMillis;
+    this.sink = sink;
+  }
+
+  /**
+   * Adds an event to the next batch.
+   *
+   * @param event The event to deliver.
+   */
+  public void add(T event) {
+    synchronized (this) {
+      pending.add(event);
+      if (scheduled) {
+        return;
+      }
+      scheduled = true;
+    }
+
+    try {
+      ExecutorRegistry.getInstance().timer().schedule(this::flush, intervalMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      flush();
+    }
+  }
+
+  /**
+   * Delivers the pending events now.
+   */
+  public void flush() {
+    List<T> events;
+    synchronized (this) {
+      scheduled = false;
+      if (pending.isEmpty()) {
+        return;
+      }
+      events = pending;
+      pending = new ArrayList<>();
+    }
+
+    try {
+      sink.emit(events);
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Failed to emit " + events.size() + " events", e);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package com.posthermalprinter.helper;
+
+import com.posthermalprinter.util.CodePage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes text into printer code pages.
+ * Text is split into runs, and each run is assigned the code page that covers the
+ * longest stretch of it, so {@code ESC t n} is only emitted where the code page changes.
+ * The selected code page carries over between lines, and a run it can print is written
+ * without switching.
+ * Characters that no code page covers are reported as uncovered runs.
+ */
+public class CodePageEncoder {
+
+  /**
+   * Code pages tried when the printer does not declare its own list, in order of preference.
+   */
+  public static final List<CodePage> DEFAULT_CODE_PAGES = Collections.unmodifiableList(Arrays.asList(
+    CodePage.PC437,
+    CodePage.PC858,
+    CodePage.WPC1252,
+    CodePage.PC852,
+    CodePage.PC866,
+    CodePage.WPC1251,
+    CodePage.WPC1253,
+    CodePage.WPC1254,
+    CodePage.WPC1257,
+    CodePage.THAI,
+    CodePage.WPC1258
+  ));
+
+  /**
+   * A contiguous piece of text encoded with a single code page.
+   */
+  public static class Run {
+    /**
+     * The code page for this run, or null if no available code page covers it.
+     */
+    public final CodePage codePage;
+    public final String text;
+
+    Run(CodePage codePage, String text) {
+      this.codePage = codePage;
+      this.text = text;
+    }
+  }
+
+  /**
+   * Splits text into code page runs.
+   *
+   * @param text      The text to segment.
+   * @param codePages The code pages supported by the printer, in order of preference.
+   * @return The list of runs covering the whole text.
+   */
+  public static List<Run> segment(String text, List<CodePage> codePages) {
+    List<Run> runs = new ArrayList<>();
+    if (text == null || text.isEmpty()) {
+      return runs;
+    }
+
+    Map<CodePage, CharsetEncoder> encoders = new LinkedHashMap<>();
+    for (CodePage codePage : codePages) {
+      Charset charset = codePage.getCharset();
+      if (charset != null) {
+        encoders.put(codePage, charset.newEncoder());
+      }
+    }
+
+    List<String> units = splitUnits(text, encoders);
+    CodePage current = null;
+    boolean currentUncovered = false;
+    StringBuilder runText = new StringBuilder();
+
+    for (int i = 0; i < units.size(); i++) {
+      String unit = units.get(i);
+
+      if (runText.length() > 0 && !currentUncovered) {
+        CharsetEncoder encoder = encoders.get(current);
+        if (encoder.canEncode(unit)) {
+          runText.append(unit);
+          continue;
+        }
+        // Stay on the current code page if it can spell the character with combining marks
+        String respelled = recompose(unit, Collections.singletonMap(current, encoder));
+        if (respelled != null) {
+          runText.append(respelled);
+          continue;
+        }
+      }
+
+      CodePage best = pickCodePage(units, i, encoders);
+      if (best == null && currentUncovered) {
+        runText.append(unit);
+        continue;
+      }
+
+      if (runText.length() > 0) {
+        runs.add(new Run(currentUncovered ? null : current, runText.toString()));
+        runText.setLength(0);
+      }
+      current = best;
+      currentUncovered = best == null;
+      runText.append(unit);
+    }
+
+    if (runText.length() > 0) {
+      runs.add(new Run(currentUncovered ? null : current, runText.toString()));
+    }
+
+    return runs;
+  }
+
+  /**
+   * Checks whether every run of a segmented text has a code page.
+   *
+   * @param runs The runs returned by {@link #segment(String, List)}.
+   * @return true if the text can be printed without raster fallback, false otherwise.
+   */
+  public static boolean isFullyCovered(List<Run> runs) {
+    for (Run run : runs) {
+      if (run.codePage == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes encoded runs to a buffer, selecting a new code page only when it differs
+   * from the one currently active on the printer.
+   * Runs without a code page are written as one {@code ?} per character, which every code page
+   * prints the same way; callers that can rasterize such text check {@link #isFullyCovered} first.
+   *
+   * @param runs    The runs to write.
+   * @param current The code page currently selected on the printer.
+   * @param buffer  The buffer to write to.
+   * @return The code page selected after the last run.
+   * @throws IOException If writing to the buffer fails.
+   */
+  public static CodePage writeRuns(List<Run> runs, CodePage current, ByteArrayOutputStream buffer) throws IOException {
+    for (Run run : runs) {
+      if (run.codePage == null) {
+        for (int i = 0; i < run.text.codePointCount(0, run.text.length()); i++) {
+          buffer.write('?');
+        }
+        continue;
+      }
+      // A run the selected code page can also print, such as plain ASCII, needs no switch
+      if (run.codePage != current && !canEncode(current, run.text)) {
+        buffer.write(run.codePage.selectCommand());
+        current = run.codePage;
+      }
+      buffer.write(run.text.getBytes(current.getCharset()));
+    }
+    return current;
+  }
+
+  /**
+   * Chooses the code page that covers the longest stretch of units starting at the given index.
+   * Ties go to the code page listed first.
+   */
+  private static CodePage pickCodePage(List<String> units, int start, Map<CodePage, CharsetEncoder> encoders) {
+    CodePage best = null;
+    int bestLength = 0;
+
+    for (Map.Entry<CodePage, CharsetEncoder> entry : encoders.entrySet()) {
+      CharsetEncoder encoder = entry.getValue();
+      int length = 0;
+      while (start + length < units.size() && encoder.canEncode(units.get(start + length))) {
+        length++;
+      }
+      if (length > bestLength) {
+        best = entry.getKey();
+        bestLength = length;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Splits text into code points. A code point that no code page covers is respelled with
+   * combining marks when that makes it encodable (e.g. Vietnamese tone marks in windows-1258).
+   */
+  private static List<String> splitUnits(String text, Map<CodePage, CharsetEncoder> encoders) {
+    String normalized = Normalizer.normalize(text, Normalizer.Form.NFC);
+    List<String> units = new ArrayList<>(normalized.length());
+
+    for (int i = 0; i < normalized.length(); ) {
+      int codePoint = normalized.codePointAt(i);
+      String unit = new String(Character.toChars(codePoint));
+      i += Character.charCount(codePoint);
+
+      if (codePoint < 0x80 || isEncodable(unit, encoders)) {
+        units.add(unit);
+        continue;
+      }
+
+      String recomposed = recompose(unit, encoders);
+      units.add(recomposed != null ? recomposed : unit);
+    }
+
+    return units;
+  }
+
+  /**
+   * Finds an encodable spelling of a character as a precomposed base followed by combining marks.
+   * Every subset of the character's marks is tried on the base, so for example U+1EC7
+   * (e with circumflex and dot below) becomes U+00EA followed by a combining dot below.
+   *
+   * @return The encodable spelling, or null if there is none.
+   */
+  private static String recompose(String unit, Map<CodePage, CharsetEncoder> encoders) {
+    String decomposed = Normalizer.normalize(unit, Normalizer.Form.NFD);
+    int markCount = decomposed.length() - 1;
+    if (markCount < 1 || markCount > 4) {
+      return null;
+    }
+
+    char base = decomposed.charAt(0);
+    for (int mask = (1 << markCount) - 1; mask >= 0; mask--) {
+      StringBuilder composed = new StringBuilder().append(base);
+      StringBuilder remaining = new StringBuilder();
+      for (int i = 0; i < markCount; i++) {
+        char mark = decomposed.charAt(i + 1);
+        if ((mask & (1 << i)) != 0) {
+          composed.append(mark);
+        } else {
+          remaining.append(mark);
+        }
+      }
+      String candidate = Normalizer.normalize(composed, Normalizer.Form.NFC) + remaining;
+      if (isEncodable(candidate, encoders)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private static boolean canEncode(CodePage codePage, String text) {
+    Charset charset = codePage != null ? codePage.getCharset() : null;
+    return charset != null && charset.newEncoder().canEncode(text);
+  }
+
+  private static boolean isEncodable(String unit, Map<CodePage, CharsetEncoder> encoders) {
+    for (CharsetEncoder encoder : encoders.values()) {
+      if (encoder.canEncode(unit)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,17 @@
+package com.posthermalprinter.helper;
+
+import java.io.IOException;
+
+/**
+ * Receives printer commands as they are encoded.
+ */
+@FunctionalInterface
+public interface CommandSink {
+  /**
+   * Writes one printer command.
+   *
+   * @param command The encoded command.
+   * @throws IOException If the command can't be delivered.
+   */
+  void write(byte[] command) throws IOException;
+}
@@ -0,0 +1,160 @@
+package com.posthermalprinter.helper;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A size-bounded directory of cached files.
+ * Files are written atomically and trimmed least recently used first. A file ending with
+ * {@link #META_SUFFIX} holds metadata for the file with the same name and is removed with it.
+ */
+public class DiskCache {
+
+  public static final String META_SUFFIX = ".meta";
+  private static final String TAG = "DiskCache";
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private final File directory;
+  private final long limit;
+
+  /**
+   * Constructs a new DiskCache.
+   *
+   * @param directory The directory holding the cached files.
+   * @param limit     The maximum number of bytes of cached data, not counting metadata.
+   */
+  public DiskCache(File directory, long limit) {
+    this.directory = directory;
+    this.limit = limit;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Could not create cache directory " + directory);
+    }
+  }
+
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * Reads a cached file and marks it as recently used.
+   *
+   * @param name The name of the file.
+   * @return The file contents, or null if the file is not cached.
+   */
+  public byte[] read(String name) {
+    File file = new File(directory, name);
+    if (!file.isFile()) {
+      return null;
+    }
+
+    try (InputStream input = new FileInputStream(file)) {
+      byte[] data = readAll(input);
+      file.setLastModified(System.currentTimeMillis());
+      return data;
+    } catch (IOException e) {
+      Log.w(TAG, "Could not read " + file + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Writes a file atomically, then trims the cache to its limit.
+   *
+   * @param name The name of the file.
+   * @param data The file contents.
+   * @throws IOException If the file can't be written.
+   */
+  public void write(String name, byte[] data) throws IOException {
+    File target = new File(directory, name);
+    File temp = new File(directory, name + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+    try (OutputStream output = new FileOutputStream(temp)) {
+      output.write(data);
+    }
+    if (!temp.renameTo(target)) {
+      temp.delete();
+      throw new IOException("Could not move " + temp + " to " + target);
+    }
+
+    if (!name.endsWith(META_SUFFIX)) {
+      trim();
+    }
+  }
+
+  /**
+   * Deletes the least recently used files until the cache fits its limit.
+   */
+  private synchronized void trim() {
+    File[] files = directory.listFiles((dir, name) -> !name.endsWith(META_SUFFIX) && !name.endsWith(TEMP_SUFFIX));
+    if (files == null) {
+      return;
+    }
+
+    long total = 0;
+    for (File file : files) {
+      total += file.length();
+    }
+    if (total <= limit) {
+      return;
+    }
+
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (File file : files) {
+      if (total <= limit) {
+        break;
+      }
+      total -= file.length();
+      file.delete();
+      new File(directory, file.getName() + META_SUFFIX).delete();
+    }
+  }
+
+  /**
+   * Builds a file name from a cache key.
+   *
+   * @param key The cache key.
+   * @return The hex SHA-256 of the key.
+   */
+  public static String fileName(String key) {
+    return sha256(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Hashes data with SHA-256.
+   *
+   * @param data The data to hash.
+   * @return The hash as a hex string.
+   */
+  public static String sha256(byte[] data) {
+    try {
+      StringBuilder hex = new StringBuilder(64);
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return Integer.toHexString(Arrays.hashCode(data));
+    }
+  }
+
+  static byte[] readAll(InputStream input) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int read;
+    while ((read = input.read(chunk)) != -1) {
+      output.write(chunk, 0, read);
+    }
+    return output.toByteArray();
+  }
+}
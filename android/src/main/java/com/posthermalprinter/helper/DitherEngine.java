@@ -0,0 +1,317 @@
+package com.posthermalprinter.helper;
+
+import android.graphics.Bitmap;
+
+import com.posthermalprinter.util.DitherMode;
+import com.posthermalprinter.util.RasterImage;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts images into monochrome raster images with a selectable dither mode.
+ * All arithmetic is done on integer gray levels. Images are split into horizontal bands that
+ * are dithered in parallel on the render pool. For error diffusion, each band first diffuses
+ * a few rows above it and discards their dots, so the error entering the band is close to the
+ * error a sequential pass would carry across the seam. Bands have a fixed height, so the output
+ * does not depend on the number of cores.
+ */
+public class DitherEngine {
+
+  private static final int BAND_HEIGHT = 64;
+  static final int PRIMING_ROWS = 8;
+  private static final int THRESHOLD = 128;
+
+  // Errors are kept in arrays padded on both sides, so neighbours need no bounds checks
+  private static final int PADDING = 2;
+
+  // 8x8 ordered dither matrix
+  private static final int[][] BAYER_MATRIX = {
+    {0, 32, 8, 40, 2, 34, 10, 42},
+    {48, 16, 56, 24, 50, 18, 58, 26},
+    {12, 44, 4, 36, 14, 46, 6, 38},
+    {60, 28, 52, 20, 62, 30, 54, 22},
+    {3, 35, 11, 43, 1, 33, 9, 41},
+    {51, 19, 59, 27, 49, 17, 57, 25},
+    {15, 47, 7, 39, 13, 45, 5, 37},
+    {63, 31, 55, 23, 61, 29, 53, 21}
+  };
+
+  /**
+   * Reads one row of ARGB pixels of an image.
+   */
+  interface RowReader {
+    void read(int y, int[] row);
+  }
+
+  /**
+   * Dithers a bitmap into a monochrome raster image of the given width.
+   * Transparent pixels are treated as white paper.
+   *
+   * @param source    The bitmap to dither, already scaled to its printed size.
+   * @param widthDots The width of the raster image in dots.
+   * @param leftDots  The offset of the bitmap from the left edge in dots.
+   * @param mode      The dither mode.
+   * @return The packed raster image.
+   */
+  public static RasterImage dither(Bitmap source, int widthDots, int leftDots, DitherMode mode) {
+    return dither(source, widthDots, leftDots, mode, 0);
+  }
+
+  /**
+   * Dithers the lower part of a bitmap into a monochrome raster image of the given width.
+   * The rows above {@code firstRow} only carry error into the dithered rows, so a tall image
+   * dithered piece by piece has no visible seams.
+   *
+   * @param source    The bitmap to dither, already scaled to its printed size.
+   * @param widthDots The width of the raster image in dots.
+   * @param leftDots  The offset of the bitmap from the left edge in dots.
+   * @param mode      The dither mode.
+   * @param firstRow  The first row of the bitmap included in the raster image.
+   * @return The packed raster image. Its data comes from the {@link BufferPool} and may be
+   * released there once consumed.
+   * @see #primingRows(DitherMode)
+   */
+  public static RasterImage dither(Bitmap source, int widthDots, int leftDots, DitherMode mode, int firstRow) {
+    if (mode == DitherMode.THRESHOLD && firstRow == 0) {
+      return RasterEncoder.pack(source, widthDots, leftDots);
+    }
+    int width = source.getWidth();
+    return dither((y, row) -> source.getPixels(row, 0, width, 0, y, width, 1),
+      width, source.getHeight() - firstRow, firstRow, widthDots, leftDots, mode);
+  }
+
+  /**
+   * Parses a string representation of a dither mode, ignoring case.
+   *
+   * @param mode The string representation of the dither mode, or null.
+   * @return The corresponding DitherMode, or THRESHOLD for an unknown mode.
+   */
+  public static DitherMode parseDitherMode(String mode) {
+    if (mode == null) {
+      return DitherMode.THRESHOLD;
+    }
+    return switch (mode.toUpperCase(Locale.ROOT)) {
+      case "BAYER" -> DitherMode.BAYER;
+      case "FLOYD_STEINBERG" -> DitherMode.FLOYD_STEINBERG;
+      case "ATKINSON" -> DitherMode.ATKINSON;
+      default -> DitherMode.THRESHOLD;
+    };
+  }
+
+  /**
+   * Gets the number of rows above a piece of an image that should be dithered with it
+   * to carry error across the seam.
+   *
+   * @param mode The dither mode.
+   * @return The number of priming rows, 0 for modes without error diffusion.
+   */
+  public static int primingRows(DitherMode mode) {
+    return mode == DitherMode.FLOYD_STEINBERG || mode == DitherMode.ATKINSON ? PRIMING_ROWS : 0;
+  }
+
+  /**
+   * Dithers ARGB pixels into a monochrome raster image of the given width.
+   *
+   * @param pixels    The ARGB pixels of the image, row by row.
+   * @param width     The width of the image in pixels.
+   * @param height    The height of the image in pixels.
+   * @param widthDots The width of the raster image in dots.
+   * @param leftDots  The offset of the image from the left edge in dots.
+   * @param mode      The dither mode.
+   * @return The packed raster image.
+   * @see #dither(Bitmap, int, int, DitherMode)
+   */
+  public static RasterImage dither(int[] pixels, int width, int height, int widthDots, int leftDots, DitherMode mode) {
+    if (mode == DitherMode.THRESHOLD) {
+      return RasterEncoder.pack(pixels, width, height, widthDots, leftDots);
+    }
+    return dither((y, row) -> System.arraycopy(pixels, y * width, row, 0, width),
+      width, height, 0, widthDots, leftDots, mode);
+  }
+
+  /**
+   * Dithers {@code height} rows starting at {@code firstRow} of the source; rows above
+   * {@code firstRow} may be read to prime error diffusion.
+   */
+  private static RasterImage dither(RowReader rows, int width, int height, int firstRow, int widthDots, int leftDots,
+                                    DitherMode mode) {
+    int widthBytes = (widthDots + 7) / 8;
+    byte[] data = BufferPool.getInstance().acquireBytes(widthBytes * height);
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+
+    BandWork work = new BandWork(rows, width, height, firstRow, widthDots, leftDots, mode, data, bands);
+    if (bands > 1) {
+      // Render threads help with the bands; the caller works too, so a busy pool only slows it down
+      Executor render = ExecutorRegistry.getInstance().render();
+      int helpers = Math.min(bands, ExecutorRegistry.RENDER_THREADS) - 1;
+      for (int i = 0; i < helpers; i++) {
+        render.execute(work);
+      }
+    }
+    work.run();
+    work.await();
+    return new RasterImage(widthBytes, height, data);
+  }
+
+  /**
+   * Dithers the bands of an image on every thread that runs it, each band exactly once.
+   */
+  private static class BandWork implements Runnable {
+    private final RowReader rows;
+    private final int width;
+    private final int height;
+    private final int firstRow;
+    private final int widthDots;
+    private final int leftDots;
+    private final DitherMode mode;
+    private final byte[] data;
+    private final int bands;
+    private final AtomicInteger nextBand = new AtomicInteger();
+    private final CountDownLatch done;
+    private volatile RuntimeException failure;
+
+    BandWork(RowReader rows, int width, int height, int firstRow, int widthDots, int leftDots, DitherMode mode,
+             byte[] data, int bands) {
+      this.rows = rows;
+      this.width = width;
+      this.height = height;
+      this.firstRow = firstRow;
+      this.widthDots = widthDots;
+      this.leftDots = leftDots;
+      this.mode = mode;
+      this.data = data;
+      this.bands = bands;
+      this.done = new CountDownLatch(bands);
+    }
+
+    @Override
+    public void run() {
+      int band;
+      while ((band = nextBand.getAndIncrement()) < bands) {
+        try {
+          ditherBand(band);
+        } catch (RuntimeException e) {
+          failure = e;
+        } finally {
+          done.countDown();
+        }
+      }
+    }
+
+    /**
+     * Waits until every band is dithered, and rethrows the failure of any band.
+     */
+    void await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          done.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    private void ditherBand(int band) {
+      int start = band * BAND_HEIGHT;
+      int end = Math.min(height, start + BAND_HEIGHT);
+      int packedWidth = Math.min(width, Math.max(0, widthDots - leftDots));
+      int widthBytes = (widthDots + 7) / 8;
+      BufferPool buffers = BufferPool.getInstance();
+      int[] row = buffers.acquireInts(width);
+      byte[] dots = buffers.acquireBytes(width);
+      try {
+        if (mode == DitherMode.THRESHOLD || mode == DitherMode.BAYER) {
+          orderedBand(start, end, packedWidth, widthBytes, row, dots);
+        } else {
+          diffuseBand(start, end, packedWidth, widthBytes, row, dots);
+        }
+      } finally {
+        buffers.release(row);
+        buffers.release(dots);
+      }
+    }
+
+    private void orderedBand(int start, int end, int packedWidth, int widthBytes, int[] row, byte[] dots) {
+      for (int y = start; y < end; y++) {
+        rows.read(firstRow + y, row);
+        int[] thresholds = BAYER_MATRIX[(firstRow + y) & 7];
+        for (int x = 0; x < width; x++) {
+          // Matrix values 0..63 map to thresholds 2..254
+          int threshold = mode == DitherMode.BAYER ? thresholds[x & 7] * 4 + 2 : THRESHOLD;
+          dots[x] = (byte) (RasterEncoder.gray(row[x]) < threshold ? 1 : 0);
+        }
+        RasterEncoder.packDots(dots, packedWidth, data, y * widthBytes, leftDots);
+      }
+    }
+
+    private void diffuseBand(int start, int end, int packedWidth, int widthBytes, int[] row, byte[] dots) {
+      BufferPool buffers = BufferPool.getInstance();
+      boolean atkinson = mode == DitherMode.ATKINSON;
+      int[] current = buffers.acquireInts(width + 2 * PADDING);
+      int[] next = buffers.acquireInts(width + 2 * PADDING);
+      int[] afterNext = buffers.acquireInts(width + 2 * PADDING);
+
+      for (int y = Math.max(-firstRow, start - PRIMING_ROWS); y < end; y++) {
+        rows.read(firstRow + y, row);
+
+        // Serpentine scan: odd rows run right to left
+        int direction = ((firstRow + y) & 1) == 0 ? 1 : -1;
+        int x = direction > 0 ? 0 : width - 1;
+        for (int i = 0; i < width; i++, x += direction) {
+          int e = x + PADDING;
+          int value = RasterEncoder.gray(row[x]) + current[e];
+          boolean dark = value < THRESHOLD;
+          int error = dark ? value : value - 255;
+          dots[x] = (byte) (dark ? 1 : 0);
+
+          if (atkinson) {
+            // 1/8 to six neighbours; the remaining 1/4 of the error is dropped
+            int share = error >> 3;
+            current[e + direction] += share;
+            current[e + 2 * direction] += share;
+            next[e - direction] += share;
+            next[e] += share;
+            next[e + direction] += share;
+            afterNext[e] += share;
+          } else {
+            // 7/16, 3/16 and 5/16 rounded down; the remainder goes to the last neighbour so no error is lost
+            int right = (error * 7) >> 4;
+            int belowBehind = (error * 3) >> 4;
+            int below = (error * 5) >> 4;
+            current[e + direction] += right;
+            next[e - direction] += belowBehind;
+            next[e] += below;
+            next[e + direction] += error - right - belowBehind - below;
+          }
+        }
+
+        // Priming rows above the band only warm up the error
+        if (y >= start) {
+          RasterEncoder.packDots(dots, packedWidth, data, y * widthBytes, leftDots);
+        }
+
+        int[] done = current;
+        current = next;
+        next = afterNext;
+        afterNext = done;
+        Arrays.fill(afterNext, 0);
+      }
+
+      buffers.release(current);
+      buffers.release(next);
+      buffers.release(afterNext);
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package com.posthermalprinter.helper;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers native events to JavaScript under a policy per event name.
+ * Events are posted with a key, such as a printer IP, and the policy applies per key:
+ * <ul>
+ *   <li>State changes only: an event is dropped if its key already reported the same state.</li>
+ *   <li>Rate limit: a key emits at most once per interval. Events posted in between are
+ *   coalesced into one emit at the end of the interval, carrying the latest parameters.</li>
+ * </ul>
+ * Events without a policy are emitted as they are posted.
+ */
+public class EventBus {
+
+  private static final String TAG = "EventBus";
+
+  /**
+   * Emits an event to JavaScript.
+   */
+  public interface Emitter {
+    /**
+     * Emits an event.
+     *
+     * @param event  The name of the event.
+     * @param params The parameters of the event, or null.
+     */
+    void emit(String event, Object params);
+  }
+
+  /**
+   * How the events of one name are filtered and limited.
+   */
+  public static final class Policy {
+    public final boolean stateChangesOnly;
+    public final long minIntervalMillis;
+
+    /**
+     * Constructs a new Policy.
+     *
+     * @param stateChangesOnly  Whether an event is dropped when its key reported the same state.
+     * @param minIntervalMillis The shortest time between two emits of a key, or 0 for no limit.
+     */
+    public Policy(boolean stateChangesOnly, long minIntervalMillis) {
+      this.stateChangesOnly = stateChangesOnly;
+      this.minIntervalMillis = Math.max(minIntervalMillis, 0);
+    }
+  }
+
+  /**
+   * The delivery state of one key of one event.
+   */
+  private static final class Channel {
+    String state;
+    long lastEmitMillis = Long.MIN_VALUE / 2;
+    Object pendingParams;
+    boolean pending;
+  }
+
+  private static final Policy PASS_THROUGH = new Policy(false, 0);
+
+  private final Emitter emitter;
+  private final Map<String, Policy> policies = new ConcurrentHashMap<>();
+  private final Map<String, Channel> channels = new HashMap<>();
+  private long emitted;
+  private long dropped;
+  private long coalesced;
+
+  /**
+   * Constructs a new EventBus.
+   *
+   * @param emitter The emitter delivering events to JavaScript.
+   */
+  public EventBus(Emitter emitter) {
+    this.emitter = emitter;
+  }
+
+  /**
+   * Sets the policy of an event name, replacing any previous one.
+   *
+   * @param event  The name of the event.
+   * @param policy The policy, or null to emit the event as it is posted.
+   */
+  public void configure(String event, Policy policy) {
+    if (policy == null) {
+      policies.remove(event);
+    } else {
+      policies.put(event, policy);
+    }
+  }
+
+  /**
+   * Gets the policy of an event name.
+   *
+   * @param event The name of the event.
+   * @return The policy, or a policy without limits if none was set.
+   */
+  public Policy getPolicy(String event) {
+    Policy policy = policies.get(event);
+    return policy != null ? policy : PASS_THROUGH;
+  }
+
+  /**
+   * Posts an event without a key or state.
+   *
+   * @param event  The name of the event.
+   * @param params The parameters of the event, or null.
+   */
+  public void post(String event, Object params) {
+    post(event, "", null, params);
+  }
+
+  /**
+   * Posts an event for a key.
+   *
+   * @param event  The name of the event.
+   * @param key    The key the policy applies to, such as a printer IP.
+   * @param state  The state the event reports for the key, compared by state-change-only policies.
+   * @param params The parameters of the event, or null.
+   */
+  public void post(String event, String key, String state, Object params) {
+    Policy policy = getPolicy(event);
+    if (!policy.stateChangesOnly && policy.minIntervalMillis == 0) {
+      emit(event, params);
+      return;
+    }
+
+    long delayMillis;
+    synchronized (channels) {
+      Channel channel = channels.get(event + "/" + key);
+      if (channel == null) {
+        channel = new Channel();
+        channels.put(event + "/" + key, channel);
+      }
+
+      if (policy.stateChangesOnly) {
+        if (Objects.equals(channel.state, state)) {
+          dropped++;
+          return;
+        }
+        channel.state = state;
+      }
+
+      long now = System.currentTimeMillis();
+      delayMillis = channel.lastEmitMillis + policy.minIntervalMillis - now;
+      if (delayMillis > 0) {
+        boolean schedule = !channel.pending;
+        if (channel.pending) {
+          coalesced++;
+        }
+        channel.pending = true;
+        channel.pendingParams = params;
+        if (!schedule) {
+          return;
+        }
+      } else {
+        channel.lastEmitMillis = now;
+      }
+    }
+
+    if (delayMillis > 0) {
+      scheduleTrailing(event, key, delayMillis);
+    } else {
+      emit(event, params);
+    }
+  }
+
+  /**
+   * Forgets the state a key reported, so its next event is emitted even if it repeats it.
+   *
+   * @param event The name of the event.
+   * @param key   The key to reset.
+   */
+  public void resetState(String event, String key) {
+    synchronized (channels) {
+      Channel channel = channels.get(event + "/" + key);
+      if (channel != null) {
+        channel.state = null;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of events emitted.
+   *
+   * @return The number of emits.
+   */
+  public synchronized long getEmitted() {
+    return emitted;
+  }
+
+  /**
+   * Gets the number of events dropped because they repeated the state of their key.
+   *
+   * @return The number of dropped events.
+   */
+  public long getDropped() {
+    synchronized (channels) {
+      return dropped;
+    }
+  }
+
+  /**
+   * Gets the number of events merged into a later emit by a rate limit.
+   *
+   * @return The number of coalesced events.
+   */
+  public long getCoalesced() {
+    synchronized (channels) {
+      return coalesced;
+    }
+  }
+
+  private void scheduleTrailing(String event, String key, long delayMillis) {
+    try {
+      ExecutorRegistry.getInstance().timer().schedule(() -> emitPending(event, key), delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      emitPending(event, key);
+    }
+  }
+
+  private void emitPending(String event, String key) {
+    Object params;
+    synchronized (channels) {
+      Channel channel = channels.get(event + "/" + key);
+      if (channel == null || !channel.pending) {
+        return;
+      }
+      params = channel.pendingParams;
+      channel.pending = false;
+      channel.pendingParams = null;
+      channel.lastEmitMillis = System.currentTimeMillis();
+    }
+    emit(event, params);
+  }
+
+  private void emit(String event, Object params) {
+    synchronized (this) {
+      emitted++;
+    }
+    try {
+      emitter.emit(event, params);
+    } catch (RuntimeException e) {
+      Log.e(TAG, "Failed to emit " + event, e);
+    }
+  }
+}
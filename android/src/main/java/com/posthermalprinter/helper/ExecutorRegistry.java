@@ -0,0 +1,319 @@
+package com.posthermalprinter.helper;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Owns every thread of the module.
+ * Work is split between three pools sized for the device:
+ * <ul>
+ *   <li>render: one thread per core for CPU-bound image work, with a bounded queue; a full
+ *   queue runs the task on the caller.</li>
+ *   <li>io: threads for blocking socket, SDK and download calls, created on demand up to a
+ *   fixed limit; a saturated pool rejects the task.</li>
+ *   <li>timer: a single thread for timeouts and periodic checks.</li>
+ * </ul>
+ * Components that need ordering or a concurrency limit use named {@link Lane}s on the io pool
+ * instead of their own threads, so the thread count stays flat however many printers and jobs
+ * there are.
+ */
+public class ExecutorRegistry {
+
+  private static final String TAG = "ExecutorRegistry";
+
+  private static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The number of render threads.
+   */
+  public static final int RENDER_THREADS = CORES;
+
+  /**
+   * The largest number of io threads.
+   */
+  public static final int IO_MAX_THREADS = Math.min(32, Math.max(8, CORES * 4));
+
+  private static final int RENDER_QUEUE_CAPACITY = 64;
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private static final ExecutorRegistry instance = new ExecutorRegistry();
+
+  private final ThreadPoolExecutor render;
+  private final ThreadPoolExecutor io;
+  private final ScheduledThreadPoolExecutor timer;
+  private final AtomicLong renderRejected = new AtomicLong();
+  private final AtomicLong ioRejected = new AtomicLong();
+  private final Map<String, Lane> lanes = new LinkedHashMap<>();
+
+  private ExecutorRegistry() {
+    render = new ThreadPoolExecutor(RENDER_THREADS, RENDER_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(RENDER_QUEUE_CAPACITY), threadFactory("pos-render"),
+      counting(renderRejected, new ThreadPoolExecutor.CallerRunsPolicy()));
+    render.allowCoreThreadTimeOut(true);
+
+    io = new ThreadPoolExecutor(0, IO_MAX_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+      new SynchronousQueue<>(), threadFactory("pos-io"),
+      counting(ioRejected, new ThreadPoolExecutor.AbortPolicy()));
+
+    timer = new ScheduledThreadPoolExecutor(1, threadFactory("pos-timer"));
+    timer.setRemoveOnCancelPolicy(true);
+  }
+
+  public static ExecutorRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Gets the pool for CPU-bound work such as dithering and raster encoding.
+   * Tasks submitted to a full queue run on the calling thread.
+   *
+   * @return The render pool.
+   */
+  public ExecutorService render() {
+    return render;
+  }
+
+  /**
+   * Gets the pool for blocking I/O. Tasks submitted to a saturated pool are rejected with a
+   * {@link RejectedExecutionException}.
+   *
+   * @return The io pool.
+   */
+  public ExecutorService io() {
+    return io;
+  }
+
+  /**
+   * Gets the scheduler for timeouts and periodic checks. Scheduled tasks must not block;
+   * blocking work is handed to the io pool.
+   *
+   * @return The timer.
+   */
+  public ScheduledExecutorService timer() {
+    return timer;
+  }
+
+  /**
+   * Gets the lane with the given name, creating it on first use.
+   *
+   * @param name        The name of the lane, also used for its threads.
+   * @param concurrency The most tasks of the lane running at once; 1 runs tasks in order.
+   * @param capacity    The most tasks waiting in the lane before new ones are rejected.
+   * @return The lane.
+   */
+  public Lane lane(String name, int concurrency, int capacity) {
+    synchronized (lanes) {
+      Lane lane = lanes.get(name);
+      if (lane == null) {
+        lane = new Lane(name, concurrency, capacity);
+        lanes.put(name, lane);
+      }
+      return lane;
+    }
+  }
+
+  /**
+   * Gets a snapshot of the load of every pool and lane.
+   *
+   * @return The statistics, pools first.
+   */
+  public List<PoolStats> getStats() {
+    List<PoolStats> stats = new ArrayList<>();
+    stats.add(poolStats("render", render, renderRejected.get()));
+    stats.add(poolStats("io", io, ioRejected.get()));
+    stats.add(poolStats("timer", timer, 0));
+    synchronized (lanes) {
+      for (Lane lane : lanes.values()) {
+        stats.add(lane.getStats());
+      }
+    }
+    return stats;
+  }
+
+  private static PoolStats poolStats(String name, ThreadPoolExecutor pool, long rejected) {
+    return new PoolStats(name, pool.getPoolSize(), pool.getActiveCount(), pool.getQueue().size(),
+      pool.getCompletedTaskCount(), rejected);
+  }
+
+  private static ThreadFactory threadFactory(String prefix) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static RejectedExecutionHandler counting(AtomicLong rejected, RejectedExecutionHandler policy) {
+    return (runnable, executor) -> {
+      rejected.incrementAndGet();
+      policy.rejectedExecution(runnable, executor);
+    };
+  }
+
+  /**
+   * The load of a pool or lane at one moment.
+   */
+  public static final class PoolStats {
+    public final String name;
+    public final int threads;
+    public final int active;
+    public final int queued;
+    public final long completed;
+    public final long rejected;
+
+    PoolStats(String name, int threads, int active, int queued, long completed, long rejected) {
+      this.name = name;
+      this.threads = threads;
+      this.active = active;
+      this.queued = queued;
+      this.completed = completed;
+      this.rejected = rejected;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": threads=" + threads + " active=" + active + " queued=" + queued
+        + " completed=" + completed + " rejected=" + rejected;
+    }
+  }
+
+  /**
+   * Runs tasks on the io pool with limited concurrency and a bounded queue.
+   * A lane with a concurrency of 1 runs its tasks one at a time, in submission order.
+   */
+  public final class Lane implements Executor {
+    private final String name;
+    private final int concurrency;
+    private final int capacity;
+    private final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    private int running;
+    private long completed;
+    private long rejected;
+
+    private Lane(String name, int concurrency, int capacity) {
+      this.name = name;
+      this.concurrency = concurrency;
+      this.capacity = capacity;
+    }
+
+    /**
+     * Queues a task behind the tasks of the lane.
+     *
+     * @param task The task to run.
+     * @throws RejectedExecutionException If the lane is full or the io pool is saturated.
+     */
+    @Override
+    public void execute(Runnable task) {
+      synchronized (this) {
+        if (pending.size() >= capacity) {
+          rejected++;
+          throw new RejectedExecutionException("Lane " + name + " is full");
+        }
+        pending.add(task);
+        if (running >= concurrency) {
+          return;
+        }
+        running++;
+      }
+
+      try {
+        io.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        synchronized (this) {
+          running--;
+          pending.removeLastOccurrence(task);
+          rejected++;
+        }
+        throw e;
+      }
+    }
+
+    private void drain() {
+      Thread thread = Thread.currentThread();
+      String threadName = thread.getName();
+      thread.setName("pos-" + name);
+      boolean drained = false;
+      try {
+        while (true) {
+          Runnable task;
+          synchronized (this) {
+            task = pending.poll();
+            if (task == null) {
+              running--;
+              drained = true;
+              return;
+            }
+          }
+
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            Log.e(TAG, "Task failed in lane " + name, e);
+          }
+          // A cancelled task must not leave its interrupt to the next one
+          Thread.interrupted();
+          synchronized (this) {
+            completed++;
+          }
+        }
+      } finally {
+        thread.setName(threadName);
+        if (!drained) {
+          resumeAfterError();
+        }
+      }
+    }
+
+    /**
+     * Hands the tasks behind a task that threw an error to a new worker, since the error
+     * ends the current one.
+     */
+    private void resumeAfterError() {
+      synchronized (this) {
+        completed++;
+        if (pending.isEmpty()) {
+          running--;
+          return;
+        }
+      }
+
+      try {
+        io.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // The next submission starts a new worker
+        Log.e(TAG, "No thread to resume lane " + name, e);
+        synchronized (this) {
+          running--;
+        }
+      }
+    }
+
+    /**
+     * Gets a snapshot of the load of the lane.
+     *
+     * @return The statistics of the lane.
+     */
+    public synchronized PoolStats getStats() {
+      return new PoolStats(name, running, running, pending.size(), completed, rejected);
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package com.posthermalprinter.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches downloaded images in memory and on disk.
+ * Images are keyed by URL and stored as encoded bytes. A cached image is served without
+ * network access while it is fresh, and revalidated with its ETag / Last-Modified afterwards.
+ * Concurrent requests for the same URL share a single download, and a cached copy is served
+ * when the server can't be reached.
+ */
+public class ImageCache {
+
+  private static final String TAG = "ImageCache";
+  private static final int CONNECT_TIMEOUT = 5000;
+  private static final int READ_TIMEOUT = 10000;
+  private static final long DEFAULT_MEMORY_BYTES = 8L * 1024 * 1024;
+  private static final long DEFAULT_DISK_BYTES = 32L * 1024 * 1024;
+  private static final long DEFAULT_FRESHNESS = TimeUnit.MINUTES.toMillis(10);
+
+  private static volatile ImageCache instance;
+
+  /**
+   * A cached image and the validators needed to revalidate it.
+   */
+  static class Entry {
+    final byte[] data;
+    final String etag;
+    final String lastModified;
+    volatile long validatedAt;
+
+    Entry(byte[] data, String etag, String lastModified, long validatedAt) {
+      this.data = data;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.validatedAt = validatedAt;
+    }
+  }
+
+  private final DiskCache disk;
+  private final long memoryLimit;
+  private final long freshnessMillis;
+  private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+  private long memorySize;
+
+  /**
+   * Constructs a new ImageCache.
+   *
+   * @param directory       The directory of the disk cache, or null to cache in memory only.
+   * @param memoryLimit     The maximum number of bytes kept in memory.
+   * @param diskLimit       The maximum number of bytes kept on disk.
+   * @param freshnessMillis How long a cached image is served without revalidation.
+   */
+  public ImageCache(File directory, long memoryLimit, long diskLimit, long freshnessMillis) {
+    this.disk = directory != null ? new DiskCache(directory, diskLimit) : null;
+    this.memoryLimit = memoryLimit;
+    this.freshnessMillis = freshnessMillis;
+  }
+
+  /**
+   * Creates the shared cache in the application's cache directory.
+   *
+   * @param context The context used to locate the cache directory.
+   */
+  public static synchronized void initialize(Context context) {
+    if (instance == null || instance.disk == null) {
+      instance = new ImageCache(new File(context.getCacheDir(), "pos_printer_images"),
+        DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES, DEFAULT_FRESHNESS);
+    }
+  }
+
+  /**
+   * Gets the shared cache. If it has not been initialized with a context, the cache
+   * is kept in memory only.
+   *
+   * @return The shared ImageCache.
+   */
+  public static ImageCache getInstance() {
+    if (instance == null) {
+      synchronized (ImageCache.class) {
+        if (instance == null) {
+          instance = new ImageCache(null, DEFAULT_MEMORY_BYTES, 0, DEFAULT_FRESHNESS);
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Gets the bytes of an image, from the cache when possible.
+   *
+   * @param imageUrl The URL of the image.
+   * @return The encoded image bytes.
+   * @throws IOException If the image is not cached and can't be downloaded.
+   */
+  public byte[] get(String imageUrl) throws IOException {
+    if (!imageUrl.startsWith("http://") && !imageUrl.startsWith("https://")) {
+      // Local files are read directly
+      try (InputStream input = new URL(imageUrl).openStream()) {
+        return DiskCache.readAll(input);
+      }
+    }
+
+    Entry cached = getEntry(imageUrl);
+    if (cached != null && System.currentTimeMillis() - cached.validatedAt < freshnessMillis) {
+      return cached.data;
+    }
+
+    CompletableFuture<byte[]> download = new CompletableFuture<>();
+    CompletableFuture<byte[]> running = inFlight.putIfAbsent(imageUrl, download);
+    if (running != null) {
+      return await(running);
+    }
+
+    try {
+      // Another caller may have finished downloading since the cache was checked
+      cached = getEntry(imageUrl);
+      if (cached != null && System.currentTimeMillis() - cached.validatedAt < freshnessMillis) {
+        download.complete(cached.data);
+        return cached.data;
+      }
+
+      byte[] data = fetch(imageUrl, cached);
+      download.complete(data);
+      return data;
+    } catch (IOException | RuntimeException e) {
+      download.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(imageUrl, download);
+    }
+  }
+
+  /**
+   * Downloads an image, revalidating the cached copy if there is one.
+   * The cached copy is returned if the download fails.
+   */
+  private byte[] fetch(String imageUrl, Entry cached) throws IOException {
+    HttpURLConnection connection = null;
+    try {
+      connection = (HttpURLConnection) new URL(imageUrl).openConnection();
+      connection.setConnectTimeout(CONNECT_TIMEOUT);
+      connection.setReadTimeout(READ_TIMEOUT);
+      connection.setDoInput(true);
+      if (cached != null) {
+        if (cached.etag != null) {
+          connection.setRequestProperty("If-None-Match", cached.etag);
+        }
+        if (cached.lastModified != null) {
+          connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+        }
+      }
+
+      int status = connection.getResponseCode();
+      long now = System.currentTimeMillis();
+
+      if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+        cached.validatedAt = now;
+        writeDisk(imageUrl, cached, false);
+        return cached.data;
+      }
+      if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Unexpected HTTP status " + status + " for " + imageUrl);
+      }
+
+      byte[] data;
+      try (InputStream input = connection.getInputStream()) {
+        data = DiskCache.readAll(input);
+      }
+      Entry entry = new Entry(data, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), now);
+      putMemory(imageUrl, entry);
+      writeDisk(imageUrl, entry, true);
+      return data;
+    } catch (IOException e) {
+      if (cached != null) {
+        Log.w(TAG, "Serving cached copy of " + imageUrl + ": " + e.getMessage());
+        return cached.data;
+      }
+      throw e;
+    } finally {
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  /**
+   * Waits for a download started by another caller.
+   */
+  private static byte[] await(CompletableFuture<byte[]> download) throws IOException {
+    try {
+      return download.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for download", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private Entry getEntry(String imageUrl) {
+    synchronized (memory) {
+      Entry entry = memory.get(imageUrl);
+      if (entry != null) {
+        return entry;
+      }
+    }
+
+    Entry entry = readDisk(imageUrl);
+    if (entry != null) {
+      putMemory(imageUrl, entry);
+    }
+    return entry;
+  }
+
+  private void putMemory(String imageUrl, Entry entry) {
+    if (entry.data.length > memoryLimit) {
+      return;
+    }
+
+    synchronized (memory) {
+      Entry previous = memory.put(imageUrl, entry);
+      if (previous != null) {
+        memorySize -= previous.data.length;
+      }
+      memorySize += entry.data.length;
+
+      // Evict least recently used images
+      Iterator<Map.Entry<String, Entry>> iterator = memory.entrySet().iterator();
+      while (memorySize > memoryLimit && iterator.hasNext()) {
+        memorySize -= iterator.next().getValue().data.length;
+        iterator.remove();
+      }
+    }
+  }
+
+  private Entry readDisk(String imageUrl) {
+    if (disk == null) {
+      return null;
+    }
+
+    String name = DiskCache.fileName(imageUrl);
+    byte[] metaBytes = disk.read(name + DiskCache.META_SUFFIX);
+    byte[] data = metaBytes != null ? disk.read(name) : null;
+    if (data == null) {
+      return null;
+    }
+
+    try {
+      Properties meta = new Properties();
+      meta.load(new ByteArrayInputStream(metaBytes));
+      return new Entry(data, meta.getProperty("etag"), meta.getProperty("lastModified"),
+        Long.parseLong(meta.getProperty("validatedAt", "0")));
+    } catch (IOException | NumberFormatException e) {
+      Log.w(TAG, "Could not read cached image: " + e.getMessage());
+      return null;
+    }
+  }
+
+  private void writeDisk(String imageUrl, Entry entry, boolean writeData) {
+    if (disk == null || entry.data.length > disk.getLimit()) {
+      return;
+    }
+
+    String name = DiskCache.fileName(imageUrl);
+    try {
+      // Metadata first, so the data file is never trimmed without its metadata
+      Properties meta = new Properties();
+      if (entry.etag != null) {
+        meta.setProperty("etag", entry.etag);
+      }
+      if (entry.lastModified != null) {
+        meta.setProperty("lastModified", entry.lastModified);
+      }
+      meta.setProperty("validatedAt", String.valueOf(entry.validatedAt));
+      ByteArrayOutputStream metaBytes = new ByteArrayOutputStream();
+      meta.store(metaBytes, null);
+      disk.write(name + DiskCache.META_SUFFIX, metaBytes.toByteArray());
+
+      if (writeData) {
+        disk.write(name, entry.data);
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Could not write cached image: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.posthermalprinter.helper;
+
+import android.util.Log;
+
+import com.posthermalprinter.util.PrintItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downloads the images of print jobs in the background.
+ * Image rows are accepted as unresolved URLs, and the images of a job are fetched in parallel
+ * on a bounded pool. Each image has its own timeout; an image that fails or times out is
+ * replaced by its fallback text, or skipped.
+ */
+public class ImageResolver {
+
+  private static final String TAG = "ImageResolver";
+  private static final int MAX_CONCURRENT_DOWNLOADS = 4;
+
+  /**
+   * Time allowed for an image when the print row does not set one, in milliseconds.
+   */
+  public static final long DEFAULT_TIMEOUT_MILLIS = 8000;
+
+  private static final int MAX_PENDING_DOWNLOADS = 256;
+
+  private static final ImageResolver instance = new ImageResolver();
+
+  private final Executor downloadExecutor;
+  private final ScheduledExecutorService timeoutScheduler;
+
+  private ImageResolver() {
+    ExecutorRegistry executors = ExecutorRegistry.getInstance();
+    this.downloadExecutor = executors.lane("image-download", MAX_CONCURRENT_DOWNLOADS, MAX_PENDING_DOWNLOADS);
+    this.timeoutScheduler = executors.timer();
+  }
+
+  public static ImageResolver getInstance() {
+    return instance;
+  }
+
+  /**
+   * Resolves the images of a print job.
+   * The returned future completes once every image is downloaded or has fallen back, and
+   * never completes exceptionally.
+   *
+   * @param items The print items of the job. Failed images are replaced in this list.
+   * @return A CompletableFuture that completes when the job is ready to print.
+   */
+  public CompletableFuture<Void> resolve(List<PrintItem> items) {
+    List<CompletableFuture<Void>> downloads = new ArrayList<>();
+    Map<Integer, PrintItem> fallbacks = new ConcurrentHashMap<>();
+
+    for (int i = 0; i < items.size(); i++) {
+      PrintItem item = items.get(i);
+      if (!needsDownload(item)) {
+        continue;
+      }
+
+      int index = i;
+      downloads.add(download(item.getText(), item.getImageTimeout()).handle((data, error) -> {
+        if (data != null) {
+          item.setImageData(data, DiskCache.sha256(data));
+        } else {
+          Log.w(TAG, "Image " + item.getText() + " not resolved: " + (error != null ? error.getMessage() : "no data"));
+          fallbacks.put(index, item);
+        }
+        return null;
+      }));
+    }
+
+    if (downloads.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return CompletableFuture.allOf(downloads.toArray(new CompletableFuture[0]))
+      .handle((ignored, error) -> {
+        for (Map.Entry<Integer, PrintItem> fallback : fallbacks.entrySet()) {
+          PrintItem replacement = fallbackItem(fallback.getValue());
+          if (replacement != null) {
+            items.set(fallback.getKey(), replacement);
+          }
+        }
+        return null;
+      });
+  }
+
+  /**
+   * Downloads an image, failing with a TimeoutException after the given time.
+   */
+  private CompletableFuture<byte[]> download(String url, long timeoutMillis) {
+    CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+    FutureTask<Void> task = new FutureTask<>(() -> {
+      try {
+        result.complete(ImageCache.getInstance().get(url));
+      } catch (Exception e) {
+        result.completeExceptionally(e);
+      }
+    }, null);
+    try {
+      downloadExecutor.execute(task);
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    ScheduledFuture<?> timeout = timeoutScheduler.schedule(() -> {
+      if (result.completeExceptionally(new TimeoutException("Timed out after " + timeoutMillis + " ms"))) {
+        task.cancel(true);
+      }
+    }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+    result.whenComplete((data, error) -> timeout.cancel(false));
+    return result;
+  }
+
+  private static boolean needsDownload(PrintItem item) {
+    return item.getType() == PrintItem.Type.IMAGE
+      && item.getImageData() == null
+      && item.getBitmapImage() == null
+      && item.getText() != null
+      && !Objects.equals(item.getText(), "");
+  }
+
+  /**
+   * Creates the text item printed in place of an image that could not be resolved.
+   *
+   * @return The fallback item, or null to leave the image out.
+   */
+  private static PrintItem fallbackItem(PrintItem image) {
+    String fallbackText = image.getFallbackText();
+    if (fallbackText == null || fallbackText.isEmpty()) {
+      return null;
+    }
+    return new PrintItem(PrintItem.Type.TEXT, fallbackText, image.isBold(), image.getAlignment(), 0,
+      new ArrayList<>(), image.getFontSize(), image.getUnits());
+  }
+}
@@ -0,0 +1,389 @@
+package com.posthermalprinter.helper;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.posthermalprinter.util.PrinterProfile;
+import com.posthermalprinter.util.RasterImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of logos stored in printer graphics memory.
+ * A logo is uploaded once per printer into non-volatile (NV) or download graphics memory
+ * with {@code GS ( L}, and later receipts print it by key with a few bytes. The registry
+ * remembers which version of a logo each memory slot of a printer holds, once the job that
+ * uploaded it was sent, and uploads again when the logo changes or a printer may have been
+ * reset. What printers hold in NV memory is kept across launches, since NV memory is
+ * rewritten only a limited number of times.
+ */
+public class LogoRegistry {
+
+  private static final String TAG = "LogoRegistry";
+  private static final LogoRegistry instance = new LogoRegistry();
+  private static final String HELD_FILE = "nv_logos";
+  // Far above the size of the held state, so the file is never trimmed
+  private static final long HELD_STATE_LIMIT = 1024 * 1024;
+
+  // Function codes of GS ( L
+  private static final int FN_DEFINE_NV = 67;
+  private static final int FN_PRINT_NV = 69;
+  private static final int FN_DEFINE_DOWNLOAD = 83;
+  private static final int FN_PRINT_DOWNLOAD = 85;
+
+  /**
+   * The printer memory a logo is stored in.
+   */
+  public enum Storage {
+    /**
+     * Non-volatile graphics memory, kept across power cycles.
+     */
+    NV,
+
+    /**
+     * Download graphics memory, cleared when the printer is reset or powered off.
+     */
+    DOWNLOAD
+  }
+
+  /**
+   * Represents a registered logo.
+   * The logo is rasterized lazily for each printer width it is printed at.
+   */
+  public static class Logo {
+    public final String key;
+    public final byte keyCode1;
+    public final byte keyCode2;
+    public final int version;
+    public final String contentHash;
+    public final Storage storage;
+    public final int widthPercentage;
+    private final Bitmap source;
+    private final Map<Integer, RasterImage> images = new ConcurrentHashMap<>();
+
+    Logo(String key, byte keyCode1, byte keyCode2, int version, String contentHash, Storage storage,
+         int widthPercentage, Bitmap source) {
+      this.key = key;
+      this.keyCode1 = keyCode1;
+      this.keyCode2 = keyCode2;
+      this.version = version;
+      this.contentHash = contentHash;
+      this.storage = storage;
+      this.widthPercentage = widthPercentage;
+      this.source = source;
+    }
+
+    /**
+     * Gets the logo rasterized for a printer width.
+     *
+     * @param dotWidth The printable width of the printer in dots.
+     * @return The packed raster image of the logo.
+     */
+    public RasterImage getImage(int dotWidth) {
+      return images.computeIfAbsent(dotWidth, width -> {
+        // Graphics memory stores whole bytes per row
+        int widthDots = Math.max(8, (width * widthPercentage / 100) / 8 * 8);
+        return RasterEncoder.rasterize(source, widthDots);
+      });
+    }
+  }
+
+  private final Map<String, Logo> logos = new ConcurrentHashMap<>();
+  // printer -> (memory slot -> version stamp of the logo held in the slot)
+  private final Map<String, Map<String, String>> printerLogos = new ConcurrentHashMap<>();
+  // printer -> (memory slot -> version stamp) uploaded by the job being sent
+  private final Map<String, Map<String, String>> pendingUploads = new ConcurrentHashMap<>();
+  private DiskCache disk;
+  private int nextKeyCode = 0;
+
+  private LogoRegistry() {
+  }
+
+  public static LogoRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Restores which logos printers hold in NV memory, persisted in the application's files
+   * directory.
+   *
+   * @param context The context used to locate the files directory.
+   */
+  public static void initialize(Context context) {
+    instance.restore(new DiskCache(new File(context.getFilesDir(), "pos_printer_logos"), HELD_STATE_LIMIT));
+  }
+
+  private synchronized void restore(DiskCache disk) {
+    if (this.disk != null) {
+      return;
+    }
+    this.disk = disk;
+    byte[] data = disk.read(HELD_FILE);
+    if (data == null) {
+      return;
+    }
+
+    // printer, slot and stamp per line; uploads confirmed before the restore are newer
+    for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+      String[] fields = line.split("\t");
+      if (fields.length == 3) {
+        printerLogos.computeIfAbsent(fields[0], ip -> new ConcurrentHashMap<>()).putIfAbsent(fields[1], fields[2]);
+      }
+    }
+  }
+
+  /**
+   * Registers a logo, or updates it if the key is already registered.
+   * Printers holding an older version of the logo receive the new one on their next print.
+   * The registry keeps the bitmap, so it must not be recycled by the caller.
+   *
+   * @param key             The key used to print the logo.
+   * @param bitmap          The logo image.
+   * @param widthPercentage The printed width of the logo as a percentage of the print width.
+   * @param storage         The printer memory to store the logo in.
+   * @return The registered logo.
+   */
+  public synchronized Logo register(String key, Bitmap bitmap, int widthPercentage, Storage storage) {
+    String hash = contentHash(bitmap, widthPercentage);
+    Logo existing = logos.get(key);
+
+    if (existing != null && existing.contentHash.equals(hash) && existing.storage == storage) {
+      return existing;
+    }
+
+    byte keyCode1;
+    byte keyCode2;
+    if (existing != null) {
+      keyCode1 = existing.keyCode1;
+      keyCode2 = existing.keyCode2;
+    } else {
+      // Key codes are printable ASCII characters (0x21 - 0x7E)
+      keyCode1 = (byte) (0x21 + nextKeyCode / 94);
+      keyCode2 = (byte) (0x21 + nextKeyCode % 94);
+      nextKeyCode++;
+    }
+
+    Logo logo = new Logo(key, keyCode1, keyCode2, existing != null ? existing.version + 1 : 1, hash, storage,
+      widthPercentage, bitmap);
+    logos.put(key, logo);
+    Log.i(TAG, "Registered logo '" + key + "' version " + logo.version);
+    return logo;
+  }
+
+  /**
+   * Removes a logo from the registry.
+   *
+   * @param key The key of the logo to remove.
+   * @return true if the logo was registered, false otherwise.
+   */
+  public boolean remove(String key) {
+    return logos.remove(key) != null;
+  }
+
+  /**
+   * Builds the commands that print a logo on a printer.
+   * If the printer does not hold the current version of the logo, the upload command is
+   * included. The printer is recorded as holding the logo once {@link #confirmUploads} is
+   * called after the job was sent. Printers without graphics memory receive the logo as a
+   * plain raster image.
+   *
+   * @param printerIp The printer the commands are for.
+   * @param key       The key of the logo.
+   * @param profile   The capability profile of the printer.
+   * @return The commands to send, or null if no logo is registered under the key.
+   */
+  public byte[] buildPrintCommands(String printerIp, String key, PrinterProfile profile) {
+    Logo logo = logos.get(key);
+    if (logo == null) {
+      Log.w(TAG, "Logo '" + key + "' is not registered");
+      return null;
+    }
+
+    RasterImage image = logo.getImage(profile.getDotWidth());
+    Storage storage = supportedStorage(logo.storage, profile);
+    if (storage == null) {
+      return RasterEncoder.toRasterCommands(image, profile, false);
+    }
+
+    // Key codes are assigned per launch, so a slot may hold another logo than last time
+    String slot = storage + ":" + (char) logo.keyCode1 + (char) logo.keyCode2;
+    String stamp = logo.contentHash + ":" + image.getWidthDots();
+    Map<String, String> held = printerLogos.get(printerIp);
+    Map<String, String> uploading = pendingUploads.computeIfAbsent(printerIp, ip -> new ConcurrentHashMap<>());
+    byte[] print = printCommand(logo, storage);
+
+    if ((held != null && stamp.equals(held.get(slot))) || stamp.equals(uploading.get(slot))) {
+      return print;
+    }
+
+    byte[] define = defineCommand(logo, storage, image);
+    byte[] commands = new byte[define.length + print.length];
+    System.arraycopy(define, 0, commands, 0, define.length);
+    System.arraycopy(print, 0, commands, define.length, print.length);
+
+    uploading.put(slot, stamp);
+    Log.i(TAG, "Uploading logo '" + key + "' version " + logo.version + " to " + printerIp);
+    return commands;
+  }
+
+  /**
+   * Records the logos uploaded by the job just sent to a printer as held by the printer.
+   *
+   * @param printerIp The IP address of the printer.
+   */
+  public void confirmUploads(String printerIp) {
+    Map<String, String> uploaded = printerIp != null ? pendingUploads.remove(printerIp) : null;
+    if (uploaded == null || uploaded.isEmpty()) {
+      return;
+    }
+
+    printerLogos.computeIfAbsent(printerIp, ip -> new ConcurrentHashMap<>()).putAll(uploaded);
+    for (String slot : uploaded.keySet()) {
+      if (slot.startsWith(Storage.NV.name())) {
+        persist();
+        break;
+      }
+    }
+  }
+
+  /**
+   * Forgets the logos uploaded by a job that could not be sent, so the next job uploads them.
+   *
+   * @param printerIp The IP address of the printer.
+   */
+  public void discardUploads(String printerIp) {
+    if (printerIp != null) {
+      pendingUploads.remove(printerIp);
+    }
+  }
+
+  /**
+   * Forgets the logos a printer holds in download memory, so they are uploaded again on its
+   * next print. Call this when the printer may have been reset or powered off; logos in NV
+   * memory survive that and are not uploaded again.
+   *
+   * @param printerIp The IP address of the printer.
+   */
+  public void invalidatePrinter(String printerIp) {
+    if (printerIp == null) {
+      return;
+    }
+    discardUploads(printerIp);
+    Map<String, String> held = printerLogos.get(printerIp);
+    if (held != null && held.keySet().removeIf(slot -> slot.startsWith(Storage.DOWNLOAD.name()))) {
+      Log.i(TAG, "Download logos will be uploaded again to " + printerIp);
+    }
+  }
+
+  /**
+   * Writes which logos printers hold in NV memory.
+   */
+  private synchronized void persist() {
+    if (disk == null) {
+      return;
+    }
+
+    StringBuilder lines = new StringBuilder();
+    for (Map.Entry<String, Map<String, String>> printer : printerLogos.entrySet()) {
+      for (Map.Entry<String, String> held : printer.getValue().entrySet()) {
+        if (held.getKey().startsWith(Storage.NV.name())) {
+          lines.append(printer.getKey()).append('\t').append(held.getKey()).append('\t').append(held.getValue()).append('\n');
+        }
+      }
+    }
+    try {
+      disk.write(HELD_FILE, lines.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      Log.w(TAG, "Could not save held logos: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Picks the graphics memory to use on a printer, preferring the requested one.
+   *
+   * @return The storage to use, or null if the printer has no graphics memory.
+   */
+  private static Storage supportedStorage(Storage requested, PrinterProfile profile) {
+    boolean nv = profile.supportsNvGraphics();
+    boolean download = profile.supportsDownloadGraphics();
+    if (requested == Storage.NV) {
+      return nv ? Storage.NV : download ? Storage.DOWNLOAD : null;
+    }
+    return download ? Storage.DOWNLOAD : nv ? Storage.NV : null;
+  }
+
+  /**
+   * Builds the {@code GS ( L} / {@code GS 8 L} command that stores a logo in printer memory.
+   */
+  private static byte[] defineCommand(Logo logo, Storage storage, RasterImage image) {
+    byte[] data = image.getData();
+    int function = storage == Storage.NV ? FN_DEFINE_NV : FN_DEFINE_DOWNLOAD;
+    int widthDots = image.getWidthDots();
+
+    // m fn a kc1 kc2 b xL xH yL yH c
+    byte[] parameters = {
+      48, (byte) function, 48, logo.keyCode1, logo.keyCode2, 1,
+      (byte) (widthDots & 0xFF), (byte) ((widthDots >> 8) & 0xFF),
+      (byte) (image.getHeight() & 0xFF), (byte) ((image.getHeight() >> 8) & 0xFF),
+      49
+    };
+    long length = (long) parameters.length + data.length;
+
+    byte[] header;
+    if (length <= 0xFFFF) {
+      header = new byte[]{0x1D, 0x28, 0x4C, (byte) (length & 0xFF), (byte) ((length >> 8) & 0xFF)};
+    } else {
+      header = new byte[]{0x1D, 0x38, 0x4C, (byte) (length & 0xFF), (byte) ((length >> 8) & 0xFF),
+        (byte) ((length >> 16) & 0xFF), (byte) ((length >> 24) & 0xFF)};
+    }
+
+    byte[] command = new byte[header.length + parameters.length + data.length];
+    System.arraycopy(header, 0, command, 0, header.length);
+    System.arraycopy(parameters, 0, command, header.length, parameters.length);
+    System.arraycopy(data, 0, command, header.length + parameters.length, data.length);
+    return command;
+  }
+
+  /**
+   * Builds the {@code GS ( L} command that prints a stored logo at normal scale.
+   */
+  private static byte[] printCommand(Logo logo, Storage storage) {
+    int function = storage == Storage.NV ? FN_PRINT_NV : FN_PRINT_DOWNLOAD;
+    return new byte[]{0x1D, 0x28, 0x4C, 6, 0, 48, (byte) function, logo.keyCode1, logo.keyCode2, 1, 1};
+  }
+
+  /**
+   * Hashes the pixels of a logo and its printed width, to detect re-registration of the same logo.
+   */
+  private static String contentHash(Bitmap bitmap, int widthPercentage) {
+    int width = bitmap.getWidth();
+    int[] row = new int[width];
+    ByteBuffer rowBytes = ByteBuffer.allocate(width * 4);
+
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(ByteBuffer.allocate(12).putInt(width).putInt(bitmap.getHeight()).putInt(widthPercentage).array());
+      for (int y = 0; y < bitmap.getHeight(); y++) {
+        bitmap.getPixels(row, 0, width, 0, y, width, 1);
+        rowBytes.clear();
+        rowBytes.asIntBuffer().put(row);
+        digest.update(rowBytes.array());
+      }
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      return String.valueOf(System.identityHashCode(bitmap));
+    }
+  }
+}
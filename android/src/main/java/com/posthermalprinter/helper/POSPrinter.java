@@ -3,35 +3,60 @@ package com.posthermalprinter.helper;
 
 import android.os.Handler;
 import android.os.Looper;
+import android.util.Log;
+
+import com.posthermalprinter.util.PrinterProfile;
+
+import net.posprinter.utils.DataForSendToPrinterPos80;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 import java.util.List;
-import java.io.ByteArrayOutputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class POSPrinter {
   private static final int DEFAULT_PORT = 9100;
-  private static final int CONNECT_TIMEOUT = 5000;
+  /**
+   * Time allowed to connect to a printer, in milliseconds.
+   */
+  public static final int CONNECT_TIMEOUT = 5000;
+  // Commands encoded ahead of the socket; bounds memory while streaming tall images
+  private static final int STREAM_QUEUE_CAPACITY = 2;
+
+  private static final int LANE_CAPACITY = 64;
 
   private String ipAddress;
   private int port;
+  private final PrinterProfile profile;
   private Socket socket;
   private OutputStream outputStream;
   private boolean isConnected = false;
-  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Executor executor;
   private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
-  public POSPrinter(String ipAddress, int port) {
+  public POSPrinter(String ipAddress, int port, PrinterProfile profile) {
     this.ipAddress = ipAddress;
     this.port = port;
+    this.profile = profile;
+    // Jobs for the same printer run one at a time, whichever instance submits them
+    this.executor = ExecutorRegistry.getInstance().lane("printer-" + ipAddress, 1, LANE_CAPACITY);
+  }
+
+  public POSPrinter(String ipAddress, PrinterProfile profile) {
+    this(ipAddress, DEFAULT_PORT, profile);
   }
 
   public POSPrinter(String ipAddress) {
-    this(ipAddress, DEFAULT_PORT);
+    this(ipAddress, DEFAULT_PORT, PrinterProfile.PRINTER_80MM);
   }
 
   private boolean connect() {
@@ -63,25 +88,167 @@ public class POSPrinter {
     }
 
     try {
-      // Combine all data into a single byte array
-      ByteArrayOutputStream combinedData = new ByteArrayOutputStream();
+      PacedWriter writer = new PacedWriter();
       for (byte[] data : dataList) {
-        combinedData.write(data);
+        writer.write(data);
       }
+      writer.finish();
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      isConnected = false;
+      return false;
+    }
+  }
 
-      // Send all data at once
-      outputStream.write(combinedData.toByteArray());
-      outputStream.flush();
+  /**
+   * Sends commands while they are still being encoded.
+   * The source runs on an encoder thread and hands commands over through a small bounded
+   * queue, so the next command is encoded while the previous one is on the wire.
+   *
+   * @throws PrintEncodingException If the source fails to encode the commands.
+   */
+  private boolean printStreamed(CommandSource source) throws PrintEncodingException {
+    if (!isConnected || socket == null || socket.isClosed()) {
+      return false;
+    }
+
+    BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(STREAM_QUEUE_CAPACITY);
+    Future<?> encoding;
+    try {
+      encoding = ExecutorRegistry.getInstance().io().submit(() -> {
+        source.writeTo(command -> {
+          try {
+            queue.put(command);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding", e);
+          }
+        });
+        return null;
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w("POSPrinter", "No thread to encode the job: " + e.getMessage());
+      return false;
+    }
+
+    PacedWriter writer = new PacedWriter();
+    try {
+      while (true) {
+        byte[] command = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (command != null) {
+          writer.write(command);
+        } else if (encoding.isDone() && queue.isEmpty()) {
+          break;
+        }
+      }
+      encoding.get();
+      writer.finish();
       return true;
     } catch (IOException e) {
       e.printStackTrace();
       isConnected = false;
       return false;
+    } catch (ExecutionException e) {
+      // Sending the job again would fail the same way
+      throw new PrintEncodingException("Failed to encode print job", e.getCause(), endPartialJob(writer));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      // Stop encoding if the printer can't take the rest
+      encoding.cancel(true);
+    }
+  }
+
+  /**
+   * Ends a job whose encoding failed after part of it was sent, so the printer does not hold a
+   * half-received command and the partial receipt is fed out and cut.
+   *
+   * @return true if part of the job was sent and had to be ended.
+   */
+  private boolean endPartialJob(PacedWriter writer) {
+    if (writer.written == 0) {
+      // Nothing reached the printer; the buffered commands are dropped
+      return false;
+    }
+    try {
+      // Complete the command cut at the last chunk boundary before resetting the printer
+      writer.write(partialJobTrailer());
+      writer.finish();
+    } catch (IOException e) {
+      Log.w("POSPrinter", "Could not end partially printed job: " + e.getMessage());
+      isConnected = false;
+    }
+    return true;
+  }
+
+  /**
+   * Gets the commands that end a partially sent job: a printer reset, a paper feed and a cut.
+   *
+   * @return The commands.
+   */
+  public static byte[] partialJobTrailer() {
+    byte[] reset = DataForSendToPrinterPos80.initializePrinter();
+    byte[] feedAndCut = DataForSendToPrinterPos80.selectCutPagerModerAndCutPager(0x42, 0x66);
+    byte[] trailer = Arrays.copyOf(reset, reset.length + feedAndCut.length);
+    System.arraycopy(feedAndCut, 0, trailer, reset.length, feedAndCut.length);
+    return trailer;
+  }
+
+  /**
+   * Writes data in chunks of the printer's receive buffer size.
+   * The first buffer is sent at once; after that, chunks are sent no faster than the printer
+   * can print raster data, so large jobs don't overflow its buffer.
+   */
+  private class PacedWriter {
+    private final byte[] chunk = new byte[Math.max(256, profile.getReceiveBufferSize())];
+    private final double bytesPerNano = profile.getRasterBytesPerSecond() / 1e9;
+    private final long start = System.nanoTime();
+    private int chunkLength;
+    private long written;
+
+    void write(byte[] data) throws IOException {
+      int offset = 0;
+      while (offset < data.length) {
+        int length = Math.min(chunk.length - chunkLength, data.length - offset);
+        System.arraycopy(data, offset, chunk, chunkLength, length);
+        chunkLength += length;
+        offset += length;
+        if (chunkLength == chunk.length) {
+          writeChunk();
+        }
+      }
+    }
+
+    void finish() throws IOException {
+      if (chunkLength > 0) {
+        writeChunk();
+      }
+      outputStream.flush();
+    }
+
+    private void writeChunk() throws IOException {
+      long paced = written - chunk.length;
+      if (paced > 0 && bytesPerNano > 0) {
+        long waitNanos = (long) (paced / bytesPerNano) - (System.nanoTime() - start);
+        if (waitNanos > 0) {
+          try {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending data", e);
+          }
+        }
+      }
+      outputStream.write(chunk, 0, chunkLength);
+      written += chunkLength;
+      chunkLength = 0;
     }
   }
 
   public void printData(List<byte[]> dataList, PrinterCallback callback) {
-    executor.execute(() -> {
+    submit(() -> {
       boolean success = connect();
       if (!success) {
         notifyResult(callback, false);
@@ -90,7 +257,50 @@ public class POSPrinter {
 
       success = printMultiple(dataList);
       notifyResult(callback, success);
-    });
+    }, callback);
+  }
+
+  /**
+   * Prints commands as they are encoded by the source.
+   *
+   * @param source   The source encoding the commands.
+   * @param callback The callback notified on the main thread with the result.
+   */
+  public void printStream(CommandSource source, StreamCallback callback) {
+    PrinterCallback printerCallback = success -> callback.onStreamResult(success, null);
+    submit(() -> {
+      boolean success = connect();
+      if (!success) {
+        notifyResult(printerCallback, false);
+        return;
+      }
+
+      try {
+        success = printStreamed(source);
+      } catch (PrintEncodingException e) {
+        Log.e("POSPrinter", "Error encoding print job", e.getCause());
+        mainHandler.post(() -> callback.onStreamResult(false, e));
+        return;
+      }
+      notifyResult(printerCallback, success);
+    }, printerCallback);
+  }
+
+  private void submit(Runnable task, PrinterCallback callback) {
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (RuntimeException | Error e) {
+          // The caller must never wait for a job whose task died
+          notifyResult(callback, false);
+          throw e;
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w("POSPrinter", "Print job rejected: " + e.getMessage());
+      notifyResult(callback, false);
+    }
   }
 
   public void disconnect() {
@@ -118,7 +328,6 @@ public class POSPrinter {
 
   public void destroy() {
     disconnect();
-    executor.shutdown();
   }
 
   public boolean isConnected() {
@@ -128,7 +337,22 @@ public class POSPrinter {
   public interface PrinterCallback {
     void onPrintResult(boolean success);
   }
-}
-
 
+  /**
+   * Receives the result of a streamed print job.
+   */
+  public interface StreamCallback {
+    /**
+     * @param success       Whether the printer received the whole job.
+     * @param encodingError The failure of the source encoding the commands, or null.
+     */
+    void onStreamResult(boolean success, PrintEncodingException encodingError);
+  }
 
+  /**
+   * Encodes printer commands into a sink.
+   */
+  public interface CommandSource {
+    void writeTo(CommandSink sink) throws IOException;
+  }
+}
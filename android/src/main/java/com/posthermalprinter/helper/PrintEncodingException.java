@@ -0,0 +1,43 @@
+package com.posthermalprinter.helper;
+
+/**
+ * Thrown when the commands of a print job can't be encoded, e.g. because an image can't be
+ * decoded. Unlike a printer failure, the job fails the same way every time it is sent, so it
+ * is not retried.
+ */
+public class PrintEncodingException extends Exception {
+
+  private final boolean partiallyPrinted;
+
+  /**
+   * Constructs a new PrintEncodingException.
+   *
+   * @param message The detail message.
+   * @param cause   The failure of the encoder.
+   */
+  public PrintEncodingException(String message, Throwable cause) {
+    this(message, cause, false);
+  }
+
+  /**
+   * Constructs a new PrintEncodingException.
+   *
+   * @param message          The detail message.
+   * @param cause            The failure of the encoder.
+   * @param partiallyPrinted Whether commands encoded before the failure were sent to the printer.
+   */
+  public PrintEncodingException(String message, Throwable cause, boolean partiallyPrinted) {
+    super(message, cause);
+    this.partiallyPrinted = partiallyPrinted;
+  }
+
+  /**
+   * Checks if the printer received part of the job before encoding failed. The printer was
+   * then reset and the paper fed and cut, so the partial job ends cleanly.
+   *
+   * @return true if part of the job was printed.
+   */
+  public boolean isPartiallyPrinted() {
+    return partiallyPrinted;
+  }
+}
@@ -0,0 +1,224 @@
+package com.posthermalprinter.helper;
+
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+import com.posthermalprinter.util.BarcodeTextPosition;
+import com.posthermalprinter.util.BarcodeType;
+import com.posthermalprinter.util.DitherMode;
+import com.posthermalprinter.util.FontSize;
+import com.posthermalprinter.util.PrintItem;
+import com.posthermalprinter.util.PrinterJob;
+import com.posthermalprinter.util.TableTemplate;
+import com.posthermalprinter.util.TextAlignment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds print jobs in native code, for other native modules that print without going through
+ * JavaScript. The rows are the same print items the React Native bridge creates, with the
+ * same defaults, so a job prints the same whichever side built it.
+ * <pre>
+ * PrinterJob job = new PrintJobBuilder("192.168.1.50", "NETWORK")
+ *   .text("Payment approved", TextAlignment.CENTER, FontSize.BIG, true)
+ *   .text("Terminal 4")
+ *   .feed(2)
+ *   .cut()
+ *   .build();
+ * PrinterServiceInitializer.getPrinterManager().submitPrintJob(job);
+ * </pre>
+ * A builder is not thread-safe, and each call to {@link #build()} creates a new job.
+ */
+public class PrintJobBuilder {
+
+  private static final int DEFAULT_UNITS = 6;
+  private static final float DEFAULT_PRINTER_WIDTH = 576;
+
+  private final String ip;
+  private final String type;
+  private final List<PrintItem> items = new ArrayList<>();
+  private String metadata = "{}";
+
+  /**
+   * Constructs a new PrintJobBuilder.
+   *
+   * @param ip   The IP address of the printer.
+   * @param type The printer type, NETWORK or INTERNAL.
+   */
+  public PrintJobBuilder(String ip, String type) {
+    this.ip = ip;
+    this.type = type != null ? type : "NETWORK";
+  }
+
+  /**
+   * Sets the metadata of the job, a JSON object whose type (KOT, RECEIPT or BILL) sets the
+   * delay after the job is printed.
+   *
+   * @param metadata The metadata of the job.
+   * @return This builder.
+   */
+  public PrintJobBuilder metadata(String metadata) {
+    this.metadata = metadata != null ? metadata : "{}";
+    return this;
+  }
+
+  /**
+   * Adds a left-aligned line of normal text.
+   *
+   * @param text The text to print.
+   * @return This builder.
+   */
+  public PrintJobBuilder text(String text) {
+    return text(text, TextAlignment.LEFT, FontSize.NORMAL, false);
+  }
+
+  /**
+   * Adds text.
+   *
+   * @param text      The text to print.
+   * @param alignment The alignment of the text.
+   * @param fontSize  The font size of the text.
+   * @param bold      Whether the text is bold.
+   * @return This builder.
+   */
+  public PrintJobBuilder text(String text, TextAlignment alignment, FontSize fontSize, boolean bold) {
+    return item(new PrintItem(PrintItem.Type.TEXT, text, bold, alignment, 0, new ArrayList<>(), fontSize, DEFAULT_UNITS));
+  }
+
+  /**
+   * Adds a table.
+   *
+   * @param template The column layout of the table.
+   * @param data     The cells of the table, one array of values per column.
+   * @return This builder.
+   */
+  public PrintJobBuilder table(TableTemplate template, String[][] data) {
+    PrintItem tableItem = new PrintItem(PrintItem.Type.TABLE, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS);
+    tableItem.setTable(template, data);
+    return item(tableItem);
+  }
+
+  /**
+   * Adds an image, downloaded when the job is submitted.
+   *
+   * @param url             The URL of the image.
+   * @param widthPercentage The width of the image, as a percentage of the print width.
+   * @param alignment       The alignment of the image.
+   * @return This builder.
+   */
+  public PrintJobBuilder image(String url, int widthPercentage, TextAlignment alignment) {
+    PrintItem imageItem = new PrintItem(PrintItem.Type.IMAGE, url, false, alignment, 0, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS);
+    imageItem.setImageResolution(ImageResolver.DEFAULT_TIMEOUT_MILLIS, null);
+    imageItem.setDitherMode(DitherMode.THRESHOLD);
+    imageItem.setPrinterWidth(DEFAULT_PRINTER_WIDTH);
+    imageItem.setWidthPercentage(Math.max(1, Math.min(widthPercentage, 100)));
+    imageItem.setFullWidth(widthPercentage >= 100);
+    return item(imageItem);
+  }
+
+  /**
+   * Adds a logo registered with {@link LogoRegistry}.
+   *
+   * @param key       The key the logo was registered with.
+   * @param alignment The alignment of the logo.
+   * @return This builder.
+   */
+  public PrintJobBuilder logo(String key, TextAlignment alignment) {
+    return item(new PrintItem(PrintItem.Type.LOGO, key, false, alignment, 0, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS));
+  }
+
+  /**
+   * Adds a QR code.
+   *
+   * @param data      The data of the QR code.
+   * @param size      The module size of the QR code, from 1 to 16.
+   * @param alignment The alignment of the QR code.
+   * @return This builder.
+   */
+  public PrintJobBuilder qrCode(String data, int size, TextAlignment alignment) {
+    return item(new PrintItem(PrintItem.Type.QRCODE, data, false, alignment, 0, new ArrayList<>(), FontSize.NORMAL, Math.max(1, Math.min(size, 16))));
+  }
+
+  /**
+   * Adds a barcode with its text below it.
+   *
+   * @param barcodeType The symbology of the barcode.
+   * @param data        The data of the barcode.
+   * @param alignment   The alignment of the barcode.
+   * @return This builder.
+   * @throws IllegalArgumentException If the data is invalid for the symbology.
+   */
+  public PrintJobBuilder barcode(BarcodeType barcodeType, String data, TextAlignment alignment) {
+    if (!barcodeType.accepts(data)) {
+      throw new IllegalArgumentException("Invalid " + barcodeType + " barcode data: " + data);
+    }
+    PrintItem barcodeItem = new PrintItem(PrintItem.Type.BARCODE, data, false, alignment, 0, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS);
+    barcodeItem.setBarcode(barcodeType, 80, 2, BarcodeTextPosition.BELOW);
+    return item(barcodeItem);
+  }
+
+  /**
+   * Adds blank lines.
+   *
+   * @param lines The number of lines to feed.
+   * @return This builder.
+   */
+  public PrintJobBuilder feed(int lines) {
+    return item(new PrintItem(PrintItem.Type.FEED, "", false, TextAlignment.LEFT, lines, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS));
+  }
+
+  /**
+   * Adds a paper cut.
+   *
+   * @return This builder.
+   */
+  public PrintJobBuilder cut() {
+    return item(new PrintItem(PrintItem.Type.CUT, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS));
+  }
+
+  /**
+   * Adds a command that opens the cash drawer.
+   *
+   * @return This builder.
+   */
+  public PrintJobBuilder openCashbox() {
+    return item(new PrintItem(PrintItem.Type.CASHBOX, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), FontSize.NORMAL, DEFAULT_UNITS));
+  }
+
+  /**
+   * Adds a print item created elsewhere, such as a column row.
+   *
+   * @param item The print item to add.
+   * @return This builder.
+   */
+  public PrintJobBuilder item(PrintItem item) {
+    if (item == null) {
+      throw new IllegalArgumentException("Print item is null");
+    }
+    items.add(item);
+    return this;
+  }
+
+  /**
+   * Creates the job with the items added so far.
+   *
+   * @return A new PrinterJob with its own job ID.
+   * @throws IllegalStateException If no item was added.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.O)
+  public PrinterJob build() {
+    if (items.isEmpty()) {
+      throw new IllegalStateException("Print job has no items");
+    }
+    String jobId = PrintJobHandler.generateUniqueJobId();
+    List<PrintItem> jobContent = new ArrayList<>(items);
+
+    if (type.equals("INTERNAL")) {
+      return new PrinterJob(jobContent, "INTERNAL", "PrinterName_" + "INTERNAL", metadata, jobId);
+    }
+
+    return new PrinterJob(jobContent, ip, "PrinterName_" + ip, metadata, jobId);
+  }
+}
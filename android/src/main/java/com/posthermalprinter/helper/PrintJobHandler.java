@@ -1,9 +1,8 @@
 package com.posthermalprinter.helper;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
 import android.os.Build;
+import android.util.Log;
 
 import androidx.annotation.RequiresApi;
 
@@ -11,8 +10,6 @@ import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.posthermalprinter.util.*;
 
-import net.posprinter.utils.BitmapProcess;
-import net.posprinter.utils.BitmapToByteData;
 import net.posprinter.utils.DataForSendToPrinterPos80;
 
 import java.io.ByteArrayOutputStream;
@@ -21,7 +18,9 @@ import java.nio.charset.Charset;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -30,6 +29,13 @@ import java.util.UUID;
  */
 public class PrintJobHandler {
 
+  private static final String TAG = "PrintJobHandler";
+
+  /**
+   * The height of the raster commands tall images are split into, in dots.
+   */
+  static final int IMAGE_BAND_HEIGHT = 128;
+
   /**
    * Processes a PrinterJob and converts it into a list of byte arrays ready for sending to the printer.
    *
@@ -38,41 +44,75 @@ public class PrintJobHandler {
   @RequiresApi(api = Build.VERSION_CODES.N)
   public static List<byte[]> processDataBeforeSend(List<PrintItem> items, String printerIp) throws IOException {
     List<byte[]> list = new ArrayList<>();
+    streamDataBeforeSend(items, printerIp, list::add);
+    return list;
+  }
 
-    list.add(DataForSendToPrinterPos80.initializePrinter());
+  /**
+   * Processes print items and writes the commands to a sink as they are encoded.
+   * Images are written band by band, so the sink can send the first band of a tall image
+   * while the next one is encoded.
+   *
+   * @param items     The print items to process.
+   * @param printerIp The printer the items are processed for.
+   * @param sink      The sink receiving the commands in order.
+   * @throws IOException If encoding fails or the sink fails to deliver a command.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public static void streamDataBeforeSend(List<PrintItem> items, String printerIp, CommandSink sink) throws IOException {
+    PrinterProfile profile = PrinterProfileRegistry.getInstance().get(printerIp);
+
+    sink.write(DataForSendToPrinterPos80.initializePrinter());
 
     for (PrintItem item : items) {
-      list.addAll(processItem(item, Objects.equals(printerIp, "INTERNAL")));
+      if (item.getType() == PrintItem.Type.IMAGE) {
+        sink.write(TextProcessor.selectFontSize(item.getFontSize()));
+        streamImageItem(item, profile, sink);
+        continue;
+      }
+      for (byte[] command : processItem(item, printerIp, profile)) {
+        sink.write(command);
+      }
     }
-
-    return list;
   }
 
   /**
    * Processes a single PrintItem and converts it into a list of byte arrays.
    *
-   * @param item The PrintItem to process.
+   * @param item      The PrintItem to process.
+   * @param printerIp The printer the item is processed for.
+   * @param profile   The capability profile of the printer.
    * @return A List of byte arrays representing the processed print item.
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
-  private static List<byte[]> processItem(PrintItem item, Boolean internal) throws IOException {
+  static List<byte[]> processItem(PrintItem item, String printerIp, PrinterProfile profile) throws IOException {
+    boolean internal = Objects.equals(printerIp, "INTERNAL");
     List<byte[]> list = new ArrayList<>();
     // Add font size selection
     list.add(TextProcessor.selectFontSize(item.getFontSize()));
 
     switch (item.getType()) {
       case TEXT:
-        addTextToPrintList(list, item);
+        addTextToPrintList(list, item, profile);
         break;
       case COLUMN:
-        processColumnItem(list, item);
+        processColumnItem(list, item, profile);
+        break;
+      case TABLE:
+        list.add(TableEncoder.encode(item, profile));
         break;
       case IMAGE:
-        processImageItem(list, item);
+        streamImageItem(item, profile, list::add);
         break;
       case QRCODE:
         processQRCodeItem(list, item);
         break;
+      case LOGO:
+        processLogoItem(list, item, printerIp, profile);
+        break;
+      case BARCODE:
+        processBarcodeItem(list, item);
+        break;
       case CASHBOX:
         list.add(DataForSendToPrinterPos80.openCashdrawer());
         break;
@@ -93,6 +133,27 @@ public class PrintJobHandler {
     return list;
   }
 
+  /**
+   * Processes a logo print item.
+   * The logo is printed from printer graphics memory by key, and uploaded first if the
+   * printer does not hold its current version.
+   *
+   * @param list      The list to add the processed data to.
+   * @param item      The PrintItem containing the logo key.
+   * @param printerIp The printer the logo is printed on.
+   * @param profile   The capability profile of the printer.
+   */
+  private static void processLogoItem(List<byte[]> list, PrintItem item, String printerIp, PrinterProfile profile) {
+    byte[] commands = LogoRegistry.getInstance().buildPrintCommands(printerIp, item.getText(), profile);
+    if (commands == null) {
+      return;
+    }
+
+    list.add(DataForSendToPrinterPos80.selectAlignment(item.getAlignmentAsInt()));
+    list.add(commands);
+    list.add(DataForSendToPrinterPos80.selectAlignment(0));
+  }
+
   /**
    * Processes a QR code print item.
    *
@@ -105,14 +166,28 @@ public class PrintJobHandler {
     list.add(DataForSendToPrinterPos80.printAndFeedLine());
   }
 
+  /**
+   * Processes a barcode print item.
+   *
+   * @param list The list to add the processed data to.
+   * @param item The PrintItem containing barcode data.
+   */
+  private static void processBarcodeItem(List<byte[]> list, PrintItem item) {
+    list.add(DataForSendToPrinterPos80.selectAlignment(item.getAlignmentAsInt()));
+    list.add(BarcodeEncoder.encode(item.getBarcodeType(), item.getText(), item.getBarcodeHeight(),
+      item.getBarcodeModuleWidth(), item.getBarcodeTextPosition()));
+    list.add(DataForSendToPrinterPos80.selectAlignment(0));
+  }
+
   /**
    * Processes a column print item.
    *
    * @param list The list to add the processed data to.
-   * @param item The PrintItem containing column data.
+   * @param item    The PrintItem containing column data.
+   * @param profile The capability profile of the printer.
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
-  private static void processColumnItem(List<byte[]> list, PrintItem item) {
+  private static void processColumnItem(List<byte[]> list, PrintItem item, PrinterProfile profile) {
     Charset encodeCharset;
     ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
@@ -124,11 +199,12 @@ public class PrintJobHandler {
         buffer.write(DataForSendToPrinterPos80.selectChineseCharModel());
         buffer.write(DataForSendToPrinterPos80.setChineseCharLeftAndRightSpace(0, 0));
       } else {
-        encodeCharset = Charset.forName("CP437");
+        encodeCharset = null;
         DataForSendToPrinterPos80.setCharsetName("CP437");
         buffer.write(DataForSendToPrinterPos80.CancelChineseCharModel());
         buffer.write(DataForSendToPrinterPos80.selectCharacterCodePage(0));
       }
+      CodePage codePage = CodePage.PC437;
 
       if (item.getColumns() != null) {
         List<ColumnItem> columns = item.getColumns();
@@ -173,19 +249,27 @@ public class PrintJobHandler {
             buffer.write(new byte[]{0x1B, 0x21, 0x08}); // ESC ! 8 - Enable emphasis
           }
 
-          // Write the line
-          buffer.write(lineBuilder.toString().getBytes(encodeCharset));
+          // Write the line followed by a line feed
+          if (encodeCharset != null) {
+            buffer.write(lineBuilder.toString().getBytes(encodeCharset));
+            buffer.write(DataForSendToPrinterPos80.printAndFeed(0));
+          } else {
+            codePage = writeEncodedLine(buffer, lineBuilder.toString(), codePage, item, TextAlignment.LEFT,
+              DataForSendToPrinterPos80.printAndFeed(0), profile);
+          }
 
           // If bold was enabled, disable it at the end
           if (item.isBold()) {
             buffer.write(new byte[]{0x1B, 0x21, 0x00}); // ESC ! 0 - Reset to normal
           }
-
-          // Line feed
-          buffer.write(DataForSendToPrinterPos80.printAndFeed(0));
         }
       }
 
+      // Leave the printer on the default code page for the next item
+      if (codePage != CodePage.PC437) {
+        buffer.write(CodePage.PC437.selectCommand());
+      }
+
       // Send all data at once
       list.add(buffer.toByteArray());
 
@@ -195,126 +279,117 @@ public class PrintJobHandler {
   }
 
   /**
-   * Processes an image print item.
+   * Processes an image print item, writing it as raster commands of {@link #IMAGE_BAND_HEIGHT} rows.
+   * Each band is decoded, dithered and written before the next one is read, so a sink that sends
+   * commands as they arrive prints the top of the image while the rest is encoded, and memory
+   * does not grow with the image height.
    *
-   * @param list The list to add the processed data to.
-   * @param item The PrintItem containing image data.
+   * @param item    The PrintItem containing image data.
+   * @param profile The capability profile of the printer.
+   * @param sink    The sink receiving the commands.
+   * @throws IOException If the sink fails to deliver a command.
    */
-  private static void processImageItem(List<byte[]> list, PrintItem item) {
-    try {
-      // Validate input parameters
-      if (list == null || item == null) {
-        throw new IllegalArgumentException("List or PrintItem cannot be null");
-      }
-
-      Bitmap originalImage = item.getBitmapImage();
-      if (originalImage == null) {
-        // Handle null bitmap - you might want to log this or handle it differently
-        list.add(DataForSendToPrinterPos80.printAndFeedLine());
-        return;
-      }
+  private static void streamImageItem(PrintItem item, PrinterProfile profile, CommandSink sink) throws IOException {
+    // Rasters are trimmed and split, so they must not be moved by the justification
+    sink.write(DataForSendToPrinterPos80.selectAlignment(0));
+
+    // Reuse the raster of an image printed before with the same layout
+    String cacheKey = item.getImageHash() != null
+      ? RasterCache.key(item.getImageHash(), item.getWidthPercentage(), item.getAlignment(), profile.getDotWidth(),
+        profile.getVerticalMotionUnits(), item.getDitherMode().name())
+      : null;
+    byte[] cachedRaster = cacheKey != null ? RasterCache.getInstance().get(cacheKey) : null;
+    if (cachedRaster != null) {
+      sink.write(cachedRaster);
+      sink.write(DataForSendToPrinterPos80.printAndFeedLine());
+      return;
+    }
 
-      // Maximum dimensions
-      int maxWidth = (int) Math.floor((double) (576 * item.getWidthPercentage()) / 100);
-      int maxHeight = 300; // Set your desired maximum height here
+    // Maximum width
+    int dotWidth = profile.getDotWidth();
+    int maxWidth = (int) Math.floor((double) (dotWidth * item.getWidthPercentage()) / 100);
 
-      // Validate dimensions
-      if (maxWidth <= 0) {
-        maxWidth = 576; // Default to full width if percentage calculation results in 0 or negative
-      }
+    // Validate dimensions
+    if (maxWidth <= 0) {
+      maxWidth = dotWidth; // Default to full width if percentage calculation results in 0 or negative
+    }
 
-      // Calculate scaling ratios
-      float widthRatio = (float) maxWidth / originalImage.getWidth();
-      float heightRatio = (float) maxHeight / originalImage.getHeight();
+    BandedImageReader image = null;
+    try {
+      image = BandedImageReader.open(item, maxWidth);
+    } catch (RuntimeException e) {
+      Log.w(TAG, "Could not open image: " + e.getMessage());
+    }
+    if (image == null) {
+      sink.write(DataForSendToPrinterPos80.printAndFeedLine());
+      return;
+    }
 
-      // Use the smaller ratio to maintain aspect ratio while fitting within bounds
-      float scaleFactor = Math.min(widthRatio, heightRatio);
+    // Calculate the left position based on alignment
+    int left = 0;
+    if (item.getAlignment() == TextAlignment.CENTER) {
+      left = (dotWidth - image.getWidth()) / 2;
+    } else if (item.getAlignment() == TextAlignment.RIGHT) {
+      left = dotWidth - image.getWidth();
+    }
 
-      // Calculate new dimensions
-      int newWidth = (int) (originalImage.getWidth() * scaleFactor);
-      int newHeight = (int) (originalImage.getHeight() * scaleFactor);
+    // Small images are cached whole; tall ones are cheaper to encode again than to keep
+    ByteArrayOutputStream cacheBuffer = cacheKey != null ? new ByteArrayOutputStream() : null;
+    DitherMode ditherMode = item.getDitherMode();
+    long fullBytes = 0;
+    long sentBytes = 0;
+    try {
+      for (int top = 0; top < image.getHeight(); top += IMAGE_BAND_HEIGHT) {
+        int bottom = Math.min(image.getHeight(), top + IMAGE_BAND_HEIGHT);
+        // Rows above the band carry diffused error across the seam
+        int primingTop = Math.max(0, top - DitherEngine.primingRows(ditherMode));
 
-      // Compress the image to the calculated dimensions
-      Bitmap scaledImage = null;
-      try {
-        scaledImage = BitmapProcess.compressBmpByYourWidth(originalImage, newWidth);
-        if (scaledImage == null) {
-          throw new IllegalStateException("Failed to compress bitmap");
+        RasterImage dithered;
+        Bitmap band = image.readBand(primingTop, bottom);
+        try {
+          dithered = DitherEngine.dither(band, dotWidth, left, ditherMode, top - primingTop);
+        } finally {
+          image.releaseBand(band);
         }
-      } catch (Exception e) {
-        // Handle compression failure
-        list.add(DataForSendToPrinterPos80.printAndFeedLine());
-        return;
-      }
 
-      // Create a new bitmap with the full printer width
-      Bitmap centeredImage = null;
-      try {
-        centeredImage = Bitmap.createBitmap(576, newHeight, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(centeredImage);
-
-        // Fill with white
-        canvas.drawColor(Color.WHITE);
-
-        // Calculate the left position based on alignment
-        float left = 0;
-
-        if (item.getAlignment() == TextAlignment.CENTER) {
-          left = (576 - newWidth) / 2f;
-        } else if (item.getAlignment() == TextAlignment.RIGHT) {
-          left = 576 - newWidth;
-        }
+        // White rows and the white bytes right of the image are not sent
+        byte[] raster = RasterEncoder.toRasterCommands(dithered, profile, true);
+        fullBytes += 8 + dithered.getData().length;
+        sentBytes += raster.length;
+        BufferPool.getInstance().release(dithered.getData());
+        sink.write(raster);
 
-        // Draw the scaled image
-        canvas.drawBitmap(scaledImage, left, 0f, null);
-
-        // Print the centered image
-        list.add(DataForSendToPrinterPos80.printRasterBmp(
-          0,
-          centeredImage,
-          BitmapToByteData.BmpType.Threshold,
-          BitmapToByteData.AlignType.Left,
-          576
-        ));
-      } catch (Exception e) {
-        // Handle bitmap creation or drawing failure
-        list.add(DataForSendToPrinterPos80.printAndFeedLine());
-      } finally {
-        // Ensure resources are always cleaned up
-        try {
-          scaledImage.recycle();
-        } catch (Exception e) {
-          // Ignore recycling errors
-        }
-        if (centeredImage != null) {
-          try {
-            centeredImage.recycle();
-          } catch (Exception e) {
-            // Ignore recycling errors
-          }
+        if (cacheBuffer != null && cacheBuffer.size() + raster.length <= RasterCache.MAX_ENTRY_BYTES) {
+          cacheBuffer.write(raster);
+        } else {
+          cacheBuffer = null;
         }
       }
 
-      // Feed line
-      list.add(DataForSendToPrinterPos80.printAndFeedLine());
+      if (cacheBuffer != null) {
+        RasterCache.getInstance().put(cacheKey, cacheBuffer.toByteArray());
+      }
 
-    } catch (Exception e) {
-      // Catch any unexpected errors
-      assert list != null;
-      list.add(DataForSendToPrinterPos80.printAndFeedLine());
+      RasterStats.getInstance().record(fullBytes, sentBytes);
+    } finally {
+      // A band that fails to decode fails the job; the top of the image may already be printed
+      image.close();
     }
-  }
 
+    // Feed line
+    sink.write(DataForSendToPrinterPos80.printAndFeedLine());
+  }
 
   /**
    * Processes a text print item.
    *
    * @param list The list to add the processed data to.
-   * @param item The PrintItem containing text data.
+   * @param item    The PrintItem containing text data.
+   * @param profile The capability profile of the printer.
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
-  private static void addTextToPrintList(List<byte[]> list, PrintItem item) throws IOException {
-    Charset encodeCharset = Charset.forName("CP437");
+  private static void addTextToPrintList(List<byte[]> list, PrintItem item, PrinterProfile profile) throws IOException {
+    Charset encodeCharset = null;
     ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
     // Add font size first (important!)
@@ -338,12 +413,23 @@ public class PrintJobHandler {
       buffer.write(DataForSendToPrinterPos80.selectOrCancelBoldModel(0));
     }
 
-    int printerLineWidth = calculatePrinterWidth(item.getFontSize());
+    int printerLineWidth = profile.getCharactersPerLine(item.getFontSize());
     List<String> lines = TextProcessor.splitTextIntoLines(item.getText(), printerLineWidth, item.getWordWrap());
 
+    CodePage codePage = CodePage.PC437;
     for (String line : lines) {
-      buffer.write(line.getBytes(encodeCharset));
-      buffer.write(DataForSendToPrinterPos80.printAndFeedLine());
+      if (encodeCharset != null) {
+        buffer.write(line.getBytes(encodeCharset));
+        buffer.write(DataForSendToPrinterPos80.printAndFeedLine());
+      } else {
+        codePage = writeEncodedLine(buffer, line, codePage, item, item.getAlignment(),
+          DataForSendToPrinterPos80.printAndFeedLine(), profile);
+      }
+    }
+
+    // Leave the printer on the default code page for the next item
+    if (codePage != CodePage.PC437) {
+      buffer.write(CodePage.PC437.selectCommand());
     }
 
     if (item.isBold()) {
@@ -354,16 +440,32 @@ public class PrintJobHandler {
   }
 
   /**
-   * Calculates the printer width based on the font size.
+   * Writes a line of text using the printer code pages, switching code page only at run boundaries.
+   * When the line contains characters that no code page covers, the line is rendered as a raster
+   * image instead, which advances the paper by itself.
    *
-   * @param fontSize The FontSize to calculate the width for.
-   * @return The calculated printer width.
+   * @param buffer     The buffer to write to.
+   * @param line       The line of text to write.
+   * @param codePage   The code page currently selected on the printer.
+   * @param item       The PrintItem the line belongs to.
+   * @param alignment  The alignment used if the line has to be rasterized.
+   * @param lineEnding The command that ends an encoded text line.
+   * @param profile    The capability profile of the printer.
+   * @return The code page selected on the printer after the line.
+   * @throws IOException If writing to the buffer fails.
    */
-  private static int calculatePrinterWidth(FontSize fontSize) {
-    return switch (fontSize) {
-      case WIDE, BIG -> 24;
-      default -> 48;
-    };
+  static CodePage writeEncodedLine(ByteArrayOutputStream buffer, String line, CodePage codePage, PrintItem item,
+                                   TextAlignment alignment, byte[] lineEnding, PrinterProfile profile) throws IOException {
+    List<CodePageEncoder.Run> runs = CodePageEncoder.segment(line, profile.getCodePages());
+
+    if (CodePageEncoder.isFullyCovered(runs)) {
+      codePage = CodePageEncoder.writeRuns(runs, codePage, buffer);
+      buffer.write(lineEnding);
+    } else {
+      buffer.write(TextRasterizer.rasterizeLine(line, item.getFontSize(), alignment, item.isBold(), profile.getDotWidth()));
+    }
+
+    return codePage;
   }
 
   /**
@@ -387,13 +489,103 @@ public class PrintJobHandler {
     return new PrinterJob(printItems, ip, "PrinterName_" + ip, metadata, jobId);
   }
 
+  /**
+   * Decodes the base64 payload of a raw print job.
+   * Line breaks and other whitespace in the payload are ignored.
+   *
+   * @param base64 The base64 encoded ESC/POS bytes.
+   * @return The decoded bytes.
+   * @throws IllegalArgumentException If the payload is empty or not valid base64.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.O)
+  public static byte[] decodeRawData(String base64) {
+    if (base64 == null) {
+      throw new IllegalArgumentException("Raw print job has no data");
+    }
+    byte[] data = Base64.getDecoder().decode(base64.replaceAll("\\s", ""));
+    if (data.length == 0) {
+      throw new IllegalArgumentException("Raw print job has no data");
+    }
+    return data;
+  }
+
+  /**
+   * Creates a PrinterJob from bytes that are already encoded for the printer.
+   * The bytes skip print item parsing and encoding, but go through the same queue as other jobs.
+   *
+   * @param ip       The IP address of the printer.
+   * @param type     The printer type, NETWORK or INTERNAL.
+   * @param data     The ESC/POS bytes to send.
+   * @param metadata Additional metadata for the print job.
+   * @return A new PrinterJob object.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.O)
+  public static PrinterJob createRawPrintJob(String ip, String type, byte[] data, String metadata) {
+    if (data == null || data.length == 0) {
+      throw new IllegalArgumentException("Raw print job has no data");
+    }
+    String jobId = generateUniqueJobId();
+
+    if (type.equals("INTERNAL")) {
+      return new PrinterJob(data, "INTERNAL", "PrinterName_" + "INTERNAL", metadata, jobId);
+    }
+
+    return new PrinterJob(data, ip, "PrinterName_" + ip, metadata, jobId);
+  }
+
+  /**
+   * Creates a PrinterJob that prints a registered receipt template.
+   * Only the values are sent from JavaScript; the rows of the template are already parsed,
+   * and its static rows already encoded for the printer. The values are rendered when the
+   * job is sent, not on the calling thread.
+   *
+   * @param ip          The IP address of the printer.
+   * @param type        The printer type, NETWORK or INTERNAL.
+   * @param templateKey The key the template was registered with.
+   * @param variables   The values of the placeholders, and a list of value maps per section.
+   * @param metadata    Additional metadata for the print job.
+   * @return A new PrinterJob object.
+   * @throws IllegalArgumentException If no template is registered with the key.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.O)
+  public static PrinterJob createTemplatePrintJob(String ip, String type, String templateKey, Map<String, ?> variables, String metadata) {
+    if (TemplateRegistry.getInstance().get(templateKey) == null) {
+      throw new IllegalArgumentException("Unknown template: " + templateKey);
+    }
+    String jobId = generateUniqueJobId();
+
+    if (type.equals("INTERNAL")) {
+      return new PrinterJob(templateKey, variables, "INTERNAL", "PrinterName_" + "INTERNAL", metadata, jobId);
+    }
+
+    return new PrinterJob(templateKey, variables, ip, "PrinterName_" + ip, metadata, jobId);
+  }
+
+  /**
+   * Renders the template of a template job into a sink.
+   *
+   * @param job  The template job.
+   * @param sink The sink receiving the commands.
+   * @throws IOException If the template was removed since the job was created, or a row of
+   *                     the template can't be processed.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public static void streamTemplate(PrinterJob job, CommandSink sink) throws IOException {
+    ReceiptTemplate template = TemplateRegistry.getInstance().get(job.getTemplateKey());
+    if (template == null) {
+      throw new IOException("Unknown template: " + job.getTemplateKey());
+    }
+    String printerIp = job.getTargetPrinterIp();
+    sink.write(template.render(job.getTemplateVariables(), printerIp, PrinterProfileRegistry.getInstance().get(printerIp)));
+  }
+
   /**
    * Generates a unique job ID.
    *
    * @return A unique job ID (Custom UUID) string.
    */
   @RequiresApi(api = Build.VERSION_CODES.O)
-  private static String generateUniqueJobId() {
+  static String generateUniqueJobId() {
     UUID uuid = UUID.randomUUID();
     Instant now = Instant.now();
     String timestamp = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(java.time.ZoneId.systemDefault()).format(now);
@@ -413,80 +605,182 @@ public class PrintJobHandler {
     List<PrintItem> printItems = new ArrayList<>();
 
     for (int i = 0; i < content.size(); i++) {
-      ReadableMap item = content.getMap(i);
-
-      String text = item.hasKey("text") ? item.getString("text") : "";
-      boolean fontWeight = item.hasKey("bold") ? item.getBoolean("bold") : false;
-      TextAlignment alignment = TextProcessor.parseAlignment(item.hasKey("alignment") ? Objects.requireNonNull(item.getString("alignment")) : "LEFT");
-      int feedLines = item.hasKey("lines") ? item.getInt("lines") : 0;
-      String imageUrl = item.hasKey("url") ? item.getString("url") : "";
-      FontSize fontSize = TextProcessor.parseFontSize(item.hasKey("fontSize") ? Objects.requireNonNull(item.getString("fontSize")) : "NORMAL");
-      int widthPercentage = item.hasKey("width") ? Math.min(item.getInt("width"), 100) : 60;
-      boolean wrapWords = item.hasKey("wrapWords") ? item.getBoolean("wrapWords") : false;
-      boolean fullWidth = item.hasKey("fullWidth") ? item.getBoolean("fullWidth") : false;
-      double printerWidth = item.hasKey("printerWidth") ? item.getDouble("printerWidth") : 576;
-      int units = item.hasKey("size")? Math.min(item.getInt("size"), 16) : 6;
-
-
-      String type = item.getString("type");
-      switch (Objects.requireNonNull(type)) {
-        case "TEXT":
-          PrintItem textItem = new PrintItem(PrintItem.Type.TEXT, text, fontWeight, alignment, feedLines, new ArrayList<>(), fontSize, units);
-          textItem.setWordWrap(wrapWords);
-          printItems.add(textItem);
-          break;
-        case "IMAGE":
-
-          Bitmap bitmap = !Objects.equals(imageUrl, "") ? ImagePrinter.downloadImageAsBitmap(imageUrl) : null;
-          PrintItem imageItem = new PrintItem(PrintItem.Type.IMAGE, imageUrl, fontWeight, alignment, feedLines, new ArrayList<>(), fontSize, units);
-          imageItem.setBitmap(bitmap);
-          imageItem.setPrinterWidth((float) printerWidth);
-
-
-          if (fullWidth) {
-            imageItem.setWidthPercentage(100);
-            imageItem.setFullWidth(true);
-          } else {
-            imageItem.setWidthPercentage(widthPercentage);
-            imageItem.setFullWidth(false);
-          }
+      PrintItem printItem = createPrintItem(content.getMap(i));
+      if (printItem != null) {
+        printItems.add(printItem);
+      }
+    }
 
-          printItems.add(imageItem);
-          break;
-        case "QRCODE":
-          printItems.add(new PrintItem(PrintItem.Type.QRCODE, text, fontWeight, alignment, feedLines, new ArrayList<>(), fontSize, units));
-          break;
-        case "CASHBOX":
-          printItems.add(new PrintItem(PrintItem.Type.CASHBOX, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), fontSize, units));
-          break;
-        case "COLUMN":
-          ReadableArray columnArray = item.getArray("columns");
-          List<ColumnItem> columns = new ArrayList<>();
-          if (columnArray != null) {
-            for (int j = 0; j < columnArray.size(); j++) {
-              ReadableMap columnItem = columnArray.getMap(j);
-              String columnText = columnItem.hasKey("text") ? columnItem.getString("text") : "";
-              int width = columnItem.hasKey("width") ? columnItem.getInt("width") : 10;
-              boolean wrapWordsColumn = columnItem.hasKey("wrapWords") ? columnItem.getBoolean("wrapWords") : false;
-
-              TextAlignment columnAlignment = TextProcessor.parseAlignment(Objects.requireNonNull(columnItem.getString("alignment")));
-              List<String> lines = TextProcessor.splitTextIntoLines(Objects.requireNonNull(columnText), width, wrapWordsColumn);
-              columns.add(new ColumnItem(columnAlignment, width, lines));
-            }
+    return printItems;
+  }
+
+  /**
+   * Creates a PrintItem from a single row of content.
+   *
+   * @param item The row received from JavaScript.
+   * @return A new PrintItem, or null if the row type is unknown.
+   * @throws IOException If there's an error processing the row.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public static PrintItem createPrintItem(ReadableMap item) throws IOException {
+    String text = item.hasKey("text") ? item.getString("text") : "";
+    boolean fontWeight = item.hasKey("bold") ? item.getBoolean("bold") : false;
+    TextAlignment alignment = TextProcessor.parseAlignment(item.hasKey("alignment") ? Objects.requireNonNull(item.getString("alignment")) : "LEFT");
+    int feedLines = item.hasKey("lines") ? item.getInt("lines") : 0;
+    String imageUrl = item.hasKey("url") ? item.getString("url") : "";
+    FontSize fontSize = TextProcessor.parseFontSize(item.hasKey("fontSize") ? Objects.requireNonNull(item.getString("fontSize")) : "NORMAL");
+    int widthPercentage = item.hasKey("width") ? Math.min(item.getInt("width"), 100) : 60;
+    boolean wrapWords = item.hasKey("wrapWords") ? item.getBoolean("wrapWords") : false;
+    boolean fullWidth = item.hasKey("fullWidth") ? item.getBoolean("fullWidth") : false;
+    double printerWidth = item.hasKey("printerWidth") ? item.getDouble("printerWidth") : 576;
+    int units = item.hasKey("size")? Math.min(item.getInt("size"), 16) : 6;
+
+
+    String type = item.getString("type");
+    switch (Objects.requireNonNull(type)) {
+      case "TEXT":
+        PrintItem textItem = new PrintItem(PrintItem.Type.TEXT, text, fontWeight, alignment, feedLines, new ArrayList<>(), fontSize, units);
+        textItem.setWordWrap(wrapWords);
+        return textItem;
+      case "IMAGE":
+
+        // The image is downloaded by ImageResolver before the job is queued
+        PrintItem imageItem = new PrintItem(PrintItem.Type.IMAGE, imageUrl, fontWeight, alignment, feedLines, new ArrayList<>(), fontSize, units);
+        imageItem.setImageResolution(
+          item.hasKey("timeout") ? Math.max(item.getInt("timeout"), 0) : ImageResolver.DEFAULT_TIMEOUT_MILLIS,
+          item.hasKey("fallbackText") ? item.getString("fallbackText") : null);
+        imageItem.setDitherMode(DitherEngine.parseDitherMode(item.hasKey("dither") ? item.getString("dither") : null));
+        imageItem.setPrinterWidth((float) printerWidth);
+
+
+        if (fullWidth) {
+          imageItem.setWidthPercentage(100);
+          imageItem.setFullWidth(true);
+        } else {
+          imageItem.setWidthPercentage(widthPercentage);
+          imageItem.setFullWidth(false);
+        }
+
+        return imageItem;
+      case "QRCODE":
+        return new PrintItem(PrintItem.Type.QRCODE, text, fontWeight, alignment, feedLines, new ArrayList<>(), fontSize, units);
+      case "LOGO":
+        String logoKey = item.hasKey("key") ? item.getString("key") : "";
+        return new PrintItem(PrintItem.Type.LOGO, logoKey, false, alignment, 0, new ArrayList<>(), fontSize, units);
+      case "BARCODE":
+        return createBarcodeItem(item, text, alignment, fontSize, units);
+      case "CASHBOX":
+        return new PrintItem(PrintItem.Type.CASHBOX, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), fontSize, units);
+      case "COLUMN":
+        ReadableArray columnArray = item.getArray("columns");
+        List<ColumnItem> columns = new ArrayList<>();
+        if (columnArray != null) {
+          for (int j = 0; j < columnArray.size(); j++) {
+            ReadableMap columnItem = columnArray.getMap(j);
+            String columnText = columnItem.hasKey("text") ? columnItem.getString("text") : "";
+            int width = columnItem.hasKey("width") ? columnItem.getInt("width") : 10;
+            boolean wrapWordsColumn = columnItem.hasKey("wrapWords") ? columnItem.getBoolean("wrapWords") : false;
+
+            TextAlignment columnAlignment = TextProcessor.parseAlignment(Objects.requireNonNull(columnItem.getString("alignment")));
+            List<String> lines = TextProcessor.splitTextIntoLines(Objects.requireNonNull(columnText), width, wrapWordsColumn);
+            columns.add(new ColumnItem(columnAlignment, width, lines));
           }
-          printItems.add(new PrintItem(PrintItem.Type.COLUMN, "", fontWeight, TextAlignment.LEFT, 0, columns, fontSize, units));
-          break;
-        case "FEED":
-          printItems.add(new PrintItem(PrintItem.Type.FEED, "", false, TextAlignment.LEFT, feedLines, new ArrayList<>(), fontSize, units));
-          break;
-        case "CUT":
-          printItems.add(new PrintItem(PrintItem.Type.CUT, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), fontSize, units));
-          break;
+        }
+        return new PrintItem(PrintItem.Type.COLUMN, "", fontWeight, TextAlignment.LEFT, 0, columns, fontSize, units);
+      case "TABLE":
+        return createTableItem(item, fontWeight, fontSize, units);
+      case "FEED":
+        return new PrintItem(PrintItem.Type.FEED, "", false, TextAlignment.LEFT, feedLines, new ArrayList<>(), fontSize, units);
+      case "CUT":
+        return new PrintItem(PrintItem.Type.CUT, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), fontSize, units);
+    }
 
+    return null;
+  }
+
+  /**
+   * Creates a barcode PrintItem.
+   * The data is validated against the symbology here, so an invalid barcode fails the job
+   * when it is submitted rather than when it is printed.
+   *
+   * @param item      The barcode row received from JavaScript.
+   * @param data      The barcode data.
+   * @param alignment The alignment of the barcode.
+   * @param fontSize  The font size of the row.
+   * @param units     The unit size.
+   * @return A new barcode PrintItem.
+   * @throws IllegalArgumentException If the symbology is unknown or the data is invalid for it.
+   */
+  private static PrintItem createBarcodeItem(ReadableMap item, String data, TextAlignment alignment, FontSize fontSize, int units) {
+    BarcodeType barcodeType = BarcodeType.valueOf(item.hasKey("barcodeType") ? Objects.requireNonNull(item.getString("barcodeType")) : "CODE128");
+    if (!barcodeType.accepts(data)) {
+      throw new IllegalArgumentException("Invalid " + barcodeType + " barcode data: " + data);
+    }
+
+    int height = item.hasKey("height") ? item.getInt("height") : 80;
+    int moduleWidth = item.hasKey("width") ? item.getInt("width") : 2;
+    BarcodeTextPosition textPosition = BarcodeTextPosition.valueOf(item.hasKey("textPosition") ? Objects.requireNonNull(item.getString("textPosition")) : "BELOW");
+
+    PrintItem barcodeItem = new PrintItem(PrintItem.Type.BARCODE, data, false, alignment, 0, new ArrayList<>(), fontSize, units);
+    barcodeItem.setBarcode(barcodeType, height, moduleWidth, textPosition);
+    return barcodeItem;
+  }
+
+  /**
+   * Creates a table PrintItem from its columnar payload.
+   * Column layouts are read once from {@code columns}, and {@code data} holds one array of
+   * cell values per column, so no map is parsed per row.
+   *
+   * @param item     The table row received from JavaScript.
+   * @param bold     Whether the whole table should be bold.
+   * @param fontSize The font size of the table.
+   * @param units    The unit size.
+   * @return A new table PrintItem.
+   */
+  private static PrintItem createTableItem(ReadableMap item, boolean bold, FontSize fontSize, int units) {
+    ReadableArray columnArray = item.getArray("columns");
+    ReadableArray dataArray = item.hasKey("data") ? item.getArray("data") : null;
+    int columnCount = columnArray != null ? columnArray.size() : 0;
+
+    List<TableTemplate.Column> columns = new ArrayList<>(columnCount);
+    String[][] data = new String[columnCount][];
+
+    for (int j = 0; j < columnCount; j++) {
+      ReadableMap column = columnArray.getMap(j);
+      int width = column.hasKey("width") ? column.getInt("width") : 10;
+      TextAlignment alignment = TextProcessor.parseAlignment(column.hasKey("alignment") ? Objects.requireNonNull(column.getString("alignment")) : "LEFT");
+      boolean columnBold = column.hasKey("bold") && column.getBoolean("bold");
+      boolean wrapWords = column.hasKey("wrapWords") && column.getBoolean("wrapWords");
+      columns.add(new TableTemplate.Column(width, alignment, columnBold, wrapWords));
+
+      ReadableArray cells = (dataArray != null && j < dataArray.size()) ? dataArray.getArray(j) : null;
+      int rowCount = cells != null ? cells.size() : 0;
+      data[j] = new String[rowCount];
+      for (int r = 0; r < rowCount; r++) {
+        data[j][r] = readCell(cells, r);
       }
     }
 
-    return printItems;
+    PrintItem tableItem = new PrintItem(PrintItem.Type.TABLE, "", bold, TextAlignment.LEFT, 0, new ArrayList<>(), fontSize, units);
+    tableItem.setTable(new TableTemplate(columns), data);
+    return tableItem;
+  }
+
+  /**
+   * Reads a table cell as text, accepting strings and numbers.
+   */
+  private static String readCell(ReadableArray cells, int index) {
+    switch (cells.getType(index)) {
+      case String:
+        return cells.getString(index);
+      case Number:
+        double value = cells.getDouble(index);
+        return value == Math.rint(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.valueOf(value);
+      case Boolean:
+        return String.valueOf(cells.getBoolean(index));
+      default:
+        return "";
+    }
   }
 
 }
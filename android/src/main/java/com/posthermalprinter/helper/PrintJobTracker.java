@@ -0,0 +1,192 @@
+package com.posthermalprinter.helper;
+
+import com.posthermalprinter.util.PrinterJob;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Follows print jobs through their lifecycle and reports each stage as an event.
+ * Every event carries the time it happened and how long the previous stage took; the event
+ * that ends a job also carries the time spent in each stage. Events are delivered in batches,
+ * so a high job rate costs one delivery per interval rather than one per stage.
+ */
+public class PrintJobTracker {
+
+  /**
+   * The time events are collected for before they are delivered, about one frame.
+   */
+  public static final long DEFAULT_INTERVAL_MILLIS = 16;
+
+  /**
+   * The stages of a print job.
+   */
+  public enum Stage {
+    /**
+     * The job was accepted; its images may still be downloading.
+     */
+    QUEUED,
+
+    /**
+     * An attempt to print the job started and the printer is being connected.
+     */
+    CONNECTING,
+
+    /**
+     * The printer is connected and the commands of the job are being encoded.
+     */
+    RENDERING,
+
+    /**
+     * The first commands are being sent; later ones may still be encoding.
+     */
+    SENDING,
+
+    /**
+     * All commands were written to a network printer.
+     */
+    SENT,
+
+    /**
+     * The internal printer reported it is ready after printing the job.
+     */
+    ACKNOWLEDGED,
+
+    /**
+     * Every attempt to print the job failed.
+     */
+    FAILED,
+
+    /**
+     * The job was removed before it was printed.
+     */
+    CANCELLED;
+
+    /**
+     * Checks if the stage ends the job.
+     *
+     * @return true for SENT, ACKNOWLEDGED, FAILED and CANCELLED.
+     */
+    public boolean isFinal() {
+      return this == SENT || this == ACKNOWLEDGED || this == FAILED || this == CANCELLED;
+    }
+  }
+
+  /**
+   * A stage reached by a print job.
+   */
+  public static final class Event {
+    public final String jobId;
+    public final String printerIp;
+    public final Stage stage;
+    public final int attempt;
+    public final long timestamp;
+    public final long stageMillis;
+    public final long totalMillis;
+    public final String error;
+    public final Map<Stage, Long> durations;
+
+    Event(String jobId, String printerIp, Stage stage, int attempt, long timestamp, long stageMillis,
+          long totalMillis, String error, Map<Stage, Long> durations) {
+      this.jobId = jobId;
+      this.printerIp = printerIp;
+      this.stage = stage;
+      this.attempt = attempt;
+      this.timestamp = timestamp;
+      this.stageMillis = stageMillis;
+      this.totalMillis = totalMillis;
+      this.error = error;
+      this.durations = durations;
+    }
+  }
+
+  /**
+   * The stages a job has been through so far.
+   */
+  private static final class Timeline {
+    final long startNanos;
+    final Map<Stage, Long> durations = new EnumMap<>(Stage.class);
+    Stage stage;
+    long stageNanos;
+    int attempt;
+
+    Timeline(long now) {
+      this.startNanos = now;
+      this.stageNanos = now;
+      this.stage = Stage.QUEUED;
+    }
+  }
+
+  private final CoalescingEmitter<Event> emitter;
+  private final Map<String, Timeline> timelines = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new PrintJobTracker.
+   *
+   * @param intervalMillis The time events are collected for before they are delivered.
+   * @param sink           The sink receiving the batches of events.
+   */
+  public PrintJobTracker(long intervalMillis, CoalescingEmitter.Sink<Event> sink) {
+    this.emitter = new CoalescingEmitter<>(intervalMillis, sink);
+  }
+
+  /**
+   * Records that a job reached a stage.
+   *
+   * @param job   The print job.
+   * @param stage The stage reached.
+   */
+  public void record(PrinterJob job, Stage stage) {
+    record(job, stage, null);
+  }
+
+  /**
+   * Records that a job reached a stage.
+   * Stages of jobs that already ended, or that were never queued, are ignored.
+   *
+   * @param job   The print job.
+   * @param stage The stage reached.
+   * @param error The reason a job failed, or null.
+   */
+  public void record(PrinterJob job, Stage stage, String error) {
+    long now = System.nanoTime();
+    Timeline timeline;
+    if (stage == Stage.QUEUED) {
+      timeline = new Timeline(now);
+      timelines.put(job.getJobId(), timeline);
+    } else {
+      timeline = stage.isFinal() ? timelines.remove(job.getJobId()) : timelines.get(job.getJobId());
+      if (timeline == null) {
+        return;
+      }
+    }
+
+    Event event;
+    synchronized (timeline) {
+      long stageMillis = (now - timeline.stageNanos) / 1_000_000L;
+      if (stage != Stage.QUEUED) {
+        Long spent = timeline.durations.get(timeline.stage);
+        timeline.durations.put(timeline.stage, (spent != null ? spent : 0) + stageMillis);
+      }
+      if (stage == Stage.CONNECTING) {
+        timeline.attempt++;
+      }
+      timeline.stage = stage;
+      timeline.stageNanos = now;
+
+      event = new Event(job.getJobId(), job.getTargetPrinterIp(), stage, timeline.attempt,
+        System.currentTimeMillis(), stageMillis, (now - timeline.startNanos) / 1_000_000L, error,
+        stage.isFinal() ? Collections.unmodifiableMap(new EnumMap<>(timeline.durations)) : null);
+    }
+    emitter.add(event);
+  }
+
+  /**
+   * Delivers the events recorded so far without waiting for the interval.
+   */
+  public void flush() {
+    emitter.flush();
+  }
+}
@@ -5,19 +5,20 @@ import android.os.Build;
 import androidx.annotation.RequiresApi;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.util.Log;
 
 import com.posthermalprinter.PrinterManager;
+import com.posthermalprinter.imin.IminPrintChannel;
 import com.posthermalprinter.util.PrinterJob;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.WritableArray;
@@ -33,11 +34,14 @@ import org.json.JSONObject;
 @RequiresApi(api = Build.VERSION_CODES.N)
 public class PrintQueueProcessor {
   private static final String TAG = "PrintQueueProcessor";
+  // Time allowed for an attempt on top of connecting and printing, e.g. to encode images
+  private static final long ATTEMPT_MARGIN_MILLIS = 10_000;
+  private static final long ATTEMPT_POLL_MILLIS = 1000;
   private final BlockingQueue<PrinterJob> printQueue;
   private final List<String> printerPool;
   private final PrinterManager printerManager;
   private final PrinterEventManager eventManager;
-  private ExecutorService printExecutor;
+  private CompletableFuture<Void> processor;
   private volatile boolean isRunning = true;
 
   private String lastPrinterIp = null;
@@ -53,13 +57,12 @@ public class PrintQueueProcessor {
     this.printerPool = new CopyOnWriteArrayList<>(printerPool);
     this.printerManager = printerManager;
     this.eventManager = eventManager;
-    this.printExecutor = Executors.newFixedThreadPool(3);
     startQueueProcessor();
   }
 
 
    private void startQueueProcessor() {
-     CompletableFuture.runAsync(() -> {
+     processor = CompletableFuture.runAsync(() -> {
        while (isRunning) {
          try {
            synchronized (printLock) {
@@ -89,40 +92,115 @@ public class PrintQueueProcessor {
            Log.e(TAG, "Unexpected error in queue processor", e);
          }
        }
-     }, printExecutor);
+     }, ExecutorRegistry.getInstance().io());
    }
 
    private void processJobWithRetry(PrinterJob job) {
      int maxRetries = 3;
      int retryCount = 0;
-
-
+     String error = "Printer did not accept the job";
+     PrintJobTracker tracker = eventManager.getJobTracker();
 
      while (retryCount < maxRetries) {
+       tracker.record(job, PrintJobTracker.Stage.CONNECTING);
+       AtomicLong bytesSent = new AtomicLong();
+       CompletableFuture<Boolean> printFuture = printerManager.printToPrinter(job, bytesSent);
+       Boolean result;
        try {
-         CompletableFuture<Boolean> printFuture = printerManager.printToPrinter(job);
-         Boolean result = printFuture.get(500, TimeUnit.MILLISECONDS);
-
-         if (Boolean.TRUE.equals(result)) {
-           applyPostPrintDelay(job);
+         result = awaitAttempt(job, printFuture, bytesSent);
+       } catch (TimeoutException e) {
+         // The attempt may still be printing, so sending the job again could print it twice
+         Log.e(TAG, "Print attempt " + (retryCount + 1) + " did not finish in time");
+         failJob(job, "Printer did not finish the job in time");
+         return;
+       } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         failJob(job, "Interrupted while printing");
+         return;
+       } catch (ExecutionException e) {
+         if (e.getCause() instanceof PrintEncodingException) {
+           // The job itself is broken, so the printer is fine and a retry would fail again
+           PrintEncodingException encodingError = (PrintEncodingException) e.getCause();
+           Log.e(TAG, "Print job " + job.getJobId() + " could not be encoded", encodingError);
+           String reason = String.valueOf(encodingError.getCause());
+           failJob(job, encodingError.isPartiallyPrinted() ? "Partially printed: " + reason : reason);
            return;
          }
+         Log.e(TAG, "Print attempt " + (retryCount + 1) + " failed", e.getCause());
+         error = String.valueOf(e.getCause());
+         result = false;
+       }
 
-         retryCount++;
-         if (retryCount < maxRetries) {
-           Thread.sleep(1000 * retryCount); // Exponential backoff
-         }
+       if (Boolean.TRUE.equals(result)) {
+         LogoRegistry.getInstance().confirmUploads(job.getTargetPrinterIp());
+         eventManager.resetPrinterUnreachableStatus(job.getTargetPrinterIp());
+         tracker.record(job, "INTERNAL".equals(job.getTargetPrinterIp())
+           ? PrintJobTracker.Stage.ACKNOWLEDGED
+           : PrintJobTracker.Stage.SENT);
+         job.complete(true);
+         applyPostPrintDelay(job);
+         return;
+       }
 
-       } catch (Exception e) {
-         Log.e(TAG, "Print attempt " + (retryCount + 1) + " failed", e);
-         retryCount++;
-         if (retryCount >= maxRetries) {
-           eventManager.sendPrinterUnreachableEvent(job.getTargetPrinterIp());
+       if (bytesSent.get() > 0) {
+         // Part of the job may have printed, and a retry would print that part again
+         eventManager.sendPrinterUnreachableEvent(job.getTargetPrinterIp());
+         failJob(job, "Printer stopped partway through the job");
+         return;
+       }
+
+       // The printer may have been powered off, which clears the logos in its download memory
+       LogoRegistry.getInstance().invalidatePrinter(job.getTargetPrinterIp());
+       retryCount++;
+       if (retryCount < maxRetries) {
+         try {
+           Thread.sleep(1000 * retryCount); // Exponential backoff
+         } catch (InterruptedException e) {
+           Thread.currentThread().interrupt();
+           break;
          }
        }
      }
+     eventManager.sendPrinterUnreachableEvent(job.getTargetPrinterIp());
+     failJob(job, error);
+   }
+
+   private void failJob(PrinterJob job, String error) {
+     LogoRegistry.getInstance().discardUploads(job.getTargetPrinterIp());
+     eventManager.getJobTracker().record(job, PrintJobTracker.Stage.FAILED, error);
+     job.complete(false);
    }
 
+   /**
+    * Waits for an attempt to print a job to finish.
+    * The attempt is allowed the time to connect or, for the internal printer, to report ready,
+    * plus the time the printer takes to print the bytes sent so far. The deadline moves as
+    * more bytes are sent, so a tall job is never cut short while it is still printing.
+    *
+    * @throws TimeoutException If the attempt did not finish within its deadline.
+    */
+   private Boolean awaitAttempt(PrinterJob job, CompletableFuture<Boolean> printFuture, AtomicLong bytesSent)
+     throws InterruptedException, ExecutionException, TimeoutException {
+     String ip = job.getTargetPrinterIp();
+     int bytesPerSecond = PrinterProfileRegistry.getInstance().get(ip).getRasterBytesPerSecond();
+     long allowanceMillis = ATTEMPT_MARGIN_MILLIS + ("INTERNAL".equals(ip)
+       ? IminPrintChannel.DEFAULT_COMPLETION_TIMEOUT_MILLIS
+       : POSPrinter.CONNECT_TIMEOUT);
+     long start = System.currentTimeMillis();
+
+     while (true) {
+       long sendMillis = bytesPerSecond > 0 ? bytesSent.get() * 1000 / bytesPerSecond : 0;
+       long remaining = start + allowanceMillis + sendMillis - System.currentTimeMillis();
+       if (remaining <= 0) {
+         throw new TimeoutException("Print attempt for job " + job.getJobId() + " did not finish");
+       }
+       try {
+         return printFuture.get(Math.min(remaining, ATTEMPT_POLL_MILLIS), TimeUnit.MILLISECONDS);
+       } catch (TimeoutException e) {
+         // Not finished yet, check the deadline again with the bytes sent since
+       }
+     }
+   }
 
    private void applyPostPrintDelay(PrinterJob job) {
      try {
@@ -315,11 +393,6 @@ public class PrintQueueProcessor {
         printQueue.add(job);
       }
 
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException e) {
-        Log.e(TAG, "Sleep interrupted", e);
-      }
       // Trigger processing of the updated queue
       processPrintQueue(binder);
     } else {
@@ -380,12 +453,6 @@ public class PrintQueueProcessor {
         printQueue.add(job);
       }
 
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException e) {
-        Log.e(TAG, "Sleep interrupted", e);
-      }
-
       // Trigger processing of the updated queue
       processPrintQueue(binder);
     } else {
@@ -394,6 +461,21 @@ public class PrintQueueProcessor {
   }
 
 
+  /**
+   * Gets the pending print jobs still in the queue, leaving them in place.
+   *
+   * @return A snapshot of the pending jobs, in queue order.
+   */
+  public List<PrinterJob> getPendingJobs() {
+    List<PrinterJob> pendingJobs = new ArrayList<>();
+    for (PrinterJob job : printQueue) {
+      if (job.getIsPending()) {
+        pendingJobs.add(job);
+      }
+    }
+    return pendingJobs;
+  }
+
   /**
    * Retrieves pending print jobs and formats them for use in JavaScript.
    * This method extracts information from pending print jobs in the queue
@@ -403,52 +485,28 @@ public class PrintQueueProcessor {
    * @return A {@link WritableArray} containing information about pending print jobs,
    * formatted for use in JavaScript.
    * @implNote The method performs the following steps:
-   * 1. Drains the print queue to a temporary list.
-   * 2. Iterates through the jobs, creating a WritableMap for each pending job.
+   * 1. Iterates through the jobs in the queue, leaving them in place.
+   * 2. Creates a WritableMap for each pending job.
    * 3. Adds job information (printer IP, name, metadata, and job ID) to each map.
-   * 4. Adds all jobs back to the original queue.
-   * 5. Triggers processing of the updated queue.
+   * 4. Triggers processing of the queue.
+   * The queue is never emptied, so the processor keeps printing while it is read.
    * @see PrinterJob
    * @see WritableArray
    * @see WritableMap
    */
   public WritableArray getPendingJobsForJS(IMyBinder binder) {
     WritableArray pendingJobsArray = Arguments.createArray();
-    List<PrinterJob> tempList = new ArrayList<>();
-
-    // Drain the queue to a temporary list
-    printQueue.drainTo(tempList);
 
-    try {
-      Thread.sleep(300);
-    } catch (InterruptedException e) {
-      Log.e(TAG, "Sleep interrupted", e);
-    }
-
-
-    for (PrinterJob job : tempList) {
-      if (job.getIsPending()) {
-        WritableMap jobMap = Arguments.createMap();
-        jobMap.putString("printerIp", job.getTargetPrinterIp());
-        jobMap.putString("printerName", job.getPrinterName());
-        jobMap.putString("metadata", job.getMetadata());
-        jobMap.putString("jobId", job.getJobId());
-        pendingJobsArray.pushMap(jobMap);
-      }
-
-      // Add the job back to the queue
-      printQueue.offer(job);
+    for (PrinterJob job : getPendingJobs()) {
+      WritableMap jobMap = Arguments.createMap();
+      jobMap.putString("printerIp", job.getTargetPrinterIp());
+      jobMap.putString("printerName", job.getPrinterName());
+      jobMap.putString("metadata", job.getMetadata());
+      jobMap.putString("jobId", job.getJobId());
+      pendingJobsArray.pushMap(jobMap);
     }
 
-
-    try {
-      Thread.sleep(300);
-    } catch (InterruptedException e) {
-      Log.e(TAG, "Sleep interrupted", e);
-    }
-
-
-    // Trigger processing of the updated queue
+    // Trigger processing of the queue
     processPrintQueue(binder);
 
     return pendingJobsArray;
@@ -462,49 +520,28 @@ public class PrintQueueProcessor {
    * @param binder An {@link IMyBinder} object used for processing the print queue.
    * @return true if the job was found and deleted, false otherwise.
    * @implNote The method performs the following steps:
-   * 1. Drains the print queue to a temporary list.
-   * 2. Iterates through the jobs, searching for the specified job ID.
-   * 3. If found, removes the job from the list.
-   * 4. Adds all remaining jobs back to the original queue.
-   * 5. Triggers processing of the updated queue.
+   * 1. Iterates through the jobs in the queue, searching for the specified job ID.
+   * 2. If found, removes the job from the queue.
+   * 3. Triggers processing of the queue.
+   * A job the processor takes while it is being searched for is printed, not deleted.
    * @see PrinterJob
    */
   public boolean deleteJobById(String jobId, IMyBinder binder) {
     boolean jobFound = false;
-    List<PrinterJob> tempList = new ArrayList<>();
-
-    // Drain the queue to a temporary list
-    printQueue.drainTo(tempList);
 
-    try {
-      Thread.sleep(300);
-    } catch (InterruptedException e) {
-      Log.e(TAG, "Sleep interrupted", e);
-    }
-
-    // Use an iterator to safely remove the job if found
-    Iterator<PrinterJob> iterator = tempList.iterator();
-    while (iterator.hasNext()) {
-      PrinterJob job = iterator.next();
+    for (PrinterJob job : printQueue) {
       if (job.getJobId().equals(jobId)) {
-        iterator.remove();
-        jobFound = true;
-        Log.i(TAG, "Job with ID " + jobId + " has been removed from the queue.");
+        if (printQueue.remove(job)) {
+          eventManager.getJobTracker().record(job, PrintJobTracker.Stage.CANCELLED);
+          job.complete(false);
+          jobFound = true;
+          Log.i(TAG, "Job with ID " + jobId + " has been removed from the queue.");
+        }
         break;
       }
     }
 
-    // Add all remaining jobs back to the queue
-    printQueue.addAll(tempList);
-
-    try {
-      Thread.sleep(300);
-    } catch (InterruptedException e) {
-      Log.e(TAG, "Sleep interrupted", e);
-    }
-
-
-    // Trigger processing of the updated queue
+    // Trigger processing of the queue
     processPrintQueue(binder);
 
     if (!jobFound) {
@@ -515,25 +552,33 @@ public class PrintQueueProcessor {
   }
 
   /**
-   * Initiates a shutdown of the print executor service.
+   * Stops the queue processor.
    * This method should be called when the print service is no longer needed
    * to ensure proper cleanup of resources.
    *
-   * @implNote This method calls shutdown() on the printExecutor,
-   * which will allow previously submitted tasks to execute
-   * before terminating, but will not accept new tasks.
-   * @see ExecutorService#shutdown()
+   * @implNote The processor finishes the job it is printing; this method waits for it
+   * for at most 5 seconds.
    */
   public void shutdown() {
     isRunning = false;
-    printExecutor.shutdown();
+    synchronized (printLock) {
+      printLock.notifyAll();
+    }
     try {
-      if (!printExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-        printExecutor.shutdownNow();
-      }
+      processor.get(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
-      printExecutor.shutdownNow();
       Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      Log.w(TAG, "Queue processor did not stop cleanly: " + e.getMessage());
+    }
+
+    // Jobs still waiting will never print
+    List<PrinterJob> unprinted = new ArrayList<>();
+    printQueue.drainTo(unprinted);
+    for (PrinterJob job : unprinted) {
+      eventManager.getJobTracker().record(job, PrintJobTracker.Stage.CANCELLED);
+      job.complete(false);
     }
+    eventManager.getJobTracker().flush();
   }
 }
@@ -14,7 +14,6 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 public class PrinterConnectionChecker {
   private final List<String> printerIps;
@@ -38,7 +37,7 @@ public class PrinterConnectionChecker {
   }
 
   @SuppressLint("NewApi")
-  public CompletableFuture<List<PrinterConnectionResult>> checkConnections() throws ExecutionException, InterruptedException {
+  public CompletableFuture<List<PrinterConnectionResult>> checkConnections() {
     if (binder == null) {
       return CompletableFuture.completedFuture(new ArrayList<>());
     }
@@ -47,7 +46,7 @@ public class PrinterConnectionChecker {
   }
 
   @SuppressLint("NewApi")
-  private CompletableFuture<List<PrinterConnectionResult>> checkNextPrinter(int index) throws ExecutionException, InterruptedException {
+  private CompletableFuture<List<PrinterConnectionResult>> checkNextPrinter(int index) {
     if (index >= printerIps.size()) {
       return CompletableFuture.completedFuture(results);
     }
@@ -86,21 +85,16 @@ public class PrinterConnectionChecker {
       });
     } else {
       if (iMinPrinterModule != null) {
-        Boolean result = iMinPrinterModule.initPrinter();
-        results.add(new PrinterConnectionResult(currentPrinterIp, result));
-        connectionTest.complete(result);
+        iMinPrinterModule.ensureReadyAsync().whenComplete((ready, error) -> {
+          boolean result = error == null && ready;
+          results.add(new PrinterConnectionResult(currentPrinterIp, result));
+          connectionTest.complete(result);
+        });
       } else {
         connectionTest.complete(false);
       }
     }
 
-    return connectionTest
-      .thenCompose(result -> {
-        try {
-          return checkNextPrinter(index + 1);
-        } catch (ExecutionException | InterruptedException e) {
-          throw new RuntimeException(e);
-        }
-      });
+    return connectionTest.thenCompose(result -> checkNextPrinter(index + 1));
   }
 }
@@ -6,20 +6,32 @@ import androidx.annotation.RequiresApi;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Manages printer-related events and notifications.
- * This class handles sending printer unreachable events to the React Native layer
- * and keeps track of which printers have already been reported as unreachable.
+ * Every event sent to the React Native layer goes through one {@link EventBus}, which drops
+ * repeated printer states and rate-limits bursts, so an outage or a busy queue does not send
+ * a stream of identical events.
  */
 public class PrinterEventManager {
+
+  public static final String PRINTER_UNREACHABLE = "PrinterUnreachable";
+  public static final String PRE_PRINT_CHECK = "PrePrintCheck";
+  public static final String PRINT_JOB_EVENTS = "PrintJobEvents";
+  public static final String PRINTER_WARNING = "PrinterWarning";
+
+  private static final String UNREACHABLE = "UNREACHABLE";
+  private static final String PAPER_LOW = "PAPER_LOW";
+
   private final ReactApplicationContext reactContext;
-  private final Set<String> reportedUnreachablePrinters;
+  private final EventBus eventBus;
+  private final PrintJobTracker jobTracker;
 
   /**
    * Constructs a new PrinterEventManager.
@@ -29,49 +41,114 @@ public class PrinterEventManager {
   @RequiresApi(api = Build.VERSION_CODES.N)
   public PrinterEventManager(ReactApplicationContext reactContext) {
     this.reactContext = reactContext;
-    this.reportedUnreachablePrinters = ConcurrentHashMap.newKeySet();
+    this.eventBus = new EventBus(this::emit);
+    // A printer is reported once when it becomes unreachable, and at most once a second if it flaps
+    eventBus.configure(PRINTER_UNREACHABLE, new EventBus.Policy(true, 1000));
+    // A burst of submissions triggers one check at its start and one at its end
+    eventBus.configure(PRE_PRINT_CHECK, new EventBus.Policy(false, 250));
+    // A printer running out of paper is reported once, until it is reported ready again
+    eventBus.configure(PRINTER_WARNING, new EventBus.Policy(true, 1000));
+    this.jobTracker = new PrintJobTracker(PrintJobTracker.DEFAULT_INTERVAL_MILLIS, this::sendPrintJobEvents);
   }
 
   /**
-   * Sends a printer unreachable event once for a given printer IP.
-   * This method ensures that the unreachable event is only sent once per printer
-   * until the printer's status is reset.
+   * Gets the bus all events are sent through.
    *
-   * @param printerIp The IP address of the unreachable printer.
+   * @return The event bus.
    */
-//  public void sendPrinterUnreachableEventOnce(String printerIp) {
-//    if (reportedUnreachablePrinters.add(printerIp)) {
-//      sendPrinterUnreachableEvent(printerIp);
-//    }
-//  }
+  public EventBus getEventBus() {
+    return eventBus;
+  }
 
   /**
-   * Resets the unreachable status for a given printer IP.
-   * After calling this method, sendPrinterUnreachableEventOnce will send
-   * an event for this printer IP again if called.
+   * Gets the tracker reporting the stages of print jobs.
    *
-   * @param printerIp The IP address of the printer to reset.
+   * @return The print job tracker.
    */
-//  public void resetPrinterUnreachableStatus(String printerIp) {
-//    reportedUnreachablePrinters.remove(printerIp);
-//  }
+  public PrintJobTracker getJobTracker() {
+    return jobTracker;
+  }
 
   /**
    * Sends a printer unreachable event to the React Native layer.
+   * The event is sent once per outage: a printer already reported as unreachable is not
+   * reported again until {@link #resetPrinterUnreachableStatus(String)} is called for it.
    *
    * @param printerIp The IP address of the unreachable printer.
    */
   public void sendPrinterUnreachableEvent(String printerIp) {
     WritableMap params = Arguments.createMap();
     params.putString("printerIp", printerIp);
-    reactContext
-      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-      .emit("PrinterUnreachable", params);
+    eventBus.post(PRINTER_UNREACHABLE, printerIp, UNREACHABLE, params);
+  }
+
+  /**
+   * Resets the unreachable status for a given printer IP, once the printer has been reached.
+   * After calling this method, the next failure of the printer is reported again.
+   *
+   * @param printerIp The IP address of the printer to reset.
+   */
+  public void resetPrinterUnreachableStatus(String printerIp) {
+    eventBus.resetState(PRINTER_UNREACHABLE, printerIp);
+  }
+
+  /**
+   * Reports the paper state of a printer to the React Native layer. A printer running out of
+   * paper is reported once, until a later job finds the paper no longer low.
+   *
+   * @param printerIp The IP address of the printer.
+   * @param paperLow  Whether the printer is running out of paper.
+   */
+  public void sendPaperStatus(String printerIp, boolean paperLow) {
+    if (!paperLow) {
+      eventBus.resetState(PRINTER_WARNING, printerIp);
+      return;
+    }
+    WritableMap params = Arguments.createMap();
+    params.putString("printerIp", printerIp);
+    params.putString("warning", PAPER_LOW);
+    eventBus.post(PRINTER_WARNING, printerIp, PAPER_LOW, params);
   }
 
   public void sendPrePrintEvent() {
+    eventBus.post(PRE_PRINT_CHECK, null);
+  }
+
+  /**
+   * Sends a batch of print job stages to the React Native layer as one event.
+   *
+   * @param events The stages reached since the last batch, in order.
+   */
+  public void sendPrintJobEvents(List<PrintJobTracker.Event> events) {
+    WritableArray params = Arguments.createArray();
+    for (PrintJobTracker.Event event : events) {
+      WritableMap map = Arguments.createMap();
+      map.putString("jobId", event.jobId);
+      map.putString("printerIp", event.printerIp);
+      map.putString("stage", event.stage.name());
+      map.putInt("attempt", event.attempt);
+      map.putDouble("timestamp", event.timestamp);
+      map.putDouble("stageMillis", event.stageMillis);
+      map.putDouble("totalMillis", event.totalMillis);
+      if (event.error != null) {
+        map.putString("error", event.error);
+      }
+      if (event.durations != null) {
+        WritableMap durations = Arguments.createMap();
+        for (Map.Entry<PrintJobTracker.Stage, Long> duration : event.durations.entrySet()) {
+          durations.putDouble(duration.getKey().name(), duration.getValue());
+        }
+        map.putMap("durations", durations);
+      }
+      params.pushMap(map);
+    }
+    // Already coalesced by the tracker
+    eventBus.post(PRINT_JOB_EVENTS, params);
+  }
+
+  private void emit(String event, Object params) {
     reactContext
       .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-      .emit("PrePrintCheck", null);
+      .emit(event, params);
   }
 }
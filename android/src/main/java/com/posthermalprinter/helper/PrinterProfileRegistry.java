@@ -0,0 +1,79 @@
+package com.posthermalprinter.helper;
+
+import android.util.Log;
+
+import com.imin.library.SystemPropManager;
+import com.posthermalprinter.util.PrinterProfile;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the capability profile of each printer.
+ * Profiles are configured or auto-selected when a printer is added to the pool, and read by
+ * the encoder and dispatcher for every job.
+ */
+public class PrinterProfileRegistry {
+
+  private static final String TAG = "PrinterProfileRegistry";
+  private static final PrinterProfileRegistry instance = new PrinterProfileRegistry();
+
+  // iMin handheld models with a 58 mm printer
+  private static final List<String> IMIN_58MM_MODELS = Arrays.asList("M2-202", "M2-203", "M2-Pro", "Swift 1");
+
+  private final Map<String, PrinterProfile> profiles = new ConcurrentHashMap<>();
+
+  private PrinterProfileRegistry() {
+  }
+
+  public static PrinterProfileRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Gets the profile of a printer.
+   *
+   * @param printerIp The IP address of the printer, or "INTERNAL" for the built-in printer.
+   * @return The configured profile, or the default profile for the printer type.
+   */
+  public PrinterProfile get(String printerIp) {
+    PrinterProfile profile = printerIp != null ? profiles.get(printerIp) : null;
+    return profile != null ? profile : defaultProfile(printerIp);
+  }
+
+  /**
+   * Sets the profile of a printer being added to the pool.
+   * If no profile is given, a previously configured profile is kept, otherwise one is
+   * selected from the printer type.
+   *
+   * @param printerIp The IP address of the printer, or "INTERNAL" for the built-in printer.
+   * @param profile   The profile to use, or null to select one automatically.
+   * @return The profile the printer uses.
+   */
+  public PrinterProfile configure(String printerIp, PrinterProfile profile) {
+    PrinterProfile selected = profile != null
+      ? profile
+      : profiles.computeIfAbsent(printerIp, PrinterProfileRegistry::defaultProfile);
+    profiles.put(printerIp, selected);
+    Log.i(TAG, "Printer " + printerIp + " uses profile " + selected.getName());
+    return selected;
+  }
+
+  private static PrinterProfile defaultProfile(String printerIp) {
+    if (!Objects.equals(printerIp, "INTERNAL")) {
+      return PrinterProfile.PRINTER_80MM;
+    }
+
+    try {
+      return IMIN_58MM_MODELS.contains(SystemPropManager.getModel())
+        ? PrinterProfile.IMIN_58MM
+        : PrinterProfile.IMIN_80MM;
+    } catch (Exception e) {
+      Log.w(TAG, "Could not read device model: " + e.getMessage());
+      return PrinterProfile.IMIN_80MM;
+    }
+  }
+}
@@ -66,6 +66,9 @@ public class PrinterServiceInitializer {
           }
         };
 
+        ImageCache.initialize(reactContext);
+        RasterCache.initialize(reactContext);
+        LogoRegistry.initialize(reactContext);
         printerManager = new PrinterManager(new ArrayList<String>(), reactContext);
 
         Intent intent = new Intent(reactContext, PosprinterService.class);
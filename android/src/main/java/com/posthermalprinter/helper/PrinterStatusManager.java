@@ -7,7 +7,6 @@ import androidx.annotation.RequiresApi;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 import net.posprinter.posprinterface.IMyBinder;
 import net.posprinter.utils.PosPrinterDev;
@@ -28,7 +27,7 @@ public class PrinterStatusManager {
    * @return A List of PrinterStatus objects representing the status of each printer in the pool.
    * Returns an empty list if the binder is null or if no printers are found.
    */
-  public CompletableFuture<List<PrinterStatus>> getPrinterPoolStatus(IMyBinder binder, List<String> printerPool) throws ExecutionException, InterruptedException {
+  public CompletableFuture<List<PrinterStatus>> getPrinterPoolStatus(IMyBinder binder, List<String> printerPool) {
     if (binder == null) {
       return CompletableFuture.completedFuture(new ArrayList<>());
     }
@@ -0,0 +1,187 @@
+package com.posthermalprinter.helper;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.posthermalprinter.util.TextAlignment;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the final raster commands of printed images.
+ * Entries are keyed by the image content hash and everything that affects the raster: width
+ * percentage, alignment, printer dot width, the vertical motion unit of the paper feeds between
+ * bands, and dither mode. A repeated image then costs a map
+ * lookup instead of decoding, scaling and thresholding its pixels again.
+ */
+public class RasterCache {
+
+  private static final String TAG = "RasterCache";
+  private static final long DEFAULT_MEMORY_BYTES = 4L * 1024 * 1024;
+  private static final long DEFAULT_DISK_BYTES = 16L * 1024 * 1024;
+
+  /**
+   * The largest raster worth caching, in bytes. Taller images are encoded again when printed.
+   */
+  public static final int MAX_ENTRY_BYTES = 256 * 1024;
+
+  private static volatile RasterCache instance;
+
+  private final DiskCache disk;
+  private final long memoryLimit;
+  private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private long memorySize;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs a new RasterCache.
+   *
+   * @param directory   The directory of the disk cache, or null to cache in memory only.
+   * @param memoryLimit The maximum number of bytes kept in memory.
+   * @param diskLimit   The maximum number of bytes kept on disk.
+   */
+  public RasterCache(File directory, long memoryLimit, long diskLimit) {
+    this.disk = directory != null ? new DiskCache(directory, diskLimit) : null;
+    this.memoryLimit = memoryLimit;
+  }
+
+  /**
+   * Creates the shared cache, persisted in the application's cache directory.
+   *
+   * @param context The context used to locate the cache directory.
+   */
+  public static synchronized void initialize(Context context) {
+    if (instance == null || instance.disk == null) {
+      instance = new RasterCache(new File(context.getCacheDir(), "pos_printer_rasters"),
+        DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES);
+    }
+  }
+
+  /**
+   * Gets the shared cache. If it has not been initialized with a context, the cache
+   * is kept in memory only.
+   *
+   * @return The shared RasterCache.
+   */
+  public static RasterCache getInstance() {
+    if (instance == null) {
+      synchronized (RasterCache.class) {
+        if (instance == null) {
+          instance = new RasterCache(null, DEFAULT_MEMORY_BYTES, 0);
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Builds the cache key of a raster.
+   *
+   * @param contentHash     The hash of the source image bytes.
+   * @param widthPercentage The printed width as a percentage of the print width.
+   * @param alignment       The alignment of the image.
+   * @param dotWidth        The printable width of the printer in dots.
+   * @param feedUnits       The vertical motion unit of the printer's paper feeds, in units per inch.
+   * @param dither          The name of the dither mode.
+   * @return The cache key.
+   */
+  public static String key(String contentHash, int widthPercentage, TextAlignment alignment, int dotWidth,
+                           int feedUnits, String dither) {
+    return contentHash + ":" + widthPercentage + ":" + alignment + ":" + dotWidth + ":" + feedUnits + ":" + dither;
+  }
+
+  /**
+   * Gets cached raster commands.
+   *
+   * @param key The cache key built with {@link #key}.
+   * @return The raster commands, or null if they are not cached.
+   */
+  public byte[] get(String key) {
+    byte[] raster;
+    synchronized (memory) {
+      raster = memory.get(key);
+    }
+
+    if (raster == null && disk != null) {
+      raster = disk.read(DiskCache.fileName(key));
+      if (raster != null) {
+        putMemory(key, raster);
+      }
+    }
+
+    synchronized (memory) {
+      if (raster != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    return raster;
+  }
+
+  /**
+   * Stores raster commands.
+   *
+   * @param key    The cache key built with {@link #key}.
+   * @param raster The raster commands.
+   */
+  public void put(String key, byte[] raster) {
+    putMemory(key, raster);
+
+    if (disk != null && raster.length <= disk.getLimit()) {
+      try {
+        disk.write(DiskCache.fileName(key), raster);
+      } catch (IOException e) {
+        Log.w(TAG, "Could not write cached raster: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Gets the number of lookups that found a cached raster.
+   *
+   * @return The number of cache hits.
+   */
+  public long getHits() {
+    synchronized (memory) {
+      return hits;
+    }
+  }
+
+  /**
+   * Gets the number of lookups that found no cached raster.
+   *
+   * @return The number of cache misses.
+   */
+  public long getMisses() {
+    synchronized (memory) {
+      return misses;
+    }
+  }
+
+  private void putMemory(String key, byte[] raster) {
+    if (raster.length > memoryLimit) {
+      return;
+    }
+
+    synchronized (memory) {
+      byte[] previous = memory.put(key, raster);
+      if (previous != null) {
+        memorySize -= previous.length;
+      }
+      memorySize += raster.length;
+
+      // Evict least recently used rasters
+      Iterator<Map.Entry<String, byte[]>> iterator = memory.entrySet().iterator();
+      while (memorySize > memoryLimit && iterator.hasNext()) {
+        memorySize -= iterator.next().getValue().length;
+        iterator.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,316 @@
+package com.posthermalprinter.helper;
+
+import android.graphics.Bitmap;
+
+import com.posthermalprinter.util.PrinterProfile;
+import com.posthermalprinter.util.RasterImage;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Converts bitmaps into packed monochrome raster images and raster commands.
+ */
+public class RasterEncoder {
+
+  private static final int THRESHOLD = 128;
+
+  // Shorter runs of white rows are cheaper to send than to replace with a feed and a new raster header
+  private static final int MIN_BLANK_ROWS = 8;
+  private static final int RASTER_HEADER_BYTES = 8;
+  private static final int FEED_COMMAND_BYTES = 3;
+
+  // Channel values pre-multiplied by their luminance weights (0.299, 0.587, 0.114) in 16.16 fixed point
+  private static final int[] RED_LUMINANCE = luminanceTable(19595);
+  private static final int[] GREEN_LUMINANCE = luminanceTable(38470);
+  private static final int[] BLUE_LUMINANCE = luminanceTable(7471);
+
+  /**
+   * Scales a bitmap to the given width and packs it into a monochrome raster image.
+   * Transparent pixels are treated as white paper.
+   *
+   * @param source    The bitmap to convert.
+   * @param widthDots The target width of the image in dots.
+   * @return The packed raster image.
+   */
+  public static RasterImage rasterize(Bitmap source, int widthDots) {
+    int targetHeight = Math.max(1, Math.round((float) source.getHeight() * widthDots / source.getWidth()));
+    Bitmap scaled = source.getWidth() == widthDots
+      ? source
+      : Bitmap.createScaledBitmap(source, widthDots, targetHeight, true);
+
+    try {
+      return pack(scaled, scaled.getWidth(), 0);
+    } finally {
+      if (scaled != source) {
+        scaled.recycle();
+      }
+    }
+  }
+
+  /**
+   * Packs a bitmap into a monochrome raster image of the given width.
+   * The bitmap is placed {@code leftDots} from the left edge and the rest of the row is left
+   * white, so alignment costs no intermediate canvas. Transparent pixels are treated as white paper.
+   *
+   * @param source    The bitmap to pack, already scaled to its printed size.
+   * @param widthDots The width of the raster image in dots.
+   * @param leftDots  The offset of the bitmap from the left edge in dots.
+   * @return The packed raster image. Its data comes from the {@link BufferPool} and may be
+   * released there once consumed.
+   */
+  public static RasterImage pack(Bitmap source, int widthDots, int leftDots) {
+    int width = Math.min(source.getWidth(), Math.max(0, widthDots - leftDots));
+    int height = source.getHeight();
+    int widthBytes = (widthDots + 7) / 8;
+    BufferPool buffers = BufferPool.getInstance();
+    byte[] data = buffers.acquireBytes(widthBytes * height);
+    int[] row = buffers.acquireInts(source.getWidth());
+
+    for (int y = 0; y < height; y++) {
+      source.getPixels(row, 0, row.length, 0, y, row.length, 1);
+      packRow(row, 0, width, data, y * widthBytes, leftDots);
+    }
+    buffers.release(row);
+    return new RasterImage(widthBytes, height, data);
+  }
+
+  /**
+   * Packs ARGB pixels into a monochrome raster image of the given width.
+   *
+   * @param pixels    The ARGB pixels of the image, row by row.
+   * @param width     The width of the image in pixels.
+   * @param height    The height of the image in pixels.
+   * @param widthDots The width of the raster image in dots.
+   * @param leftDots  The offset of the image from the left edge in dots.
+   * @return The packed raster image.
+   * @see #pack(Bitmap, int, int)
+   */
+  public static RasterImage pack(int[] pixels, int width, int height, int widthDots, int leftDots) {
+    int packedWidth = Math.min(width, Math.max(0, widthDots - leftDots));
+    int widthBytes = (widthDots + 7) / 8;
+    byte[] data = new byte[widthBytes * height];
+
+    for (int y = 0; y < height; y++) {
+      packRow(pixels, y * width, packedWidth, data, y * widthBytes, leftDots);
+    }
+    return new RasterImage(widthBytes, height, data);
+  }
+
+  /**
+   * Thresholds one row of pixels and writes it as whole bytes, starting at a bit offset.
+   */
+  private static void packRow(int[] pixels, int start, int width, byte[] data, int rowOffset, int leftDots) {
+    int index = rowOffset + (leftDots >> 3);
+    // Bits of the partial byte before the image are white
+    int bits = leftDots & 7;
+    int accumulator = 0;
+
+    for (int x = 0; x < width; x++) {
+      accumulator = (accumulator << 1) | (isDark(pixels[start + x]) ? 1 : 0);
+      if (++bits == 8) {
+        data[index++] = (byte) accumulator;
+        accumulator = 0;
+        bits = 0;
+      }
+    }
+    if (bits > 0) {
+      data[index] = (byte) (accumulator << (8 - bits));
+    }
+  }
+
+  /**
+   * Writes one row of dots as whole bytes, starting at a bit offset.
+   *
+   * @param dots      The dots of the row, 1 for black and 0 for white.
+   * @param width     The number of dots to write.
+   * @param data      The packed raster data.
+   * @param rowOffset The index of the first byte of the row in {@code data}.
+   * @param leftDots  The offset of the first dot from the left edge.
+   */
+  static void packDots(byte[] dots, int width, byte[] data, int rowOffset, int leftDots) {
+    int index = rowOffset + (leftDots >> 3);
+    int bits = leftDots & 7;
+    int accumulator = 0;
+
+    for (int x = 0; x < width; x++) {
+      accumulator = (accumulator << 1) | dots[x];
+      if (++bits == 8) {
+        data[index++] = (byte) accumulator;
+        accumulator = 0;
+        bits = 0;
+      }
+    }
+    if (bits > 0) {
+      data[index] = (byte) (accumulator << (8 - bits));
+    }
+  }
+
+  /**
+   * Removes the white bytes at the right of every row of a raster image.
+   * {@code GS v 0} prints from the left margin, so the dots keep their position while the
+   * command carries fewer bytes.
+   *
+   * @param image The raster image to trim.
+   * @return The trimmed image, or the same image if it has no white bytes on the right.
+   */
+  public static RasterImage trimRight(RasterImage image) {
+    byte[] data = image.getData();
+    int widthBytes = image.getWidthBytes();
+    int usedBytes = 1;
+
+    for (int rowOffset = 0; rowOffset < data.length; rowOffset += widthBytes) {
+      for (int x = widthBytes - 1; x >= usedBytes; x--) {
+        if (data[rowOffset + x] != 0) {
+          usedBytes = x + 1;
+          break;
+        }
+      }
+    }
+
+    if (usedBytes == widthBytes) {
+      return image;
+    }
+
+    byte[] trimmed = new byte[usedBytes * image.getHeight()];
+    for (int y = 0; y < image.getHeight(); y++) {
+      System.arraycopy(data, y * widthBytes, trimmed, y * usedBytes, usedBytes);
+    }
+    return new RasterImage(usedBytes, image.getHeight(), trimmed);
+  }
+
+  /**
+   * Builds the commands that print a raster image without sending its white rows.
+   * Runs of white rows are replaced by paper feeds ({@code ESC J}), so an image with white
+   * margins or internal gaps is sent as several smaller rasters.
+   *
+   * @param image     The raster image to print.
+   * @param profile   The capability profile of the printer, used to convert rows into feed units.
+   * @param trimRight Whether to trim each raster on the right. Rasters positioned by the
+   *                  justification ({@code ESC a}) must keep their width.
+   * @return A byte array containing the raster and feed commands.
+   */
+  public static byte[] toRasterCommands(RasterImage image, PrinterProfile profile, boolean trimRight) {
+    int widthBytes = image.getWidthBytes();
+    int height = image.getHeight();
+    byte[] data = image.getData();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    int segmentStart = -1;
+    int y = 0;
+    while (y < height) {
+      if (!isBlankRow(data, y, widthBytes)) {
+        if (segmentStart < 0) {
+          segmentStart = y;
+        }
+        y++;
+        continue;
+      }
+
+      int blankEnd = y + 1;
+      while (blankEnd < height && isBlankRow(data, blankEnd, widthBytes)) {
+        blankEnd++;
+      }
+
+      int blankRows = blankEnd - y;
+      if (blankRows >= MIN_BLANK_ROWS && blankRows * widthBytes > RASTER_HEADER_BYTES + FEED_COMMAND_BYTES) {
+        if (segmentStart >= 0) {
+          writeSegment(out, image, segmentStart, y, trimRight);
+          segmentStart = -1;
+        }
+        writeFeed(out, profile.getFeedUnits(blankRows));
+      } else if (segmentStart < 0) {
+        segmentStart = y;
+      }
+      y = blankEnd;
+    }
+
+    if (segmentStart >= 0) {
+      writeSegment(out, image, segmentStart, height, trimRight);
+    }
+    return out.toByteArray();
+  }
+
+  private static boolean isBlankRow(byte[] data, int y, int widthBytes) {
+    for (int i = y * widthBytes, end = i + widthBytes; i < end; i++) {
+      if (data[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeSegment(ByteArrayOutputStream out, RasterImage image, int top, int bottom, boolean trim) {
+    int widthBytes = image.getWidthBytes();
+    byte[] rows = BufferPool.getInstance().acquireBytes((bottom - top) * widthBytes);
+    System.arraycopy(image.getData(), top * widthBytes, rows, 0, rows.length);
+    RasterImage segment = new RasterImage(widthBytes, bottom - top, rows);
+    byte[] command = toRasterCommand(trim ? trimRight(segment) : segment);
+    BufferPool.getInstance().release(rows);
+    out.write(command, 0, command.length);
+  }
+
+  /**
+   * Writes {@code ESC J} paper feeds, 255 units at most each.
+   */
+  private static void writeFeed(ByteArrayOutputStream out, int units) {
+    while (units > 0) {
+      int step = Math.min(units, 255);
+      out.write(0x1B);
+      out.write(0x4A);
+      out.write(step);
+      units -= step;
+    }
+  }
+
+  /**
+   * Builds a {@code GS v 0} raster bit image command for a raster image.
+   *
+   * @param image The raster image to print.
+   * @return A byte array containing the raster command.
+   */
+  public static byte[] toRasterCommand(RasterImage image) {
+    byte[] data = image.getData();
+    byte[] command = new byte[8 + data.length];
+    command[0] = 0x1D;
+    command[1] = 0x76;
+    command[2] = 0x30;
+    command[3] = 0;
+    command[4] = (byte) (image.getWidthBytes() & 0xFF);
+    command[5] = (byte) ((image.getWidthBytes() >> 8) & 0xFF);
+    command[6] = (byte) (image.getHeight() & 0xFF);
+    command[7] = (byte) ((image.getHeight() >> 8) & 0xFF);
+    System.arraycopy(data, 0, command, 8, data.length);
+    return command;
+  }
+
+  /**
+   * Checks whether an ARGB pixel composited over white paper prints as a black dot.
+   */
+  private static boolean isDark(int argb) {
+    return gray(argb) < THRESHOLD;
+  }
+
+  /**
+   * Computes the gray level of an ARGB pixel composited over white paper.
+   *
+   * @param argb The pixel.
+   * @return The gray level, from 0 (black) to 255 (white).
+   */
+  static int gray(int argb) {
+    int gray = (RED_LUMINANCE[(argb >> 16) & 0xFF] + GREEN_LUMINANCE[(argb >> 8) & 0xFF]
+      + BLUE_LUMINANCE[argb & 0xFF]) >> 16;
+    int alpha = argb >>> 24;
+    if (alpha != 0xFF) {
+      gray = 255 - (255 - gray) * alpha / 255;
+    }
+    return gray;
+  }
+
+  private static int[] luminanceTable(int weight) {
+    int[] table = new int[256];
+    for (int i = 0; i < table.length; i++) {
+      table[i] = i * weight;
+    }
+    return table;
+  }
+}
@@ -0,0 +1,81 @@
+package com.posthermalprinter.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the raster bytes sent for printed images, compared with full width rasters.
+ * The counters show how much raster trimming saves on slow network and Wi-Fi bridged printers.
+ */
+public class RasterStats {
+
+  private static final RasterStats instance = new RasterStats();
+
+  private final AtomicLong images = new AtomicLong();
+  private final AtomicLong fullBytes = new AtomicLong();
+  private final AtomicLong sentBytes = new AtomicLong();
+
+  private RasterStats() {
+  }
+
+  public static RasterStats getInstance() {
+    return instance;
+  }
+
+  /**
+   * Records an encoded image.
+   *
+   * @param fullBytes The size of the image as full width raster commands.
+   * @param sentBytes The size of the commands actually sent.
+   */
+  public void record(long fullBytes, long sentBytes) {
+    this.images.incrementAndGet();
+    this.fullBytes.addAndGet(fullBytes);
+    this.sentBytes.addAndGet(sentBytes);
+  }
+
+  /**
+   * Gets the number of encoded images.
+   *
+   * @return The number of images.
+   */
+  public long getImages() {
+    return images.get();
+  }
+
+  /**
+   * Gets the size the images would have had as full width raster commands.
+   *
+   * @return The size in bytes.
+   */
+  public long getFullBytes() {
+    return fullBytes.get();
+  }
+
+  /**
+   * Gets the size of the raster commands sent for the images.
+   *
+   * @return The size in bytes.
+   */
+  public long getSentBytes() {
+    return sentBytes.get();
+  }
+
+  /**
+   * Gets the share of raster bytes saved.
+   *
+   * @return The saved percentage, from 0 to 100.
+   */
+  public double getSavedPercentage() {
+    long full = fullBytes.get();
+    return full > 0 ? 100.0 * (full - sentBytes.get()) / full : 0;
+  }
+
+  /**
+   * Resets the counters.
+   */
+  public void reset() {
+    images.set(0);
+    fullBytes.set(0);
+    sentBytes.set(0);
+  }
+}
@@ -0,0 +1,387 @@
+package com.posthermalprinter.helper;
+
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.posthermalprinter.util.PrintItem;
+import com.posthermalprinter.util.PrinterProfile;
+
+import net.posprinter.utils.DataForSendToPrinterPos80;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A receipt layout that is registered once and printed many times with different values.
+ * Rows may contain {@code {{name}}} placeholders, and {@code SECTION} rows repeat their rows
+ * once per entry of a list variable. Rows without placeholders are encoded once per printer
+ * into byte segments, so rendering a receipt copies those segments and encodes only the rows
+ * that hold values, plus logos, which depend on what the printer has stored.
+ */
+public class ReceiptTemplate {
+
+  private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{\\s*([\\w.-]+)\\s*\\}\\}");
+
+  private final List<Node> nodes;
+  // printer -> the segments encoded for it
+  private final Map<String, Compiled> compiled = new ConcurrentHashMap<>();
+
+  private ReceiptTemplate(List<Node> nodes) {
+    this.nodes = nodes;
+  }
+
+  /**
+   * Parses a template from its rows.
+   * Static rows are parsed here, so an invalid row fails the registration rather than a print.
+   *
+   * @param rows The rows of the template: print job rows, and SECTION rows with a {@code name}
+   *             and their own {@code rows}.
+   * @return The parsed template.
+   * @throws IOException              If a static row can't be processed.
+   * @throws IllegalArgumentException If the template contains image rows or nested sections.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public static ReceiptTemplate parse(ReadableArray rows) throws IOException {
+    return new ReceiptTemplate(parseNodes(rows, true));
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private static List<Node> parseNodes(ReadableArray rows, boolean topLevel) throws IOException {
+    List<Node> nodes = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i++) {
+      ReadableMap row = rows.getMap(i);
+      String type = Objects.requireNonNull(row.getString("type"));
+
+      if (type.equals("SECTION")) {
+        if (!topLevel) {
+          throw new IllegalArgumentException("Template sections can't be nested");
+        }
+        String name = Objects.requireNonNull(row.getString("name"));
+        ReadableArray sectionRows = row.getArray("rows");
+        nodes.add(new SectionNode(name, sectionRows != null ? parseNodes(sectionRows, false) : new ArrayList<>()));
+      } else if (type.equals("IMAGE")) {
+        // Images are downloaded per job; templates print them as registered logos instead
+        throw new IllegalArgumentException("Templates can't contain IMAGE rows, use a LOGO row");
+      } else {
+        Map<String, Object> values = row.toHashMap();
+        if (containsPlaceholder(values)) {
+          nodes.add(new FieldNode(values));
+          continue;
+        }
+        PrintItem item = PrintJobHandler.createPrintItem(row);
+        if (item != null) {
+          nodes.add(new ItemNode(item));
+        }
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Renders the template for a printer.
+   *
+   * @param variables The values of the placeholders, and a list of value maps per section.
+   * @param printerIp The printer the receipt is rendered for.
+   * @param profile   The capability profile of the printer.
+   * @return The ESC/POS bytes of the receipt, starting with an initialize command.
+   * @throws IOException If a row can't be processed.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public byte[] render(Map<String, ?> variables, String printerIp, PrinterProfile profile) throws IOException {
+    Compiled segments = compiled.get(printerIp);
+    if (segments == null || segments.profile != profile) {
+      segments = new Compiled(profile, compile(nodes, printerIp, profile));
+      compiled.put(printerIp, segments);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(segments.staticBytes + 1024);
+    out.write(DataForSendToPrinterPos80.initializePrinter());
+    renderSegments(segments.segments, variables, printerIp, profile, out);
+    return out.toByteArray();
+  }
+
+  /**
+   * Encodes the static rows of a printer into byte segments, merging adjacent ones.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private static List<Segment> compile(List<Node> nodes, String printerIp, PrinterProfile profile) throws IOException {
+    List<Segment> segments = new ArrayList<>();
+    ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    for (Node node : nodes) {
+      if (node instanceof ItemNode && ((ItemNode) node).item.getType() != PrintItem.Type.LOGO) {
+        for (byte[] command : PrintJobHandler.processItem(((ItemNode) node).item, printerIp, profile)) {
+          pending.write(command);
+        }
+        continue;
+      }
+
+      if (pending.size() > 0) {
+        segments.add(new Segment(pending.toByteArray()));
+        pending.reset();
+      }
+      if (node instanceof SectionNode) {
+        SectionNode section = (SectionNode) node;
+        segments.add(new Segment(section.name, compile(section.nodes, printerIp, profile)));
+      } else {
+        segments.add(new Segment(node));
+      }
+    }
+    if (pending.size() > 0) {
+      segments.add(new Segment(pending.toByteArray()));
+    }
+    return segments;
+  }
+
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private static void renderSegments(List<Segment> segments, Map<String, ?> variables, String printerIp,
+                                     PrinterProfile profile, ByteArrayOutputStream out) throws IOException {
+    for (Segment segment : segments) {
+      if (segment.bytes != null) {
+        out.write(segment.bytes);
+      } else if (segment.section != null) {
+        renderSection(segment, variables, printerIp, profile, out);
+      } else {
+        PrintItem item = segment.node instanceof ItemNode
+          ? ((ItemNode) segment.node).item
+          : PrintJobHandler.createPrintItem(toReadableMap(substitute(((FieldNode) segment.node).row, variables)));
+        if (item == null) {
+          continue;
+        }
+        for (byte[] command : PrintJobHandler.processItem(item, printerIp, profile)) {
+          out.write(command);
+        }
+      }
+    }
+  }
+
+  /**
+   * Renders the rows of a section once per entry. The values of an entry hide the outer values
+   * of the same name.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private static void renderSection(Segment segment, Map<String, ?> variables, String printerIp,
+                                    PrinterProfile profile, ByteArrayOutputStream out) throws IOException {
+    Object entries = variables.get(segment.section);
+    if (!(entries instanceof List)) {
+      return;
+    }
+    for (Object entry : (List<?>) entries) {
+      Map<String, Object> scope = new HashMap<>(variables);
+      if (entry instanceof Map) {
+        for (Map.Entry<?, ?> value : ((Map<?, ?>) entry).entrySet()) {
+          scope.put(String.valueOf(value.getKey()), value.getValue());
+        }
+      }
+      renderSegments(segment.children, scope, printerIp, profile, out);
+    }
+  }
+
+  private static boolean containsPlaceholder(Object value) {
+    if (value instanceof String) {
+      return PLACEHOLDER.matcher((String) value).find();
+    }
+    if (value instanceof Map) {
+      for (Object child : ((Map<?, ?>) value).values()) {
+        if (containsPlaceholder(child)) {
+          return true;
+        }
+      }
+    } else if (value instanceof List) {
+      for (Object child : (List<?>) value) {
+        if (containsPlaceholder(child)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Replaces the placeholders in every string of a row. Unknown placeholders become empty.
+   */
+  private static Object substitute(Object value, Map<String, ?> variables) {
+    if (value instanceof String) {
+      Matcher matcher = PLACEHOLDER.matcher((String) value);
+      if (!matcher.find()) {
+        return value;
+      }
+      StringBuffer text = new StringBuffer();
+      do {
+        matcher.appendReplacement(text, Matcher.quoteReplacement(format(variables.get(matcher.group(1)))));
+      } while (matcher.find());
+      matcher.appendTail(text);
+      return text.toString();
+    }
+    if (value instanceof Map) {
+      Map<String, Object> map = new HashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put(String.valueOf(entry.getKey()), substitute(entry.getValue(), variables));
+      }
+      return map;
+    }
+    if (value instanceof List) {
+      List<Object> list = new ArrayList<>();
+      for (Object child : (List<?>) value) {
+        list.add(substitute(child, variables));
+      }
+      return list;
+    }
+    return value;
+  }
+
+  private static String format(Object value) {
+    if (value == null) {
+      return "";
+    }
+    if (value instanceof Number) {
+      double number = ((Number) value).doubleValue();
+      return number == Math.rint(number) && !Double.isInfinite(number) ? String.valueOf((long) number) : String.valueOf(number);
+    }
+    return String.valueOf(value);
+  }
+
+  private static ReadableMap toReadableMap(Object value) {
+    JavaOnlyMap map = new JavaOnlyMap();
+    for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+      String key = String.valueOf(entry.getKey());
+      Object child = entry.getValue();
+      if (child instanceof String) {
+        map.putString(key, (String) child);
+      } else if (child instanceof Number) {
+        map.putDouble(key, ((Number) child).doubleValue());
+      } else if (child instanceof Boolean) {
+        map.putBoolean(key, (Boolean) child);
+      } else if (child instanceof Map) {
+        map.putMap(key, toReadableMap(child));
+      } else if (child instanceof List) {
+        map.putArray(key, toReadableArray((List<?>) child));
+      } else {
+        map.putNull(key);
+      }
+    }
+    return map;
+  }
+
+  private static ReadableArray toReadableArray(List<?> values) {
+    JavaOnlyArray array = new JavaOnlyArray();
+    for (Object child : values) {
+      if (child instanceof String) {
+        array.pushString((String) child);
+      } else if (child instanceof Number) {
+        array.pushDouble(((Number) child).doubleValue());
+      } else if (child instanceof Boolean) {
+        array.pushBoolean((Boolean) child);
+      } else if (child instanceof Map) {
+        array.pushMap(toReadableMap(child));
+      } else if (child instanceof List) {
+        array.pushArray(toReadableArray((List<?>) child));
+      } else {
+        array.pushNull();
+      }
+    }
+    return array;
+  }
+
+  /**
+   * A row of the template as registered.
+   */
+  private interface Node {
+  }
+
+  /**
+   * A row without placeholders, parsed once.
+   */
+  private static final class ItemNode implements Node {
+    final PrintItem item;
+
+    ItemNode(PrintItem item) {
+      this.item = item;
+    }
+  }
+
+  /**
+   * A row with placeholders, kept as values and parsed when the placeholders are filled.
+   */
+  private static final class FieldNode implements Node {
+    final Map<String, Object> row;
+
+    FieldNode(Map<String, Object> row) {
+      this.row = row;
+    }
+  }
+
+  /**
+   * Rows repeated once per entry of a list variable.
+   */
+  private static final class SectionNode implements Node {
+    final String name;
+    final List<Node> nodes;
+
+    SectionNode(String name, List<Node> nodes) {
+      this.name = name;
+      this.nodes = nodes;
+    }
+  }
+
+  /**
+   * A part of the template encoded for a printer: pre-encoded bytes, a section, or a row
+   * encoded on every render.
+   */
+  private static final class Segment {
+    final byte[] bytes;
+    final String section;
+    final List<Segment> children;
+    final Node node;
+
+    Segment(byte[] bytes) {
+      this(bytes, null, null, null);
+    }
+
+    Segment(String section, List<Segment> children) {
+      this(null, section, children, null);
+    }
+
+    Segment(Node node) {
+      this(null, null, null, node);
+    }
+
+    private Segment(byte[] bytes, String section, List<Segment> children, Node node) {
+      this.bytes = bytes;
+      this.section = section;
+      this.children = children;
+      this.node = node;
+    }
+  }
+
+  /**
+   * The segments of a printer, with the profile they were encoded for.
+   */
+  private static final class Compiled {
+    final PrinterProfile profile;
+    final List<Segment> segments;
+    final int staticBytes;
+
+    Compiled(PrinterProfile profile, List<Segment> segments) {
+      this.profile = profile;
+      this.segments = segments;
+      int size = 0;
+      for (Segment segment : segments) {
+        size += segment.bytes != null ? segment.bytes.length : 0;
+      }
+      this.staticBytes = size;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package com.posthermalprinter.helper;
+
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+import com.posthermalprinter.util.CodePage;
+import com.posthermalprinter.util.PrintItem;
+import com.posthermalprinter.util.PrinterProfile;
+import com.posthermalprinter.util.TableTemplate;
+import com.posthermalprinter.util.TextAlignment;
+
+import net.posprinter.utils.DataForSendToPrinterPos80;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes table print items.
+ * All rows of a table share one compiled column template and are written into a single
+ * buffer in a tight loop. Lines made only of ASCII text are laid out directly into a
+ * reusable byte buffer, so large reports avoid per-row strings, padding and charset lookups.
+ */
+public class TableEncoder {
+
+  private static final byte SPACE = 0x20;
+  private static final byte[] LINE_FEED = {0x0A};
+  private static final byte[] BOLD_ON = {0x1B, 0x45, 0x01};
+  private static final byte[] BOLD_OFF = {0x1B, 0x45, 0x00};
+
+  /**
+   * Encodes a table print item into printer commands.
+   *
+   * @param item    The PrintItem containing the table template and data.
+   * @param profile The capability profile of the printer.
+   * @return A byte array containing all rows of the table.
+   * @throws IOException If writing to the buffer fails.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public static byte[] encode(PrintItem item, PrinterProfile profile) throws IOException {
+    TableTemplate template = item.getTableTemplate();
+    String[][] data = item.getTableData();
+    if (template == null || data == null) {
+      return new byte[0];
+    }
+
+    List<TableTemplate.Column> columns = template.getColumns();
+    int columnCount = Math.min(columns.size(), data.length);
+    int rowCount = 0;
+    for (int c = 0; c < columnCount; c++) {
+      rowCount = Math.max(rowCount, data[c] != null ? data[c].length : 0);
+    }
+
+    int lineWidth = template.getLineWidth();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, rowCount * (lineWidth + 1)));
+
+    Charset chineseCharset = containsChinese(data, columnCount) ? Charset.forName("GBK") : null;
+    if (chineseCharset != null) {
+      buffer.write(DataForSendToPrinterPos80.selectChineseCharModel());
+      buffer.write(DataForSendToPrinterPos80.setChineseCharLeftAndRightSpace(0, 0));
+    } else {
+      buffer.write(DataForSendToPrinterPos80.CancelChineseCharModel());
+      buffer.write(DataForSendToPrinterPos80.selectCharacterCodePage(0));
+    }
+    buffer.write(DataForSendToPrinterPos80.selectAlignment(0));
+
+    boolean columnStyles = false;
+    if (item.isBold()) {
+      buffer.write(BOLD_ON);
+    } else {
+      for (int c = 0; c < columnCount; c++) {
+        columnStyles |= columns.get(c).isBold();
+      }
+    }
+
+    // Buffers reused for every line of the table
+    byte[] asciiLine = new byte[lineWidth];
+    StringBuilder textLine = new StringBuilder(lineWidth);
+    String[] cells = new String[columnCount];
+    List<?>[] wrappedCells = new List<?>[columnCount];
+    CodePage codePage = CodePage.PC437;
+
+    for (int row = 0; row < rowCount; row++) {
+      int lineCount = 1;
+      for (int c = 0; c < columnCount; c++) {
+        String cell = (data[c] != null && row < data[c].length && data[c][row] != null) ? data[c][row] : "";
+        TableTemplate.Column column = columns.get(c);
+        cells[c] = cell;
+        wrappedCells[c] = null;
+
+        if (cell.length() > column.getWidth() || (chineseCharset != null && TextProcessor.getVisualWidth(cell) > column.getWidth())) {
+          List<String> lines = TextProcessor.splitTextIntoLines(cell, column.getWidth(), column.isWrapWords());
+          wrappedCells[c] = lines;
+          lineCount = Math.max(lineCount, lines.size());
+        }
+      }
+
+      for (int line = 0; line < lineCount; line++) {
+        boolean ascii = chineseCharset == null && !columnStyles;
+        for (int c = 0; c < columnCount && ascii; c++) {
+          ascii = isAscii(cellLine(cells, wrappedCells, c, line));
+        }
+
+        if (ascii) {
+          Arrays.fill(asciiLine, SPACE);
+          for (int c = 0; c < columnCount; c++) {
+            TableTemplate.Column column = columns.get(c);
+            layoutAscii(asciiLine, template.getOffset(c), column.getWidth(), column.getAlignment(),
+              cellLine(cells, wrappedCells, c, line));
+          }
+          buffer.write(asciiLine);
+          buffer.write(LINE_FEED);
+          continue;
+        }
+
+        if (chineseCharset != null) {
+          textLine.setLength(0);
+          for (int c = 0; c < columnCount; c++) {
+            TableTemplate.Column column = columns.get(c);
+            String text = cellLine(cells, wrappedCells, c, line);
+            if (columnStyles) {
+              buffer.write(textLine.toString().getBytes(chineseCharset));
+              textLine.setLength(0);
+              buffer.write(column.isBold() ? BOLD_ON : BOLD_OFF);
+            }
+            appendPadded(textLine, text, column.getWidth(), column.getAlignment());
+          }
+          buffer.write(textLine.toString().getBytes(chineseCharset));
+          buffer.write(LINE_FEED);
+          continue;
+        }
+
+        codePage = writeTextLine(buffer, item, template, cells, wrappedCells, line, textLine, codePage, columnStyles, profile);
+      }
+    }
+
+    if (codePage != CodePage.PC437) {
+      buffer.write(CodePage.PC437.selectCommand());
+    }
+    if (item.isBold() || columnStyles) {
+      buffer.write(BOLD_OFF);
+    }
+
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Writes a line containing non-ASCII text through the code page encoder.
+   * Column bold styles are applied between cells; if any cell needs raster fallback the
+   * whole line is rasterized without per-column styles.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private static CodePage writeTextLine(ByteArrayOutputStream buffer, PrintItem item, TableTemplate template,
+                                        String[] cells, List<?>[] wrappedCells, int line, StringBuilder textLine,
+                                        CodePage codePage, boolean columnStyles, PrinterProfile profile) throws IOException {
+    List<TableTemplate.Column> columns = template.getColumns();
+    int columnCount = cells.length;
+
+    if (!columnStyles) {
+      textLine.setLength(0);
+      for (int c = 0; c < columnCount; c++) {
+        TableTemplate.Column column = columns.get(c);
+        appendPadded(textLine, cellLine(cells, wrappedCells, c, line), column.getWidth(), column.getAlignment());
+      }
+      return PrintJobHandler.writeEncodedLine(buffer, textLine.toString(), codePage, item, TextAlignment.LEFT, LINE_FEED, profile);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<CodePageEncoder.Run>[] cellRuns = new List[columnCount];
+    boolean covered = true;
+    for (int c = 0; c < columnCount && covered; c++) {
+      TableTemplate.Column column = columns.get(c);
+      textLine.setLength(0);
+      appendPadded(textLine, cellLine(cells, wrappedCells, c, line), column.getWidth(), column.getAlignment());
+      cellRuns[c] = CodePageEncoder.segment(textLine.toString(), profile.getCodePages());
+      covered = CodePageEncoder.isFullyCovered(cellRuns[c]);
+    }
+
+    if (!covered) {
+      textLine.setLength(0);
+      for (int c = 0; c < columnCount; c++) {
+        TableTemplate.Column column = columns.get(c);
+        appendPadded(textLine, cellLine(cells, wrappedCells, c, line), column.getWidth(), column.getAlignment());
+      }
+      return PrintJobHandler.writeEncodedLine(buffer, textLine.toString(), codePage, item, TextAlignment.LEFT, LINE_FEED, profile);
+    }
+
+    for (int c = 0; c < columnCount; c++) {
+      buffer.write(columns.get(c).isBold() ? BOLD_ON : BOLD_OFF);
+      codePage = CodePageEncoder.writeRuns(cellRuns[c], codePage, buffer);
+    }
+    buffer.write(LINE_FEED);
+    return codePage;
+  }
+
+  /**
+   * Gets the text of a cell for the given line of its row.
+   */
+  private static String cellLine(String[] cells, List<?>[] wrappedCells, int column, int line) {
+    List<?> wrapped = wrappedCells[column];
+    if (wrapped == null) {
+      return line == 0 ? cells[column] : "";
+    }
+    return line < wrapped.size() ? (String) wrapped.get(line) : "";
+  }
+
+  /**
+   * Copies ASCII text into a line buffer at a column offset, aligned within the column width.
+   * Text longer than the column is cut the same way as {@link TextProcessor#padText}.
+   */
+  private static void layoutAscii(byte[] line, int offset, int width, TextAlignment alignment, String text) {
+    int length = text.length();
+    int start = 0;
+    int position = offset;
+
+    if (length > width) {
+      if (alignment == TextAlignment.RIGHT) {
+        start = length - width;
+      } else if (alignment == TextAlignment.CENTER) {
+        start = (length - width) / 2;
+      }
+      length = width;
+    } else if (alignment == TextAlignment.RIGHT) {
+      position += width - length;
+    } else if (alignment == TextAlignment.CENTER) {
+      position += (width - length) / 2;
+    }
+
+    for (int i = 0; i < length; i++) {
+      line[position + i] = (byte) text.charAt(start + i);
+    }
+  }
+
+  /**
+   * Appends text to a line, padded or cut to the column width using visual widths.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  private static void appendPadded(StringBuilder line, String text, int width, TextAlignment alignment) {
+    int visualWidth = TextProcessor.getVisualWidth(text);
+    if (visualWidth > width) {
+      line.append(TextProcessor.padText(text, width, alignment));
+      return;
+    }
+
+    int padding = width - visualWidth;
+    int leftPad = alignment == TextAlignment.RIGHT ? padding : alignment == TextAlignment.CENTER ? padding / 2 : 0;
+    appendSpaces(line, leftPad);
+    line.append(text);
+    appendSpaces(line, padding - leftPad);
+  }
+
+  private static void appendSpaces(StringBuilder line, int count) {
+    for (int i = 0; i < count; i++) {
+      line.append(' ');
+    }
+  }
+
+  private static boolean isAscii(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean containsChinese(String[][] data, int columnCount) {
+    for (int c = 0; c < columnCount; c++) {
+      if (data[c] == null) {
+        continue;
+      }
+      for (String cell : data[c]) {
+        if (cell != null && !isAscii(cell) && TextProcessor.containsChineseCharacter(cell)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
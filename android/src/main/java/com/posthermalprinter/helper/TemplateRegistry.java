@@ -0,0 +1,52 @@
+package com.posthermalprinter.helper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the receipt templates registered from JavaScript, by key.
+ * Registering a key again replaces its template, along with the segments encoded for it.
+ */
+public class TemplateRegistry {
+
+  private static final TemplateRegistry instance = new TemplateRegistry();
+
+  private final Map<String, ReceiptTemplate> templates = new ConcurrentHashMap<>();
+
+  private TemplateRegistry() {
+  }
+
+  public static TemplateRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Registers a template.
+   *
+   * @param key      The key the template is printed by.
+   * @param template The parsed template.
+   */
+  public void register(String key, ReceiptTemplate template) {
+    templates.put(key, template);
+  }
+
+  /**
+   * Gets a registered template.
+   *
+   * @param key The key of the template.
+   * @return The template, or null if no template is registered with the key.
+   */
+  public ReceiptTemplate get(String key) {
+    return templates.get(key);
+  }
+
+  /**
+   * Removes a template.
+   *
+   * @param key The key of the template.
+   * @return true if a template was removed, false if none was registered with the key.
+   */
+  public boolean remove(String key) {
+    return templates.remove(key) != null;
+  }
+}
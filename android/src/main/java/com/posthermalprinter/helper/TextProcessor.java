@@ -69,9 +69,12 @@ public class TextProcessor {
   @RequiresApi(api = Build.VERSION_CODES.N)
   private static List<String> splitTextIntoLinesWithoutWordWrap(String text, int width) {
     List<String> lines = new ArrayList<>();
-    for (int i = 0; i < text.length(); i += width) {
-      int end = Math.min(i + width, text.length());
-      lines.add(text.substring(i, end));
+    // Cut by visual width, so double-width characters are not cut off by the padding later
+    String remaining = text;
+    while (remaining.length() > 0) {
+      String chunk = takeChunkOfVisualWidth(remaining, width);
+      lines.add(chunk);
+      remaining = remaining.substring(chunk.length());
     }
     return lines;
   }
@@ -115,7 +118,8 @@ public class TextProcessor {
    *
    * @param str      The string to process.
    * @param maxWidth The maximum visual width of the chunk.
-   * @return A substring that fits within the specified width.
+   * @return A substring that fits within the specified width, or the first character if even
+   * that is wider, so splitting a string always makes progress.
    */
   @RequiresApi(api = Build.VERSION_CODES.N)
   public static String takeChunkOfVisualWidth(String str, int maxWidth) {
@@ -124,7 +128,7 @@ public class TextProcessor {
     for (int i = 0; i < str.length(); i++) {
       char c = str.charAt(i);
       int charWidth = (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) ? 2 : 1;
-      if (currentWidth + charWidth > maxWidth) break;
+      if (currentWidth + charWidth > maxWidth && endIndex > 0) break;
       currentWidth += charWidth;
       endIndex = i + 1;
     }
@@ -298,7 +302,7 @@ public class TextProcessor {
       char c = text.charAt(i);
       int charWidth = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N &&
         Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) ? 2 : 1;
-      if (currentWidth + charWidth > maxWidth) break;
+      if (currentWidth + charWidth > maxWidth && endIndex > 0) break;
       currentWidth += charWidth;
       endIndex = i + 1;
     }
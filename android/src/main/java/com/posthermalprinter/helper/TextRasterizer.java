@@ -0,0 +1,75 @@
+package com.posthermalprinter.helper;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import com.posthermalprinter.util.FontSize;
+import com.posthermalprinter.util.TextAlignment;
+
+import net.posprinter.utils.BitmapToByteData;
+import net.posprinter.utils.DataForSendToPrinterPos80;
+
+/**
+ * Renders text lines as raster images.
+ * This is the fallback for characters that none of the printer's code pages can encode.
+ */
+public class TextRasterizer {
+
+  // Font A cell height and default line spacing, in dots
+  private static final int GLYPH_HEIGHT = 24;
+  private static final int LINE_HEIGHT = 30;
+
+  /**
+   * Renders a single line of text into a raster image command.
+   *
+   * @param line      The text to render.
+   * @param fontSize  The font size of the line.
+   * @param alignment The alignment of the line within the print width.
+   * @param bold      Whether the text should be bold.
+   * @param dotWidth  The printable width of the printer, in dots.
+   * @return A byte array containing the raster image command for the line.
+   */
+  public static byte[] rasterizeLine(String line, FontSize fontSize, TextAlignment alignment, boolean bold, int dotWidth) {
+    int widthMultiplier = (fontSize == FontSize.WIDE || fontSize == FontSize.BIG) ? 2 : 1;
+    int heightMultiplier = (fontSize == FontSize.TALL || fontSize == FontSize.BIG) ? 2 : 1;
+    int lineHeight = LINE_HEIGHT * heightMultiplier;
+
+    Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    paint.setColor(Color.BLACK);
+    paint.setTypeface(Typeface.DEFAULT);
+    paint.setTextSize(GLYPH_HEIGHT * heightMultiplier);
+    paint.setTextScaleX((float) widthMultiplier / heightMultiplier);
+    paint.setFakeBoldText(bold);
+
+    float textWidth = paint.measureText(line);
+    float left = 0;
+    if (alignment == TextAlignment.CENTER) {
+      left = Math.max(0, (dotWidth - textWidth) / 2f);
+    } else if (alignment == TextAlignment.RIGHT) {
+      left = Math.max(0, dotWidth - textWidth);
+    }
+
+    Paint.FontMetrics metrics = paint.getFontMetrics();
+    float baseline = (lineHeight - (metrics.descent - metrics.ascent)) / 2f - metrics.ascent;
+
+    Bitmap lineImage = BitmapPool.getInstance().acquire(dotWidth, lineHeight, Bitmap.Config.ARGB_8888);
+    try {
+      Canvas canvas = new Canvas(lineImage);
+      canvas.drawColor(Color.WHITE);
+      canvas.drawText(line, left, baseline, paint);
+
+      return DataForSendToPrinterPos80.printRasterBmp(
+        0,
+        lineImage,
+        BitmapToByteData.BmpType.Threshold,
+        BitmapToByteData.AlignType.Left,
+        dotWidth
+      );
+    } finally {
+      BitmapPool.getInstance().release(lineImage);
+    }
+  }
+}
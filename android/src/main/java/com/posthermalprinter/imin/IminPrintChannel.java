@@ -0,0 +1,309 @@
+package com.posthermalprinter.imin;
+
+import android.util.Log;
+
+import com.posthermalprinter.helper.CommandSink;
+import com.posthermalprinter.helper.ExecutorRegistry;
+import com.posthermalprinter.helper.POSPrinter;
+import com.posthermalprinter.helper.PrintEncodingException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Sends print jobs to the iMin internal printer one at a time, in submission order.
+ * The commands of a job are concatenated into as few SDK writes as the chunk size allows, and
+ * a job completes when the printer reports a ready status again, not after fixed sleeps.
+ */
+public class IminPrintChannel {
+
+  private static final String TAG = "IminPrintChannel";
+
+  /**
+   * Printer status of a printer that is ready to print.
+   */
+  public static final int STATUS_READY = 0;
+
+  /**
+   * Printer status of a printer that is running out of paper but can still print.
+   */
+  public static final int STATUS_PAPER_LOW = 8;
+
+  /**
+   * The largest write handed to the SDK, in bytes.
+   */
+  public static final int DEFAULT_CHUNK_BYTES = 16 * 1024;
+
+  /**
+   * Time allowed for the printer to report ready after a job, in milliseconds.
+   */
+  public static final long DEFAULT_COMPLETION_TIMEOUT_MILLIS = 30_000;
+
+  private static final long STATUS_POLL_MILLIS = 50;
+  private static final int MAX_PENDING_JOBS = 256;
+
+  /**
+   * The calls of the iMin printer SDK used by the channel.
+   */
+  public interface PrinterSdk {
+    /**
+     * Writes raw ESC/POS bytes to the printer.
+     *
+     * @param data The bytes to write.
+     * @throws Exception If the SDK fails to write the bytes.
+     */
+    void sendRawData(byte[] data) throws Exception;
+
+    /**
+     * Gets the current printer status.
+     *
+     * @return {@link #STATUS_READY}, or a status code of the SDK.
+     */
+    int getStatus();
+  }
+
+  /**
+   * Receives the paper warnings of the printer.
+   */
+  public interface WarningListener {
+    /**
+     * Called with the paper state the printer reports after each job.
+     *
+     * @param paperLow Whether the printer is running out of paper.
+     */
+    void onPaperStatus(boolean paperLow);
+  }
+
+  private final PrinterSdk sdk;
+  private final int chunkBytes;
+  private final long completionTimeoutMillis;
+  private final Executor executor;
+  private volatile WarningListener warningListener;
+
+  /**
+   * Constructs a new IminPrintChannel.
+   *
+   * @param sdk                     The printer SDK.
+   * @param chunkBytes              The largest write handed to the SDK, in bytes.
+   * @param completionTimeoutMillis Time allowed for the printer to report ready after a job.
+   */
+  public IminPrintChannel(PrinterSdk sdk, int chunkBytes, long completionTimeoutMillis) {
+    this.sdk = sdk;
+    this.chunkBytes = chunkBytes;
+    this.completionTimeoutMillis = completionTimeoutMillis;
+    this.executor = ExecutorRegistry.getInstance().lane("imin-channel", 1, MAX_PENDING_JOBS);
+  }
+
+  /**
+   * Sets the listener notified of paper warnings.
+   *
+   * @param listener The listener, or null to stop notifying.
+   */
+  public void setWarningListener(WarningListener listener) {
+    this.warningListener = listener;
+  }
+
+  /**
+   * Queues a print job behind the jobs submitted before it.
+   * The commands are encoded on the channel thread, so the jobs of several callers never
+   * interleave.
+   *
+   * @param source         Encodes the commands of the job.
+   * @param bytesPerSecond The rate at which the printer consumes data, or 0 to write unpaced.
+   * @return A CompletableFuture that resolves to true once the printer is ready after the job,
+   * or false if the job could not be printed, and completes with a
+   * {@link PrintEncodingException} if the commands could not be encoded.
+   */
+  public CompletableFuture<Boolean> submit(POSPrinter.CommandSource source, int bytesPerSecond) {
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        try {
+          result.complete(print(source, bytesPerSecond));
+        } catch (PrintEncodingException e) {
+          result.completeExceptionally(e);
+        } catch (RuntimeException | Error e) {
+          // The caller must never wait for a job whose task died
+          result.complete(false);
+          throw e;
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      Log.w(TAG, "Print job rejected: " + e.getMessage());
+      result.complete(false);
+    }
+    return result;
+  }
+
+  private boolean print(POSPrinter.CommandSource source, int bytesPerSecond) throws PrintEncodingException {
+    int status = sdk.getStatus();
+    if (!isReady(status)) {
+      Log.w(TAG, "Printer not ready, status " + status);
+      return false;
+    }
+
+    ChunkWriter writer = new ChunkWriter(bytesPerSecond);
+    try {
+      source.writeTo(writer);
+      writer.flush();
+    } catch (IOException | RuntimeException e) {
+      if (!writer.sendFailed) {
+        // Sending the job again would fail the same way
+        throw new PrintEncodingException("Failed to encode print job", e, endPartialJob(writer));
+      }
+      Log.e(TAG, "Error printing job: " + e.getMessage());
+      return false;
+    }
+    return awaitReady(writer.printedAtNanos());
+  }
+
+  /**
+   * Ends a job whose encoding failed after part of it was sent, so the printer does not hold a
+   * half-received command and the partial receipt is fed out and cut.
+   *
+   * @return true if part of the job was sent and had to be ended.
+   */
+  private boolean endPartialJob(ChunkWriter writer) {
+    if (writer.written == 0) {
+      // Nothing reached the printer; the buffered commands are dropped
+      return false;
+    }
+    try {
+      writer.write(POSPrinter.partialJobTrailer());
+      writer.flush();
+    } catch (IOException e) {
+      Log.w(TAG, "Could not end partially printed job: " + e.getMessage());
+    }
+    return true;
+  }
+
+  /**
+   * Polls the printer status until it is ready, fails or the completion timeout elapses.
+   * A ready status right after the last write may be read before the printer started on the
+   * job, so it only counts once the printer was seen busy or has had the time to print the
+   * paced bytes.
+   *
+   * @param printedAtNanos When the printer is expected to have printed the bytes written.
+   */
+  private boolean awaitReady(long printedAtNanos) {
+    long deadline = System.currentTimeMillis() + completionTimeoutMillis;
+    boolean busySeen = false;
+    while (true) {
+      int status = sdk.getStatus();
+      if (!isReady(status)) {
+        busySeen = true;
+      } else if (busySeen || System.nanoTime() - printedAtNanos >= 0) {
+        reportPaperStatus(status);
+        return true;
+      }
+      if (System.currentTimeMillis() >= deadline) {
+        Log.w(TAG, "Printer not ready after job, status " + status);
+        return false;
+      }
+      try {
+        Thread.sleep(STATUS_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+
+  private void reportPaperStatus(int status) {
+    if (status == STATUS_PAPER_LOW) {
+      Log.w(TAG, "Printer paper is running low");
+    }
+    WarningListener listener = warningListener;
+    if (listener != null) {
+      listener.onPaperStatus(status == STATUS_PAPER_LOW);
+    }
+  }
+
+  private static boolean isReady(int status) {
+    return status == STATUS_READY || status == STATUS_PAPER_LOW;
+  }
+
+  /**
+   * Concatenates commands into chunks and writes them no faster than the printer prints.
+   */
+  private class ChunkWriter implements CommandSink {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final int bytesPerSecond;
+    private final long startNanos = System.nanoTime();
+    private long written;
+    // Set once a write to the printer failed, to tell printer failures from encoder failures
+    boolean sendFailed;
+
+    ChunkWriter(int bytesPerSecond) {
+      this.bytesPerSecond = bytesPerSecond;
+    }
+
+    @Override
+    public void write(byte[] command) throws IOException {
+      int offset = 0;
+      while (offset < command.length) {
+        int length = Math.min(command.length - offset, chunkBytes - buffer.size());
+        buffer.write(command, offset, length);
+        offset += length;
+        if (buffer.size() >= chunkBytes) {
+          flush();
+        }
+      }
+    }
+
+    void flush() throws IOException {
+      if (buffer.size() == 0) {
+        return;
+      }
+      byte[] chunk = buffer.toByteArray();
+      buffer.reset();
+      try {
+        pace();
+        sdk.sendRawData(chunk);
+      } catch (InterruptedIOException e) {
+        sendFailed = true;
+        throw e;
+      } catch (Exception e) {
+        sendFailed = true;
+        throw new IOException("Failed to send data to printer", e);
+      }
+      written += chunk.length;
+    }
+
+    /**
+     * Gets when the printer is expected to have printed the bytes written so far.
+     *
+     * @return The time in {@link System#nanoTime()} units; now if writes are not paced.
+     */
+    long printedAtNanos() {
+      if (bytesPerSecond <= 0) {
+        return System.nanoTime();
+      }
+      return startNanos + written * 1_000_000_000L / bytesPerSecond;
+    }
+
+    /**
+     * Waits until the printer has had time to print the bytes already written.
+     */
+    private void pace() throws InterruptedIOException {
+      if (bytesPerSecond <= 0) {
+        return;
+      }
+      long dueNanos = startNanos + written * 1_000_000_000L / bytesPerSecond;
+      long waitMillis = (dueNanos - System.nanoTime()) / 1_000_000L;
+      if (waitMillis <= 0) {
+        return;
+      }
+      try {
+        Thread.sleep(waitMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while printing");
+      }
+    }
+  }
+}
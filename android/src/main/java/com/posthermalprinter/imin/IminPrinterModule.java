@@ -1,6 +1,5 @@
 package com.posthermalprinter.imin;
 
-import android.annotation.SuppressLint;
 import android.os.Build;
 import android.util.Log;
 
@@ -14,23 +13,79 @@ import com.imin.printerlib.Callback;
 import com.imin.printerlib.IminPrintUtils;
 import com.imin.printerlib.print.PrintUtils;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class IminPrinterModule extends ReactContextBaseJavaModule {
   public static final String NAME = "IminPrinter";
   private static final String TAG = "IminInnerPrinterModule";
   //  public static ReactApplicationContext reactApplicationContext;
+
+  /**
+   * How long a successful initialization is trusted without a reset, in milliseconds.
+   */
+  public static final long INIT_VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * The longest wait for a reset and initialization, in milliseconds.
+   */
+  public static final long INIT_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * The longest wait for a status check, in milliseconds.
+   */
+  public static final long STATUS_TIMEOUT_MILLIS = 1000;
+
+  private static final List<String> SPI_DEVICES = Arrays.asList("M2-202", "M2-203", "M2-Pro");
+  private static final List<String> USB_DEVICES = Arrays.asList("S1-701", "S1-702", "D1p-601", "D1p-602", "D1p-603", "D1p-604", "D1w-701", "D1w-702", "D1w-703", "D1w-704", "D4-501", "D4-502", "D4-503", "D4-504", "D4-505", "M2-Max", "D1", "D1-Pro", "Swift 1", "I22T01", "I20D01", "D4-504 Pro", "I23D01");
+
   private IminPrintUtils mIminPrintUtils;
+  private final IminPrintChannel printChannel;
+  private final IminPrinterReadiness readiness;
 
 
   public IminPrinterModule(ReactApplicationContext reactContext) {
 
     mIminPrintUtils = IminPrintUtils.getInstance(reactContext);
+    printChannel = new IminPrintChannel(new IminPrintChannel.PrinterSdk() {
+      @Override
+      public void sendRawData(byte[] data) {
+        mIminPrintUtils.sendRAWData(data);
+      }
+
+      @Override
+      public int getStatus() {
+        IminPrinterReadiness.Connection connection = readiness.getConnection();
+        return connection != null ? mIminPrintUtils.getPrinterStatus(connectType(connection)) : -1;
+      }
+    }, IminPrintChannel.DEFAULT_CHUNK_BYTES, IminPrintChannel.DEFAULT_COMPLETION_TIMEOUT_MILLIS);
+    readiness = new IminPrinterReadiness(new IminPrinterReadiness.PrinterSdk() {
+      @Override
+      public void resetDevice() {
+        mIminPrintUtils.resetDevice();
+      }
+
+      @Override
+      public void initPrinter(IminPrinterReadiness.Connection connection) {
+        mIminPrintUtils.initPrinter(connectType(connection));
+      }
+
+      @Override
+      public void readStatus(IminPrinterReadiness.Connection connection, IminPrinterReadiness.StatusCallback callback) {
+        if (connection == IminPrinterReadiness.Connection.SPI) {
+          mIminPrintUtils.getPrinterStatus(IminPrintUtils.PrintConnectType.SPI, new Callback() {
+            @Override
+            public void callback(int status) {
+              callback.onStatus(status == -1 && PrintUtils.getPrintStatus() == -1 ? -1 : Math.max(0, status));
+            }
+          });
+        } else {
+          callback.onStatus(mIminPrintUtils.getPrinterStatus(IminPrintUtils.PrintConnectType.USB));
+        }
+      }
+    }, deviceConnection(SystemPropManager.getModel()), INIT_VALIDITY_MILLIS, INIT_TIMEOUT_MILLIS, STATUS_TIMEOUT_MILLIS);
   }
 
   @Override
@@ -39,78 +94,71 @@ public class IminPrinterModule extends ReactContextBaseJavaModule {
     return NAME;
   }
 
-  @SuppressLint("NewApi")
-  @RequiresApi(api = Build.VERSION_CODES.N)
-  public Boolean initPrinter() throws ExecutionException, InterruptedException {
-    final IminPrintUtils printUtils = mIminPrintUtils;
-    String deviceModel = SystemPropManager.getModel();
-    List<String> spiDeviceList = new ArrayList<>(Arrays.asList("M2-202", "M2-203", "M2-Pro"));
-    List<String> usbDeviceList = new ArrayList<>(Arrays.asList("S1-701", "S1-702", "D1p-601", "D1p-602", "D1p-603", "D1p-604", "D1w-701", "D1w-702", "D1w-703", "D1w-704", "D4-501", "D4-502", "D4-503", "D4-504", "D4-505", "M2-Max", "D1", "D1-Pro", "Swift 1", "I22T01", "I20D01", "D4-504 Pro", "I23D01"));
+  /**
+   * Gets how the printer of a device model is connected.
+   *
+   * @param deviceModel The device model.
+   * @return The connection, or null if the device model is unknown.
+   */
+  private static IminPrinterReadiness.Connection deviceConnection(String deviceModel) {
+    if (SPI_DEVICES.contains(deviceModel)) {
+      return IminPrinterReadiness.Connection.SPI;
+    }
+    if (USB_DEVICES.contains(deviceModel)) {
+      return IminPrinterReadiness.Connection.USB;
+    }
+    Log.w(TAG, "Unknown device model: " + deviceModel);
+    return null;
+  }
 
-    CompletableFuture<Boolean> result = new CompletableFuture<>();
+  private static IminPrintUtils.PrintConnectType connectType(IminPrinterReadiness.Connection connection) {
+    return connection == IminPrinterReadiness.Connection.SPI
+      ? IminPrintUtils.PrintConnectType.SPI
+      : IminPrintUtils.PrintConnectType.USB;
+  }
 
-    ThreadPoolManager.getInstance().executeTask(new Runnable() {
-      @RequiresApi(api = Build.VERSION_CODES.N)
-      @Override
-      public void run() {
-        try {
-          if (spiDeviceList.contains(deviceModel)) {
-            printUtils.resetDevice();
-            printUtils.initPrinter(IminPrintUtils.PrintConnectType.SPI);
-            printUtils.getPrinterStatus(IminPrintUtils.PrintConnectType.SPI, new Callback() {
-              @Override
-              public void callback(int status) {
-                if (!result.isDone()) {  // Only complete if not already completed by timeout
-                  if (status == -1 && PrintUtils.getPrintStatus() == -1) {
-                    result.complete(false);
-                  } else {
-                    result.complete(true);
-                  }
-                }
-              }
-            });
-          } else if (usbDeviceList.contains(deviceModel)) {
-            printUtils.resetDevice();
-            Log.d("initPrinter", "Usb is executing");
-            printUtils.initPrinter(IminPrintUtils.PrintConnectType.USB);
-            int status = printUtils.getPrinterStatus(IminPrintUtils.PrintConnectType.USB);
-            if (!result.isDone()) {  // Only complete if not already completed by timeout
-              result.complete(status > -1);
-            }
-          } else {
-            // Handle unknown device model
-            if (!result.isDone()) {
-              Log.w(TAG, "Unknown device model: " + deviceModel);
-              result.complete(false);
-            }
-          }
-        } catch (Exception e) {
-          e.printStackTrace();
-          if (!result.isDone()) {  // Only complete if not already completed by timeout
-            Log.e(TAG, "Error initializing printer: " + e.getMessage());
-            result.complete(false);
-          }
-        }
-      }
-    });
+  /**
+   * Makes sure the printer is initialized and connected, without blocking.
+   * A recent initialization is trusted as long as the lightweight status call reports the
+   * printer connected; the printer is only reset and initialized again when the status check
+   * fails or the initialization is older than its validity window.
+   *
+   * @return A future resolving to true if the printer is ready. It resolves to false if the
+   * printer does not answer within {@link #STATUS_TIMEOUT_MILLIS} and {@link #INIT_TIMEOUT_MILLIS}.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public CompletableFuture<Boolean> ensureReadyAsync() {
+    return readiness.ensureReady();
+  }
 
-    return result.get();
+  /**
+   * Resets and initializes the printer, without blocking.
+   * Concurrent callers share one initialization.
+   *
+   * @return A future resolving to true if the printer was initialized and is connected, or to
+   * false if it did not finish within {@link #INIT_TIMEOUT_MILLIS}.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public CompletableFuture<Boolean> initPrinter() {
+    return readiness.initPrinter();
   }
 
+  /**
+   * Gets the channel that sends print jobs to the internal printer in order.
+   *
+   * @return The print channel.
+   */
+  public IminPrintChannel getPrintChannel() {
+    return printChannel;
+  }
 
+  /**
+   * Sends raw bytes to the printer, behind any job already queued on the print channel.
+   *
+   * @param bytes The bytes to send.
+   */
   public void sendRawData(byte[] bytes) {
-    final IminPrintUtils printUtils = mIminPrintUtils;
-    ThreadPoolManager.getInstance().executeTask(new Runnable() {
-      @Override
-      public void run() {
-        try {
-          printUtils.sendRAWData(bytes);
-        } catch (Exception e) {
-          e.printStackTrace();
-          Log.i(TAG, "ERROR: " + e.getMessage());
-        }
-      }
-    });
+    printChannel.submit(sink -> sink.write(bytes), 0);
   }
 
 }
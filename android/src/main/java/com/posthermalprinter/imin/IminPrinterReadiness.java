@@ -0,0 +1,220 @@
+package com.posthermalprinter.imin;
+
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import com.posthermalprinter.helper.ExecutorRegistry;
+import com.posthermalprinter.helper.LogoRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of whether the iMin internal printer is initialized and connected, without
+ * blocking. A recent initialization is trusted as long as the lightweight status call reports
+ * the printer connected; the printer is only reset and initialized again when the status check
+ * fails or the initialization is older than its validity window.
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class IminPrinterReadiness {
+
+  private static final String TAG = "IminPrinterReadiness";
+
+  /**
+   * How the internal printer is connected to the device.
+   */
+  public enum Connection {
+    SPI,
+    USB
+  }
+
+  /**
+   * The calls of the iMin printer SDK used to initialize the printer.
+   */
+  public interface PrinterSdk {
+    /**
+     * Resets the printer, which clears its download graphics memory.
+     */
+    void resetDevice();
+
+    /**
+     * Initializes the printer on a connection.
+     *
+     * @param connection The connection of the printer.
+     */
+    void initPrinter(Connection connection);
+
+    /**
+     * Reads the printer status. The status may be reported on any thread, or never if the
+     * printer does not answer.
+     *
+     * @param connection The connection of the printer.
+     * @param callback   Receives the status: -1 if the printer is not connected.
+     */
+    void readStatus(Connection connection, StatusCallback callback);
+  }
+
+  /**
+   * Receives the status read from the printer.
+   */
+  public interface StatusCallback {
+    void onStatus(int status);
+  }
+
+  private final PrinterSdk sdk;
+  private final Connection deviceConnection;
+  private final long validityMillis;
+  private final long initTimeoutMillis;
+  private final long statusTimeoutMillis;
+  private volatile Connection connection;
+  private volatile long initializedAt;
+  private final Object initLock = new Object();
+  private CompletableFuture<Boolean> pendingInit;
+
+  /**
+   * Constructs a new IminPrinterReadiness.
+   *
+   * @param sdk                 The printer SDK.
+   * @param deviceConnection    How the printer of the device is connected, or null if the
+   *                            device model is unknown.
+   * @param validityMillis      How long a successful initialization is trusted without a reset.
+   * @param initTimeoutMillis   The longest wait for a reset and initialization.
+   * @param statusTimeoutMillis The longest wait for a status check.
+   */
+  public IminPrinterReadiness(PrinterSdk sdk, Connection deviceConnection, long validityMillis,
+                              long initTimeoutMillis, long statusTimeoutMillis) {
+    this.sdk = sdk;
+    this.deviceConnection = deviceConnection;
+    this.validityMillis = validityMillis;
+    this.initTimeoutMillis = initTimeoutMillis;
+    this.statusTimeoutMillis = statusTimeoutMillis;
+  }
+
+  /**
+   * Gets the connection the printer was last initialized on.
+   *
+   * @return The connection, or null if the printer was never initialized.
+   */
+  public Connection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Makes sure the printer is initialized and connected, without blocking.
+   *
+   * @return A future resolving to true if the printer is ready. It resolves to false if the
+   * printer does not answer within the status and initialization timeouts.
+   */
+  public CompletableFuture<Boolean> ensureReady() {
+    Connection current = connection;
+    if (current != null && initializedAt > 0 && System.currentTimeMillis() - initializedAt < validityMillis) {
+      return queryStatus(current).thenCompose(status -> {
+        if (status > -1) {
+          return CompletableFuture.completedFuture(true);
+        }
+        Log.w(TAG, "Printer status check failed, initializing again");
+        return initPrinter();
+      });
+    }
+    return initPrinter();
+  }
+
+  /**
+   * Resets and initializes the printer, without blocking.
+   * Concurrent callers share one initialization. An initialization that does not finish in
+   * time fails, so the next caller starts a new one.
+   *
+   * @return A future resolving to true if the printer was initialized and is connected, or to
+   * false if it did not finish within the initialization timeout.
+   */
+  public CompletableFuture<Boolean> initPrinter() {
+    synchronized (initLock) {
+      if (pendingInit != null && !pendingInit.isDone()) {
+        return pendingInit;
+      }
+
+      CompletableFuture<Boolean> attempt = new CompletableFuture<>();
+      // Callers see the result only once it is recorded
+      CompletableFuture<Boolean> result = attempt.thenApply(success -> {
+        if (success) {
+          connection = deviceConnection;
+        }
+        initializedAt = success ? System.currentTimeMillis() : 0;
+        return success;
+      });
+      pendingInit = result;
+
+      if (deviceConnection == null) {
+        Log.w(TAG, "Unknown device model, no internal printer to initialize");
+        attempt.complete(false);
+        return result;
+      }
+
+      // Resetting the device clears its download graphics memory
+      LogoRegistry.getInstance().invalidatePrinter("INTERNAL");
+
+      try {
+        ExecutorRegistry.getInstance().io().execute(() -> {
+          try {
+            sdk.resetDevice();
+            sdk.initPrinter(deviceConnection);
+            sdk.readStatus(deviceConnection, status -> attempt.complete(status > -1));
+          } catch (Exception e) {
+            Log.e(TAG, "Error initializing printer: " + e.getMessage());
+            attempt.complete(false);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        Log.e(TAG, "No thread to initialize printer: " + e.getMessage());
+        attempt.complete(false);
+      }
+      expire(attempt, initTimeoutMillis, false, "Printer initialization did not finish in " + initTimeoutMillis + " ms");
+      return result;
+    }
+  }
+
+  /**
+   * Gets the printer status with the lightweight status call.
+   *
+   * @return A future resolving to the SDK status, or to -1 if the printer did not answer
+   * within the status timeout.
+   */
+  private CompletableFuture<Integer> queryStatus(Connection current) {
+    CompletableFuture<Integer> status = new CompletableFuture<>();
+    try {
+      ExecutorRegistry.getInstance().io().execute(() -> {
+        try {
+          sdk.readStatus(current, status::complete);
+        } catch (Exception e) {
+          Log.e(TAG, "Error reading printer status: " + e.getMessage());
+          status.complete(-1);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      status.complete(-1);
+    }
+    return expire(status, statusTimeoutMillis, -1, "Printer status not available in time");
+  }
+
+  /**
+   * Completes a future with a fallback once the timeout passes, unless it completed before.
+   * The future itself is completed, so nothing keeps waiting on an answer that never comes.
+   */
+  private static <T> CompletableFuture<T> expire(CompletableFuture<T> future, long timeoutMillis, T fallback, String warning) {
+    if (!future.isDone()) {
+      try {
+        ExecutorRegistry.getInstance().timer().schedule(() -> {
+          if (future.complete(fallback)) {
+            Log.w(TAG, warning);
+          }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        future.complete(fallback);
+      }
+    }
+    return future;
+  }
+}
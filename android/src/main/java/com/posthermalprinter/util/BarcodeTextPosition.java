@@ -0,0 +1,26 @@
+package com.posthermalprinter.util;
+
+/**
+ * Represents where the human readable text of a barcode is printed.
+ */
+public enum BarcodeTextPosition {
+  /**
+   * The text is not printed.
+   */
+  NONE,
+
+  /**
+   * The text is printed above the barcode.
+   */
+  ABOVE,
+
+  /**
+   * The text is printed below the barcode.
+   */
+  BELOW,
+
+  /**
+   * The text is printed above and below the barcode.
+   */
+  BOTH
+}
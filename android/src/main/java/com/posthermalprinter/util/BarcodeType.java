@@ -0,0 +1,79 @@
+package com.posthermalprinter.util;
+
+/**
+ * Represents the 1D barcode symbologies the printer can encode natively.
+ * Each type carries its {@code GS k} function B symbology code and the data it accepts.
+ */
+public enum BarcodeType {
+  /**
+   * UPC-A, 11 or 12 digits.
+   */
+  UPC_A(65, "[0-9]{11,12}"),
+
+  /**
+   * UPC-E, 6 to 8 or 11 to 12 digits.
+   */
+  UPC_E(66, "[0-9]{6,8}|[0-9]{11,12}"),
+
+  /**
+   * EAN-13 (JAN-13), 12 or 13 digits.
+   */
+  EAN13(67, "[0-9]{12,13}"),
+
+  /**
+   * EAN-8 (JAN-8), 7 or 8 digits.
+   */
+  EAN8(68, "[0-9]{7,8}"),
+
+  /**
+   * Code 39, digits, upper-case letters and {@code space $ % * + - . /}.
+   */
+  CODE39(69, "[0-9A-Z $%*+\\-./]+"),
+
+  /**
+   * Interleaved 2 of 5, an even number of digits.
+   */
+  ITF(70, "([0-9]{2})+"),
+
+  /**
+   * Codabar (NW-7), start and stop characters A to D around digits and {@code $ + - . / :}.
+   */
+  CODABAR(71, "[A-Da-d][0-9$+\\-./:]*[A-Da-d]"),
+
+  /**
+   * Code 93, any ASCII character.
+   */
+  CODE93(72, "[\\x00-\\x7F]+"),
+
+  /**
+   * Code 128, printable ASCII characters.
+   */
+  CODE128(73, "[\\x20-\\x7E]+");
+
+  private final int symbology;
+  private final String pattern;
+
+  BarcodeType(int symbology, String pattern) {
+    this.symbology = symbology;
+    this.pattern = pattern;
+  }
+
+  /**
+   * Gets the {@code GS k} function B symbology code of this barcode type.
+   *
+   * @return The value of {@code m} in {@code GS k m n d1...dn}.
+   */
+  public int getSymbology() {
+    return symbology;
+  }
+
+  /**
+   * Checks whether the given data can be encoded with this barcode type.
+   *
+   * @param data The barcode data.
+   * @return true if the data is valid for this symbology, false otherwise.
+   */
+  public boolean accepts(String data) {
+    return data != null && data.length() <= 255 && data.matches(pattern);
+  }
+}
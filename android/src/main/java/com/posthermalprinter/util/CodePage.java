@@ -0,0 +1,72 @@
+package com.posthermalprinter.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * Represents the single-byte printer code pages that text can be encoded into.
+ * Each code page pairs a Java charset with the {@code ESC t n} table number used
+ * to select it on ESC/POS printers.
+ */
+public enum CodePage {
+  PC437("IBM437", 0),
+  PC850("IBM850", 2),
+  PC860("IBM860", 3),
+  PC863("IBM863", 4),
+  PC865("IBM865", 5),
+  WPC1252("windows-1252", 16),
+  PC866("IBM866", 17),
+  PC852("IBM852", 18),
+  PC858("IBM00858", 19),
+  THAI("x-IBM874", 21),
+  WPC1250("windows-1250", 45),
+  WPC1251("windows-1251", 46),
+  WPC1253("windows-1253", 47),
+  WPC1254("windows-1254", 48),
+  WPC1257("windows-1257", 51),
+  WPC1258("windows-1258", 52);
+
+  private final String charsetName;
+  private final int tableNumber;
+  private volatile Charset charset;
+  private volatile boolean resolved;
+
+  CodePage(String charsetName, int tableNumber) {
+    this.charsetName = charsetName;
+    this.tableNumber = tableNumber;
+  }
+
+  /**
+   * Gets the {@code n} parameter of the {@code ESC t n} command for this code page.
+   *
+   * @return The character code table number.
+   */
+  public int getTableNumber() {
+    return tableNumber;
+  }
+
+  /**
+   * Gets the Java charset backing this code page.
+   *
+   * @return The charset, or null if the runtime does not provide it.
+   */
+  public Charset getCharset() {
+    if (!resolved) {
+      try {
+        charset = Charset.isSupported(charsetName) ? Charset.forName(charsetName) : null;
+      } catch (IllegalArgumentException e) {
+        charset = null;
+      }
+      resolved = true;
+    }
+    return charset;
+  }
+
+  /**
+   * Builds the {@code ESC t n} command that selects this code page.
+   *
+   * @return A byte array representing the code page selection command.
+   */
+  public byte[] selectCommand() {
+    return new byte[]{0x1B, 0x74, (byte) tableNumber};
+  }
+}
@@ -0,0 +1,26 @@
+package com.posthermalprinter.util;
+
+/**
+ * Represents how the gray levels of an image are converted into black and white dots.
+ */
+public enum DitherMode {
+  /**
+   * Dots darker than mid-gray are printed. Best for logos and line art.
+   */
+  THRESHOLD,
+
+  /**
+   * Gray levels are compared against an 8x8 ordered Bayer matrix, giving a regular pattern.
+   */
+  BAYER,
+
+  /**
+   * The error of each dot is diffused to its neighbours with Floyd-Steinberg weights. Best for photos.
+   */
+  FLOYD_STEINBERG,
+
+  /**
+   * The error of each dot is partially diffused with Atkinson weights, giving higher contrast than Floyd-Steinberg.
+   */
+  ATKINSON
+}
@@ -2,11 +2,9 @@ package com.posthermalprinter.util;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.util.Log;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import com.posthermalprinter.helper.ImageCache;
 
 /**
  * Utility class for handling image operations related to printing.
@@ -15,24 +13,103 @@ public class ImagePrinter {
 
   /**
    * Downloads an image from a given URL and converts it to a Bitmap.
+   * The image bytes are served from {@link ImageCache} when possible.
    *
    * @param imageUrl The URL of the image to download.
-   * @return A Bitmap representation of the downloaded image.
-   * @throws IOException If there's an error in opening the connection or reading the image data.
+   * @return A Bitmap representation of the downloaded image, or null if it can't be loaded.
    */
   public static Bitmap downloadImageAsBitmap(String imageUrl) {
+    byte[] data = downloadImage(imageUrl);
+    return data != null ? decodeImage(data) : null;
+  }
+
+  /**
+   * Downloads an image from a given URL and decodes it no larger than needed to print it.
+   *
+   * @param imageUrl The URL of the image to download.
+   * @param maxWidth The maximum printed width in dots.
+   * @return A Bitmap representation of the downloaded image, or null if it can't be loaded.
+   */
+  public static Bitmap downloadImageAsBitmap(String imageUrl, int maxWidth) {
+    byte[] data = downloadImage(imageUrl);
+    return data != null ? decodeImage(data, maxWidth, 0) : null;
+  }
+
+  /**
+   * Downloads the encoded bytes of an image, from {@link ImageCache} when possible.
+   *
+   * @param imageUrl The URL of the image to download.
+   * @return The encoded image bytes, or null if the image can't be loaded.
+   */
+  public static byte[] downloadImage(String imageUrl) {
     try {
-      URL url = new URL(imageUrl);
-      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-      connection.setDoInput(true);
-      connection.connect();
-      InputStream input = connection.getInputStream();
-      Bitmap myBitmap = BitmapFactory.decodeStream(input);
-      input.close();
-      connection.disconnect();
-      return myBitmap;
+      return ImageCache.getInstance().get(imageUrl);
     } catch (Exception e) {
+      Log.e("ImagePrinter", "Failed to load image " + imageUrl + ": " + e.getMessage());
       return null;
     }
   }
+
+  /**
+   * Decodes encoded image bytes into a Bitmap.
+   *
+   * @param data The encoded image bytes.
+   * @return The decoded Bitmap, or null if the data is not a supported image.
+   */
+  public static Bitmap decodeImage(byte[] data) {
+    return BitmapFactory.decodeByteArray(data, 0, data.length);
+  }
+
+  /**
+   * Decodes encoded image bytes into a Bitmap no larger than needed to print it.
+   * The bounds are read first, and the image is subsampled by the largest power of two that
+   * keeps it at least as large as it will be printed when fitted into the given size. JPEG
+   * images have no transparency and are decoded as RGB_565 to halve their memory.
+   *
+   * @param data      The encoded image bytes.
+   * @param maxWidth  The maximum printed width in dots.
+   * @param maxHeight The maximum printed height in dots, or 0 for no limit.
+   * @return The decoded Bitmap, or null if the data is not a supported image.
+   */
+  public static Bitmap decodeImage(byte[] data, int maxWidth, int maxHeight) {
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    if (options.outWidth <= 0 || options.outHeight <= 0) {
+      return null;
+    }
+
+    options.inJustDecodeBounds = false;
+    options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight, maxWidth, maxHeight);
+    options.inPreferredConfig = "image/jpeg".equals(options.outMimeType) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+  }
+
+  /**
+   * Calculates the largest power of two subsampling that keeps an image at least as large
+   * as its printed size.
+   *
+   * @param width     The width of the source image.
+   * @param height    The height of the source image.
+   * @param maxWidth  The maximum printed width.
+   * @param maxHeight The maximum printed height, or 0 for no limit.
+   * @return The sample size to decode the image with.
+   */
+  public static int calculateSampleSize(int width, int height, int maxWidth, int maxHeight) {
+    if (maxWidth <= 0) {
+      return 1;
+    }
+
+    // The image is printed at the smaller of the two ratios, and never enlarged beyond it
+    double scale = (double) maxWidth / width;
+    if (maxHeight > 0) {
+      scale = Math.min(scale, (double) maxHeight / height);
+    }
+
+    int sampleSize = 1;
+    while (sampleSize * 2 * scale <= 1.0) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
 }
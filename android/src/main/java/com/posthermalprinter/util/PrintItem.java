@@ -12,7 +12,7 @@ public class PrintItem {
   /**
    * Enumerates the types of print items supported.
    */
-  public enum Type {TEXT, FEED, CUT, COLUMN, IMAGE, QRCODE, CASHBOX}
+  public enum Type {TEXT, FEED, CUT, COLUMN, IMAGE, QRCODE, CASHBOX, TABLE, LOGO, BARCODE}
 
   private final Type type;
   private final String text;
@@ -20,6 +20,8 @@ public class PrintItem {
   private final TextAlignment alignment;
   private final int lines;
   private Bitmap bitmapImage;
+  private byte[] imageData;
+  private String imageHash;
   private final List<ColumnItem> columns;
   private final FontSize fontSize;
   private int widthPercentage;
@@ -31,6 +33,24 @@ public class PrintItem {
 
   private int units;
 
+  private TableTemplate tableTemplate;
+
+  private String[][] tableData;
+
+  private BarcodeType barcodeType;
+
+  private int barcodeHeight;
+
+  private int barcodeModuleWidth;
+
+  private BarcodeTextPosition barcodeTextPosition;
+
+  private long imageTimeout;
+
+  private String fallbackText;
+
+  private DitherMode ditherMode = DitherMode.THRESHOLD;
+
   /**
    * Constructs a new PrintItem with specified properties.
    *
@@ -134,6 +154,83 @@ public class PrintItem {
     return bitmapImage;
   }
 
+  /**
+   * Gets the encoded image bytes for image type print items.
+   *
+   * @return The encoded image, or null if the item holds a decoded bitmap.
+   */
+  public byte[] getImageData() {
+    return imageData;
+  }
+
+  /**
+   * Gets the content hash of the encoded image for image type print items.
+   *
+   * @return The hash of the image bytes, or null if unknown.
+   */
+  public String getImageHash() {
+    return imageHash;
+  }
+
+  /**
+   * Sets the encoded image for image type print items.
+   * The image is decoded when the item is printed.
+   *
+   * @param imageData The encoded image bytes.
+   * @param imageHash The content hash of the image bytes.
+   */
+  public void setImageData(byte[] imageData, String imageHash) {
+    this.imageData = imageData;
+    this.imageHash = imageHash;
+  }
+
+  /**
+   * Gets the time allowed to download the image for image type print items.
+   *
+   * @return The download timeout in milliseconds.
+   */
+  public long getImageTimeout() {
+    return imageTimeout;
+  }
+
+  /**
+   * Gets the text printed in place of the image if it can't be downloaded.
+   *
+   * @return The fallback text, or null to leave the image out.
+   */
+  public String getFallbackText() {
+    return fallbackText;
+  }
+
+  /**
+   * Sets how the image of an image type print item is downloaded.
+   *
+   * @param imageTimeout The download timeout in milliseconds.
+   * @param fallbackText The text printed if the image can't be downloaded, or null.
+   */
+  public void setImageResolution(long imageTimeout, String fallbackText) {
+    this.imageTimeout = imageTimeout;
+    this.fallbackText = fallbackText;
+  }
+
+  /**
+   * Gets how image type print items are converted into black and white dots.
+   *
+   * @return The dither mode.
+   */
+  public DitherMode getDitherMode() {
+    return ditherMode;
+  }
+
+  /**
+   * Sets how image type print items are converted into black and white dots.
+   *
+   * @param ditherMode The dither mode.
+   */
+  public void setDitherMode(DitherMode ditherMode) {
+    this.ditherMode = ditherMode;
+  }
+
   /**
    * Gets the number of lines to feed or cut.
    *
@@ -187,6 +284,87 @@ public class PrintItem {
     this.bitmapImage = bitmapImage;
   }
 
+  /**
+   * Gets the column layout for table type print items.
+   *
+   * @return The table template.
+   */
+  public TableTemplate getTableTemplate() {
+    return tableTemplate;
+  }
+
+  /**
+   * Gets the cell values for table type print items.
+   * The data is column-major: {@code tableData[column][row]}.
+   *
+   * @return The table cell values.
+   */
+  public String[][] getTableData() {
+    return tableData;
+  }
+
+  /**
+   * Sets the layout and cell values for table type print items.
+   *
+   * @param tableTemplate The column layout of the table.
+   * @param tableData     The cell values, indexed as {@code tableData[column][row]}.
+   */
+  public void setTable(TableTemplate tableTemplate, String[][] tableData) {
+    this.tableTemplate = tableTemplate;
+    this.tableData = tableData;
+  }
+
+  /**
+   * Gets the symbology for barcode type print items.
+   *
+   * @return The barcode type.
+   */
+  public BarcodeType getBarcodeType() {
+    return barcodeType;
+  }
+
+  /**
+   * Gets the bar height for barcode type print items.
+   *
+   * @return The bar height in dots.
+   */
+  public int getBarcodeHeight() {
+    return barcodeHeight;
+  }
+
+  /**
+   * Gets the narrowest bar width for barcode type print items.
+   *
+   * @return The module width in dots.
+   */
+  public int getBarcodeModuleWidth() {
+    return barcodeModuleWidth;
+  }
+
+  /**
+   * Gets the position of the human readable text for barcode type print items.
+   *
+   * @return The text position.
+   */
+  public BarcodeTextPosition getBarcodeTextPosition() {
+    return barcodeTextPosition;
+  }
+
+  /**
+   * Sets the symbology and layout for barcode type print items.
+   *
+   * @param barcodeType  The barcode symbology.
+   * @param height       The bar height in dots.
+   * @param moduleWidth  The narrowest bar width in dots.
+   * @param textPosition The position of the human readable text.
+   */
+  public void setBarcode(BarcodeType barcodeType, int height, int moduleWidth, BarcodeTextPosition textPosition) {
+    this.barcodeType = barcodeType;
+    this.barcodeHeight = height;
+    this.barcodeModuleWidth = moduleWidth;
+    this.barcodeTextPosition = textPosition;
+  }
+
   /**
    * Sets the width percentage for image scaling.
    *
@@ -2,10 +2,8 @@ package com.posthermalprinter.util;
 
 import android.util.Log;
 
-import com.facebook.react.bridge.Arguments;
-import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.posthermalprinter.helper.ExecutorRegistry;
+import com.posthermalprinter.helper.PrinterEventManager;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -15,22 +13,23 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class PrinterConnectionUtils {
 
   private static final String TAG = "PrinterUtils";
-  private final ReactApplicationContext reactContext;
+  private final PrinterEventManager eventManager;
   private final Map<String, Boolean> reachabilityMap = new ConcurrentHashMap<>();
   private boolean showLogs = false;
   private Process p;
-  private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+  private ScheduledFuture<?> periodicCheck;
   private List<String> currentPrinterIps = new ArrayList<>();
 
-  public PrinterConnectionUtils(ReactApplicationContext reactContext) {
-    this.reactContext = reactContext;
+  public PrinterConnectionUtils(PrinterEventManager eventManager) {
+    this.eventManager = eventManager;
   }
 
   // Blocking version of pingHost
@@ -80,29 +79,44 @@ public class PrinterConnectionUtils {
       Log.i(TAG, "Starting periodic reachability checks.");
     }
     this.currentPrinterIps = new ArrayList<>(printerIps); // Ensure the list is properly updated
-    scheduler.scheduleAtFixedRate(() -> {
-      for (String printerIp : currentPrinterIps) {
-        boolean reachable = pingHostBlocking(printerIp);
-        reachabilityMap.put(printerIp, reachable); // Update the reachability status
+    ExecutorRegistry executors = ExecutorRegistry.getInstance();
+    // Pings block, so the timer only hands the check to the io pool; a check still running skips the tick
+    Executor checks = executors.lane("reachability", 1, 1);
+    periodicCheck = executors.timer().scheduleAtFixedRate(() -> {
+      try {
+        checks.execute(this::checkReachability);
+      } catch (RejectedExecutionException e) {
         if (showLogs) {
-          Log.i(TAG, "Printer " + printerIp + " reachability: " + reachable);
-        }
-        if (!reachable) {
-          sendPrinterUnreachableEvent(printerIp);
+          Log.i(TAG, "Reachability check still running, skipping: " + e.getMessage());
         }
       }
+    }, 0, 5, TimeUnit.SECONDS); // Run every 5 seconds
+  }
 
+  private void checkReachability() {
+    for (String printerIp : currentPrinterIps) {
+      boolean reachable = pingHostBlocking(printerIp);
+      reachabilityMap.put(printerIp, reachable); // Update the reachability status
       if (showLogs) {
-        Log.i(TAG, "Updated reachability status for printers. Current map: " + reachabilityMap);
+        Log.i(TAG, "Printer " + printerIp + " reachability: " + reachable);
+      }
+      // The event manager reports each outage once, not on every check
+      if (reachable) {
+        eventManager.resetPrinterUnreachableStatus(printerIp);
+      } else {
+        eventManager.sendPrinterUnreachableEvent(printerIp);
       }
-    }, 0, 5, TimeUnit.SECONDS); // Run every 15 seconds
+    }
+
+    if (showLogs) {
+      Log.i(TAG, "Updated reachability status for printers. Current map: " + reachabilityMap);
+    }
   }
 
   // Restart method to reinitialize and start reachability checks
   public void restartPeriodicCheck(List<String> printerIps) {
     stopPeriodicCheck(); // Stop the current scheduler
     this.currentPrinterIps = new ArrayList<>(printerIps); // Update the list with the new printer IPs
-    scheduler = Executors.newScheduledThreadPool(1); // Reinitialize the scheduler
     startPeriodicReachabilityCheck(printerIps); // Start the check again with updated IPs
   }
 
@@ -143,25 +157,12 @@ public class PrinterConnectionUtils {
     }
   }
 
-  private void sendPrinterUnreachableEvent(String printerIp) {
-    WritableMap params = Arguments.createMap();
-    params.putString("printerIp", printerIp);
-    reactContext
-      .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-      .emit("PrinterUnreachable", params);
-  }
-
-  // Stop the scheduled checks and shutdown the executor
+  // Stop the scheduled checks
   public void stopPeriodicCheck() {
     Log.i(TAG, "Stopping periodic reachability checks.");
-    scheduler.shutdown();
-    try {
-      if (!scheduler.awaitTermination(60, TimeUnit.SECONDS)) {
-        scheduler.shutdownNow();
-      }
-    } catch (InterruptedException e) {
-      Log.e(TAG, "Error stopping scheduler: ", e);
-      scheduler.shutdownNow();
+    if (periodicCheck != null) {
+      periodicCheck.cancel(false);
+      periodicCheck = null;
     }
   }
 }
@@ -1,6 +1,13 @@
 package com.posthermalprinter.util;
 
+import android.os.Build;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a print job to be sent to a printer.
@@ -9,11 +16,16 @@ import java.util.List;
  */
 public class PrinterJob {
   private final List<PrintItem> jobContent;
+  private final byte[] rawData;
+  private final String templateKey;
+  private final Map<String, ?> templateVariables;
   private String targetPrinterIp;
   private String printerName;
   private boolean isPending;
   private final String metadata;
   private final String jobId;
+  private CompletableFuture<Boolean> completion;
+  private Boolean outcome;
 
   /**
    * Constructs a new PrinterJob.
@@ -26,6 +38,55 @@ public class PrinterJob {
    */
   public PrinterJob(List<PrintItem> jobContent, String targetPrinterIp, String printerName, String metadata, String jobId) {
     this.jobContent = jobContent;
+    this.rawData = null;
+    this.templateKey = null;
+    this.templateVariables = null;
+    this.targetPrinterIp = targetPrinterIp;
+    this.printerName = printerName;
+    this.isPending = false;
+    this.metadata = metadata;
+    this.jobId = jobId;
+  }
+
+  /**
+   * Constructs a new PrinterJob from bytes that are already encoded for the printer.
+   * The bytes are sent as they are, without an initialize command.
+   *
+   * @param rawData         The ESC/POS bytes to send.
+   * @param targetPrinterIp The IP address of the target printer.
+   * @param printerName     The name of the target printer.
+   * @param metadata        Additional metadata for the print job.
+   * @param jobId           A unique identifier for this print job.
+   */
+  public PrinterJob(byte[] rawData, String targetPrinterIp, String printerName, String metadata, String jobId) {
+    this.jobContent = Collections.emptyList();
+    this.rawData = rawData;
+    this.templateKey = null;
+    this.templateVariables = null;
+    this.targetPrinterIp = targetPrinterIp;
+    this.printerName = printerName;
+    this.isPending = false;
+    this.metadata = metadata;
+    this.jobId = jobId;
+  }
+
+  /**
+   * Constructs a new PrinterJob that prints a registered receipt template.
+   * The template is rendered when the job is sent, so the logos it prints are checked against
+   * what the printer holds at that time.
+   *
+   * @param templateKey       The key the template was registered with.
+   * @param templateVariables The values of the placeholders, and a list of value maps per section.
+   * @param targetPrinterIp   The IP address of the target printer.
+   * @param printerName       The name of the target printer.
+   * @param metadata          Additional metadata for the print job.
+   * @param jobId             A unique identifier for this print job.
+   */
+  public PrinterJob(String templateKey, Map<String, ?> templateVariables, String targetPrinterIp, String printerName, String metadata, String jobId) {
+    this.jobContent = Collections.emptyList();
+    this.rawData = null;
+    this.templateKey = templateKey;
+    this.templateVariables = templateVariables;
     this.targetPrinterIp = targetPrinterIp;
     this.printerName = printerName;
     this.isPending = false;
@@ -51,6 +112,51 @@ public class PrinterJob {
     return jobContent;
   }
 
+  /**
+   * Checks if the print job carries pre-encoded bytes instead of print items.
+   *
+   * @return true if the job is a raw job, false otherwise.
+   */
+  public boolean isRaw() {
+    return rawData != null;
+  }
+
+  /**
+   * Gets the pre-encoded bytes of a raw print job.
+   *
+   * @return The ESC/POS bytes, or null if the job is not a raw job.
+   */
+  public byte[] getRawData() {
+    return rawData;
+  }
+
+  /**
+   * Checks if the print job renders a receipt template instead of print items.
+   *
+   * @return true if the job is a template job, false otherwise.
+   */
+  public boolean isTemplate() {
+    return templateKey != null;
+  }
+
+  /**
+   * Gets the key of the template a template job renders.
+   *
+   * @return The template key, or null if the job is not a template job.
+   */
+  public String getTemplateKey() {
+    return templateKey;
+  }
+
+  /**
+   * Gets the values a template job renders its template with.
+   *
+   * @return The template values, or null if the job is not a template job.
+   */
+  public Map<String, ?> getTemplateVariables() {
+    return templateVariables;
+  }
+
   /**
    * Gets the metadata associated with this print job.
    *
@@ -98,6 +204,40 @@ public class PrinterJob {
     this.targetPrinterIp = targetPrinterIp;
   }
 
+  /**
+   * Gets a future that completes when the job leaves the queue.
+   *
+   * @return A CompletableFuture that resolves to true once the job was printed, or to false if
+   * every attempt failed or the job was cancelled.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public synchronized CompletableFuture<Boolean> getCompletion() {
+    if (completion == null) {
+      completion = new CompletableFuture<>();
+      if (outcome != null) {
+        completion.complete(outcome);
+      }
+    }
+    return completion;
+  }
+
+  /**
+   * Records how the job left the queue, completing its future if one was requested.
+   * Only the first outcome counts.
+   *
+   * @param printed true if the job was printed, false if it failed or was cancelled.
+   */
+  @RequiresApi(api = Build.VERSION_CODES.N)
+  public synchronized void complete(boolean printed) {
+    if (outcome != null) {
+      return;
+    }
+    outcome = printed;
+    if (completion != null) {
+      completion.complete(printed);
+    }
+  }
+
   /**
    * Marks this print job as pending.
    */
@@ -0,0 +1,198 @@
+package com.posthermalprinter.util;
+
+import com.posthermalprinter.helper.CodePageEncoder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the capabilities of a printer model.
+ * The encoder reads the print width, character columns, code pages and graphics support from
+ * the profile, and the network dispatcher paces data by the receive buffer and print speed.
+ */
+public class PrinterProfile {
+
+  // Thermal print heads print 8 dots per mm (203 dpi)
+  private static final int DOTS_PER_MM = 8;
+  private static final int DOTS_PER_INCH = 203;
+
+  /**
+   * Generic 80 mm printer.
+   */
+  public static final PrinterProfile PRINTER_80MM = new PrinterProfile(
+    "80MM", 576, 48, 64, CodePageEncoder.DEFAULT_CODE_PAGES, true, true, 4096, 200, 203);
+
+  /**
+   * Generic 58 mm printer.
+   */
+  public static final PrinterProfile PRINTER_58MM = new PrinterProfile(
+    "58MM", 384, 32, 42, CodePageEncoder.DEFAULT_CODE_PAGES, true, true, 2048, 90, 203);
+
+  /**
+   * Built-in 80 mm printer of iMin devices.
+   */
+  public static final PrinterProfile IMIN_80MM = new PrinterProfile(
+    "IMIN_80MM", 576, 48, 64, CodePageEncoder.DEFAULT_CODE_PAGES, false, false, 4096, 150, 203);
+
+  /**
+   * Built-in 58 mm printer of iMin handheld devices.
+   */
+  public static final PrinterProfile IMIN_58MM = new PrinterProfile(
+    "IMIN_58MM", 384, 32, 42, CodePageEncoder.DEFAULT_CODE_PAGES, false, false, 2048, 70, 203);
+
+  private static final List<PrinterProfile> PRESETS = Arrays.asList(PRINTER_80MM, PRINTER_58MM, IMIN_80MM, IMIN_58MM);
+
+  private final String name;
+  private final int dotWidth;
+  private final int fontAColumns;
+  private final int fontBColumns;
+  private final List<CodePage> codePages;
+  private final boolean nvGraphics;
+  private final boolean downloadGraphics;
+  private final int receiveBufferSize;
+  private final int printSpeed;
+  private final int verticalMotionUnits;
+
+  /**
+   * Constructs a new PrinterProfile.
+   *
+   * @param name                The name of the profile.
+   * @param dotWidth            The printable width in dots.
+   * @param fontAColumns        The number of font A characters per line.
+   * @param fontBColumns        The number of font B characters per line.
+   * @param codePages           The code pages the printer supports, in order of preference.
+   * @param nvGraphics          Whether the printer stores graphics in NV memory ({@code GS ( L} function 67).
+   * @param downloadGraphics    Whether the printer stores graphics in download memory ({@code GS ( L} function 83).
+   * @param receiveBufferSize   The size of the printer's receive buffer in bytes.
+   * @param printSpeed          The nominal print speed in mm per second.
+   * @param verticalMotionUnits The vertical motion unit of paper feeds ({@code ESC J}), in units per inch.
+   */
+  public PrinterProfile(String name, int dotWidth, int fontAColumns, int fontBColumns, List<CodePage> codePages,
+                        boolean nvGraphics, boolean downloadGraphics, int receiveBufferSize,
+                        int printSpeed, int verticalMotionUnits) {
+    this.name = name;
+    this.dotWidth = dotWidth;
+    this.fontAColumns = fontAColumns;
+    this.fontBColumns = fontBColumns;
+    this.codePages = Collections.unmodifiableList(codePages);
+    this.nvGraphics = nvGraphics;
+    this.downloadGraphics = downloadGraphics;
+    this.receiveBufferSize = receiveBufferSize;
+    this.printSpeed = printSpeed;
+    this.verticalMotionUnits = verticalMotionUnits;
+  }
+
+  /**
+   * Finds a preset profile by name.
+   *
+   * @param name The name of the preset, e.g. "80MM" or "58MM".
+   * @return The preset profile, or null if no preset has the name.
+   */
+  public static PrinterProfile forName(String name) {
+    for (PrinterProfile preset : PRESETS) {
+      if (preset.name.equalsIgnoreCase(name)) {
+        return preset;
+      }
+    }
+    return null;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the printable width of the printer.
+   *
+   * @return The printable width in dots.
+   */
+  public int getDotWidth() {
+    return dotWidth;
+  }
+
+  public int getFontAColumns() {
+    return fontAColumns;
+  }
+
+  public int getFontBColumns() {
+    return fontBColumns;
+  }
+
+  /**
+   * Gets the number of font A characters that fit on a line at the given font size.
+   *
+   * @param fontSize The font size of the text.
+   * @return The number of characters per line.
+   */
+  public int getCharactersPerLine(FontSize fontSize) {
+    return switch (fontSize) {
+      case WIDE, BIG -> fontAColumns / 2;
+      default -> fontAColumns;
+    };
+  }
+
+  /**
+   * Gets the code pages the printer supports.
+   *
+   * @return The code pages, in order of preference.
+   */
+  public List<CodePage> getCodePages() {
+    return codePages;
+  }
+
+  public boolean supportsNvGraphics() {
+    return nvGraphics;
+  }
+
+  public boolean supportsDownloadGraphics() {
+    return downloadGraphics;
+  }
+
+  /**
+   * Gets the size of the printer's receive buffer.
+   *
+   * @return The receive buffer size in bytes.
+   */
+  public int getReceiveBufferSize() {
+    return receiveBufferSize;
+  }
+
+  /**
+   * Gets the nominal print speed.
+   *
+   * @return The print speed in mm per second.
+   */
+  public int getPrintSpeed() {
+    return printSpeed;
+  }
+
+  /**
+   * Gets the vertical motion unit of paper feeds.
+   *
+   * @return The number of {@code ESC J} units per inch.
+   */
+  public int getVerticalMotionUnits() {
+    return verticalMotionUnits;
+  }
+
+  /**
+   * Estimates how many bytes of raster data the printer consumes per second at full speed.
+   *
+   * @return The raster throughput in bytes per second.
+   */
+  public int getRasterBytesPerSecond() {
+    // (dotWidth / 8) bytes per dot row, DOTS_PER_MM rows per mm
+    return dotWidth / 8 * DOTS_PER_MM * printSpeed;
+  }
+
+  /**
+   * Converts a height in dots into the units of a paper feed ({@code ESC J}).
+   *
+   * @param dots The height in dots.
+   * @return The number of vertical motion units.
+   */
+  public int getFeedUnits(int dots) {
+    return Math.round((float) dots * verticalMotionUnits / DOTS_PER_INCH);
+  }
+}
@@ -0,0 +1,61 @@
+package com.posthermalprinter.util;
+
+/**
+ * Represents a monochrome raster image packed at one bit per dot.
+ * Rows are stored top to bottom, and the most significant bit of each byte is the leftmost dot.
+ * A set bit prints a black dot.
+ */
+public class RasterImage {
+  private final int widthBytes;
+  private final int height;
+  private final byte[] data;
+
+  /**
+   * Constructs a new RasterImage.
+   *
+   * @param widthBytes The number of bytes per row.
+   * @param height     The number of rows.
+   * @param data       The packed image data, {@code widthBytes * height} bytes long.
+   */
+  public RasterImage(int widthBytes, int height, byte[] data) {
+    this.widthBytes = widthBytes;
+    this.height = height;
+    this.data = data;
+  }
+
+  /**
+   * Gets the number of bytes per row.
+   *
+   * @return The row width in bytes.
+   */
+  public int getWidthBytes() {
+    return widthBytes;
+  }
+
+  /**
+   * Gets the width of the image in dots.
+   *
+   * @return The row width in dots.
+   */
+  public int getWidthDots() {
+    return widthBytes * 8;
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return The image height in dots.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the packed image data.
+   *
+   * @return The image data.
+   */
+  public byte[] getData() {
+    return data;
+  }
+}
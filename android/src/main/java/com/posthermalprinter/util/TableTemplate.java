@@ -0,0 +1,102 @@
+package com.posthermalprinter.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the column layout of a table print item.
+ * The layout is declared once per table and shared by all of its rows, so column
+ * offsets and the total line width are computed only once.
+ */
+public class TableTemplate {
+
+  /**
+   * Represents the layout and style of a single table column.
+   */
+  public static class Column {
+    private final int width;
+    private final TextAlignment alignment;
+    private final boolean bold;
+    private final boolean wrapWords;
+
+    /**
+     * Constructs a new table column.
+     *
+     * @param width     The width of the column in characters.
+     * @param alignment The text alignment within the column.
+     * @param bold      Whether the column text should be bold.
+     * @param wrapWords Whether overflowing text wraps on word boundaries instead of being cut.
+     */
+    public Column(int width, TextAlignment alignment, boolean bold, boolean wrapWords) {
+      this.width = Math.max(width, 0);
+      this.alignment = alignment != null ? alignment : TextAlignment.LEFT;
+      this.bold = bold;
+      this.wrapWords = wrapWords;
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    public TextAlignment getAlignment() {
+      return alignment;
+    }
+
+    public boolean isBold() {
+      return bold;
+    }
+
+    public boolean isWrapWords() {
+      return wrapWords;
+    }
+  }
+
+  private final List<Column> columns;
+  private final int[] offsets;
+  private final int lineWidth;
+
+  /**
+   * Constructs a new TableTemplate.
+   *
+   * @param columns The columns of the table, from left to right.
+   */
+  public TableTemplate(List<Column> columns) {
+    this.columns = Collections.unmodifiableList(columns);
+    this.offsets = new int[columns.size()];
+
+    int offset = 0;
+    for (int i = 0; i < columns.size(); i++) {
+      offsets[i] = offset;
+      offset += columns.get(i).getWidth();
+    }
+    this.lineWidth = offset;
+  }
+
+  /**
+   * Gets the columns of the table.
+   *
+   * @return The list of columns, from left to right.
+   */
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Gets the character offset of a column within a line.
+   *
+   * @param index The index of the column.
+   * @return The number of characters preceding the column.
+   */
+  public int getOffset(int index) {
+    return offsets[index];
+  }
+
+  /**
+   * Gets the total width of a table line.
+   *
+   * @return The sum of all column widths, in characters.
+   */
+  public int getLineWidth() {
+    return lineWidth;
+  }
+}
@@ -0,0 +1,102 @@
+package com.posthermalprinter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that the bridge methods return to the JS thread before the printer work they start is
+ * done, and resolve their promise once it is. The printer is a fake that waits until the test
+ * releases it. The initialization of the iMin printer itself is covered by
+ * {@code IminPrinterReadinessTest.initPrinterReturnsBeforeThePrinterIsInitialized}.
+ */
+public class PosThermalPrinterModuleTest {
+
+  private static final String PRINTER_IP = "192.168.1.70";
+  private static final long RESOLVE_TIMEOUT_MILLIS = 5000;
+
+  private PrinterManagerTest.FakePrinterManager manager;
+  private PosThermalPrinterModule module;
+  private Promise promise;
+
+  @Before
+  public void setUp() {
+    manager = new PrinterManagerTest.FakePrinterManager();
+    module = new PosThermalPrinterModule(mock(ReactApplicationContext.class), manager);
+    promise = mock(Promise.class);
+  }
+
+  @After
+  public void tearDown() {
+    manager.networkAnswers.countDown();
+    manager.printerFinishes.countDown();
+    manager.shutdown();
+  }
+
+  private static ReadableMap printerConfig(String ip, String type) {
+    ReadableMap config = mock(ReadableMap.class);
+    when(config.getString("ip")).thenReturn(ip);
+    when(config.getString("type")).thenReturn(type);
+    return config;
+  }
+
+  @Test
+  public void addPrinterToPoolReturnsBeforeTheNetworkAnswers() {
+    module.addPrinterToPool(printerConfig(PRINTER_IP, "NETWORK"), promise);
+
+    verify(promise, never()).resolve(any());
+
+    manager.networkAnswers.countDown();
+    verify(promise, timeout(RESOLVE_TIMEOUT_MILLIS)).resolve(false);
+    verify(promise, never()).reject(anyString(), anyString());
+  }
+
+  @Test
+  public void retryPrinterConnectionReturnsBeforeTheNetworkAnswers() {
+    module.retryPrinterConnection(printerConfig(PRINTER_IP, "NETWORK"), promise);
+
+    verify(promise, never()).resolve(any());
+
+    manager.networkAnswers.countDown();
+    verify(promise, timeout(RESOLVE_TIMEOUT_MILLIS)).resolve(false);
+  }
+
+  @Test
+  public void addPrinterToPoolReturnsBeforeTheInternalPrinterIsReady() {
+    module.addPrinterToPool(printerConfig("", "INTERNAL"), promise);
+
+    verify(promise, never()).resolve(any());
+
+    manager.internalReady.complete(true);
+    verify(promise, timeout(RESOLVE_TIMEOUT_MILLIS)).resolve(true);
+  }
+
+  @Test
+  public void setRawPrintJobResolvesWhileThePrinterIsStillPrinting() throws Exception {
+    String data = Base64.getEncoder().encodeToString(new byte[]{0x1B, 0x40, 'O', 'K', 0x0A});
+
+    module.setRawPrintJob(printerConfig(PRINTER_IP, "NETWORK"), data, "{}", promise);
+
+    // The job is queued; the printer has not been released
+    verify(promise).resolve(true);
+    assertTrue(manager.printing.await(RESOLVE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    assertEquals(1, manager.attempts.get());
+  }
+}
@@ -0,0 +1,172 @@
+package com.posthermalprinter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.helper.PrintJobBuilder;
+import com.posthermalprinter.helper.PrintQueueProcessor;
+import com.posthermalprinter.util.PrinterJob;
+import com.posthermalprinter.util.PrinterStatus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests that the methods behind the bridge return before the printer work they start is
+ * done, and that jobs submitted from native code resolve once they are printed.
+ * The printer checks are replaced by fakes that wait until the test releases them.
+ */
+public class PrinterManagerTest {
+
+  private static final String PRINTER_IP = "192.168.1.50";
+
+  /**
+   * A manager whose network check, internal printer and print attempts are held until released.
+   */
+  static class FakePrinterManager extends PrinterManager {
+    final CountDownLatch networkAnswers = new CountDownLatch(1);
+    final CompletableFuture<Boolean> internalReady = new CompletableFuture<>();
+    final CountDownLatch printing = new CountDownLatch(1);
+    final CountDownLatch printerFinishes = new CountDownLatch(1);
+    final AtomicInteger attempts = new AtomicInteger();
+
+    FakePrinterManager() {
+      super(new ArrayList<>(), null);
+    }
+
+    @Override
+    boolean isPrinterReachable(String printerIp) {
+      try {
+        networkAnswers.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    @Override
+    CompletableFuture<Boolean> ensureInternalPrinterReady() {
+      return internalReady;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> printToPrinter(PrinterJob job, AtomicLong bytesSent) {
+      attempts.incrementAndGet();
+      return CompletableFuture.supplyAsync(() -> {
+        printing.countDown();
+        try {
+          printerFinishes.await();
+        } catch (InterruptedException e) {
+          return false;
+        }
+        bytesSent.addAndGet(64);
+        return true;
+      });
+    }
+  }
+
+  private FakePrinterManager manager;
+
+  @Before
+  public void setUp() {
+    manager = new FakePrinterManager();
+  }
+
+  @After
+  public void tearDown() {
+    manager.networkAnswers.countDown();
+    manager.printerFinishes.countDown();
+    manager.shutdown();
+  }
+
+  private static PrinterJob job(String text) {
+    return new PrintJobBuilder(PRINTER_IP, "NETWORK").text(text).cut().build();
+  }
+
+  @Test
+  public void addingAndReconnectingAPrinterReturnBeforeTheNetworkAnswers() throws Exception {
+    CompletableFuture<Boolean> added = manager.addPrinterAsync(PRINTER_IP, "NETWORK");
+    // retryPrinterConnection adds the printer again while it is being checked
+    CompletableFuture<Boolean> reconnected = manager.addPrinterAsync(PRINTER_IP, "NETWORK");
+
+    assertFalse(added.isDone());
+    assertFalse(reconnected.isDone());
+
+    manager.networkAnswers.countDown();
+    assertFalse(added.get(5, TimeUnit.SECONDS));
+    assertFalse(reconnected.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void addingTheInternalPrinterReturnsBeforeItIsReady() throws Exception {
+    CompletableFuture<Boolean> added = manager.addPrinterAsync("", "INTERNAL");
+
+    assertFalse(added.isDone());
+
+    manager.internalReady.complete(true);
+    assertTrue(added.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void pendingJobsAreListedWhileAJobPrints() throws Exception {
+    BlockingQueue<PrinterJob> queue = new LinkedBlockingQueue<>();
+    PrintQueueProcessor processor = new PrintQueueProcessor(queue, Collections.singletonList(PRINTER_IP),
+      manager, manager.getEventManager());
+    try {
+      PrinterJob printing = job("Printing");
+      PrinterJob waiting = job("Waiting");
+      waiting.setPending();
+      queue.add(printing);
+      queue.add(waiting);
+      assertTrue(manager.printing.await(5, TimeUnit.SECONDS));
+
+      List<PrinterJob> pending = processor.getPendingJobs();
+
+      assertFalse(printing.getCompletion().isDone());
+      assertEquals(Collections.singletonList(waiting), pending);
+
+      // Listing the jobs left them in the queue
+      manager.printerFinishes.countDown();
+      assertTrue(waiting.getCompletion().get(10, TimeUnit.SECONDS));
+    } finally {
+      processor.shutdown();
+    }
+  }
+
+  @Test
+  public void poolStatusAndRemovalResolveWithoutAPrinterService() throws Exception {
+    CompletableFuture<List<PrinterStatus>> status = manager.getPrinterPoolStatusAsync();
+    CompletableFuture<Boolean> removed = manager.removePrinterAsync(PRINTER_IP, "NETWORK");
+
+    assertNotNull(status.get(5, TimeUnit.SECONDS));
+    assertFalse(removed.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void submittedJobResolvesOnceAfterASlowPrint() throws Exception {
+    CompletableFuture<Boolean> printed = manager.submitPrintJob(job("Slow job"));
+    assertTrue(manager.printing.await(5, TimeUnit.SECONDS));
+
+    // Slower than any fixed wait a retry could hide behind
+    Thread.sleep(1500);
+    assertFalse(printed.isDone());
+    manager.printerFinishes.countDown();
+
+    assertTrue(printed.get(10, TimeUnit.SECONDS));
+    assertEquals(1, manager.attempts.get());
+  }
+}
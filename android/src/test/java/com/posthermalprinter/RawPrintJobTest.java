@@ -0,0 +1,150 @@
+package com.posthermalprinter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.posthermalprinter.helper.PrintJobHandler;
+import com.posthermalprinter.util.PrinterJob;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests that the bytes of raw print jobs reach the printer unchanged and in order, and that
+ * payloads without valid bytes are rejected before a job is created.
+ */
+public class RawPrintJobTest {
+
+  private static final String PRINTER_IP = "192.168.1.60";
+
+  /**
+   * A manager that hands the commands of each job to an in-memory printer.
+   */
+  private static class RecordingPrinterManager extends PrinterManager {
+    final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+
+    RecordingPrinterManager() {
+      super(new ArrayList<>(), null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> printToPrinter(PrinterJob job, AtomicLong bytesSent) {
+      try {
+        synchronized (printed) {
+          commandSource(job, bytesSent).writeTo(command -> printed.write(command, 0, command.length));
+        }
+        return CompletableFuture.completedFuture(true);
+      } catch (IOException e) {
+        return CompletableFuture.completedFuture(false);
+      }
+    }
+
+    byte[] received() {
+      synchronized (printed) {
+        return printed.toByteArray();
+      }
+    }
+  }
+
+  private RecordingPrinterManager manager;
+
+  @Before
+  public void setUp() {
+    manager = new RecordingPrinterManager();
+  }
+
+  @After
+  public void tearDown() {
+    manager.shutdown();
+  }
+
+  private static byte[] allByteValues() {
+    byte[] data = new byte[256];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+
+  @Test
+  public void rawBytesReachThePrinterUnchangedAndInOrder() throws Exception {
+    byte[] first = allByteValues();
+    // Initialize, text, feed and cut, as an app would encode them
+    byte[] second = {0x1B, 0x40, 'O', 'K', 0x0A, 0x1D, 0x56, 0x42, 0x00};
+    String payload = Base64.getEncoder().encodeToString(first);
+
+    PrinterJob firstJob = PrintJobHandler.createRawPrintJob(PRINTER_IP, "NETWORK", PrintJobHandler.decodeRawData(payload), "{}");
+    PrinterJob secondJob = PrintJobHandler.createRawPrintJob(PRINTER_IP, "NETWORK", second, "{}");
+    CompletableFuture<Boolean> firstPrinted = manager.submitPrintJob(firstJob);
+    CompletableFuture<Boolean> secondPrinted = manager.submitPrintJob(secondJob);
+
+    assertTrue(firstPrinted.get(10, TimeUnit.SECONDS));
+    assertTrue(secondPrinted.get(10, TimeUnit.SECONDS));
+    byte[] expected = new byte[first.length + second.length];
+    System.arraycopy(first, 0, expected, 0, first.length);
+    System.arraycopy(second, 0, expected, first.length, second.length);
+    assertArrayEquals(expected, manager.received());
+  }
+
+  @Test
+  public void rawBytesAreCountedAsSent() throws Exception {
+    byte[] data = allByteValues();
+    PrinterJob job = PrintJobHandler.createRawPrintJob(PRINTER_IP, "NETWORK", data, "{}");
+    AtomicLong bytesSent = new AtomicLong();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    manager.commandSource(job, bytesSent).writeTo(command -> out.write(command, 0, command.length));
+
+    assertArrayEquals(data, out.toByteArray());
+    assertEquals(data.length, bytesSent.get());
+  }
+
+  @Test
+  public void payloadWithLineBreaksIsDecoded() {
+    byte[] data = allByteValues();
+    String payload = Base64.getMimeEncoder().encodeToString(data);
+
+    assertArrayEquals(data, PrintJobHandler.decodeRawData(payload));
+  }
+
+  @Test
+  public void emptyPayloadIsRejected() {
+    for (String payload : new String[]{null, "", "  \n"}) {
+      try {
+        PrintJobHandler.decodeRawData(payload);
+        fail("An empty payload must be rejected");
+      } catch (IllegalArgumentException expected) {
+        // Rejected before a job is created
+      }
+    }
+    try {
+      PrintJobHandler.createRawPrintJob(PRINTER_IP, "NETWORK", new byte[0], "{}");
+      fail("A job without bytes must be rejected");
+    } catch (IllegalArgumentException expected) {
+      // Rejected before a job is created
+    }
+  }
+
+  @Test
+  public void invalidBase64IsRejected() {
+    for (String payload : new String[]{"not base64!", "G0A*", "A", "G0A=AA"}) {
+      try {
+        PrintJobHandler.decodeRawData(payload);
+        fail("Invalid payload must be rejected: " + payload);
+      } catch (IllegalArgumentException expected) {
+        // Rejected before a job is created
+      }
+    }
+  }
+}
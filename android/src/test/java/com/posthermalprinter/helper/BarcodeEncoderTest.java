@@ -0,0 +1,153 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.posthermalprinter.util.BarcodeTextPosition;
+import com.posthermalprinter.util.BarcodeType;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests the data each {@link BarcodeType} accepts and the commands {@link BarcodeEncoder} builds.
+ */
+public class BarcodeEncoderTest {
+
+  // GS H n, GS f 0, GS h n, GS w n
+  private static final int HEIGHT_INDEX = 8;
+  private static final int MODULE_WIDTH_INDEX = 11;
+  private static final int PAYLOAD_INDEX = 16;
+
+  private static void assertAccepts(BarcodeType type, String... samples) {
+    for (String data : samples) {
+      assertTrue(type + " should accept " + data, type.accepts(data));
+    }
+  }
+
+  private static void assertRejects(BarcodeType type, String... samples) {
+    for (String data : samples) {
+      assertFalse(type + " should reject " + data, type.accepts(data));
+    }
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  @Test
+  public void upcAcceptsElevenOrTwelveDigits() {
+    assertAccepts(BarcodeType.UPC_A, "03600029145", "036000291452");
+    assertRejects(BarcodeType.UPC_A, "0360002914", "0360002914520", "03600029145X", "");
+  }
+
+  @Test
+  public void upcEAcceptsSixToEightOrElevenToTwelveDigits() {
+    assertAccepts(BarcodeType.UPC_E, "123456", "1234567", "01234565", "03600029145", "036000291452");
+    assertRejects(BarcodeType.UPC_E, "12345", "123456789", "1234567890", "12345A");
+  }
+
+  @Test
+  public void eanAcceptsItsDigitCounts() {
+    assertAccepts(BarcodeType.EAN13, "590123412345", "5901234123457");
+    assertRejects(BarcodeType.EAN13, "59012341234", "59012341234570", "590123412345A");
+    assertAccepts(BarcodeType.EAN8, "9638507", "96385074");
+    assertRejects(BarcodeType.EAN8, "963850", "963850745", "9638507A");
+  }
+
+  @Test
+  public void code39AcceptsUpperCaseLettersDigitsAndItsSymbols() {
+    assertAccepts(BarcodeType.CODE39, "ABC-123", "PRICE $4.50", "A+B/C%*");
+    assertRejects(BarcodeType.CODE39, "abc", "A_B", "A#1", "");
+  }
+
+  @Test
+  public void itfAcceptsAnEvenNumberOfDigits() {
+    assertAccepts(BarcodeType.ITF, "12", "1234567890");
+    assertRejects(BarcodeType.ITF, "1", "123", "12AB", "");
+  }
+
+  @Test
+  public void codabarNeedsStartAndStopCharacters() {
+    assertAccepts(BarcodeType.CODABAR, "A40156B", "a1$2-3.4/5:6+d", "AB");
+    assertRejects(BarcodeType.CODABAR, "40156", "A40156", "E40156E", "A401X6B");
+  }
+
+  @Test
+  public void code93AcceptsAsciiOnly() {
+    assertAccepts(BarcodeType.CODE93, "Code 93", "tab\tand{brace}");
+    assertRejects(BarcodeType.CODE93, "Café", "");
+  }
+
+  @Test
+  public void code128AcceptsPrintableAsciiOnly() {
+    assertAccepts(BarcodeType.CODE128, "Order #42 {table 7}", "~");
+    assertRejects(BarcodeType.CODE128, "line\nbreak", "Café", "");
+  }
+
+  @Test
+  public void dataLongerThanTheCommandAllowsIsRejected() {
+    assertAccepts(BarcodeType.CODE128, repeat('A', 255));
+    assertRejects(BarcodeType.CODE128, repeat('A', 256));
+    assertRejects(BarcodeType.CODE39, (String) null);
+  }
+
+  @Test
+  public void encoderRejectsDataTheSymbologyDoesNotAccept() {
+    try {
+      BarcodeEncoder.encode(BarcodeType.EAN13, "12345", 80, 3, BarcodeTextPosition.BELOW);
+      fail("Invalid EAN-13 data must be rejected");
+    } catch (IllegalArgumentException expected) {
+      // Rejected before any command is built
+    }
+  }
+
+  @Test
+  public void encodesTheBarcodeCommands() {
+    byte[] encoded = BarcodeEncoder.encode(BarcodeType.CODE39, "AB-1", 80, 3, BarcodeTextPosition.BELOW);
+
+    byte[] expected = {
+      0x1D, 0x48, 2, 0x1D, 0x66, 0,
+      0x1D, 0x68, 80,
+      0x1D, 0x77, 3,
+      0x1D, 0x6B, 69, 4, 'A', 'B', '-', '1'};
+    assertArrayEquals(expected, encoded);
+  }
+
+  @Test
+  public void clampsHeightAndModuleWidth() {
+    byte[] low = BarcodeEncoder.encode(BarcodeType.ITF, "1234", 0, 1, BarcodeTextPosition.NONE);
+    byte[] high = BarcodeEncoder.encode(BarcodeType.ITF, "1234", 400, 9, BarcodeTextPosition.NONE);
+    byte[] inRange = BarcodeEncoder.encode(BarcodeType.ITF, "1234", 255, 6, BarcodeTextPosition.NONE);
+
+    assertEquals(1, low[HEIGHT_INDEX] & 0xFF);
+    assertEquals(2, low[MODULE_WIDTH_INDEX]);
+    assertEquals(255, high[HEIGHT_INDEX] & 0xFF);
+    assertEquals(6, high[MODULE_WIDTH_INDEX]);
+    assertEquals(255, inRange[HEIGHT_INDEX] & 0xFF);
+    assertEquals(6, inRange[MODULE_WIDTH_INDEX]);
+  }
+
+  @Test
+  public void packsEvenLengthNumbersIntoCode128SetC() {
+    byte[] encoded = BarcodeEncoder.encode(BarcodeType.CODE128, "012345", 80, 2, BarcodeTextPosition.BELOW);
+
+    byte[] payload = Arrays.copyOfRange(encoded, PAYLOAD_INDEX, encoded.length);
+    assertEquals(5, encoded[PAYLOAD_INDEX - 1]);
+    assertArrayEquals(new byte[]{'{', 'C', 1, 23, 45}, payload);
+  }
+
+  @Test
+  public void escapesBracesInCode128SetB() {
+    byte[] encoded = BarcodeEncoder.encode(BarcodeType.CODE128, "A{1", 80, 2, BarcodeTextPosition.BELOW);
+
+    byte[] payload = Arrays.copyOfRange(encoded, PAYLOAD_INDEX, encoded.length);
+    assertArrayEquals(new byte[]{'{', 'B', 'A', '{', '{', '1'}, payload);
+  }
+}
@@ -0,0 +1,76 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.DitherMode;
+import com.posthermalprinter.util.RasterImage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests {@link BufferPool} and the pooled buffers of the dither engine.
+ */
+public class BufferPoolTest {
+
+  @Test
+  public void reusesReleasedBuffersZeroed() {
+    BufferPool pool = new BufferPool(1024);
+    byte[] bytes = pool.acquireBytes(72);
+    Arrays.fill(bytes, (byte) 0x55);
+    pool.release(bytes);
+
+    byte[] reused = pool.acquireBytes(72);
+
+    assertSame(bytes, reused);
+    assertArrayEquals(new byte[72], reused);
+    assertEquals(1, pool.getHits());
+    assertEquals(1, pool.getMisses());
+  }
+
+  @Test
+  public void poolsBuffersByExactLength() {
+    BufferPool pool = new BufferPool(1024);
+    int[] ints = pool.acquireInts(16);
+    pool.release(ints);
+
+    assertNotSame(ints, pool.acquireInts(17));
+    assertSame(ints, pool.acquireInts(16));
+    assertEquals(0, pool.getSize());
+  }
+
+  @Test
+  public void dropsBuffersBeyondItsLimit() {
+    BufferPool pool = new BufferPool(100);
+    pool.release(new byte[60]);
+    pool.release(new byte[60]);
+
+    assertEquals(60, pool.getSize());
+  }
+
+  @Test
+  public void ditheringWithPooledBuffersIsRepeatable() {
+    int width = 96;
+    int height = 160;
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      int gray = (i * 7) % 256;
+      pixels[i] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+    }
+
+    RasterImage first = DitherEngine.dither(pixels, width, height, 128, 16, DitherMode.FLOYD_STEINBERG);
+    byte[] expected = first.getData().clone();
+    BufferPool.getInstance().release(first.getData());
+    long hits = BufferPool.getInstance().getHits();
+
+    RasterImage second = DitherEngine.dither(pixels, width, height, 128, 16, DitherMode.FLOYD_STEINBERG);
+
+    assertArrayEquals(expected, second.getData());
+    assertTrue(BufferPool.getInstance().getHits() > hits);
+  }
+}
@@ -0,0 +1,117 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.CodePage;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Tests how {@link CodePageEncoder} splits text into code page runs and writes them.
+ */
+public class CodePageEncoderTest {
+
+  private static final List<CodePage> CODE_PAGES = CodePageEncoder.DEFAULT_CODE_PAGES;
+
+  @Test
+  public void splitsMixedScriptTextIntoOneRunPerScript() {
+    List<CodePageEncoder.Run> runs = CodePageEncoder.segment("Straße Привет Ελλάδα", CODE_PAGES);
+
+    assertEquals(3, runs.size());
+    assertSame(CodePage.PC437, runs.get(0).codePage);
+    assertEquals("Straße ", runs.get(0).text);
+    assertSame(CodePage.PC866, runs.get(1).codePage);
+    assertEquals("Привет ", runs.get(1).text);
+    assertSame(CodePage.WPC1253, runs.get(2).codePage);
+    assertEquals("Ελλάδα", runs.get(2).text);
+  }
+
+  @Test
+  public void selectsACodePageOnlyAtRunBoundaries() throws Exception {
+    List<CodePageEncoder.Run> runs = CodePageEncoder.segment("Straße Привет Ελλάδα", CODE_PAGES);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    CodePage selected = CodePageEncoder.writeRuns(runs, CodePage.PC437, buffer);
+
+    // The first run is already on the selected code page
+    byte[] expected = concat(
+      "Straße ".getBytes(CodePage.PC437.getCharset()),
+      CodePage.PC866.selectCommand(),
+      "Привет ".getBytes(CodePage.PC866.getCharset()),
+      CodePage.WPC1253.selectCommand(),
+      "Ελλάδα".getBytes(CodePage.WPC1253.getCharset()));
+    assertArrayEquals(expected, buffer.toByteArray());
+    assertSame(CodePage.WPC1253, selected);
+  }
+
+  @Test
+  public void asciiStaysOnTheCurrentCodePage() throws Exception {
+    List<CodePageEncoder.Run> runs = CodePageEncoder.segment("Привет, world 42", CODE_PAGES);
+
+    assertEquals(1, runs.size());
+    assertSame(CodePage.PC866, runs.get(0).codePage);
+  }
+
+  @Test
+  public void charactersNoCodePageCoversFallBackToQuestionMarks() throws Exception {
+    List<CodePageEncoder.Run> runs = CodePageEncoder.segment("Tea 茶 🍵", CODE_PAGES);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    assertFalse(CodePageEncoder.isFullyCovered(runs));
+    assertNull(runs.get(runs.size() - 1).codePage);
+    CodePage selected = CodePageEncoder.writeRuns(runs, CodePage.PC437, buffer);
+
+    // One question mark per character, including the emoji outside the basic plane
+    assertArrayEquals("Tea ? ?".getBytes(CodePage.PC437.getCharset()), buffer.toByteArray());
+    assertSame(CodePage.PC437, selected);
+  }
+
+  @Test
+  public void coveredTextIsFullyCovered() {
+    assertTrue(CodePageEncoder.isFullyCovered(CodePageEncoder.segment("Crème brûlée €4", CODE_PAGES)));
+    assertTrue(CodePageEncoder.segment("", CODE_PAGES).isEmpty());
+  }
+
+  @Test
+  public void codePageCarriesOverBetweenLines() throws Exception {
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    ByteArrayOutputStream third = new ByteArrayOutputStream();
+
+    CodePage selected = CodePageEncoder.writeRuns(CodePageEncoder.segment("Привет", CODE_PAGES), CodePage.PC437, first);
+    selected = CodePageEncoder.writeRuns(CodePageEncoder.segment("до свидания", CODE_PAGES), selected, second);
+    selected = CodePageEncoder.writeRuns(CodePageEncoder.segment("Total 12.50", CODE_PAGES), selected, third);
+
+    assertArrayEquals(concat(CodePage.PC866.selectCommand(), "Привет".getBytes(CodePage.PC866.getCharset())),
+      first.toByteArray());
+    // The next lines are written on the code page the first line left selected
+    assertArrayEquals("до свидания".getBytes(CodePage.PC866.getCharset()), second.toByteArray());
+    assertArrayEquals("Total 12.50".getBytes(CodePage.PC866.getCharset()), third.toByteArray());
+    assertSame(CodePage.PC866, selected);
+  }
+
+  @Test
+  public void respellsVietnameseWithCombiningMarks() throws Exception {
+    List<CodePageEncoder.Run> runs = CodePageEncoder.segment("Việt", CODE_PAGES);
+
+    assertTrue(CodePageEncoder.isFullyCovered(runs));
+    assertEquals(1, runs.size());
+    assertSame(CodePage.WPC1258, runs.get(0).codePage);
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      out.write(part, 0, part.length);
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,147 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.DitherMode;
+import com.posthermalprinter.util.RasterImage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests {@link DitherEngine}.
+ */
+public class DitherEngineTest {
+
+  private static final int DOT_WIDTH = 576;
+
+  @Test
+  public void thresholdMatchesRasterPacker() {
+    int[] pixels = horizontalGradient(300, 40);
+
+    RasterImage dithered = DitherEngine.dither(pixels, 300, 40, DOT_WIDTH, 138, DitherMode.THRESHOLD);
+    RasterImage packed = RasterEncoder.pack(pixels, 300, 40, DOT_WIDTH, 138);
+
+    assertArrayEquals(packed.getData(), dithered.getData());
+  }
+
+  @Test
+  public void preservesGrayLevelInEveryMode() {
+    int width = 256;
+    int height = 256;
+    int[] pixels = solid(width, height, 0x80);
+
+    for (DitherMode mode : new DitherMode[]{DitherMode.BAYER, DitherMode.FLOYD_STEINBERG}) {
+      RasterImage image = DitherEngine.dither(pixels, width, height, width, 0, mode);
+      double coverage = (double) countDots(image, 0, height) / (width * height);
+      assertEquals(mode.name(), 0.5, coverage, 0.02);
+    }
+
+    // Atkinson drops a quarter of the error, so mid-gray prints lighter but still dithered
+    RasterImage atkinson = DitherEngine.dither(pixels, width, height, width, 0, DitherMode.ATKINSON);
+    double coverage = (double) countDots(atkinson, 0, height) / (width * height);
+    assertTrue("ATKINSON " + coverage, coverage > 0.3 && coverage < 0.6);
+  }
+
+  @Test
+  public void keepsPureBlackAndWhite() {
+    for (DitherMode mode : DitherMode.values()) {
+      RasterImage black = DitherEngine.dither(solid(64, 200, 0), 64, 200, 64, 0, mode);
+      RasterImage white = DitherEngine.dither(solid(64, 200, 0xFF), 64, 200, 64, 0, mode);
+
+      assertEquals(mode.name(), 64 * 200, countDots(black, 0, 200));
+      assertEquals(mode.name(), 0, countDots(white, 0, 200));
+    }
+  }
+
+  @Test
+  public void hidesBandSeams() {
+    int width = 256;
+    int height = 512;
+
+    // Light grays need error carried across the seam, or the first rows of a band stay blank
+    int[][] cases = {{0xB0, DitherMode.FLOYD_STEINBERG.ordinal()}, {0xE0, DitherMode.FLOYD_STEINBERG.ordinal()},
+      {0xB0, DitherMode.ATKINSON.ordinal()}};
+    for (int[] testCase : cases) {
+      DitherMode mode = DitherMode.values()[testCase[1]];
+      RasterImage image = DitherEngine.dither(solid(width, height, testCase[0]), width, height, width, 0, mode);
+      double overall = (double) countDots(image, 0, height) / height;
+
+      for (int seam = 64; seam < height; seam += 64) {
+        String name = mode.name() + " level " + testCase[0] + " seam " + seam;
+        assertTrue(name, countDots(image, seam, seam + 1) > 0);
+        assertEquals(name, overall, (double) countDots(image, seam, seam + 4) / 4, overall * 0.2);
+      }
+    }
+  }
+
+  @Test
+  public void producesTheSameOutputOnEveryRun() {
+    int width = 320;
+    int height = 700;
+    int[] pixels = horizontalGradient(width, height);
+
+    for (DitherMode mode : DitherMode.values()) {
+      byte[] first = DitherEngine.dither(pixels, width, height, DOT_WIDTH, 128, mode).getData();
+      for (int run = 0; run < 5; run++) {
+        assertArrayEquals(mode.name(), first, DitherEngine.dither(pixels, width, height, DOT_WIDTH, 128, mode).getData());
+      }
+    }
+  }
+
+  @Test
+  public void placesImageAtLeftOffset() {
+    int[] pixels = solid(16, 4, 0);
+
+    RasterImage image = DitherEngine.dither(pixels, 16, 4, 32, 12, DitherMode.FLOYD_STEINBERG);
+
+    byte[] expectedRow = {0x00, 0x0F, (byte) 0xFF, (byte) 0xF0};
+    for (int y = 0; y < 4; y++) {
+      assertArrayEquals(expectedRow, Arrays.copyOfRange(image.getData(), y * 4, y * 4 + 4));
+    }
+  }
+
+  private static int[] solid(int width, int height, int level) {
+    int[] pixels = new int[width * height];
+    Arrays.fill(pixels, 0xFF000000 | (level << 16) | (level << 8) | level);
+    return pixels;
+  }
+
+  @Test
+  public void parsesDitherModesIgnoringCase() {
+    assertEquals(DitherMode.FLOYD_STEINBERG, DitherEngine.parseDitherMode("FLOYD_STEINBERG"));
+    assertEquals(DitherMode.ATKINSON, DitherEngine.parseDitherMode("atkinson"));
+    assertEquals(DitherMode.BAYER, DitherEngine.parseDitherMode("Bayer"));
+    assertEquals(DitherMode.THRESHOLD, DitherEngine.parseDitherMode("threshold"));
+  }
+
+  @Test
+  public void unknownDitherModesFallBackToThreshold() {
+    assertEquals(DitherMode.THRESHOLD, DitherEngine.parseDitherMode("SIERRA"));
+    assertEquals(DitherMode.THRESHOLD, DitherEngine.parseDitherMode(""));
+    assertEquals(DitherMode.THRESHOLD, DitherEngine.parseDitherMode(null));
+  }
+
+  private static int[] horizontalGradient(int width, int height) {
+    int[] pixels = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int level = x * 255 / (width - 1);
+        pixels[y * width + x] = 0xFF000000 | (level << 16) | (level << 8) | level;
+      }
+    }
+    return pixels;
+  }
+
+  private static int countDots(RasterImage image, int fromRow, int toRow) {
+    int count = 0;
+    byte[] data = image.getData();
+    for (int i = fromRow * image.getWidthBytes(); i < toRow * image.getWidthBytes(); i++) {
+      count += Integer.bitCount(data[i] & 0xFF);
+    }
+    return count;
+  }
+}
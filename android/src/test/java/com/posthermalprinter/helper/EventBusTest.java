@@ -0,0 +1,58 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the deduplication and rate limits of {@link EventBus}.
+ */
+public class EventBusTest {
+
+  private final List<String> emitted = Collections.synchronizedList(new ArrayList<>());
+  private final EventBus bus = new EventBus((event, params) -> emitted.add(event + ":" + params));
+
+  @Test
+  public void emitsEventsWithoutPolicyAsPosted() {
+    for (int i = 0; i < 3; i++) {
+      bus.post("PrePrintCheck", i);
+    }
+
+    assertEquals(3, emitted.size());
+  }
+
+  @Test
+  public void reportsEachOutageOnce() {
+    bus.configure("PrinterUnreachable", new EventBus.Policy(true, 0));
+
+    for (int i = 0; i < 10; i++) {
+      bus.post("PrinterUnreachable", "10.0.0.5", "UNREACHABLE", "10.0.0.5");
+      bus.post("PrinterUnreachable", "10.0.0.6", "UNREACHABLE", "10.0.0.6");
+    }
+    bus.resetState("PrinterUnreachable", "10.0.0.5");
+    bus.post("PrinterUnreachable", "10.0.0.5", "UNREACHABLE", "10.0.0.5");
+
+    assertEquals(3, emitted.size());
+    assertEquals(18, bus.getDropped());
+  }
+
+  @Test
+  public void coalescesBurstsIntoOneTrailingEmit() throws InterruptedException {
+    bus.configure("PrePrintCheck", new EventBus.Policy(false, 100));
+
+    for (int i = 0; i < 50; i++) {
+      bus.post("PrePrintCheck", "", null, i);
+    }
+    assertEquals(Collections.singletonList("PrePrintCheck:0"), emitted);
+
+    Thread.sleep(300);
+    assertEquals(2, emitted.size());
+    // The trailing emit carries the latest parameters
+    assertEquals("PrePrintCheck:49", emitted.get(1));
+    assertEquals(48, bus.getCoalesced());
+  }
+}
@@ -0,0 +1,136 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the lanes and statistics of {@link ExecutorRegistry}.
+ */
+public class ExecutorRegistryTest {
+
+  private final ExecutorRegistry executors = ExecutorRegistry.getInstance();
+
+  @Test
+  public void serialLaneRunsTasksInOrder() throws InterruptedException {
+    ExecutorRegistry.Lane lane = executors.lane("test-serial", 1, 1000);
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(200);
+
+    for (int i = 0; i < 200; i++) {
+      int task = i;
+      lane.execute(() -> {
+        order.add(task);
+        done.countDown();
+      });
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 200; i++) {
+      assertEquals(i, (int) order.get(i));
+    }
+  }
+
+  @Test
+  public void laneLimitsConcurrency() throws InterruptedException {
+    ExecutorRegistry.Lane lane = executors.lane("test-concurrency", 3, 1000);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger peak = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(30);
+
+    for (int i = 0; i < 30; i++) {
+      lane.execute(() -> {
+        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        done.countDown();
+      });
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertTrue("peak " + peak.get(), peak.get() <= 3);
+  }
+
+  @Test
+  public void laneRunsTheTasksBehindATaskThatThrowsAnError() throws InterruptedException {
+    ExecutorRegistry.Lane lane = executors.lane("test-error", 1, 100);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(3);
+    lane.execute(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new AssertionError("Task failed with an error");
+    });
+    for (int i = 0; i < 3; i++) {
+      lane.execute(done::countDown);
+    }
+    release.countDown();
+
+    // No further submission is needed to run the waiting tasks
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void fullLaneRejectsTasks() throws InterruptedException {
+    ExecutorRegistry.Lane lane = executors.lane("test-full", 1, 2);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    lane.execute(() -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    lane.execute(() -> { });
+    lane.execute(() -> { });
+
+    try {
+      lane.execute(() -> { });
+      fail("Expected the full lane to reject the task");
+    } catch (RejectedExecutionException expected) {
+      // The running task and two waiting ones fill the lane
+    }
+
+    ExecutorRegistry.PoolStats stats = lane.getStats();
+    assertEquals(1, stats.active);
+    assertEquals(2, stats.queued);
+    assertEquals(1, stats.rejected);
+    release.countDown();
+  }
+
+  @Test
+  public void threadCountStaysBoundedUnderLoad() throws InterruptedException {
+    ExecutorRegistry.Lane lane = executors.lane("test-load", 4, 10_000);
+    CountDownLatch done = new CountDownLatch(2000);
+    for (int i = 0; i < 2000; i++) {
+      lane.execute(done::countDown);
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+
+    for (ExecutorRegistry.PoolStats stats : executors.getStats()) {
+      if (stats.name.equals("io")) {
+        assertTrue(stats.toString(), stats.threads <= ExecutorRegistry.IO_MAX_THREADS);
+      }
+    }
+  }
+}
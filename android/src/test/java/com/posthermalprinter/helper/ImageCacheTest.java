@@ -0,0 +1,169 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link ImageCache} against a local HTTP server.
+ */
+public class ImageCacheTest {
+
+  private static final byte[] IMAGE = "image-bytes".getBytes(StandardCharsets.US_ASCII);
+  private static final String ETAG = "\"v1\"";
+
+  private HttpServer server;
+  private File directory;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger notModified = new AtomicInteger();
+  private volatile long responseDelay;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/logo.png", exchange -> {
+      requests.incrementAndGet();
+      try {
+        Thread.sleep(responseDelay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModified.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+
+      exchange.getResponseHeaders().add("ETag", ETAG);
+      exchange.sendResponseHeaders(200, IMAGE.length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(IMAGE);
+      }
+    });
+    server.start();
+
+    directory = new File(System.getProperty("java.io.tmpdir"), "image-cache-test-" + System.nanoTime());
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  private String url() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/logo.png";
+  }
+
+  @Test
+  public void servesFreshImagesFromMemory() throws IOException {
+    ImageCache cache = new ImageCache(directory, 1024, 1024, 60_000);
+
+    assertArrayEquals(IMAGE, cache.get(url()));
+    assertArrayEquals(IMAGE, cache.get(url()));
+
+    assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void revalidatesStaleImagesWithETag() throws IOException {
+    ImageCache cache = new ImageCache(directory, 1024, 1024, 0);
+
+    assertArrayEquals(IMAGE, cache.get(url()));
+    assertArrayEquals(IMAGE, cache.get(url()));
+
+    assertEquals(2, requests.get());
+    assertEquals(1, notModified.get());
+  }
+
+  @Test
+  public void sharesConcurrentDownloadsOfTheSameUrl() throws Exception {
+    ImageCache cache = new ImageCache(directory, 1024, 1024, 60_000);
+    responseDelay = 300;
+
+    int callers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<byte[]>> results = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        return cache.get(url());
+      }));
+    }
+    start.countDown();
+
+    for (Future<byte[]> result : results) {
+      assertArrayEquals(IMAGE, result.get());
+    }
+    executor.shutdown();
+
+    assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void servesCachedCopyWhenServerIsUnreachable() throws IOException {
+    ImageCache cache = new ImageCache(directory, 1024, 1024, 0);
+    String url = url();
+
+    assertArrayEquals(IMAGE, cache.get(url));
+    server.stop(0);
+
+    assertArrayEquals(IMAGE, cache.get(url));
+  }
+
+  @Test
+  public void reloadsImagesFromDisk() throws IOException {
+    String url = url();
+    new ImageCache(directory, 1024, 1024, 60_000).get(url);
+    server.stop(0);
+
+    ImageCache restarted = new ImageCache(directory, 1024, 1024, 60_000);
+
+    assertArrayEquals(IMAGE, restarted.get(url));
+    assertEquals(1, requests.get());
+  }
+
+  @Test
+  public void keepsDiskCacheWithinItsLimit() throws IOException {
+    ImageCache cache = new ImageCache(directory, 0, IMAGE.length, 60_000);
+
+    cache.get(url());
+    cache.get(url() + "?size=2");
+
+    long total = 0;
+    File[] files = directory.listFiles((dir, name) -> !name.endsWith(".meta"));
+    for (File file : files) {
+      total += file.length();
+    }
+    assertTrue(total <= IMAGE.length);
+  }
+}
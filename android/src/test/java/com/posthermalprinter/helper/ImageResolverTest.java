@@ -0,0 +1,153 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.FontSize;
+import com.posthermalprinter.util.PrintItem;
+import com.posthermalprinter.util.TextAlignment;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests how {@link ImageResolver} downloads images and falls back, against a local HTTP server.
+ */
+public class ImageResolverTest {
+
+  private static final byte[] IMAGE = "resolver-image-bytes".getBytes(StandardCharsets.US_ASCII);
+  private static final long SLOW_RESPONSE_MILLIS = 2000;
+
+  private HttpServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/logo.png", exchange -> {
+      exchange.sendResponseHeaders(200, IMAGE.length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(IMAGE);
+      }
+    });
+    server.createContext("/missing.png", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.createContext("/slow.png", exchange -> {
+      try {
+        Thread.sleep(SLOW_RESPONSE_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.sendResponseHeaders(200, IMAGE.length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(IMAGE);
+      }
+    });
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  private static PrintItem image(String url, long timeoutMillis, String fallbackText) {
+    PrintItem item = new PrintItem(PrintItem.Type.IMAGE, url, true, TextAlignment.CENTER, 0, new ArrayList<>(),
+      FontSize.WIDE, 0);
+    item.setImageResolution(timeoutMillis, fallbackText);
+    return item;
+  }
+
+  private static PrintItem text(String text) {
+    return new PrintItem(PrintItem.Type.TEXT, text, false, TextAlignment.LEFT, 0, new ArrayList<>(), FontSize.NORMAL, 0);
+  }
+
+  @Test
+  public void downloadedImageIsSetOnItsItem() throws Exception {
+    PrintItem logo = image(url("/logo.png"), ImageResolver.DEFAULT_TIMEOUT_MILLIS, "Cafe");
+    List<PrintItem> items = new ArrayList<>(Arrays.asList(text("Header"), logo));
+
+    ImageResolver.getInstance().resolve(items).get(5, TimeUnit.SECONDS);
+
+    assertSame(logo, items.get(1));
+    assertArrayEquals(IMAGE, logo.getImageData());
+    assertEquals(DiskCache.sha256(IMAGE), logo.getImageHash());
+  }
+
+  @Test
+  public void failedImageIsReplacedByItsFallbackText() throws Exception {
+    List<PrintItem> items = new ArrayList<>(Arrays.asList(
+      text("Header"), image(url("/missing.png"), ImageResolver.DEFAULT_TIMEOUT_MILLIS, "Cafe"), text("Footer")));
+
+    ImageResolver.getInstance().resolve(items).get(5, TimeUnit.SECONDS);
+
+    PrintItem fallback = items.get(1);
+    assertEquals(3, items.size());
+    assertEquals(PrintItem.Type.TEXT, fallback.getType());
+    assertEquals("Cafe", fallback.getText());
+    // The text keeps the look of the image row
+    assertTrue(fallback.isBold());
+    assertEquals(TextAlignment.CENTER, fallback.getAlignment());
+    assertEquals(FontSize.WIDE, fallback.getFontSize());
+  }
+
+  @Test
+  public void failedImageWithoutFallbackTextIsLeftUnresolved() throws Exception {
+    PrintItem logo = image(url("/missing.png"), ImageResolver.DEFAULT_TIMEOUT_MILLIS, null);
+    List<PrintItem> items = new ArrayList<>(Arrays.asList(logo));
+
+    ImageResolver.getInstance().resolve(items).get(5, TimeUnit.SECONDS);
+
+    assertSame(logo, items.get(0));
+    assertNull(logo.getImageData());
+  }
+
+  @Test
+  public void slowImageFallsBackAtItsTimeout() throws Exception {
+    long timeoutMillis = 200;
+    List<PrintItem> items = new ArrayList<>(Arrays.asList(
+      image(url("/slow.png"), timeoutMillis, "Cafe"), image(url("/logo.png?timeout"), timeoutMillis, "Logo")));
+    long start = System.nanoTime();
+
+    ImageResolver.getInstance().resolve(items).get(5, TimeUnit.SECONDS);
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("Resolved after " + elapsedMillis + " ms", elapsedMillis >= timeoutMillis);
+    assertTrue("Resolved after " + elapsedMillis + " ms", elapsedMillis < SLOW_RESPONSE_MILLIS);
+    assertEquals(PrintItem.Type.TEXT, items.get(0).getType());
+    assertEquals("Cafe", items.get(0).getText());
+    // The fast image of the same job is not held back by the slow one
+    assertArrayEquals(IMAGE, items.get(1).getImageData());
+  }
+
+  @Test
+  public void jobWithoutImagesToDownloadIsReadyAtOnce() {
+    PrintItem resolved = image("https://example.com/logo.png", ImageResolver.DEFAULT_TIMEOUT_MILLIS, null);
+    resolved.setImageData(IMAGE, DiskCache.sha256(IMAGE));
+    List<PrintItem> items = new ArrayList<>(Arrays.asList(text("Header"), resolved, image("", 100, "Cafe")));
+
+    assertTrue(ImageResolver.getInstance().resolve(items).isDone());
+    assertEquals(PrintItem.Type.IMAGE, items.get(2).getType());
+  }
+}
@@ -0,0 +1,89 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.posthermalprinter.util.BarcodeType;
+import com.posthermalprinter.util.FontSize;
+import com.posthermalprinter.util.PrintItem;
+import com.posthermalprinter.util.PrinterJob;
+import com.posthermalprinter.util.TextAlignment;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tests the jobs built by {@link PrintJobBuilder} and their completion.
+ */
+public class PrintJobBuilderTest {
+
+  @Test
+  public void buildsJobsWithTheRowsInOrder() {
+    PrintJobBuilder builder = new PrintJobBuilder("192.168.1.50", "NETWORK")
+      .metadata("{\"type\":\"RECEIPT\"}")
+      .text("Payment approved", TextAlignment.CENTER, FontSize.BIG, true)
+      .barcode(BarcodeType.CODE128, "TX-1042", TextAlignment.CENTER)
+      .feed(2)
+      .cut();
+
+    PrinterJob job = builder.build();
+
+    assertEquals("192.168.1.50", job.getTargetPrinterIp());
+    assertEquals("{\"type\":\"RECEIPT\"}", job.getMetadata());
+    assertEquals(4, job.getJobContent().size());
+    PrintItem text = job.getJobContent().get(0);
+    assertEquals(PrintItem.Type.TEXT, text.getType());
+    assertTrue(text.isBold());
+    assertEquals(FontSize.BIG, text.getFontSize());
+    assertEquals(PrintItem.Type.CUT, job.getJobContent().get(3).getType());
+
+    // Every build is a separate job
+    PrinterJob next = builder.build();
+    assertFalse(job.getJobId().equals(next.getJobId()));
+  }
+
+  @Test
+  public void routesInternalJobsToTheInternalPrinter() {
+    PrinterJob job = new PrintJobBuilder(null, "INTERNAL").text("Hello").build();
+
+    assertEquals("INTERNAL", job.getTargetPrinterIp());
+    assertEquals("{}", job.getMetadata());
+  }
+
+  @Test
+  public void rejectsEmptyJobsAndInvalidBarcodes() {
+    try {
+      new PrintJobBuilder("192.168.1.50", "NETWORK").build();
+      fail("Expected a job without rows to be rejected");
+    } catch (IllegalStateException expected) {
+      // An empty job would only print the initialize command
+    }
+
+    try {
+      new PrintJobBuilder("192.168.1.50", "NETWORK").barcode(BarcodeType.EAN13, "ABC", TextAlignment.LEFT);
+      fail("Expected invalid barcode data to be rejected");
+    } catch (IllegalArgumentException expected) {
+      // Invalid data fails when the row is added rather than when it is printed
+    }
+  }
+
+  @Test
+  public void completesWithTheFirstOutcome() throws Exception {
+    PrinterJob job = new PrintJobBuilder("192.168.1.50", "NETWORK").text("Hello").build();
+    CompletableFuture<Boolean> completion = job.getCompletion();
+    assertFalse(completion.isDone());
+
+    job.complete(true);
+    job.complete(false);
+
+    assertTrue(completion.get());
+
+    // A future requested after the outcome is already complete
+    PrinterJob cancelled = new PrintJobBuilder("192.168.1.50", "NETWORK").text("Hello").build();
+    cancelled.complete(false);
+    assertFalse(cancelled.getCompletion().get());
+  }
+}
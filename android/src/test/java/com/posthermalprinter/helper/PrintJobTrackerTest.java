@@ -0,0 +1,114 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.PrinterJob;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the events of {@link PrintJobTracker} and their batching.
+ */
+public class PrintJobTrackerTest {
+
+  private static final PrintJobTracker.Stage[] LIFECYCLE = {
+    PrintJobTracker.Stage.QUEUED,
+    PrintJobTracker.Stage.CONNECTING,
+    PrintJobTracker.Stage.RENDERING,
+    PrintJobTracker.Stage.SENDING,
+    PrintJobTracker.Stage.SENT,
+  };
+
+  /**
+   * Records the batches it receives.
+   */
+  private static class RecordingSink implements CoalescingEmitter.Sink<PrintJobTracker.Event> {
+    final List<List<PrintJobTracker.Event>> batches = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch received;
+
+    RecordingSink(int events) {
+      received = new CountDownLatch(events);
+    }
+
+    @Override
+    public void emit(List<PrintJobTracker.Event> events) {
+      batches.add(events);
+      for (int i = 0; i < events.size(); i++) {
+        received.countDown();
+      }
+    }
+  }
+
+  private static PrinterJob job(String id) {
+    return new PrinterJob(new ArrayList<>(), "192.168.1.50", "PrinterName_192.168.1.50", "{}", id);
+  }
+
+  @Test
+  public void batchesTheStagesOfManyJobs() throws InterruptedException {
+    int jobs = 200;
+    RecordingSink sink = new RecordingSink(jobs * LIFECYCLE.length);
+    PrintJobTracker tracker = new PrintJobTracker(50, sink);
+
+    for (int i = 0; i < jobs; i++) {
+      PrinterJob job = job("PJ-" + i);
+      for (PrintJobTracker.Stage stage : LIFECYCLE) {
+        tracker.record(job, stage);
+      }
+    }
+
+    assertTrue(sink.received.await(5, TimeUnit.SECONDS));
+    assertTrue("batches " + sink.batches.size(), sink.batches.size() <= 5);
+
+    List<PrintJobTracker.Event> events = new ArrayList<>();
+    for (List<PrintJobTracker.Event> batch : sink.batches) {
+      events.addAll(batch);
+    }
+    for (int i = 0; i < events.size(); i++) {
+      PrintJobTracker.Event event = events.get(i);
+      assertEquals("PJ-" + i / LIFECYCLE.length, event.jobId);
+      assertEquals(LIFECYCLE[i % LIFECYCLE.length], event.stage);
+    }
+  }
+
+  @Test
+  public void reportsStageDurationsWhenTheJobEnds() throws InterruptedException {
+    RecordingSink sink = new RecordingSink(4);
+    PrintJobTracker tracker = new PrintJobTracker(10, sink);
+    PrinterJob job = job("PJ-1");
+
+    tracker.record(job, PrintJobTracker.Stage.QUEUED);
+    tracker.record(job, PrintJobTracker.Stage.CONNECTING);
+    Thread.sleep(30);
+    tracker.record(job, PrintJobTracker.Stage.CONNECTING);
+    tracker.record(job, PrintJobTracker.Stage.FAILED, "Connection refused");
+    // Stages after the end of a job are ignored
+    tracker.record(job, PrintJobTracker.Stage.SENDING);
+    tracker.flush();
+
+    assertTrue(sink.received.await(5, TimeUnit.SECONDS));
+    List<PrintJobTracker.Event> events = new ArrayList<>();
+    for (List<PrintJobTracker.Event> batch : sink.batches) {
+      events.addAll(batch);
+    }
+    assertEquals(4, events.size());
+    assertNull(events.get(2).durations);
+    assertEquals(2, events.get(2).attempt);
+    assertTrue(events.get(2).stageMillis >= 25);
+
+    PrintJobTracker.Event failed = events.get(3);
+    assertEquals(PrintJobTracker.Stage.FAILED, failed.stage);
+    assertEquals("Connection refused", failed.error);
+    assertNotNull(failed.durations);
+    assertTrue(failed.durations.get(PrintJobTracker.Stage.CONNECTING) >= 25);
+    assertTrue(failed.totalMillis >= failed.durations.get(PrintJobTracker.Stage.CONNECTING));
+  }
+}
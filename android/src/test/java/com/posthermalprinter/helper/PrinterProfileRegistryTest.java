@@ -0,0 +1,74 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.PrinterProfile;
+
+import org.junit.Test;
+
+/**
+ * Tests how {@link PrinterProfileRegistry} looks up, defaults and overrides printer profiles.
+ * The registry is shared, so each test configures printers of its own.
+ */
+public class PrinterProfileRegistryTest {
+
+  private final PrinterProfileRegistry registry = PrinterProfileRegistry.getInstance();
+
+  @Test
+  public void unconfiguredNetworkPrinterUsesThe80mmProfile() {
+    assertSame(PrinterProfile.PRINTER_80MM, registry.get("192.168.1.200"));
+    assertSame(PrinterProfile.PRINTER_80MM, registry.get(null));
+  }
+
+  @Test
+  public void internalPrinterDefaultsToAnIminProfile() {
+    PrinterProfile profile = registry.get("INTERNAL");
+
+    assertTrue(profile == PrinterProfile.IMIN_80MM || profile == PrinterProfile.IMIN_58MM);
+  }
+
+  @Test
+  public void configuredProfileIsLookedUpByPrinter() {
+    PrinterProfile selected = registry.configure("192.168.1.201", PrinterProfile.PRINTER_58MM);
+
+    assertSame(PrinterProfile.PRINTER_58MM, selected);
+    assertSame(PrinterProfile.PRINTER_58MM, registry.get("192.168.1.201"));
+    // Other printers keep their default
+    assertSame(PrinterProfile.PRINTER_80MM, registry.get("192.168.1.202"));
+  }
+
+  @Test
+  public void printerAddedWithoutAProfileGetsTheDefault() {
+    assertSame(PrinterProfile.PRINTER_80MM, registry.configure("192.168.1.203", null));
+    assertSame(PrinterProfile.PRINTER_80MM, registry.get("192.168.1.203"));
+  }
+
+  @Test
+  public void overrideIsKeptWhenThePrinterIsAddedAgainWithoutAProfile() {
+    registry.configure("192.168.1.204", PrinterProfile.PRINTER_58MM);
+
+    assertSame(PrinterProfile.PRINTER_58MM, registry.configure("192.168.1.204", null));
+    assertSame(PrinterProfile.PRINTER_58MM, registry.get("192.168.1.204"));
+  }
+
+  @Test
+  public void laterOverrideReplacesTheEarlierOne() {
+    PrinterProfile custom = new PrinterProfile("CUSTOM", 512, 42, 56, PrinterProfile.PRINTER_80MM.getCodePages(),
+      false, true, 1024, 100, 180);
+    registry.configure("192.168.1.205", PrinterProfile.PRINTER_58MM);
+
+    registry.configure("192.168.1.205", custom);
+
+    assertSame(custom, registry.get("192.168.1.205"));
+  }
+
+  @Test
+  public void presetsAreFoundByName() {
+    assertSame(PrinterProfile.PRINTER_58MM, PrinterProfile.forName("58mm"));
+    assertSame(PrinterProfile.IMIN_80MM, PrinterProfile.forName("IMIN_80MM"));
+    assertNull(PrinterProfile.forName("112MM"));
+  }
+}
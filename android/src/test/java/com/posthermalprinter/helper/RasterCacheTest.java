@@ -0,0 +1,144 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.posthermalprinter.util.PrinterProfile;
+import com.posthermalprinter.util.TextAlignment;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests hits, misses, eviction and key separation of {@link RasterCache}.
+ */
+public class RasterCacheTest {
+
+  private static final String HASH = "3f2a9c";
+
+  private File directory;
+
+  @Before
+  public void setUp() {
+    directory = new File(System.getProperty("java.io.tmpdir"), "raster-cache-test-" + System.nanoTime());
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+
+  private static String key(String hash) {
+    return RasterCache.key(hash, 100, TextAlignment.CENTER, 576, 203, "THRESHOLD");
+  }
+
+  private static byte[] raster(int size, int value) {
+    byte[] raster = new byte[size];
+    Arrays.fill(raster, (byte) value);
+    return raster;
+  }
+
+  @Test
+  public void countsHitsAndMisses() {
+    RasterCache cache = new RasterCache(null, 1024, 0);
+    byte[] raster = raster(64, 1);
+
+    assertNull(cache.get(key(HASH)));
+    cache.put(key(HASH), raster);
+
+    assertArrayEquals(raster, cache.get(key(HASH)));
+    assertNull(cache.get(key("other")));
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedRaster() {
+    RasterCache cache = new RasterCache(null, 300, 0);
+    cache.put(key("a"), raster(100, 1));
+    cache.put(key("b"), raster(100, 2));
+    cache.put(key("c"), raster(100, 3));
+    // Reading "a" makes "b" the least recently used
+    cache.get(key("a"));
+
+    cache.put(key("d"), raster(100, 4));
+
+    assertNull(cache.get(key("b")));
+    assertArrayEquals(raster(100, 1), cache.get(key("a")));
+    assertArrayEquals(raster(100, 3), cache.get(key("c")));
+    assertArrayEquals(raster(100, 4), cache.get(key("d")));
+  }
+
+  @Test
+  public void rasterLargerThanTheMemoryLimitIsNotKept() {
+    RasterCache cache = new RasterCache(null, 100, 0);
+    cache.put(key("small"), raster(50, 1));
+
+    cache.put(key("large"), raster(101, 2));
+
+    assertNull(cache.get(key("large")));
+    assertArrayEquals(raster(50, 1), cache.get(key("small")));
+  }
+
+  @Test
+  public void evictedRasterIsReadBackFromDisk() {
+    RasterCache cache = new RasterCache(directory, 100, 4096);
+    cache.put(key("a"), raster(100, 1));
+    cache.put(key("b"), raster(100, 2));
+
+    // "a" left memory when "b" was stored
+    assertArrayEquals(raster(100, 1), cache.get(key("a")));
+    assertEquals(1, cache.getHits());
+
+    RasterCache reopened = new RasterCache(directory, 100, 4096);
+    assertArrayEquals(raster(100, 2), reopened.get(key("b")));
+  }
+
+  @Test
+  public void everyRasterSettingHasItsOwnKey() {
+    List<String> keys = Arrays.asList(
+      RasterCache.key(HASH, 100, TextAlignment.CENTER, 576, 203, "THRESHOLD"),
+      RasterCache.key("4b1d07", 100, TextAlignment.CENTER, 576, 203, "THRESHOLD"),
+      RasterCache.key(HASH, 50, TextAlignment.CENTER, 576, 203, "THRESHOLD"),
+      RasterCache.key(HASH, 100, TextAlignment.LEFT, 576, 203, "THRESHOLD"),
+      RasterCache.key(HASH, 100, TextAlignment.CENTER, 384, 203, "THRESHOLD"),
+      RasterCache.key(HASH, 100, TextAlignment.CENTER, 576, 180, "THRESHOLD"),
+      RasterCache.key(HASH, 100, TextAlignment.CENTER, 576, 203, "FLOYD_STEINBERG"));
+
+    Set<String> distinct = new HashSet<>(keys);
+
+    assertEquals(keys.size(), distinct.size());
+  }
+
+  @Test
+  public void printersWithOtherFeedUnitsDoNotShareRasters() {
+    PrinterProfile coarse = new PrinterProfile("COARSE", 576, 48, 64, PrinterProfile.PRINTER_80MM.getCodePages(),
+      false, false, 4096, 150, 180);
+    RasterCache cache = new RasterCache(null, 1024, 0);
+    String fineKey = RasterCache.key(HASH, 100, TextAlignment.CENTER, PrinterProfile.PRINTER_80MM.getDotWidth(),
+      PrinterProfile.PRINTER_80MM.getVerticalMotionUnits(), "THRESHOLD");
+    String coarseKey = RasterCache.key(HASH, 100, TextAlignment.CENTER, coarse.getDotWidth(),
+      coarse.getVerticalMotionUnits(), "THRESHOLD");
+
+    // The ESC J feeds between bands are encoded in the printer's units
+    cache.put(fineKey, raster(64, 1));
+
+    assertFalse(fineKey.equals(coarseKey));
+    assertNull(cache.get(coarseKey));
+  }
+}
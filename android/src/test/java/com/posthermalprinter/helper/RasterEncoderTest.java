@@ -0,0 +1,246 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.posthermalprinter.util.PrinterProfile;
+import com.posthermalprinter.util.RasterImage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the raster packer of {@link RasterEncoder} against a per-pixel reference of the
+ * canvas based path it replaces. The Canvas and printer SDK calls themselves need a device.
+ */
+public class RasterEncoderTest {
+
+  private static final int BLACK = 0xFF000000;
+  private static final int WHITE = 0xFFFFFFFF;
+  private static final int DOT_WIDTH = 576;
+
+  @Test
+  public void packsPixelsMostSignificantBitFirst() {
+    int[] pixels = {BLACK, WHITE, WHITE, WHITE, WHITE, WHITE, WHITE, BLACK, BLACK};
+
+    RasterImage image = RasterEncoder.pack(pixels, 9, 1, 16, 0);
+
+    assertEquals(2, image.getWidthBytes());
+    assertArrayEquals(new byte[]{(byte) 0x81, (byte) 0x80}, image.getData());
+  }
+
+  @Test
+  public void offsetsImageByBits() {
+    int[] pixels = {BLACK, BLACK, BLACK, BLACK};
+
+    RasterImage image = RasterEncoder.pack(pixels, 4, 1, 16, 6);
+
+    assertArrayEquals(new byte[]{0x03, (byte) 0xC0}, image.getData());
+  }
+
+  @Test
+  public void clipsImageAtRightEdge() {
+    int[] pixels = {BLACK, BLACK, BLACK, BLACK};
+
+    RasterImage image = RasterEncoder.pack(pixels, 4, 1, 8, 6);
+
+    assertArrayEquals(new byte[]{0x03}, image.getData());
+  }
+
+  @Test
+  public void treatsTransparentPixelsAsPaper() {
+    int[] pixels = {0x00000000, 0x40000000, 0xC0000000, BLACK};
+
+    RasterImage image = RasterEncoder.pack(pixels, 4, 1, 8, 0);
+
+    assertArrayEquals(new byte[]{0x30}, image.getData());
+  }
+
+  @Test
+  public void trimsWhiteBytesOnTheRight() {
+    RasterImage image = new RasterImage(4, 2, new byte[]{0, 0x01, 0, 0, 0, 0, (byte) 0x80, 0});
+
+    RasterImage trimmed = RasterEncoder.trimRight(image);
+
+    assertEquals(3, trimmed.getWidthBytes());
+    assertArrayEquals(new byte[]{0, 0x01, 0, 0, 0, (byte) 0x80}, trimmed.getData());
+  }
+
+  @Test
+  public void keepsOneByteOfBlankRasters() {
+    RasterImage trimmed = RasterEncoder.trimRight(new RasterImage(72, 3, new byte[216]));
+
+    assertEquals(1, trimmed.getWidthBytes());
+    assertEquals(3, trimmed.getHeight());
+  }
+
+  @Test
+  public void replacesWhiteRowsWithFeeds() {
+    // 20 white rows, 2 ink rows, 30 white rows, 1 ink row, 10 white rows
+    RasterImage image = rasterWithInkRows(4, 63, 20, 21, 52);
+
+    byte[] commands = RasterEncoder.toRasterCommands(image, PrinterProfile.PRINTER_80MM, false);
+
+    byte[] expected = concat(
+      new byte[]{0x1B, 0x4A, 20},
+      new byte[]{0x1D, 0x76, 0x30, 0, 4, 0, 2, 0}, new byte[]{(byte) 0x80, 0, 0, 0, (byte) 0x80, 0, 0, 0},
+      new byte[]{0x1B, 0x4A, 30},
+      new byte[]{0x1D, 0x76, 0x30, 0, 4, 0, 1, 0}, new byte[]{(byte) 0x80, 0, 0, 0},
+      new byte[]{0x1B, 0x4A, 10});
+    assertArrayEquals(expected, commands);
+  }
+
+  @Test
+  public void keepsShortWhiteRunsInTheRaster() {
+    RasterImage image = rasterWithInkRows(72, 5, 0, 4);
+
+    byte[] commands = RasterEncoder.toRasterCommands(image, PrinterProfile.PRINTER_80MM, true);
+
+    // One raster of 5 rows trimmed to 1 byte per row
+    assertArrayEquals(new byte[]{0x1D, 0x76, 0x30, 0, 1, 0, 5, 0, (byte) 0x80, 0, 0, 0, (byte) 0x80}, commands);
+  }
+
+  @Test
+  public void splitsLongFeeds() {
+    RasterImage image = new RasterImage(72, 600, new byte[72 * 600]);
+
+    byte[] commands = RasterEncoder.toRasterCommands(image, PrinterProfile.PRINTER_80MM, true);
+
+    assertArrayEquals(new byte[]{0x1B, 0x4A, (byte) 255, 0x1B, 0x4A, (byte) 255, 0x1B, 0x4A, 90}, commands);
+  }
+
+  @Test
+  public void logoWithMarginsNeedsFewerBytes() {
+    // A 300x200 logo centered on the paper with 40 white rows above and below the artwork
+    int width = 300;
+    int height = 200;
+    int[] pixels = new int[width * height];
+    Arrays.fill(pixels, WHITE);
+    for (int y = 40; y < 160; y++) {
+      for (int x = 60; x < 240; x++) {
+        pixels[y * width + x] = (x / 6 + y / 6) % 2 == 0 ? BLACK : WHITE;
+      }
+    }
+    RasterImage image = RasterEncoder.pack(pixels, width, height, DOT_WIDTH, (DOT_WIDTH - width) / 2);
+
+    int full = RasterEncoder.toRasterCommand(image).length;
+    int reduced = RasterEncoder.toRasterCommands(image, PrinterProfile.PRINTER_80MM, true).length;
+
+    assertTrue(reduced + " of " + full + " bytes", reduced < full / 2);
+  }
+
+  @Test
+  public void matchesPerPixelReferenceForEveryAlignment() {
+    int width = 345;
+    int height = 120;
+    int[] pixels = randomPixels(width, height, 1);
+
+    for (int left : new int[]{0, (DOT_WIDTH - width) / 2, DOT_WIDTH - width}) {
+      RasterImage packed = RasterEncoder.pack(pixels, width, height, DOT_WIDTH, left);
+      assertArrayEquals("offset " + left, perPixelReference(pixels, width, height, DOT_WIDTH, left), packed.getData());
+    }
+  }
+
+  @Test
+  public void packsFasterThanThePerPixelReference() {
+    int width = 460;
+    int height = 300;
+    int[] pixels = randomPixels(width, height, 2);
+    int left = (DOT_WIDTH - width) / 2;
+    int rounds = 30;
+
+    // Warm up both paths before timing them
+    for (int i = 0; i < rounds; i++) {
+      perPixelReference(pixels, width, height, DOT_WIDTH, left);
+      RasterEncoder.pack(pixels, width, height, DOT_WIDTH, left);
+    }
+
+    long referenceStart = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      perPixelReference(pixels, width, height, DOT_WIDTH, left);
+    }
+    long referenceNanos = System.nanoTime() - referenceStart;
+
+    long packStart = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      RasterEncoder.pack(pixels, width, height, DOT_WIDTH, left);
+    }
+    long packNanos = System.nanoTime() - packStart;
+
+    assertTrue("packer " + packNanos + " ns, reference " + referenceNanos + " ns", packNanos < referenceNanos);
+  }
+
+  private static RasterImage rasterWithInkRows(int widthBytes, int height, int... inkRows) {
+    byte[] data = new byte[widthBytes * height];
+    for (int row : inkRows) {
+      data[row * widthBytes] = (byte) 0x80;
+    }
+    return new RasterImage(widthBytes, height, data);
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    int length = 0;
+    for (byte[] part : parts) {
+      length += part.length;
+    }
+    byte[] result = new byte[length];
+    int offset = 0;
+    for (byte[] part : parts) {
+      System.arraycopy(part, 0, result, offset, part.length);
+      offset += part.length;
+    }
+    return result;
+  }
+
+  /**
+   * Mirrors what the previous path computed: the image drawn onto a full width white canvas,
+   * then every canvas pixel thresholded and its bit set individually.
+   */
+  private static byte[] perPixelReference(int[] pixels, int width, int height, int widthDots, int left) {
+    int[] canvas = new int[widthDots * height];
+    Arrays.fill(canvas, WHITE);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width && left + x < widthDots; x++) {
+        canvas[y * widthDots + left + x] = overWhite(pixels[y * width + x]);
+      }
+    }
+
+    int widthBytes = (widthDots + 7) / 8;
+    byte[] data = new byte[widthBytes * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < widthDots; x++) {
+        int pixel = canvas[y * widthDots + x];
+        double gray = ((pixel >> 16) & 0xFF) * 0.299 + ((pixel >> 8) & 0xFF) * 0.587 + (pixel & 0xFF) * 0.114;
+        if ((int) gray < 128) {
+          data[y * widthBytes + x / 8] |= (byte) (0x80 >> (x % 8));
+        }
+      }
+    }
+    return data;
+  }
+
+  private static int overWhite(int argb) {
+    int alpha = argb >>> 24;
+    int red = 255 - (255 - ((argb >> 16) & 0xFF)) * alpha / 255;
+    int green = 255 - (255 - ((argb >> 8) & 0xFF)) * alpha / 255;
+    int blue = 255 - (255 - (argb & 0xFF)) * alpha / 255;
+    return 0xFF000000 | (red << 16) | (green << 8) | blue;
+  }
+
+  /**
+   * Creates opaque pixels that are either clearly dark or clearly light, so the packer and the reference agree
+   * regardless of rounding.
+   */
+  private static int[] randomPixels(int width, int height, long seed) {
+    Random random = new Random(seed);
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      int level = random.nextBoolean() ? random.nextInt(100) : 156 + random.nextInt(100);
+      pixels[i] = 0xFF000000 | (level << 16) | (level << 8) | level;
+    }
+    return pixels;
+  }
+}
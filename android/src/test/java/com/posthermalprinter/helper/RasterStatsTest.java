@@ -0,0 +1,42 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the raster byte counters read through the bridge.
+ */
+public class RasterStatsTest {
+
+  private final RasterStats stats = RasterStats.getInstance();
+
+  @Before
+  public void setUp() {
+    stats.reset();
+  }
+
+  @Test
+  public void addsUpTheImagesAndTheBytesSaved() {
+    stats.record(800, 200);
+    stats.record(200, 100);
+
+    assertEquals(2, stats.getImages());
+    assertEquals(1000, stats.getFullBytes());
+    assertEquals(300, stats.getSentBytes());
+    assertEquals(70.0, stats.getSavedPercentage(), 0.001);
+  }
+
+  @Test
+  public void resetClearsTheCounters() {
+    stats.record(800, 200);
+
+    stats.reset();
+
+    assertEquals(0, stats.getImages());
+    assertEquals(0, stats.getFullBytes());
+    assertEquals(0, stats.getSentBytes());
+    assertEquals(0.0, stats.getSavedPercentage(), 0.001);
+  }
+}
@@ -0,0 +1,138 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.posthermalprinter.util.PrinterJob;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests that {@link ReceiptTemplate} renders the same bytes as the equivalent print job.
+ */
+public class ReceiptTemplateTest {
+
+  private static final String PRINTER = "192.168.1.50";
+
+  private static JavaOnlyMap text(String text, String alignment) {
+    return JavaOnlyMap.of("type", "TEXT", "text", text, "alignment", alignment, "fontSize", "NORMAL");
+  }
+
+  private static JavaOnlyMap columns(String left, String right) {
+    return JavaOnlyMap.of("type", "COLUMN", "fontSize", "NORMAL", "columns", JavaOnlyArray.of(
+      JavaOnlyMap.of("text", left, "width", 32, "alignment", "LEFT"),
+      JavaOnlyMap.of("text", right, "width", 16, "alignment", "RIGHT")));
+  }
+
+  private static byte[] encode(ReadableArray rows) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintJobHandler.streamDataBeforeSend(PrintJobHandler.createPrintItems(rows), PRINTER, out::write);
+    return out.toByteArray();
+  }
+
+  private static byte[] render(ReceiptTemplate template, Map<String, ?> variables) throws Exception {
+    return template.render(variables, PRINTER, PrinterProfileRegistry.getInstance().get(PRINTER));
+  }
+
+  @Test
+  public void rendersLikeTheEquivalentPrintJob() throws Exception {
+    ReceiptTemplate template = ReceiptTemplate.parse(JavaOnlyArray.of(
+      text("Corner Cafe", "CENTER"),
+      text("Order {{order}} - {{table}}", "LEFT"),
+      JavaOnlyMap.of("type", "SECTION", "name", "items", "rows", JavaOnlyArray.of(
+        columns("{{qty}} x {{name}}", "{{price}}"))),
+      columns("Total", "{{total}}"),
+      JavaOnlyMap.of("type", "FEED", "lines", 2),
+      JavaOnlyMap.of("type", "CUT")));
+
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("order", 1042.0);
+    variables.put("table", "T7");
+    variables.put("total", "12.50");
+    variables.put("items", Arrays.asList(item(2, "Flat white", "8.00"), item(1, "Croissant", "4.50")));
+
+    byte[] expected = encode(JavaOnlyArray.of(
+      text("Corner Cafe", "CENTER"),
+      text("Order 1042 - T7", "LEFT"),
+      columns("2 x Flat white", "8.00"),
+      columns("1 x Croissant", "4.50"),
+      columns("Total", "12.50"),
+      JavaOnlyMap.of("type", "FEED", "lines", 2),
+      JavaOnlyMap.of("type", "CUT")));
+
+    assertArrayEquals(expected, render(template, variables));
+    // The second render reuses the segments encoded by the first
+    assertArrayEquals(expected, render(template, variables));
+  }
+
+  @Test
+  public void rendersMissingValuesAsEmpty() throws Exception {
+    ReceiptTemplate template = ReceiptTemplate.parse(JavaOnlyArray.of(
+      text("Guest: {{guest}}", "LEFT"),
+      JavaOnlyMap.of("type", "SECTION", "name", "items", "rows", JavaOnlyArray.of(text("{{name}}", "LEFT")))));
+
+    assertArrayEquals(encode(JavaOnlyArray.of(text("Guest: ", "LEFT"))), render(template, new HashMap<>()));
+  }
+
+  @Test
+  public void rejectsImageRowsAndNestedSections() throws Exception {
+    try {
+      ReceiptTemplate.parse(JavaOnlyArray.of(JavaOnlyMap.of("type", "IMAGE", "url", "https://example.com/a.png")));
+      fail("Expected image rows to be rejected");
+    } catch (IllegalArgumentException expected) {
+      // Images are printed as logos in templates
+    }
+
+    try {
+      ReceiptTemplate.parse(JavaOnlyArray.of(JavaOnlyMap.of("type", "SECTION", "name", "outer", "rows",
+        JavaOnlyArray.of(JavaOnlyMap.of("type", "SECTION", "name", "inner", "rows", JavaOnlyArray.of())))));
+      fail("Expected nested sections to be rejected");
+    } catch (IllegalArgumentException expected) {
+      // Sections repeat plain rows only
+    }
+  }
+
+  @Test
+  public void templateJobsRenderWhenTheyAreSent() throws Exception {
+    String key = "template-job-test";
+    TemplateRegistry.getInstance().register(key, ReceiptTemplate.parse(JavaOnlyArray.of(
+      text("Table {{table}}", "LEFT"))));
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("table", "T7");
+
+    PrinterJob job = PrintJobHandler.createTemplatePrintJob(PRINTER, "NETWORK", key, variables, "{}");
+    assertTrue(job.isTemplate());
+    assertFalse(job.isRaw());
+
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    PrintJobHandler.streamTemplate(job, sent::write);
+    assertArrayEquals(render(TemplateRegistry.getInstance().get(key), variables), sent.toByteArray());
+
+    TemplateRegistry.getInstance().remove(key);
+    try {
+      PrintJobHandler.streamTemplate(job, sent::write);
+      fail("Expected a removed template to fail when its job is sent");
+    } catch (IOException expected) {
+      // The job can't be encoded, so it fails without a retry
+    }
+  }
+
+  private static Map<String, Object> item(double qty, String name, String price) {
+    Map<String, Object> item = new HashMap<>();
+    item.put("qty", qty);
+    item.put("name", name);
+    item.put("price", price);
+    return item;
+  }
+}
@@ -0,0 +1,168 @@
+package com.posthermalprinter.helper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.posthermalprinter.util.FontSize;
+import com.posthermalprinter.util.PrintItem;
+import com.posthermalprinter.util.PrinterProfile;
+import com.posthermalprinter.util.TableTemplate;
+import com.posthermalprinter.util.TextAlignment;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests the column layout of {@link TableEncoder} on 58 mm (32 column) and 80 mm (48 column) paper.
+ */
+public class TableEncoderTest {
+
+  // Cancel Chinese mode, select code page 437 and left alignment
+  private static final int HEADER_BYTES = 8;
+  private static final Charset GBK = Charset.forName("GBK");
+
+  private static TableTemplate.Column column(int width, TextAlignment alignment, boolean wrapWords) {
+    return new TableTemplate.Column(width, alignment, false, wrapWords);
+  }
+
+  private static byte[] encode(TableTemplate template, String[][] data, PrinterProfile profile) throws Exception {
+    PrintItem item = new PrintItem(PrintItem.Type.TABLE, "", false, TextAlignment.LEFT, 0, new ArrayList<>(), FontSize.NORMAL, 0);
+    item.setTable(template, data);
+    return TableEncoder.encode(item, profile);
+  }
+
+  /**
+   * Gets the printed lines of an ASCII table, without the commands before them.
+   */
+  private static List<String> lines(byte[] encoded) {
+    String text = new String(encoded, HEADER_BYTES, encoded.length - HEADER_BYTES, StandardCharsets.US_ASCII);
+    assertEquals("every line ends with a line feed", '\n', text.charAt(text.length() - 1));
+    return Arrays.asList(text.substring(0, text.length() - 1).split("\n", -1));
+  }
+
+  @Test
+  public void placesColumnsAtTheirOffsetsOn80mmPaper() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(24, TextAlignment.LEFT, false),
+      column(8, TextAlignment.CENTER, false),
+      column(16, TextAlignment.RIGHT, false)));
+
+    List<String> lines = lines(encode(template, new String[][]{{"Flat white", "Tea"}, {"2", "1"}, {"9.00", "3.50"}},
+      PrinterProfile.PRINTER_80MM));
+
+    assertEquals(48, template.getLineWidth());
+    assertEquals(24, template.getOffset(1));
+    assertEquals(32, template.getOffset(2));
+    assertEquals(Arrays.asList(
+      "Flat white" + pad(14) + pad(3) + "2" + pad(4) + pad(12) + "9.00",
+      "Tea" + pad(21) + pad(3) + "1" + pad(4) + pad(12) + "3.50"), lines);
+    for (String line : lines) {
+      assertEquals(PrinterProfile.PRINTER_80MM.getCharactersPerLine(FontSize.NORMAL), line.length());
+    }
+  }
+
+  @Test
+  public void placesColumnsAtTheirOffsetsOn58mmPaper() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(16, TextAlignment.LEFT, false),
+      column(6, TextAlignment.CENTER, false),
+      column(10, TextAlignment.RIGHT, false)));
+
+    List<String> lines = lines(encode(template, new String[][]{{"Latte"}, {"12"}, {"54.00"}}, PrinterProfile.PRINTER_58MM));
+
+    assertEquals(32, template.getLineWidth());
+    assertEquals(Arrays.asList("Latte" + pad(11) + pad(2) + "12" + pad(2) + pad(5) + "54.00"), lines);
+    assertEquals(PrinterProfile.PRINTER_58MM.getCharactersPerLine(FontSize.NORMAL), lines.get(0).length());
+  }
+
+  @Test
+  public void padsCellsByAlignment() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(11, TextAlignment.LEFT, false),
+      column(11, TextAlignment.CENTER, false),
+      column(10, TextAlignment.RIGHT, false)));
+
+    List<String> lines = lines(encode(template, new String[][]{{"abc"}, {"abc"}, {"abc"}}, PrinterProfile.PRINTER_58MM));
+
+    // Odd padding puts the extra space right of centered text
+    assertEquals(Arrays.asList("abc" + pad(8) + pad(4) + "abc" + pad(4) + pad(7) + "abc"), lines);
+  }
+
+  @Test
+  public void wrapsLongCellsOnWordsAndLeavesOtherColumnsBlank() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(24, TextAlignment.LEFT, true),
+      column(8, TextAlignment.CENTER, false),
+      column(16, TextAlignment.RIGHT, false)));
+
+    List<String> lines = lines(encode(template,
+      new String[][]{{"Large flat white with extra oat milk and vanilla"}, {"2"}, {"12.50"}},
+      PrinterProfile.PRINTER_80MM));
+
+    assertEquals(Arrays.asList(
+      "Large flat white with" + pad(3) + pad(3) + "2" + pad(4) + pad(11) + "12.50",
+      "extra oat milk and" + pad(30),
+      "vanilla" + pad(41)), lines);
+  }
+
+  @Test
+  public void cutsLongCellsAtTheColumnWidthWithoutWordWrap() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(10, TextAlignment.LEFT, false),
+      column(22, TextAlignment.RIGHT, false)));
+
+    List<String> lines = lines(encode(template, new String[][]{{"ABCDEFGHIJKLMNO"}, {"1.00"}}, PrinterProfile.PRINTER_58MM));
+
+    assertEquals(Arrays.asList(
+      "ABCDEFGHIJ" + pad(18) + "1.00",
+      "KLMNO" + pad(27)), lines);
+  }
+
+  @Test
+  public void cutsDoubleWidthTextByVisualWidth() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(6, TextAlignment.LEFT, false),
+      column(26, TextAlignment.RIGHT, false)));
+
+    byte[] encoded = encode(template, new String[][]{{"宫保鸡丁饭"}, {"38.00"}}, PrinterProfile.PRINTER_58MM);
+
+    // Three double-width characters fill the column; none is dropped
+    String text = new String(encoded, GBK);
+    String table = text.substring(text.indexOf("宫"));
+    assertEquals("宫保鸡" + pad(26 - 5) + "38.00\n" + "丁饭  " + pad(26) + "\n", table);
+  }
+
+  @Test
+  public void encodesEveryAsciiLineAtTheLineWidth() throws Exception {
+    TableTemplate template = new TableTemplate(Arrays.asList(
+      column(30, TextAlignment.LEFT, true),
+      column(18, TextAlignment.RIGHT, false)));
+    String[] names = new String[50];
+    String[] prices = new String[50];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = "Item " + i + (i % 3 == 0 ? " with a description long enough to wrap" : "");
+      prices[i] = i + ".00";
+    }
+
+    byte[] encoded = encode(template, new String[][]{names, prices}, PrinterProfile.PRINTER_80MM);
+
+    for (String line : lines(encoded)) {
+      assertEquals(48, line.length());
+    }
+    byte[] header = Arrays.copyOf(encoded, HEADER_BYTES);
+    assertArrayEquals(new byte[]{0x1C, 0x2E, 0x1B, 0x74, 0x00, 0x1B, 0x61, 0x00}, header);
+  }
+
+  private static String pad(int count) {
+    StringBuilder spaces = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      spaces.append(' ');
+    }
+    return spaces.toString();
+  }
+}
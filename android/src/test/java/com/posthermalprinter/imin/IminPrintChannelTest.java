@@ -0,0 +1,305 @@
+package com.posthermalprinter.imin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.posthermalprinter.helper.POSPrinter;
+import com.posthermalprinter.helper.PrintEncodingException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link IminPrintChannel} against a fake printer SDK.
+ */
+public class IminPrintChannelTest {
+
+  /**
+   * Records the writes it receives and reports a scripted status.
+   */
+  private static class FakeSdk implements IminPrintChannel.PrinterSdk {
+    final List<byte[]> writes = Collections.synchronizedList(new ArrayList<>());
+    final AtomicInteger statusCalls = new AtomicInteger();
+    volatile int notReadyPolls;
+    volatile int status = IminPrintChannel.STATUS_READY;
+
+    @Override
+    public void sendRawData(byte[] data) throws Exception {
+      // A slow transport gives later jobs every chance to overtake
+      Thread.sleep(1);
+      writes.add(data);
+    }
+
+    @Override
+    public int getStatus() {
+      statusCalls.incrementAndGet();
+      if (notReadyPolls > 0) {
+        notReadyPolls--;
+        return 7;
+      }
+      return status;
+    }
+
+    byte[] received() {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      synchronized (writes) {
+        for (byte[] write : writes) {
+          out.write(write, 0, write.length);
+        }
+      }
+      return out.toByteArray();
+    }
+  }
+
+  @Test
+  public void keepsJobsAndFragmentsInSubmissionOrder() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 64, 1000);
+
+    int jobs = 20;
+    int fragments = 50;
+    List<CompletableFuture<Boolean>> results = new ArrayList<>();
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (int job = 0; job < jobs; job++) {
+      int id = job;
+      results.add(channel.submit(sink -> {
+        for (int fragment = 0; fragment < fragments; fragment++) {
+          sink.write(new byte[]{(byte) id, (byte) fragment});
+        }
+      }, 0));
+      for (int fragment = 0; fragment < fragments; fragment++) {
+        expected.write(id);
+        expected.write(fragment);
+      }
+    }
+
+    for (CompletableFuture<Boolean> result : results) {
+      assertTrue(result.get(5, TimeUnit.SECONDS));
+    }
+    assertArrayEquals(expected.toByteArray(), sdk.received());
+  }
+
+  @Test
+  public void doesNotInterleaveJobsOfConcurrentCallers() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 16, 1000);
+
+    int callers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    CountDownLatch start = new CountDownLatch(1);
+    List<CompletableFuture<Boolean>> results = Collections.synchronizedList(new ArrayList<>());
+    for (int caller = 0; caller < callers; caller++) {
+      int id = caller;
+      executor.execute(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        results.add(channel.submit(sink -> {
+          for (int i = 0; i < 40; i++) {
+            sink.write(new byte[]{(byte) id});
+          }
+        }, 0));
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    for (CompletableFuture<Boolean> result : new ArrayList<>(results)) {
+      assertTrue(result.get(5, TimeUnit.SECONDS));
+    }
+
+    // Each job is one run of 40 identical bytes
+    byte[] received = sdk.received();
+    assertEquals(callers * 40, received.length);
+    for (int job = 0; job < callers; job++) {
+      for (int i = 1; i < 40; i++) {
+        assertEquals(received[job * 40], received[job * 40 + i]);
+      }
+    }
+  }
+
+  @Test
+  public void concatenatesCommandsIntoFewWrites() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1024, 1000);
+
+    assertTrue(channel.submit(sink -> {
+      for (int i = 0; i < 300; i++) {
+        sink.write(new byte[]{0x1B, 0x40, (byte) i});
+      }
+      sink.write(new byte[2000]);
+    }, 0).get(5, TimeUnit.SECONDS));
+
+    // 2900 bytes in chunks of at most 1024
+    assertEquals(3, sdk.writes.size());
+    for (byte[] write : sdk.writes) {
+      assertTrue(write.length <= 1024);
+    }
+    assertEquals(2900, sdk.received().length);
+  }
+
+  @Test
+  public void completesWhenThePrinterReportsReady() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1024, 5000);
+
+    assertTrue(channel.submit(sink -> {
+      sink.write(new byte[]{0x0A});
+      sdk.notReadyPolls = 3;
+    }, 0).get(5, TimeUnit.SECONDS));
+    assertTrue(sdk.statusCalls.get() >= 5);
+  }
+
+  @Test
+  public void failsWhenThePrinterIsNotReady() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    sdk.status = 7;
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1024, 200);
+
+    assertFalse(channel.submit(sink -> sink.write(new byte[]{0x0A}), 0).get(5, TimeUnit.SECONDS));
+    assertTrue(sdk.writes.isEmpty());
+  }
+
+  @Test
+  public void pacesWritesAtThePrinterRate() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1000, 1000);
+
+    long start = System.nanoTime();
+    assertTrue(channel.submit(sink -> sink.write(new byte[4000]), 10_000).get(5, TimeUnit.SECONDS));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+    // The fourth chunk is due 300 ms after the first
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 280);
+  }
+
+  @Test
+  public void doesNotTrustAReadyStatusBeforeThePacedPrintTime() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 4000, 5000);
+
+    // The printer never reports busy, so the job is done once 4000 bytes had time to print
+    long start = System.nanoTime();
+    assertTrue(channel.submit(sink -> sink.write(new byte[4000]), 10_000).get(5, TimeUnit.SECONDS));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 380);
+  }
+
+  @Test
+  public void acceptsReadyOnceThePrinterWasSeenBusy() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 4000, 5000);
+
+    long start = System.nanoTime();
+    assertTrue(channel.submit(sink -> {
+      sink.write(new byte[4000]);
+      sdk.notReadyPolls = 1;
+    }, 100).get(5, TimeUnit.SECONDS));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+    // Well before the 40 s the bytes would take at the paced rate
+    assertTrue("elapsed " + elapsedMillis, elapsedMillis < 2000);
+  }
+
+  @Test
+  public void reportsPaperLowAsAWarning() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1024, 1000);
+    List<Boolean> paperLow = Collections.synchronizedList(new ArrayList<>());
+    channel.setWarningListener(paperLow::add);
+
+    sdk.status = IminPrintChannel.STATUS_PAPER_LOW;
+    assertTrue(channel.submit(sink -> sink.write(new byte[]{0x0A}), 0).get(5, TimeUnit.SECONDS));
+    sdk.status = IminPrintChannel.STATUS_READY;
+    assertTrue(channel.submit(sink -> sink.write(new byte[]{0x0A}), 0).get(5, TimeUnit.SECONDS));
+
+    assertEquals(Arrays.asList(true, false), paperLow);
+  }
+
+  @Test
+  public void reportsEncoderFailuresApartFromPrinterFailures() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1024, 1000);
+
+    CompletableFuture<Boolean> broken = channel.submit(sink -> {
+      sink.write(new byte[]{0x0A});
+      throw new IOException("Image can't be decoded");
+    }, 0);
+    try {
+      broken.get(5, TimeUnit.SECONDS);
+      fail("An encoder failure must not look like a printer failure");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof PrintEncodingException);
+      // The buffered line feed never reached the printer
+      assertFalse(((PrintEncodingException) e.getCause()).isPartiallyPrinted());
+      assertTrue(sdk.writes.isEmpty());
+    }
+
+    FakeSdk failing = new FakeSdk() {
+      @Override
+      public void sendRawData(byte[] data) throws Exception {
+        throw new IllegalStateException("Printer disconnected");
+      }
+    };
+    IminPrintChannel failingChannel = new IminPrintChannel(failing, 1024, 1000);
+    assertFalse(failingChannel.submit(sink -> sink.write(new byte[]{0x0A}), 0).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void endsAPartiallySentJobWithAResetAndACut() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 64, 1000);
+    byte[] band = new byte[100];
+    Arrays.fill(band, (byte) 0x55);
+
+    CompletableFuture<Boolean> broken = channel.submit(sink -> {
+      sink.write(band);
+      throw new IOException("Image band can't be decoded");
+    }, 0);
+    try {
+      broken.get(5, TimeUnit.SECONDS);
+      fail("A partially sent job must fail");
+    } catch (ExecutionException e) {
+      assertTrue(((PrintEncodingException) e.getCause()).isPartiallyPrinted());
+    }
+
+    // The rest of the band completes the command cut at the chunk boundary, then the trailer follows
+    byte[] trailer = POSPrinter.partialJobTrailer();
+    byte[] expected = Arrays.copyOf(band, band.length + trailer.length);
+    System.arraycopy(trailer, 0, expected, band.length, trailer.length);
+    assertArrayEquals(expected, sdk.received());
+  }
+
+  @Test
+  public void completesJobsWhoseTaskThrowsAnError() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrintChannel channel = new IminPrintChannel(sdk, 1024, 1000);
+
+    CompletableFuture<Boolean> failed = channel.submit(sink -> {
+      throw new AssertionError("Encoder failed with an error");
+    }, 0);
+    CompletableFuture<Boolean> next = channel.submit(sink -> sink.write(new byte[]{0x0A}), 0);
+
+    assertFalse(failed.get(5, TimeUnit.SECONDS));
+    assertTrue(next.get(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,175 @@
+package com.posthermalprinter.imin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link IminPrinterReadiness} against a fake printer SDK.
+ */
+public class IminPrinterReadinessTest {
+
+  private static final long VALIDITY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final long INIT_TIMEOUT_MILLIS = 300;
+  private static final long STATUS_TIMEOUT_MILLIS = 200;
+
+  /**
+   * Counts the SDK calls and answers status reads with a scripted status. A status of
+   * {@link #SILENT} never calls back, like a printer whose status callback never fires.
+   */
+  private static class FakeSdk implements IminPrinterReadiness.PrinterSdk {
+    static final int SILENT = Integer.MIN_VALUE;
+
+    final AtomicInteger inits = new AtomicInteger();
+    final AtomicInteger statusReads = new AtomicInteger();
+    final CountDownLatch initStarted = new CountDownLatch(1);
+    volatile CountDownLatch initReleased = new CountDownLatch(0);
+    volatile int status = 0;
+
+    @Override
+    public void resetDevice() {
+    }
+
+    @Override
+    public void initPrinter(IminPrinterReadiness.Connection connection) {
+      inits.incrementAndGet();
+      initStarted.countDown();
+      try {
+        initReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void readStatus(IminPrinterReadiness.Connection connection, IminPrinterReadiness.StatusCallback callback) {
+      statusReads.incrementAndGet();
+      if (status != SILENT) {
+        callback.onStatus(status);
+      }
+    }
+  }
+
+  private static IminPrinterReadiness readiness(FakeSdk sdk, long validityMillis) {
+    return new IminPrinterReadiness(sdk, IminPrinterReadiness.Connection.SPI, validityMillis,
+      INIT_TIMEOUT_MILLIS, STATUS_TIMEOUT_MILLIS);
+  }
+
+  @Test
+  public void initPrinterReturnsBeforeThePrinterIsInitialized() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    sdk.initReleased = new CountDownLatch(1);
+    IminPrinterReadiness readiness = readiness(sdk, VALIDITY_MILLIS);
+
+    CompletableFuture<Boolean> ready = readiness.initPrinter();
+
+    assertTrue(sdk.initStarted.await(5, TimeUnit.SECONDS));
+    assertFalse(ready.isDone());
+    sdk.initReleased.countDown();
+    assertTrue(ready.get(5, TimeUnit.SECONDS));
+    assertEquals(IminPrinterReadiness.Connection.SPI, readiness.getConnection());
+  }
+
+  @Test
+  public void concurrentCallersShareOneInitialization() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    sdk.initReleased = new CountDownLatch(1);
+    IminPrinterReadiness readiness = readiness(sdk, VALIDITY_MILLIS);
+
+    CompletableFuture<Boolean> first = readiness.ensureReady();
+    CompletableFuture<Boolean> second = readiness.ensureReady();
+    assertSame(first, second);
+
+    sdk.initReleased.countDown();
+    assertTrue(first.get(5, TimeUnit.SECONDS));
+    assertEquals(1, sdk.inits.get());
+  }
+
+  @Test
+  public void recentInitializationIsReusedAfterAStatusCheck() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrinterReadiness readiness = readiness(sdk, VALIDITY_MILLIS);
+
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+
+    assertEquals(1, sdk.inits.get());
+    // One status read by the initialization, one by each later check
+    assertEquals(3, sdk.statusReads.get());
+  }
+
+  @Test
+  public void expiredInitializationIsDoneAgain() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrinterReadiness readiness = readiness(sdk, 0);
+
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+
+    assertEquals(2, sdk.inits.get());
+  }
+
+  @Test
+  public void failedStatusCheckInitializesAgain() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrinterReadiness readiness = readiness(sdk, VALIDITY_MILLIS);
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+
+    sdk.status = -1;
+
+    assertFalse(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+    assertEquals(2, sdk.inits.get());
+  }
+
+  @Test
+  public void statusCheckThatNeverAnswersTimesOut() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrinterReadiness readiness = readiness(sdk, VALIDITY_MILLIS);
+    assertTrue(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+
+    sdk.status = FakeSdk.SILENT;
+    long start = System.nanoTime();
+
+    // The status check gives up, and so does the initialization it falls back to
+    assertFalse(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue(elapsedMillis >= STATUS_TIMEOUT_MILLIS);
+    assertTrue(elapsedMillis < 5000);
+    assertEquals(2, sdk.inits.get());
+  }
+
+  @Test
+  public void stuckInitializationTimesOutAndIsStartedAgain() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    sdk.status = FakeSdk.SILENT;
+    IminPrinterReadiness readiness = readiness(sdk, VALIDITY_MILLIS);
+
+    assertFalse(readiness.initPrinter().get(5, TimeUnit.SECONDS));
+    assertNull(readiness.getConnection());
+
+    // The callback of the first initialization never fired; the next call does not wait on it
+    sdk.status = 0;
+    assertTrue(readiness.initPrinter().get(5, TimeUnit.SECONDS));
+    assertEquals(2, sdk.inits.get());
+  }
+
+  @Test
+  public void unknownDeviceIsNeverReady() throws Exception {
+    FakeSdk sdk = new FakeSdk();
+    IminPrinterReadiness readiness = new IminPrinterReadiness(sdk, null, VALIDITY_MILLIS,
+      INIT_TIMEOUT_MILLIS, STATUS_TIMEOUT_MILLIS);
+
+    assertFalse(readiness.ensureReady().get(5, TimeUnit.SECONDS));
+    assertEquals(0, sdk.inits.get());
+  }
+}
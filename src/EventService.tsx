@@ -1,6 +1,7 @@
 import React, { useEffect, useRef } from "react";
 import { NativeEventEmitter, NativeModules, Platform } from "react-native";
 import { initializePrinterPool } from "./printerModule";
+import type { PrintJobEvent, PrinterWarningEvent } from "./types";
 
 const { PrinterReachability } = NativeModules;
 const { PosThermalPrinter } = NativeModules;
@@ -15,12 +16,16 @@ interface EventServiceProviderProps {
   children: React.ReactNode;
   onReconnect?: ReconnectFunction;
   onBeforePrint?: () => void;
+  onPrintJobEvents?: (events: PrintJobEvent[]) => void;
+  onPrinterWarning?: (event: PrinterWarningEvent) => void;
 }
 
 export const EventServiceProvider: React.FC<EventServiceProviderProps> = ({
   children,
   onReconnect,
   onBeforePrint,
+  onPrintJobEvents,
+  onPrinterWarning,
 }) => {
   const isInitialized = useRef<boolean>(false);
 
@@ -49,6 +54,14 @@ export const EventServiceProvider: React.FC<EventServiceProviderProps> = ({
       onBeforePrint?.();
     };
 
+    const handlePrintJobEvents = (events: PrintJobEvent[]) => {
+      onPrintJobEvents?.(events);
+    };
+
+    const handlePrinterWarning = (event: PrinterWarningEvent) => {
+      onPrinterWarning?.(event);
+    };
+
     // Initialize printers
     initializePrinters();
 
@@ -63,12 +76,24 @@ export const EventServiceProvider: React.FC<EventServiceProviderProps> = ({
       handlePrePrint,
     );
 
+    const printJobSubscription = eventEmitter.addListener(
+      "PrintJobEvents",
+      handlePrintJobEvents,
+    );
+
+    const warningSubscription = eventEmitter.addListener(
+      "PrinterWarning",
+      handlePrinterWarning,
+    );
+
     // Cleanup function
     return () => {
       unreachableSubscription.remove();
       prePrintSubscription.remove();
+      printJobSubscription.remove();
+      warningSubscription.remove();
     };
-  }, [onBeforePrint, onReconnect]);
+  }, [onBeforePrint, onReconnect, onPrintJobEvents, onPrinterWarning]);
 
   return <>{children}</>;
 };
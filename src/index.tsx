@@ -1,3 +1,4 @@
 export * from "./types";
 export * from "./printerModule";
+export * from "./table";
 export { EventServiceProvider } from "./EventService";
@@ -2,12 +2,19 @@ import { NativeModules } from "react-native";
 import { LINKING_ERROR } from "./constants";
 import {
   PrintJobRowType,
+  type EventPolicy,
   type IPosPrinter,
+  type LogoOptions,
   type ParsedPendingJob,
+  type PrinterEventName,
   type PrinterStatus,
   type PrintJobMetadata,
+  type PrintJobRequest,
   type PrintJobRow,
+  type RasterStats,
   type RawPendingJob,
+  type TemplateRow,
+  type TemplateVariables,
 } from "./types";
 
 export const EscPosPrinter = NativeModules.PosThermalPrinter
@@ -63,6 +70,98 @@ export async function printText(
   }
 }
 
+/**
+ * Sends a print job that is already encoded as ESC/POS bytes, e.g. a report rendered by a backend.
+ *
+ * The bytes are sent as they are, without parsing or re-encoding, through the same queue
+ * as other jobs for the printer.
+ *
+ * @param {IPosPrinter} printer - The printer to print on.
+ * @param {string | ArrayBuffer | Uint8Array} data - The ESC/POS bytes, or a base64 string of them.
+ * @param {object} metadata - User-defined metadata for the print job.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the job was queued.
+ */
+export async function printRaw(
+  printer: IPosPrinter,
+  data: string | ArrayBuffer | Uint8Array,
+  metadata: PrintJobMetadata,
+): Promise<boolean> {
+  try {
+    const base64 =
+      typeof data === "string"
+        ? data
+        : toBase64(data instanceof Uint8Array ? data : new Uint8Array(data));
+    return await EscPosPrinter.setRawPrintJob(
+      printer,
+      base64,
+      JSON.stringify(metadata),
+    );
+  } catch (error) {
+    console.error("Error printing raw data:", error);
+    return false;
+  }
+}
+
+const BASE64_ALPHABET =
+  "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+function toBase64(bytes: Uint8Array): string {
+  const chunks: string[] = [];
+  for (let i = 0; i < bytes.length; i += 3) {
+    const b0 = bytes[i] ?? 0;
+    const b1 = bytes[i + 1] ?? 0;
+    const b2 = bytes[i + 2] ?? 0;
+    chunks.push(
+      BASE64_ALPHABET.charAt(b0 >> 2) +
+        BASE64_ALPHABET.charAt(((b0 & 0x03) << 4) | (b1 >> 4)) +
+        (i + 1 < bytes.length
+          ? BASE64_ALPHABET.charAt(((b1 & 0x0f) << 2) | (b2 >> 6))
+          : "=") +
+        (i + 2 < bytes.length ? BASE64_ALPHABET.charAt(b2 & 0x3f) : "="),
+    );
+  }
+  return chunks.join("");
+}
+
+/**
+ * Sends several print jobs in one native call, e.g. a receipt, kitchen tickets and a drawer kick.
+ *
+ * The jobs are queued together and in order. Where the native batch call is not available,
+ * the jobs are sent one by one.
+ *
+ * @param {PrintJobRequest[]} jobs - The jobs to print, each with its printer, payload and metadata.
+ * @returns {Promise<string[] | null>} - A promise that resolves to the job ids, in the order of the
+ * jobs, or to null when the jobs were sent one by one, which assigns no ids. It rejects if the jobs
+ * could not be queued.
+ */
+export async function printBatch(
+  jobs: PrintJobRequest[],
+): Promise<string[] | null> {
+  try {
+    if (typeof EscPosPrinter.setPrintJobsBatch !== "function") {
+      for (const job of jobs) {
+        await EscPosPrinter.setPrintJobs(
+          job.printer,
+          job.payload,
+          JSON.stringify(job.metadata),
+        );
+      }
+      return null;
+    }
+
+    return await EscPosPrinter.setPrintJobsBatch(
+      jobs.map((job) => ({
+        printer: job.printer,
+        content: job.payload,
+        metadata: JSON.stringify(job.metadata),
+      })),
+    );
+  } catch (error) {
+    console.error("Error printing batch:", error);
+    throw error;
+  }
+}
+
 /**
  * Sends a cash drawer open print job to a printer by IP address.
  *
@@ -337,3 +436,150 @@ export async function getPrinterStatus(printer: IPosPrinter): Promise<void> {
     console.error("Error fetching printer status:", error);
   }
 }
+
+/**
+ * Registers a logo that can be printed by key with LOGO print job rows.
+ *
+ * The logo is uploaded to a printer's graphics memory the first time it is printed there,
+ * and later receipts only send its key. Registering the same key again replaces the logo.
+ *
+ * @param {string} key - The key used to print the logo.
+ * @param {string} url - The URL of the logo image.
+ * @param {LogoOptions} options - The width (percentage of the print width) and storage of the logo.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the logo was registered.
+ */
+export async function registerLogo(
+  key: string,
+  url: string,
+  options: LogoOptions = {},
+): Promise<boolean> {
+  try {
+    return await EscPosPrinter.registerLogo(key, url, options);
+  } catch (error) {
+    console.error("Error registering logo:", error);
+    return false;
+  }
+}
+
+/**
+ * Removes a registered logo.
+ *
+ * @param {string} key - The key of the logo to remove.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the logo was removed.
+ */
+export async function removeLogo(key: string): Promise<boolean> {
+  try {
+    return await EscPosPrinter.removeLogo(key);
+  } catch (error) {
+    console.error("Error removing logo:", error);
+    return false;
+  }
+}
+
+/**
+ * Registers a receipt template that can be printed by key with only its values.
+ *
+ * Rows may contain `{{name}}` placeholders, and SECTION rows repeat their rows for each entry
+ * of a list value. The rows without placeholders are encoded once per printer, so printing
+ * the template only sends and encodes the values. Registering the same key again replaces
+ * the template.
+ *
+ * @param {string} key - The key used to print the template.
+ * @param {TemplateRow[]} rows - The rows of the template.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the template was registered.
+ */
+export async function registerTemplate(
+  key: string,
+  rows: TemplateRow[],
+): Promise<boolean> {
+  try {
+    return await EscPosPrinter.registerTemplate(key, rows);
+  } catch (error) {
+    console.error("Error registering template:", error);
+    return false;
+  }
+}
+
+/**
+ * Removes a registered receipt template.
+ *
+ * @param {string} key - The key of the template to remove.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the template was removed.
+ */
+export async function removeTemplate(key: string): Promise<boolean> {
+  try {
+    return await EscPosPrinter.removeTemplate(key);
+  } catch (error) {
+    console.error("Error removing template:", error);
+    return false;
+  }
+}
+
+/**
+ * Prints a registered receipt template with the given values.
+ *
+ * @param {IPosPrinter} printer - The printer to print on.
+ * @param {string} key - The key of the template.
+ * @param {TemplateVariables} variables - The placeholder values, and a list of value maps per section.
+ * @param {object} metadata - User-defined metadata for the print job.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the job was queued.
+ */
+export async function printTemplate(
+  printer: IPosPrinter,
+  key: string,
+  variables: TemplateVariables,
+  metadata: PrintJobMetadata,
+): Promise<boolean> {
+  try {
+    return await EscPosPrinter.setTemplatePrintJob(
+      printer,
+      key,
+      variables,
+      JSON.stringify(metadata),
+    );
+  } catch (error) {
+    console.error("Error printing template:", error);
+    return false;
+  }
+}
+
+/**
+ * Sets how an event is filtered and rate-limited before it reaches JavaScript (Android only).
+ *
+ * By default `PrinterUnreachable` is sent once per outage and at most once a second per
+ * printer, and `PrePrintCheck` at most once every 250 ms. Options that are not given keep
+ * their current value.
+ *
+ * @param {PrinterEventName} event - The event to configure.
+ * @param {EventPolicy} policy - The deduplication and rate limit of the event.
+ * @returns {Promise<boolean>} - A promise that resolves to true if the policy was set.
+ */
+export async function setEventPolicy(
+  event: PrinterEventName,
+  policy: EventPolicy,
+): Promise<boolean> {
+  try {
+    return await EscPosPrinter.setEventPolicy(event, policy);
+  } catch (error) {
+    console.error("Error setting event policy:", error);
+    return false;
+  }
+}
+
+/**
+ * Gets how many raster bytes were sent for printed images, compared with full width rasters,
+ * to see what trimming white rows and margins saves on slow network printers.
+ *
+ * @param {boolean} reset - Whether to reset the counters after reading them.
+ * @returns {Promise<RasterStats | null>} - A promise that resolves to the counters, or null on error.
+ */
+export async function getRasterStats(
+  reset: boolean = false,
+): Promise<RasterStats | null> {
+  try {
+    return await EscPosPrinter.getRasterStats(reset);
+  } catch (error) {
+    console.error("Error getting raster stats:", error);
+    return null;
+  }
+}
@@ -0,0 +1,40 @@
+import {
+  PrintJobRowType,
+  type PrintFontSize,
+  type PrintFontWeight,
+  type TableCell,
+  type TableColumn,
+  type TablePrintJobRow,
+} from "./types";
+
+/**
+ * Builds a TABLE print job row from row-major data.
+ *
+ * The column layout is sent once and the cells are transposed into one array per column,
+ * which keeps the bridge payload small for reports with many rows.
+ *
+ * @param {TableColumn[]} columns - The width, alignment and style of each column.
+ * @param {TableCell[][]} rows - The table rows, each holding one cell per column.
+ * @param {object} options - Optional bold and font size for the whole table.
+ * @returns {TablePrintJobRow} - A TABLE print job row.
+ */
+export function createTableRow(
+  columns: TableColumn[],
+  rows: TableCell[][],
+  options: { bold?: PrintFontWeight; fontSize?: PrintFontSize } = {},
+): TablePrintJobRow {
+  const data: TableCell[][] = columns.map(() => new Array(rows.length));
+
+  rows.forEach((row, rowIndex) => {
+    for (let column = 0; column < columns.length; column++) {
+      data[column]![rowIndex] = row[column] ?? "";
+    }
+  });
+
+  return {
+    type: PrintJobRowType.TABLE,
+    columns,
+    data,
+    ...options,
+  };
+}
@@ -6,6 +6,15 @@ export enum PRINTER_WIDTH {
 export interface IPosPrinter {
   ip: string;
   type: PosPrinterType;
+  profile?: PrinterProfile;
+}
+
+// Capability presets used to encode and pace jobs for a printer (Android only)
+export enum PrinterProfile {
+  PRINTER_80MM = "80MM",
+  PRINTER_58MM = "58MM",
+  IMIN_80MM = "IMIN_80MM",
+  IMIN_58MM = "IMIN_58MM",
 }
 
 export enum PosPrinterType {
@@ -28,6 +37,9 @@ export enum PrintJobRowType {
   IMAGE = "IMAGE",
   QRCODE = "QRCODE",
   CASHBOX = "CASHBOX",
+  TABLE = "TABLE",
+  LOGO = "LOGO",
+  BARCODE = "BARCODE",
 }
 
 export type PrintFontWeight = true | false;
@@ -64,7 +76,10 @@ export type PrintJobRow =
   | ColumnPrintJobRow
   | ImagePrintJobRow
   | QrCodePrintJobRow
-  | CashboxPrintJobRow;
+  | CashboxPrintJobRow
+  | TablePrintJobRow
+  | LogoPrintJobRow
+  | BarcodePrintJobRow;
 
 // Type definition when 'type' is 'TEXT'
 export interface TextPrintJobRow {
@@ -93,6 +108,13 @@ export interface ColumnPrintJobRow {
   columns: Column[];
 }
 
+export enum DitherMode {
+  THRESHOLD = "THRESHOLD",
+  BAYER = "BAYER",
+  FLOYD_STEINBERG = "FLOYD_STEINBERG",
+  ATKINSON = "ATKINSON",
+}
+
 export interface ImagePrintJobRow {
   type: PrintJobRowType.IMAGE;
   url: string;
@@ -100,6 +122,9 @@ export interface ImagePrintJobRow {
   fullWidth?: boolean;
   alignment?: PrintAlignment;
   printerWidth?: number;
+  timeout?: number;
+  fallbackText?: string;
+  dither?: DitherMode;
 }
 
 export interface QrCodePrintJobRow {
@@ -113,6 +138,71 @@ export interface CashboxPrintJobRow {
   type: PrintJobRowType.CASHBOX;
 }
 
+export interface TableColumn {
+  width: number;
+  alignment?: PrintAlignment;
+  bold?: boolean;
+  wrapWords?: boolean;
+}
+
+export type TableCell = string | number;
+
+// Column layout is declared once; `data` holds one array of cells per column
+export interface TablePrintJobRow {
+  type: PrintJobRowType.TABLE;
+  bold?: PrintFontWeight;
+  fontSize?: PrintFontSize;
+  columns: TableColumn[];
+  data: TableCell[][];
+}
+
+export enum BarcodeType {
+  UPC_A = "UPC_A",
+  UPC_E = "UPC_E",
+  EAN13 = "EAN13",
+  EAN8 = "EAN8",
+  CODE39 = "CODE39",
+  ITF = "ITF",
+  CODABAR = "CODABAR",
+  CODE93 = "CODE93",
+  CODE128 = "CODE128",
+}
+
+export enum BarcodeTextPosition {
+  NONE = "NONE",
+  ABOVE = "ABOVE",
+  BELOW = "BELOW",
+  BOTH = "BOTH",
+}
+
+// `height` is the bar height in dots, `width` the narrowest bar width in dots (2 - 6)
+export interface BarcodePrintJobRow {
+  type: PrintJobRowType.BARCODE;
+  text: string;
+  barcodeType?: BarcodeType;
+  height?: number;
+  width?: number;
+  textPosition?: BarcodeTextPosition;
+  alignment?: PrintAlignment;
+}
+
+// Prints a logo registered with registerLogo by its key
+export interface LogoPrintJobRow {
+  type: PrintJobRowType.LOGO;
+  key: string;
+  alignment?: PrintAlignment;
+}
+
+export enum LogoStorage {
+  NV = "NV",
+  DOWNLOAD = "DOWNLOAD",
+}
+
+export interface LogoOptions {
+  width?: number;
+  storage?: LogoStorage;
+}
+
 /**
  * Represents the user-defined metadata for a print job.
  */
@@ -121,6 +211,111 @@ export interface PrintJobMetadata {
   [key: string]: any;
 }
 
+/**
+ * One job of a batch sent with printBatch.
+ */
+export interface PrintJobRequest {
+  printer: IPosPrinter;
+  payload: PrintJobRow[];
+  metadata: PrintJobMetadata;
+}
+
+/**
+ * Rows of a receipt template repeated once per entry of the list value named `name`.
+ */
+export interface TemplateSectionRow {
+  type: "SECTION";
+  name: string;
+  rows: Exclude<PrintJobRow, ImagePrintJobRow>[];
+}
+
+/**
+ * A row of a receipt template. Text may contain `{{name}}` placeholders.
+ * Images are printed in templates with LOGO rows.
+ */
+export type TemplateRow =
+  | Exclude<PrintJobRow, ImagePrintJobRow>
+  | TemplateSectionRow;
+
+export type TemplateValue = string | number | boolean;
+
+/**
+ * The values of a template: one per placeholder, and a list of value maps per section.
+ */
+export type TemplateVariables = Record<
+  string,
+  TemplateValue | Record<string, TemplateValue>[]
+>;
+
+export enum PrintJobStage {
+  QUEUED = "QUEUED",
+  CONNECTING = "CONNECTING",
+  RENDERING = "RENDERING",
+  SENDING = "SENDING",
+  SENT = "SENT",
+  ACKNOWLEDGED = "ACKNOWLEDGED",
+  FAILED = "FAILED",
+  CANCELLED = "CANCELLED",
+}
+
+/**
+ * A stage reached by a print job, delivered in batches to `onPrintJobEvents`.
+ */
+export interface PrintJobEvent {
+  jobId: string;
+  printerIp: string;
+  stage: PrintJobStage;
+  // 1 for the first print attempt, 0 before the first attempt
+  attempt: number;
+  // Time the stage was reached, in milliseconds since the epoch
+  timestamp: number;
+  // Time spent in the previous stage
+  stageMillis: number;
+  // Time since the job was queued
+  totalMillis: number;
+  error?: string;
+  // Time spent in each stage, on the event that ends the job
+  durations?: Partial<Record<PrintJobStage, number>>;
+}
+
+/**
+ * A warning about a printer that can still print, delivered to `onPrinterWarning`.
+ */
+export interface PrinterWarningEvent {
+  printerIp: string;
+  warning: "PAPER_LOW";
+}
+
+export type PrinterEventName =
+  | "PrinterUnreachable"
+  | "PrePrintCheck"
+  | "PrintJobEvents"
+  | "PrinterWarning";
+
+/**
+ * How an event is filtered and rate-limited on the native side.
+ */
+export interface EventPolicy {
+  // Drop events that repeat the last state of their printer
+  stateChangesOnly?: boolean;
+  // The shortest time between two events of a printer; later ones are coalesced
+  minIntervalMillis?: number;
+}
+
+/**
+ * Raster bytes sent for printed images, compared with full width rasters.
+ */
+export interface RasterStats {
+  // Number of images encoded
+  images: number;
+  // Size the images would have had as full width raster commands
+  fullBytes: number;
+  // Size of the raster commands actually sent
+  sentBytes: number;
+  // Share of the raster bytes saved, from 0 to 100
+  savedPercentage: number;
+}
+
 export interface ParsedPendingJob {
   metadata: PrintJobMetadata;
   printerIp: string;